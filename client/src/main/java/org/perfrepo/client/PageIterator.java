@@ -0,0 +1,81 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.client;
+
+import org.perfrepo.model.to.TestExecutionPageTO;
+import org.perfrepo.model.to.TestExecutionSearchTO;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator over results of paged search. The next page is requested only when all items of the current page
+ * were consumed, the search criteria are moved to the next page by {@link TestExecutionPageTO#continueSearch(TestExecutionSearchTO)}.
+ *
+ * @author agent (agent@local)
+ */
+abstract class PageIterator<T> implements Iterator<T> {
+
+   private final TestExecutionSearchTO search;
+   private Iterator<T> items;
+   private boolean more = true;
+
+   PageIterator(TestExecutionSearchTO search) {
+      this.search = search;
+   }
+
+   /**
+    * Requests the page of results for the search criteria.
+    *
+    * @param search
+    * @return the page or null on error
+    * @throws Exception
+    */
+   protected abstract TestExecutionPageTO fetch(TestExecutionSearchTO search) throws Exception;
+
+   /**
+    * @param page
+    * @return items of the page
+    */
+   protected abstract List<T> items(TestExecutionPageTO page);
+
+   @Override
+   public boolean hasNext() {
+      while ((items == null || !items.hasNext()) && more) {
+         TestExecutionPageTO page;
+         try {
+            page = fetch(search);
+         } catch (Exception e) {
+            throw new IllegalStateException("Error while retrieving next page of search results", e);
+         }
+         if (page == null) {
+            throw new IllegalStateException("Error while retrieving next page of search results");
+         }
+         items = items(page).iterator();
+         more = page.isMore();
+         page.continueSearch(search);
+      }
+      return items != null && items.hasNext();
+   }
+
+   @Override
+   public T next() {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+      return items.next();
+   }
+}
@@ -34,12 +34,19 @@ import org.perfrepo.model.Metric;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.report.Report;
+import org.perfrepo.model.to.AlertReplayTO;
+import org.perfrepo.model.to.TestExecutionPageTO;
+import org.perfrepo.model.to.TestExecutionSearchTO;
 
 import javax.xml.bind.JAXB;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * Performance Repository REST API Client.
@@ -142,6 +149,20 @@ public class PerfRepoClient {
       req.setEntity(new ByteArrayEntity(bos.toByteArray()));
    }
 
+   private TestExecutionPageTO searchPage(HttpPost post, TestExecutionSearchTO search) throws Exception {
+      setPostEntity(post, search);
+      HttpResponse resp = httpClient.execute(post);
+      if (resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+         TestExecutionPageTO page = JAXB.unmarshal(resp.getEntity().getContent(), TestExecutionPageTO.class);
+         EntityUtils.consume(resp.getEntity());
+         return page;
+      } else {
+         logHttpError("Error while searching test executions", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+   }
+
    /**
     * Create a new test with subobjects.
     *
@@ -456,6 +477,148 @@ public class PerfRepoClient {
       }
    }
 
+   /**
+    * Searches test executions, returns one page of compact results.
+    *
+    * @param search Search criteria, including the cursor of the page
+    * @param pageSize Maximum number of test executions on the page
+    * @return The page or null on error
+    * @throws Exception
+    */
+   public TestExecutionPageTO searchTestExecutionPage(TestExecutionSearchTO search, int pageSize) throws Exception {
+      return searchPage(createBasicPost("testExecution/search?pageSize=%s", pageSize), search);
+   }
+
+   /**
+    * Searches values of the metric in test executions, returns one page of results.
+    *
+    * @param search Search criteria, including the cursor of the page
+    * @param metricName Metric name
+    * @param pageSize Maximum number of test executions the values are returned for
+    * @return The page or null on error
+    * @throws Exception
+    */
+   public TestExecutionPageTO searchMetricValuePage(TestExecutionSearchTO search, String metricName, int pageSize) throws Exception {
+      return searchPage(createBasicPost("testExecution/search/values?metric=%s&pageSize=%s", URLEncoder.encode(metricName, "UTF-8"), pageSize), search);
+   }
+
+   /**
+    * Searches test executions. Results are retrieved lazily page by page while iterating, the search criteria
+    * are modified to point to the next page.
+    *
+    * @param search Search criteria
+    * @param pageSize Number of test executions retrieved at once
+    * @return Iterator over the found test executions
+    */
+   public Iterator<TestExecutionPageTO.Execution> searchTestExecutions(TestExecutionSearchTO search, int pageSize) {
+      return new PageIterator<TestExecutionPageTO.Execution>(search) {
+         @Override
+         protected TestExecutionPageTO fetch(TestExecutionSearchTO pageSearch) throws Exception {
+            return searchTestExecutionPage(pageSearch, pageSize);
+         }
+
+         @Override
+         protected List<TestExecutionPageTO.Execution> items(TestExecutionPageTO page) {
+            return page.getExecutions();
+         }
+      };
+   }
+
+   /**
+    * Searches values of the metric in test executions. Results are retrieved lazily page by page while iterating,
+    * the search criteria are modified to point to the next page.
+    *
+    * @param search Search criteria
+    * @param metricName Metric name
+    * @param pageSize Number of test executions the values are retrieved for at once
+    * @return Iterator over the values
+    */
+   public Iterator<TestExecutionPageTO.MetricValue> searchMetricValues(TestExecutionSearchTO search, String metricName, int pageSize) {
+      return new PageIterator<TestExecutionPageTO.MetricValue>(search) {
+         @Override
+         protected TestExecutionPageTO fetch(TestExecutionSearchTO pageSearch) throws Exception {
+            return searchMetricValuePage(pageSearch, metricName, pageSize);
+         }
+
+         @Override
+         protected List<TestExecutionPageTO.MetricValue> items(TestExecutionPageTO page) {
+            return page.getValues();
+         }
+      };
+   }
+
+   /**
+    * Exports test executions matching the search criteria, including their tags, parameters and values.
+    * The export is streamed to the output as it's produced by the server.
+    *
+    * @param search Search criteria
+    * @param format Export format, "csv" or "ndjson"
+    * @param out Stream to write the export to
+    * @return True on success
+    * @throws Exception
+    */
+   public boolean exportTestExecutions(TestExecutionSearchTO search, String format, OutputStream out) throws Exception {
+      HttpPost post = createBasicPost("testExecution/export?format=%s", format);
+      setPostEntity(post, search);
+      HttpResponse resp = httpClient.execute(post);
+      if (resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+         resp.getEntity().writeTo(out);
+         EntityUtils.consume(resp.getEntity());
+         return true;
+      } else {
+         logHttpError("Error while exporting test executions", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return false;
+      }
+   }
+
+   /**
+    * Starts replay of the alert over the history, i.e. finds the test executions where the alert would have fired.
+    * The replay runs in background, poll it by {@link #getAlertReplay(Long)} until it isn't running.
+    *
+    * @param alertId Alert id
+    * @param days Number of the replayed days before now, null for the whole history
+    * @return The running replay or null on error
+    * @throws Exception
+    */
+   public AlertReplayTO replayAlert(Long alertId, Integer days) throws Exception {
+      HttpPost post = days == null ? createBasicPost("alert/id/%s/replay", alertId) : createBasicPost("alert/id/%s/replay?days=%s", alertId, days);
+      HttpResponse resp = httpClient.execute(post);
+      if (resp.getStatusLine().getStatusCode() == HttpStatus.SC_ACCEPTED) {
+         AlertReplayTO replay = JAXB.unmarshal(resp.getEntity().getContent(), AlertReplayTO.class);
+         EntityUtils.consume(resp.getEntity());
+         return replay;
+      } else {
+         logHttpError("Error while starting replay of alert", post, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+   }
+
+   /**
+    * Get replay of alert by id.
+    *
+    * @param replayId Replay id
+    * @return The replay or null if it doesn't exist
+    * @throws Exception
+    */
+   public AlertReplayTO getAlertReplay(Long replayId) throws Exception {
+      HttpGet get = createBasicGet("alert/replay/%s", replayId);
+      HttpResponse resp = httpClient.execute(get);
+      if (resp.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+         AlertReplayTO replay = JAXB.unmarshal(resp.getEntity().getContent(), AlertReplayTO.class);
+         EntityUtils.consume(resp.getEntity());
+         return replay;
+      } else if (resp.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      } else {
+         logHttpError("Error while getting replay of alert", get, resp);
+         EntityUtils.consume(resp.getEntity());
+         return null;
+      }
+   }
+
    /**
     * Get report by id.
     *
@@ -13,11 +13,13 @@ import java.util.Collection;
 @javax.persistence.Entity
 @Table(name = "alert")
 @NamedQueries({
-    @NamedQuery(name = Alert.GET_BY_TEST_AND_METRIC, query = "SELECT distinct alert from Alert alert join alert.test test join alert.metric metric where test.id = :testId and metric.id = :metricId")
+    @NamedQuery(name = Alert.GET_BY_TEST_AND_METRIC, query = "SELECT distinct alert from Alert alert join alert.test test join alert.metric metric where test.id = :testId and metric.id = :metricId"),
+    @NamedQuery(name = Alert.GET_BY_TEST, query = "SELECT distinct alert from Alert alert join fetch alert.metric left join fetch alert.tags where alert.test.id = :testId order by alert.id")
 })
 public class Alert implements Entity<Alert> {
 
    public static final String GET_BY_TEST_AND_METRIC = "Alert.getByTestAndMetric";
+   public static final String GET_BY_TEST = "Alert.getByTest";
 
    @Id
    @SequenceGenerator(name = "ALERT_ID_GENERATOR", sequenceName = "ALERT_SEQUENCE", allocationSize = 1)
@@ -42,6 +44,16 @@ public class Alert implements Entity<Alert> {
    @Column(name = "links")
    private String links;
 
+   @Column(name = "type")
+   @Enumerated(EnumType.STRING)
+   private AlertType type;
+
+   @Column(name = "change_window")
+   private Integer changeWindow;
+
+   @Column(name = "change_threshold")
+   private Double changeThreshold;
+
    @ManyToOne(optional = false, cascade = CascadeType.PERSIST)
    @JoinColumn(name = "metric_id", referencedColumnName = "id")
    @NotNull
@@ -100,6 +112,39 @@ public class Alert implements Entity<Alert> {
       this.links = links;
    }
 
+   /**
+    * @return type of the alert, alerts created before the types were introduced are {@link AlertType#CONDITION}
+    */
+   public AlertType getType() {
+      return type == null ? AlertType.CONDITION : type;
+   }
+
+   public void setType(AlertType type) {
+      this.type = type;
+   }
+
+   /**
+    * @return number of the newest results searched for a change point, only for {@link AlertType#CHANGE_POINT}
+    */
+   public Integer getChangeWindow() {
+      return changeWindow;
+   }
+
+   public void setChangeWindow(Integer changeWindow) {
+      this.changeWindow = changeWindow;
+   }
+
+   /**
+    * @return minimal score of a reported change point, only for {@link AlertType#CHANGE_POINT}
+    */
+   public Double getChangeThreshold() {
+      return changeThreshold;
+   }
+
+   public void setChangeThreshold(Double changeThreshold) {
+      this.changeThreshold = changeThreshold;
+   }
+
    public Test getTest() {
       return test;
    }
@@ -137,6 +182,7 @@ public class Alert implements Entity<Alert> {
    public String toString() {
       return "Alert{"
           + "id=" + id
+          + ", type=" + getType()
           + ", condition='" + condition + '\''
           + ", metric=" + metric
           + '}';
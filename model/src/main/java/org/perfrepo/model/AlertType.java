@@ -0,0 +1,34 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+/**
+ * Type of the alert, i.e. how the alert decides that the result of a new test execution is wrong.
+ *
+ * @author agent (agent@local)
+ */
+public enum AlertType {
+
+   /**
+    * Condition in alerting DSL has to hold for the result.
+    */
+   CONDITION,
+
+   /**
+    * Change-point detector over the newest results of the metric mustn't find a regression, i.e. a step change
+    * or a drift in the worse direction according to {@link Metric#getComparator()}.
+    */
+   CHANGE_POINT
+}
@@ -39,12 +39,13 @@ import java.util.Iterator;
  * @author Michal Linhard (mlinhard@redhat.com)
  */
 @javax.persistence.Entity
+@Cacheable
 @Table(name = "metric")
 @NamedQueries({
     @NamedQuery(name = Metric.GET_TEST, query = "SELECT test from TestMetric tm inner join tm.test test inner join tm.metric m where m= :entity"),
-    @NamedQuery(name = Metric.FIND_BY_NAME_GROUPID, query = "SELECT m from TestMetric tm inner join tm.metric m inner join tm.test test where test.groupId= :groupId and m.name= :name"),
+    @NamedQuery(name = Metric.FIND_BY_NAME_GROUPID, query = "SELECT m from TestMetric tm inner join tm.metric m inner join tm.test test where test.groupId= :groupId and m.name= :name", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
     @NamedQuery(name = Metric.FIND_BY_GROUPID, query = "SELECT DISTINCT m from Metric m, TestMetric tm, Test t WHERE t.groupId= :groupId AND tm.test.id = t.id AND tm.metric.id = m.id ORDER BY m.name"),
-    @NamedQuery(name = Metric.FIND_BY_TESTID, query = "SELECT m from Metric m, TestMetric tm WHERE tm.test.id = :testId AND tm.metric.id = m.id")})
+    @NamedQuery(name = Metric.FIND_BY_TESTID, query = "SELECT m from Metric m, TestMetric tm WHERE tm.test.id = :testId AND tm.metric.id = m.id", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))})
 @XmlRootElement(name = "metric")
 @SecuredEntity(type = EntityType.TEST)
 public class Metric implements Entity<Metric>, Comparable<Metric> {
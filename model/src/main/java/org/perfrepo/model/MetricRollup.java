@@ -0,0 +1,237 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/**
+ * Aggregate of the values of one metric of the test executions of one test with the same tag set, started
+ * within one time bucket. Rollups replace test executions removed by a {@link RetentionPolicy}. Percentiles
+ * are exact for the test executions rolled up at once, when more test executions are added to an existing
+ * rollup later, they are estimated from the merged quantile sketch of the values.
+ *
+ * @author agent (agent@local)
+ */
+@javax.persistence.Entity
+@Table(name = "metric_rollup")
+public class MetricRollup implements Entity<MetricRollup> {
+
+   private static final long serialVersionUID = -6386413760279432181L;
+
+   @Id
+   @SequenceGenerator(name = "METRIC_ROLLUP_ID_GENERATOR", sequenceName = "METRIC_ROLLUP_SEQUENCE", allocationSize = 1)
+   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "METRIC_ROLLUP_ID_GENERATOR")
+   private Long id;
+
+   @Column(name = "test_id")
+   private Long testId;
+
+   @Column(name = "metric_id")
+   private Long metricId;
+
+   @Column(name = "tags")
+   private String tags;
+
+   @Column(name = "bucket_start")
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date bucketStart;
+
+   @Column(name = "bucket_end")
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date bucketEnd;
+
+   @Column(name = "value_count")
+   private long count;
+
+   @Column(name = "min_value")
+   private double min;
+
+   @Column(name = "max_value")
+   private double max;
+
+   @Column(name = "mean_value")
+   private double mean;
+
+   @Column(name = "p50_value")
+   private double p50;
+
+   @Column(name = "p90_value")
+   private double p90;
+
+   @Column(name = "p99_value")
+   private double p99;
+
+   @Column(name = "variance_value")
+   private double variance;
+
+   @Column(name = "sketch")
+   private byte[] sketch;
+
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   public Long getTestId() {
+      return testId;
+   }
+
+   public void setTestId(Long testId) {
+      this.testId = testId;
+   }
+
+   public Long getMetricId() {
+      return metricId;
+   }
+
+   public void setMetricId(Long metricId) {
+      this.metricId = metricId;
+   }
+
+   /**
+    * @return tag names of the rolled up test executions, in the same format as {@link MetricSeriesPoint#getTags()}
+    */
+   public String getTags() {
+      return tags;
+   }
+
+   public void setTags(String tags) {
+      this.tags = tags;
+   }
+
+   /**
+    * @return start of the time bucket, inclusive
+    */
+   public Date getBucketStart() {
+      return bucketStart;
+   }
+
+   public void setBucketStart(Date bucketStart) {
+      this.bucketStart = bucketStart;
+   }
+
+   /**
+    * @return end of the time bucket, exclusive
+    */
+   public Date getBucketEnd() {
+      return bucketEnd;
+   }
+
+   public void setBucketEnd(Date bucketEnd) {
+      this.bucketEnd = bucketEnd;
+   }
+
+   /**
+    * @return number of rolled up values
+    */
+   public long getCount() {
+      return count;
+   }
+
+   public void setCount(long count) {
+      this.count = count;
+   }
+
+   public double getMin() {
+      return min;
+   }
+
+   public void setMin(double min) {
+      this.min = min;
+   }
+
+   public double getMax() {
+      return max;
+   }
+
+   public void setMax(double max) {
+      this.max = max;
+   }
+
+   public double getMean() {
+      return mean;
+   }
+
+   public void setMean(double mean) {
+      this.mean = mean;
+   }
+
+   public double getP50() {
+      return p50;
+   }
+
+   public void setP50(double p50) {
+      this.p50 = p50;
+   }
+
+   public double getP90() {
+      return p90;
+   }
+
+   public void setP90(double p90) {
+      this.p90 = p90;
+   }
+
+   public double getP99() {
+      return p99;
+   }
+
+   public void setP99(double p99) {
+      this.p99 = p99;
+   }
+
+   /**
+    * @return population variance of the values, so a part of the rollup can be merged with the same variance
+    */
+   public double getVariance() {
+      return variance;
+   }
+
+   public void setVariance(double variance) {
+      this.variance = variance;
+   }
+
+   /**
+    * @return serialized {@link org.perfrepo.model.util.QuantileSketch} of the rolled up values, null for rollups
+    * created before sketches were introduced
+    */
+   public byte[] getSketch() {
+      return sketch;
+   }
+
+   public void setSketch(byte[] sketch) {
+      this.sketch = sketch;
+   }
+
+   @Override
+   public MetricRollup clone() {
+      try {
+         return (MetricRollup) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
@@ -0,0 +1,135 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.util.Date;
+
+/**
+ * One point of a metric history series. Denormalized copy of a {@link Value} together with the test, start
+ * and tags of its {@link TestExecution}, so the history of a metric can be read by a range scan without
+ * joining the execution tables. The rows are maintained by the service layer, never persisted directly.
+ *
+ * @author agent (agent@local)
+ */
+@javax.persistence.Entity
+@Table(name = "metric_series")
+public class MetricSeriesPoint implements Entity<MetricSeriesPoint> {
+
+   private static final long serialVersionUID = 4613826403415880714L;
+
+   /**
+    * Separator of tag names in {@link #getTags()}, the tags string also starts and ends with it.
+    */
+   public static final String TAG_SEPARATOR = " ";
+
+   @Id
+   @Column(name = "value_id")
+   private Long id;
+
+   @Column(name = "test_id")
+   private Long testId;
+
+   @Column(name = "metric_id")
+   private Long metricId;
+
+   @Column(name = "test_execution_id")
+   private Long testExecutionId;
+
+   @Column(name = "started")
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date started;
+
+   @Column(name = "result_value")
+   private Double resultValue;
+
+   @Column(name = "tags")
+   private String tags;
+
+   /**
+    * @return id of the {@link Value}
+    */
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   public Long getTestId() {
+      return testId;
+   }
+
+   public void setTestId(Long testId) {
+      this.testId = testId;
+   }
+
+   public Long getMetricId() {
+      return metricId;
+   }
+
+   public void setMetricId(Long metricId) {
+      this.metricId = metricId;
+   }
+
+   public Long getTestExecutionId() {
+      return testExecutionId;
+   }
+
+   public void setTestExecutionId(Long testExecutionId) {
+      this.testExecutionId = testExecutionId;
+   }
+
+   public Date getStarted() {
+      return started;
+   }
+
+   public void setStarted(Date started) {
+      this.started = started;
+   }
+
+   public Double getResultValue() {
+      return resultValue;
+   }
+
+   public void setResultValue(Double resultValue) {
+      this.resultValue = resultValue;
+   }
+
+   /**
+    * @return tag names of the test execution, separated and surrounded by {@link #TAG_SEPARATOR}
+    */
+   public String getTags() {
+      return tags;
+   }
+
+   public void setTags(String tags) {
+      this.tags = tags;
+   }
+
+   @Override
+   public MetricSeriesPoint clone() {
+      try {
+         return (MetricSeriesPoint) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
@@ -0,0 +1,115 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import javax.persistence.Column;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.validation.constraints.Min;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Retention policy of a {@link Test}. Test executions older than {@link #getRawDays()} days are rolled into
+ * {@link MetricRollup} rows, one per metric, tag set and time bucket of {@link #getBucketHours()} hours,
+ * and then removed together with their values, parameters and attachments.
+ *
+ * @author agent (agent@local)
+ */
+@javax.persistence.Entity
+@Table(name = "retention_policy")
+@XmlRootElement(name = "retentionPolicy")
+public class RetentionPolicy implements Entity<RetentionPolicy> {
+
+   private static final long serialVersionUID = -2716083561285430337L;
+
+   public static final int DEFAULT_RAW_DAYS = 90;
+
+   public static final int DEFAULT_BUCKET_HOURS = 24;
+
+   @Id
+   @SequenceGenerator(name = "RETENTION_POLICY_ID_GENERATOR", sequenceName = "RETENTION_POLICY_SEQUENCE", allocationSize = 1)
+   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "RETENTION_POLICY_ID_GENERATOR")
+   private Long id;
+
+   @OneToOne(optional = false)
+   @JoinColumn(name = "test_id", referencedColumnName = "id", unique = true)
+   private Test test;
+
+   @Column(name = "raw_days")
+   @Min(1)
+   private int rawDays = DEFAULT_RAW_DAYS;
+
+   @Column(name = "bucket_hours")
+   @Min(1)
+   private int bucketHours = DEFAULT_BUCKET_HOURS;
+
+   @XmlTransient
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   @XmlTransient
+   public Test getTest() {
+      return test;
+   }
+
+   public void setTest(Test test) {
+      this.test = test;
+   }
+
+   /**
+    * @return number of days for which the test executions are kept in full detail
+    */
+   @XmlAttribute(name = "rawDays")
+   public int getRawDays() {
+      return rawDays;
+   }
+
+   public void setRawDays(int rawDays) {
+      this.rawDays = rawDays;
+   }
+
+   /**
+    * @return length of the time bucket of the rollups in hours, buckets are aligned to UTC midnight
+    */
+   @XmlAttribute(name = "bucketHours")
+   public int getBucketHours() {
+      return bucketHours;
+   }
+
+   public void setBucketHours(int bucketHours) {
+      this.bucketHours = bucketHours;
+   }
+
+   @Override
+   public RetentionPolicy clone() {
+      try {
+         return (RetentionPolicy) super.clone();
+      } catch (CloneNotSupportedException e) {
+         throw new RuntimeException(e);
+      }
+   }
+}
@@ -14,11 +14,14 @@
  */
 package org.perfrepo.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.QueryHint;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -28,13 +31,15 @@ import javax.xml.bind.annotation.XmlTransient;
 import java.util.Collection;
 
 @javax.persistence.Entity
+@Cacheable
 @Table(name = "tag")
+@NamedQuery(name = Tag.FIND_BY_NAME, query = "SELECT tag FROM Tag tag WHERE tag.name = :name", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 @XmlRootElement(name = "tag")
 public class Tag implements Entity<Tag>, Comparable<Tag> {
 
    private static final long serialVersionUID = -5239043908577304531L;
 
-   public static final String FIND_BY_PREFIX = "Tag.findByPrefix";
+   public static final String FIND_BY_NAME = "Tag.findByName";
 
    @Id
    @SequenceGenerator(name = "TAG_ID_GENERATOR", sequenceName = "TAG_SEQUENCE", allocationSize = 1)
@@ -42,11 +42,12 @@ import java.util.List;
  * @author Michal Linhard (mlinhard@redhat.com)
  */
 @javax.persistence.Entity
+@Cacheable
 @Table(name = "test")
 @SecuredEntity(type = EntityType.TEST)
 @NamedQueries({
     @NamedQuery(name = Test.FIND_TESTS_USING_METRIC, query = "SELECT test from Test test, TestMetric tm, Metric m where test = tm.test and tm.metric = m and m.id = :metric"),
-    @NamedQuery(name = Test.FIND_BY_UID, query = "SELECT test FROM Test test WHERE test.uid = :uid")
+    @NamedQuery(name = Test.FIND_BY_UID, query = "SELECT test FROM Test test WHERE test.uid = :uid", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 })
 @XmlRootElement(name = "test")
 public class Test implements Entity<Test> {
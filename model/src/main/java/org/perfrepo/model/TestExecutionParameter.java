@@ -16,6 +16,7 @@ package org.perfrepo.model;
 
 import org.perfrepo.model.auth.EntityType;
 import org.perfrepo.model.auth.SecuredEntity;
+import org.perfrepo.model.util.ParameterValues;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -59,6 +60,12 @@ public class TestExecutionParameter implements Entity<TestExecutionParameter>, C
    @Size(max = 2047)
    private String value;
 
+   /**
+    * Value parsed as a number, null if the value isn't numeric. See {@link ParameterValues#parseNumber(String)}.
+    */
+   @Column(name = "numeric_value")
+   private Double numericValue;
+
    public TestExecutionParameter() {
       super();
    }
@@ -66,7 +73,7 @@ public class TestExecutionParameter implements Entity<TestExecutionParameter>, C
    public TestExecutionParameter(String name, String value) {
       this.testExecution = new TestExecution();
       this.name = name;
-      this.value = value;
+      setValue(value);
    }
 
    @XmlTransient
@@ -98,6 +105,7 @@ public class TestExecutionParameter implements Entity<TestExecutionParameter>, C
 
    public void setValue(String value) {
       this.value = value;
+      this.numericValue = ParameterValues.parseNumber(value);
    }
 
    @XmlAttribute(name = "value")
@@ -105,6 +113,17 @@ public class TestExecutionParameter implements Entity<TestExecutionParameter>, C
       return this.value;
    }
 
+   @XmlTransient
+   public Double getNumericValue() {
+      return numericValue;
+   }
+
+   @PrePersist
+   @PreUpdate
+   protected void updateNumericValue() {
+      numericValue = ParameterValues.parseNumber(value);
+   }
+
    @Override
    public int compareTo(TestExecutionParameter o) {
       return this.getName().compareTo(o.getName());
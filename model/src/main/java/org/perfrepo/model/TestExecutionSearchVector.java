@@ -0,0 +1,49 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Read-only view of the full-text search vector of {@link TestExecution} name and comment. The vector is stored
+ * in column search_vector of test_execution and maintained by a database trigger on insert and update. It's mapped
+ * by a separate entity, so that it isn't loaded with every test execution, it's used only in search criteria.
+ *
+ * @author agent (agent@local)
+ */
+@javax.persistence.Entity
+@Table(name = "test_execution")
+public class TestExecutionSearchVector implements Serializable {
+
+   private static final long serialVersionUID = 4137265384092617342L;
+
+   @Id
+   @Column(name = "id", insertable = false, updatable = false)
+   private Long id;
+
+   @Column(name = "search_vector", columnDefinition = "tsvector", insertable = false, updatable = false)
+   private String searchVector;
+
+   public Long getId() {
+      return id;
+   }
+
+   public String getSearchVector() {
+      return searchVector;
+   }
+}
@@ -20,11 +20,12 @@ import org.perfrepo.model.auth.SecuredEntity;
 import javax.persistence.*;
 
 @javax.persistence.Entity
+@Cacheable
 @Table(name = "test_metric")
 @NamedQueries({
     @NamedQuery(name = TestMetric.GET_TEST, query = "SELECT tm.test from TestMetric tm inner join tm.test where tm= :entity"),
-    @NamedQuery(name = TestMetric.FIND_TEST_METRIC, query = "SELECT tm from TestMetric tm JOIN tm.test t JOIN tm.metric m WHERE t.id= :test and m.id= :metric"),
-    @NamedQuery(name = TestMetric.FIND_TEST_METRIC_BY_NAME, query = "SELECT tm from TestMetric tm JOIN tm.test t JOIN tm.metric m WHERE t.id= :test AND m.name= :metricName")})
+    @NamedQuery(name = TestMetric.FIND_TEST_METRIC, query = "SELECT tm from TestMetric tm JOIN tm.test t JOIN tm.metric m WHERE t.id= :test and m.id= :metric", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+    @NamedQuery(name = TestMetric.FIND_TEST_METRIC_BY_NAME, query = "SELECT tm from TestMetric tm JOIN tm.test t JOIN tm.metric m WHERE t.id= :test AND m.name= :metricName", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))})
 @SecuredEntity(type = EntityType.TEST, parent = "test")
 public class TestMetric implements Entity<TestMetric> {
 
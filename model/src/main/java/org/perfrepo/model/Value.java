@@ -25,6 +25,7 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 import java.util.Collection;
+import java.util.Date;
 
 /**
  * Represents one value measured in a {@link TestExecution}.
@@ -62,6 +63,14 @@ public class Value implements Entity<Value> {
    @OneToMany(mappedBy = "value")
    private Collection<ValueParameter> parameters;
 
+   /**
+    * Copy of the start of the test execution, the partitioning key of the value table.
+    * Changed only together with the test execution, see ValueDAO.
+    */
+   @Column(name = "started", updatable = false)
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date started;
+
    @XmlTransient
    public Long getId() {
       return id;
@@ -98,6 +107,22 @@ public class Value implements Entity<Value> {
       return this.testExecution;
    }
 
+   @XmlTransient
+   public Date getStarted() {
+      return started;
+   }
+
+   public void setStarted(Date started) {
+      this.started = started;
+   }
+
+   @PrePersist
+   protected void fillStarted() {
+      if (started == null && testExecution != null) {
+         started = testExecution.getStarted();
+      }
+   }
+
    public void setParameters(Collection<ValueParameter> valueParameters) {
       this.parameters = valueParameters;
    }
@@ -23,6 +23,7 @@ import javax.validation.constraints.Size;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
+import java.util.Date;
 
 @javax.persistence.Entity
 @Table(name = "value_parameter")
@@ -75,6 +76,13 @@ public class ValueParameter implements Entity<ValueParameter>, Comparable<ValueP
    @JoinColumn(name = "value_id", referencedColumnName = "id")
    private Value value;
 
+   /**
+    * Copy of the start of the test execution, the partitioning key of the value_parameter table.
+    */
+   @Column(name = "started", updatable = false)
+   @Temporal(TemporalType.TIMESTAMP)
+   private Date started;
+
    @XmlTransient
    public Value getValue() {
       return value;
@@ -84,6 +92,22 @@ public class ValueParameter implements Entity<ValueParameter>, Comparable<ValueP
       this.value = value;
    }
 
+   @XmlTransient
+   public Date getStarted() {
+      return started;
+   }
+
+   public void setStarted(Date started) {
+      this.started = started;
+   }
+
+   @PrePersist
+   protected void fillStarted() {
+      if (started == null && value != null) {
+         started = value.getTestExecution() != null ? value.getTestExecution().getStarted() : value.getStarted();
+      }
+   }
+
    public ValueParameter() {
       super();
    }
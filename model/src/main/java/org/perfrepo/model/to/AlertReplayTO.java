@@ -0,0 +1,174 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.to;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Replay of an alert over the history of its metric, i.e. the test executions where the alert would have fired,
+ * if it had existed when the test executions were uploaded. Replay runs in background, so it's returned first
+ * as running and it's completed later.
+ *
+ * @author agent (agent@local)
+ */
+@XmlRootElement(name = "alertReplay")
+public class AlertReplayTO {
+
+   public enum Status {
+      RUNNING, FINISHED, FAILED
+   }
+
+   private Long id;
+   private Long alertId;
+   private Status status;
+   private Date from;
+   private long evaluated;
+   private String error;
+   private List<Firing> firings = new ArrayList<>();
+
+   @XmlAttribute(name = "id")
+   public Long getId() {
+      return id;
+   }
+
+   public void setId(Long id) {
+      this.id = id;
+   }
+
+   /**
+    * @return id of the replayed alert, null if the alert isn't stored
+    */
+   @XmlAttribute(name = "alertId")
+   public Long getAlertId() {
+      return alertId;
+   }
+
+   public void setAlertId(Long alertId) {
+      this.alertId = alertId;
+   }
+
+   @XmlAttribute(name = "status")
+   public Status getStatus() {
+      return status;
+   }
+
+   public void setStatus(Status status) {
+      this.status = status;
+   }
+
+   /**
+    * @return only test executions started since this date are replayed, null for the whole history
+    */
+   @XmlAttribute(name = "from")
+   public Date getFrom() {
+      return from;
+   }
+
+   public void setFrom(Date from) {
+      this.from = from;
+   }
+
+   /**
+    * @return number of the test executions the alert was checked against
+    */
+   @XmlAttribute(name = "evaluated")
+   public long getEvaluated() {
+      return evaluated;
+   }
+
+   public void setEvaluated(long evaluated) {
+      this.evaluated = evaluated;
+   }
+
+   /**
+    * @return error message of failed replay
+    */
+   @XmlElement(name = "error")
+   public String getError() {
+      return error;
+   }
+
+   public void setError(String error) {
+      this.error = error;
+   }
+
+   /**
+    * @return test executions where the alert fired, the oldest first
+    */
+   @XmlElementWrapper(name = "firings")
+   @XmlElement(name = "firing")
+   public List<Firing> getFirings() {
+      return firings;
+   }
+
+   public void setFirings(List<Firing> firings) {
+      this.firings = firings;
+   }
+
+   /**
+    * Test execution where the alert fired.
+    */
+   public static class Firing {
+
+      private Long execId;
+      private Date started;
+      private Double result;
+
+      public Firing() {
+      }
+
+      public Firing(Long execId, Date started, Double result) {
+         this.execId = execId;
+         this.started = started;
+         this.result = result;
+      }
+
+      @XmlAttribute(name = "execId")
+      public Long getExecId() {
+         return execId;
+      }
+
+      public void setExecId(Long execId) {
+         this.execId = execId;
+      }
+
+      @XmlAttribute(name = "started")
+      public Date getStarted() {
+         return started;
+      }
+
+      public void setStarted(Date started) {
+         this.started = started;
+      }
+
+      /**
+       * @return value of the metric in the test execution
+       */
+      @XmlAttribute(name = "result")
+      public Double getResult() {
+         return result;
+      }
+
+      public void setResult(Double result) {
+         this.result = result;
+      }
+   }
+}
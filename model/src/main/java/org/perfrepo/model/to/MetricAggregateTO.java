@@ -0,0 +1,68 @@
+package org.perfrepo.model.to;
+
+/**
+ * Aggregate of metric values computed by the database, i.e. number, sum, minimum and maximum of the values.
+ * Values can be merged with other aggregates (e.g. metric rollups) without retrieving the values themselves.
+ * <p>
+ * Immutable class.
+ *
+ * @author agent (agent@local)
+ */
+public class MetricAggregateTO {
+
+   private final long count;
+   private final Double sum;
+   private final Double min;
+   private final Double max;
+   private final long storedCount;
+
+   /**
+    * @param count number of aggregated values
+    * @param sum sum of the values, null if there are no values
+    * @param min minimum of the values, null if there are no values
+    * @param max maximum of the values, null if there are no values
+    * @param storedCount number of stored values matching the criteria, see {@link #getStoredCount()}
+    */
+   public MetricAggregateTO(long count, Double sum, Double min, Double max, long storedCount) {
+      this.count = count;
+      this.sum = sum;
+      this.min = min;
+      this.max = max;
+      this.storedCount = storedCount;
+   }
+
+   public long getCount() {
+      return count;
+   }
+
+   public Double getSum() {
+      return sum;
+   }
+
+   public Double getMin() {
+      return min;
+   }
+
+   public Double getMax() {
+      return max;
+   }
+
+   /**
+    * @return mean of the values, null if there are no values
+    */
+   public Double getMean() {
+      return count == 0 ? null : sum / count;
+   }
+
+   /**
+    * Number of all stored values matching the criteria, regardless of the limit. When the values are limited
+    * by a window counted from the newest value, the number is exact only if the window reaches past the oldest
+    * value, otherwise it's only known that all values of the window are stored, i.e. the number is the end
+    * of the window.
+    *
+    * @return number of stored values
+    */
+   public long getStoredCount() {
+      return storedCount;
+   }
+}
@@ -29,6 +29,12 @@ public enum OrderBy {
 
    GROUP_ID_ASC,
 
-   GROUP_ID_DESC;
+   GROUP_ID_DESC,
+
+   RELEVANCE,
+
+   METRIC_BEST,
+
+   METRIC_WORST;
 
 }
@@ -0,0 +1,284 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.to;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlList;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One page of test execution search results returned by REST API. Contains either compact test executions
+ * or values of one metric. When there are more results, the page carries cursor of the next page,
+ * which is meant to be copied to {@link TestExecutionSearchTO} by {@link #continueSearch(TestExecutionSearchTO)}.
+ *
+ * @author agent (agent@local)
+ */
+@XmlRootElement(name = "testExecutionPage")
+public class TestExecutionPageTO {
+
+   private List<Execution> executions = new ArrayList<>();
+   private List<MetricValue> values = new ArrayList<>();
+   private boolean more;
+   private Date nextStarted;
+   private Long nextId;
+   private Integer nextLimitFrom;
+
+   @XmlElementWrapper(name = "testExecutions")
+   @XmlElement(name = "testExecution")
+   public List<Execution> getExecutions() {
+      return executions;
+   }
+
+   public void setExecutions(List<Execution> executions) {
+      this.executions = executions;
+   }
+
+   @XmlElementWrapper(name = "values")
+   @XmlElement(name = "value")
+   public List<MetricValue> getValues() {
+      return values;
+   }
+
+   public void setValues(List<MetricValue> values) {
+      this.values = values;
+   }
+
+   /**
+    * @return true if there are more results after this page
+    */
+   @XmlAttribute(name = "more")
+   public boolean isMore() {
+      return more;
+   }
+
+   public void setMore(boolean more) {
+      this.more = more;
+   }
+
+   /**
+    * @return start of the last test execution on this page, when the results are ordered by date
+    */
+   @XmlAttribute(name = "nextStarted")
+   public Date getNextStarted() {
+      return nextStarted;
+   }
+
+   public void setNextStarted(Date nextStarted) {
+      this.nextStarted = nextStarted;
+   }
+
+   /**
+    * @return id of the last test execution on this page, when the results are ordered by date
+    */
+   @XmlAttribute(name = "nextId")
+   public Long getNextId() {
+      return nextId;
+   }
+
+   public void setNextId(Long nextId) {
+      this.nextId = nextId;
+   }
+
+   /**
+    * @return offset of the next page, when the results aren't ordered by date
+    */
+   @XmlAttribute(name = "nextLimitFrom")
+   public Integer getNextLimitFrom() {
+      return nextLimitFrom;
+   }
+
+   public void setNextLimitFrom(Integer nextLimitFrom) {
+      this.nextLimitFrom = nextLimitFrom;
+   }
+
+   /**
+    * Moves the search criteria to the page following this one.
+    *
+    * @param search
+    */
+   public void continueSearch(TestExecutionSearchTO search) {
+      search.setAfterStarted(nextStarted);
+      search.setAfterId(nextId);
+      search.setLimitFrom(nextLimitFrom);
+   }
+
+   /**
+    * Test execution in search result page, contains only parameters requested by the search criteria.
+    */
+   public static class Execution {
+
+      private Long id;
+      private String name;
+      private Date started;
+      private String testUid;
+      private List<String> tags = new ArrayList<>();
+      private List<Parameter> parameters = new ArrayList<>();
+
+      @XmlAttribute(name = "id")
+      public Long getId() {
+         return id;
+      }
+
+      public void setId(Long id) {
+         this.id = id;
+      }
+
+      @XmlAttribute(name = "name")
+      public String getName() {
+         return name;
+      }
+
+      public void setName(String name) {
+         this.name = name;
+      }
+
+      @XmlAttribute(name = "started")
+      public Date getStarted() {
+         return started;
+      }
+
+      public void setStarted(Date started) {
+         this.started = started;
+      }
+
+      @XmlAttribute(name = "testUid")
+      public String getTestUid() {
+         return testUid;
+      }
+
+      public void setTestUid(String testUid) {
+         this.testUid = testUid;
+      }
+
+      /**
+       * @return alphabetically sorted tags, tags are separated by space in XML
+       */
+      @XmlList
+      @XmlAttribute(name = "tags")
+      public List<String> getTags() {
+         return tags;
+      }
+
+      public void setTags(List<String> tags) {
+         this.tags = tags;
+      }
+
+      @XmlElement(name = "parameter")
+      public List<Parameter> getParameters() {
+         return parameters;
+      }
+
+      public void setParameters(List<Parameter> parameters) {
+         this.parameters = parameters;
+      }
+   }
+
+   /**
+    * Test execution parameter in search result page.
+    */
+   public static class Parameter {
+
+      private String name;
+      private String value;
+
+      public Parameter() {
+      }
+
+      public Parameter(String name, String value) {
+         this.name = name;
+         this.value = value;
+      }
+
+      @XmlAttribute(name = "name")
+      public String getName() {
+         return name;
+      }
+
+      public void setName(String name) {
+         this.name = name;
+      }
+
+      @XmlAttribute(name = "value")
+      public String getValue() {
+         return value;
+      }
+
+      public void setValue(String value) {
+         this.value = value;
+      }
+   }
+
+   /**
+    * Value of the metric in one test execution.
+    */
+   public static class MetricValue {
+
+      private Long testExecutionId;
+      private Date started;
+      private String metric;
+      private Double value;
+
+      public MetricValue() {
+      }
+
+      public MetricValue(Long testExecutionId, Date started, String metric, Double value) {
+         this.testExecutionId = testExecutionId;
+         this.started = started;
+         this.metric = metric;
+         this.value = value;
+      }
+
+      @XmlAttribute(name = "testExecutionId")
+      public Long getTestExecutionId() {
+         return testExecutionId;
+      }
+
+      public void setTestExecutionId(Long testExecutionId) {
+         this.testExecutionId = testExecutionId;
+      }
+
+      @XmlAttribute(name = "started")
+      public Date getStarted() {
+         return started;
+      }
+
+      public void setStarted(Date started) {
+         this.started = started;
+      }
+
+      @XmlAttribute(name = "metric")
+      public String getMetric() {
+         return metric;
+      }
+
+      public void setMetric(String metric) {
+         this.metric = metric;
+      }
+
+      @XmlAttribute(name = "value")
+      public Double getValue() {
+         return value;
+      }
+
+      public void setValue(Double value) {
+         this.value = value;
+      }
+   }
+}
@@ -0,0 +1,161 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.to;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable row of test execution search result. Contains only the columns shown in result listings
+ * instead of the whole {@link org.perfrepo.model.TestExecution} entity.
+ *
+ * @author agent (agent@local)
+ */
+public class TestExecutionRowTO {
+
+   private final Long id;
+   private final String name;
+   private final Date started;
+   private final String comment;
+   private final Long testId;
+   private final String testName;
+   private final String testUid;
+   private final String testGroupId;
+   private final List<String> tags;
+   private final Map<String, Parameter> parameters;
+
+   public TestExecutionRowTO(Long id, String name, Date started, String comment, Long testId, String testName,
+                             String testUid, String testGroupId, List<String> tags, Map<String, Parameter> parameters) {
+      this.id = id;
+      this.name = name;
+      this.started = started == null ? null : new Date(started.getTime());
+      this.comment = comment;
+      this.testId = testId;
+      this.testName = testName;
+      this.testUid = testUid;
+      this.testGroupId = testGroupId;
+      List<String> sortedTags = tags == null ? new ArrayList<String>(0) : new ArrayList<String>(tags);
+      Collections.sort(sortedTags);
+      this.tags = Collections.unmodifiableList(sortedTags);
+      this.parameters = parameters == null ? Collections.<String, Parameter>emptyMap() : Collections.unmodifiableMap(new HashMap<String, Parameter>(parameters));
+   }
+
+   public Long getId() {
+      return id;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public Date getStarted() {
+      return started == null ? null : new Date(started.getTime());
+   }
+
+   /**
+    * @return beginning of the test execution comment as plain text, the full comment might be longer
+    */
+   public String getComment() {
+      return comment;
+   }
+
+   public Long getTestId() {
+      return testId;
+   }
+
+   public String getTestName() {
+      return testName;
+   }
+
+   public String getTestUid() {
+      return testUid;
+   }
+
+   public String getTestGroupId() {
+      return testGroupId;
+   }
+
+   /**
+    * @return alphabetically sorted tags
+    */
+   public List<String> getTags() {
+      return tags;
+   }
+
+   /**
+    * Same as {@link #getTags()}, kept for compatibility with views written for {@link org.perfrepo.model.TestExecution}.
+    *
+    * @return alphabetically sorted tags
+    */
+   public List<String> getSortedTags() {
+      return tags;
+   }
+
+   /**
+    * @return parameters requested to be displayed, by parameter name
+    */
+   public Map<String, Parameter> getParameters() {
+      return parameters;
+   }
+
+   /**
+    * @param name
+    * @return the parameter or null, if the execution doesn't have it or it wasn't requested
+    */
+   public Parameter getParameter(String name) {
+      return parameters.get(name);
+   }
+
+   /**
+    * @param name
+    * @return value of the parameter or null, if the execution doesn't have it or it wasn't requested
+    */
+   public String getParameterValue(String name) {
+      Parameter parameter = parameters.get(name);
+      return parameter == null ? null : parameter.getValue();
+   }
+
+   /**
+    * Test execution parameter in search result row.
+    */
+   public static class Parameter {
+
+      private final Long id;
+      private final String name;
+      private final String value;
+
+      public Parameter(Long id, String name, String value) {
+         this.id = id;
+         this.name = name;
+         this.value = value;
+      }
+
+      public Long getId() {
+         return id;
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      public String getValue() {
+         return value;
+      }
+   }
+}
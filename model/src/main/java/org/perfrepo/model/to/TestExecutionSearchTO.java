@@ -16,6 +16,7 @@ package org.perfrepo.model.to;
 
 import org.perfrepo.model.userproperty.GroupFilter;
 
+import javax.xml.bind.annotation.XmlRootElement;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
@@ -28,6 +29,7 @@ import java.util.List;
  * @author Michal Linhard (mlinhard@redhat.com)
  * @author Jiri Holusa (jholusa@redhat.com)
  */
+@XmlRootElement(name = "testExecutionSearch")
 public class TestExecutionSearchTO implements Serializable {
 
    private static final long serialVersionUID = -2274979571623499791L;
@@ -40,15 +42,23 @@ public class TestExecutionSearchTO implements Serializable {
    private String tags;
    private String testUID;
    private String testName;
+   //full-text query matched against test execution name and comment
+   private String fullText;
    private List<ParamCriteria> parameters = new ArrayList<ParamCriteria>();
+   private List<MetricCriteria> metrics = new ArrayList<MetricCriteria>();
    private Integer limitFrom;
    private Integer limitHowMany;
    private GroupFilter groupFilter;
 
    private OrderBy orderBy = OrderBy.DATE_ASC;
    private String orderByParameter;
+   //metric for ordering by the best or the worst value (METRIC_BEST, METRIC_WORST)
+   private String orderByMetric;
 
    private String labelParameter;
+   //keyset cursor, only test executions ordered after this one are returned, applies to ordering by date
+   private Date afterStarted;
+   private Long afterId;
 
    public List<Long> getIds() {
       return ids;
@@ -92,6 +102,15 @@ public class TestExecutionSearchTO implements Serializable {
       this.testName = testName;
    }
 
+   //full-text query matched against test execution name and comment
+   public String getFullText() {
+      return fullText;
+   }
+
+   public void setFullText(String fullText) {
+      this.fullText = fullText;
+   }
+
    public String getTags() {
       return tags;
    }
@@ -104,6 +123,10 @@ public class TestExecutionSearchTO implements Serializable {
       return parameters;
    }
 
+   public List<MetricCriteria> getMetrics() {
+      return metrics;
+   }
+
    public Integer getLimitFrom() {
       return limitFrom;
    }
@@ -144,6 +167,14 @@ public class TestExecutionSearchTO implements Serializable {
       this.orderByParameter = orderByParameter;
    }
 
+   public String getOrderByMetric() {
+      return orderByMetric;
+   }
+
+   public void setOrderByMetric(String orderByMetric) {
+      this.orderByMetric = orderByMetric;
+   }
+
    public String getLabelParameter() {
       return labelParameter;
    }
@@ -152,6 +183,24 @@ public class TestExecutionSearchTO implements Serializable {
       this.labelParameter = labelParameter;
    }
 
+   //keyset cursor, start of the last test execution of the previous page
+   public Date getAfterStarted() {
+      return afterStarted;
+   }
+
+   public void setAfterStarted(Date afterStarted) {
+      this.afterStarted = afterStarted;
+   }
+
+   //keyset cursor, id of the last test execution of the previous page
+   public Long getAfterId() {
+      return afterId;
+   }
+
+   public void setAfterId(Long afterId) {
+      this.afterId = afterId;
+   }
+
    @Override
    public boolean equals(Object o) {
       if (this == o) return true;
@@ -163,12 +212,16 @@ public class TestExecutionSearchTO implements Serializable {
       if (ids != null ? !ids.equals(that.ids) : that.ids != null) return false;
       if (limitFrom != null ? !limitFrom.equals(that.limitFrom) : that.limitFrom != null) return false;
       if (limitHowMany != null ? !limitHowMany.equals(that.limitHowMany) : that.limitHowMany != null) return false;
+      if (afterStarted != null ? !afterStarted.equals(that.afterStarted) : that.afterStarted != null) return false;
+      if (afterId != null ? !afterId.equals(that.afterId) : that.afterId != null) return false;
       if (parameters != null ? !parameters.equals(that.parameters) : that.parameters != null) return false;
+      if (metrics != null ? !metrics.equals(that.metrics) : that.metrics != null) return false;
       if (startedFrom != null ? !startedFrom.equals(that.startedFrom) : that.startedFrom != null) return false;
       if (startedTo != null ? !startedTo.equals(that.startedTo) : that.startedTo != null) return false;
       if (tags != null ? !tags.equals(that.tags) : that.tags != null) return false;
       if (testName != null ? !testName.equals(that.testName) : that.testName != null) return false;
       if (testUID != null ? !testUID.equals(that.testUID) : that.testUID != null) return false;
+      if (fullText != null ? !fullText.equals(that.fullText) : that.fullText != null) return false;
 
       return true;
    }
@@ -181,9 +234,13 @@ public class TestExecutionSearchTO implements Serializable {
       result = 31 * result + (tags != null ? tags.hashCode() : 0);
       result = 31 * result + (testUID != null ? testUID.hashCode() : 0);
       result = 31 * result + (testName != null ? testName.hashCode() : 0);
+      result = 31 * result + (fullText != null ? fullText.hashCode() : 0);
       result = 31 * result + (parameters != null ? parameters.hashCode() : 0);
+      result = 31 * result + (metrics != null ? metrics.hashCode() : 0);
       result = 31 * result + (limitFrom != null ? limitFrom.hashCode() : 0);
       result = 31 * result + (limitHowMany != null ? limitHowMany.hashCode() : 0);
+      result = 31 * result + (afterStarted != null ? afterStarted.hashCode() : 0);
+      result = 31 * result + (afterId != null ? afterId.hashCode() : 0);
       result = 31 * result + (groupFilter != null ? groupFilter.hashCode() : 0);
       return result;
    }
@@ -193,6 +250,9 @@ public class TestExecutionSearchTO implements Serializable {
       private static final long serialVersionUID = -2562642308678063396L;
       private String name;
       private String value;
+      //upper bound of the range, used only by BETWEEN operator
+      private String valueTo;
+      private Operator operator = Operator.LIKE;
 
       public String getName() {
          return name;
@@ -210,12 +270,143 @@ public class TestExecutionSearchTO implements Serializable {
          this.value = value;
       }
 
+      public String getValueTo() {
+         return valueTo;
+      }
+
+      public void setValueTo(String valueTo) {
+         this.valueTo = valueTo;
+      }
+
+      public Operator getOperator() {
+         return operator;
+      }
+
+      public void setOperator(Operator operator) {
+         this.operator = operator;
+      }
+
+      /**
+       * @return true if the value is compared as a number rather than matched as a string pattern
+       */
+      public boolean isNumeric() {
+         return operator != null && operator != Operator.LIKE;
+      }
+
       public boolean isDisplayed() {
-         return isNameEmpty() || value == null || "".equals(value.trim()) || value.contains("%");
+         return isNameEmpty() || isNumeric() || value == null || "".equals(value.trim()) || value.contains("%");
       }
 
       public boolean isNameEmpty() {
          return name == null || "".equals(name.trim());
       }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) return true;
+         if (o == null || getClass() != o.getClass()) return false;
+
+         ParamCriteria that = (ParamCriteria) o;
+
+         if (name != null ? !name.equals(that.name) : that.name != null) return false;
+         if (value != null ? !value.equals(that.value) : that.value != null) return false;
+         if (valueTo != null ? !valueTo.equals(that.valueTo) : that.valueTo != null) return false;
+         if (operator != that.operator) return false;
+
+         return true;
+      }
+
+      @Override
+      public int hashCode() {
+         int result = name != null ? name.hashCode() : 0;
+         result = 31 * result + (value != null ? value.hashCode() : 0);
+         result = 31 * result + (valueTo != null ? valueTo.hashCode() : 0);
+         result = 31 * result + (operator != null ? operator.hashCode() : 0);
+         return result;
+      }
+
+      /**
+       * Comparison of the parameter value. LIKE matches the string value against a pattern, the other
+       * operators compare the numeric value of the parameter, parameters with non-numeric value never match them.
+       * Both the parameter values and the bounds are parsed by {@link org.perfrepo.model.util.ParameterValues}, size
+       * suffixes k, m, g and t are binary multipliers (10m is 10 * 1024 * 1024). BETWEEN with missing or non-numeric
+       * upper bound matches nothing.
+       */
+      public enum Operator {
+         LIKE, EQ, LT, LE, GT, GE, BETWEEN
+      }
+   }
+
+   /**
+    * Restriction of values of a metric, test execution matches if it has at least one value of the metric
+    * satisfying the comparison.
+    */
+   public static class MetricCriteria implements Serializable {
+
+      private static final long serialVersionUID = 4391570373950255153L;
+      private String name;
+      private ParamCriteria.Operator operator = ParamCriteria.Operator.EQ;
+      private Double value;
+      //upper bound of the range, used only by BETWEEN operator
+      private Double valueTo;
+
+      public String getName() {
+         return name;
+      }
+
+      public void setName(String name) {
+         this.name = name;
+      }
+
+      /**
+       * @return comparison of the value, LIKE isn't applicable to metric values
+       */
+      public ParamCriteria.Operator getOperator() {
+         return operator;
+      }
+
+      public void setOperator(ParamCriteria.Operator operator) {
+         this.operator = operator;
+      }
+
+      public Double getValue() {
+         return value;
+      }
+
+      public void setValue(Double value) {
+         this.value = value;
+      }
+
+      public Double getValueTo() {
+         return valueTo;
+      }
+
+      public void setValueTo(Double valueTo) {
+         this.valueTo = valueTo;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) return true;
+         if (o == null || getClass() != o.getClass()) return false;
+
+         MetricCriteria that = (MetricCriteria) o;
+
+         if (name != null ? !name.equals(that.name) : that.name != null) return false;
+         if (operator != that.operator) return false;
+         if (value != null ? !value.equals(that.value) : that.value != null) return false;
+         if (valueTo != null ? !valueTo.equals(that.valueTo) : that.valueTo != null) return false;
+
+         return true;
+      }
+
+      @Override
+      public int hashCode() {
+         int result = name != null ? name.hashCode() : 0;
+         result = 31 * result + (operator != null ? operator.hashCode() : 0);
+         result = 31 * result + (value != null ? value.hashCode() : 0);
+         result = 31 * result + (valueTo != null ? valueTo.hashCode() : 0);
+         return result;
+      }
    }
 }
@@ -16,22 +16,29 @@ package org.perfrepo.model.user;
 
 import org.perfrepo.model.Entity;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
+import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import java.util.Collection;
 
 @javax.persistence.Entity
+@Cacheable
 @Table(name = "\"group\"")
+@NamedQuery(name = Group.FIND_BY_USERNAME, query = "SELECT g FROM User user JOIN user.groups g WHERE user.username = :username", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 public class Group implements Entity<Group>, Comparable<Group> {
 
    private static final long serialVersionUID = -9158731656089441951L;
 
+   public static final String FIND_BY_USERNAME = "Group.findByUsername";
+
    @Id
    @SequenceGenerator(name = "GROUP_ID_GENERATOR", sequenceName = "GROUP_SEQUENCE", allocationSize = 1)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "GROUP_ID_GENERATOR")
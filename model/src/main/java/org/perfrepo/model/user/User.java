@@ -26,9 +26,11 @@ import javax.validation.constraints.Size;
 import java.util.Collection;
 
 @javax.persistence.Entity
+@Cacheable
 @Table(name = "\"user\"")
 @NamedQueries({
-    @NamedQuery(name = User.GET_SUBSCRIBERS_FOR_TEST, query = "SELECT distinct user from User user join user.subscribedTests test where test.id = :testId")
+    @NamedQuery(name = User.GET_SUBSCRIBERS_FOR_TEST, query = "SELECT distinct user from User user join user.subscribedTests test where test.id = :testId"),
+    @NamedQuery(name = User.FIND_BY_USERNAME, query = "SELECT user FROM User user WHERE user.username = :username", hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 })
 public class User implements Entity<User>, Comparable<User> {
 
@@ -36,6 +38,8 @@ public class User implements Entity<User>, Comparable<User> {
 
    public static final String GET_SUBSCRIBERS_FOR_TEST = "User.getSubscribersForTest";
 
+   public static final String FIND_BY_USERNAME = "User.findByUsername";
+
    @Id
    @SequenceGenerator(name = "USER_ID_GENERATOR", sequenceName = "USER_SEQUENCE", allocationSize = 1)
    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "USER_ID_GENERATOR")
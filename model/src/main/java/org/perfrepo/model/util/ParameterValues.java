@@ -0,0 +1,79 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.util;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Detection of numeric values of test execution parameters. Parameters are free-form strings, values that
+ * are numbers, optionally with a binary size suffix (e.g. 64, 0.75, 1e6, 512k, 4g, 4GB), get also
+ * a parsed numeric value, which is used by range criteria. Suffixes k, m, g and t are always multiples of 1024
+ * (sizes like heap or buffer sizes are the common case), so e.g. 10m is 10 * 1024 * 1024, not 10 millions or minutes.
+ * Values longer than {@link #MAX_LENGTH} and exponents with more than 2 digits are left non-numeric.
+ *
+ * Keep in sync with the parsing of existing values in migration_1_4_to1_5.sql.
+ *
+ * @author agent (agent@local)
+ */
+public class ParameterValues {
+
+   /**
+    * Maximum length of numeric value.
+    */
+   public static final int MAX_LENGTH = 64;
+
+   private static final Pattern NUMBER = Pattern.compile("\\s*([-+]?(?:[0-9]+\\.?[0-9]*|\\.[0-9]+)(?:[eE][-+]?[0-9]{1,2})?)\\s*");
+
+   private static final Pattern SIZE = Pattern.compile("\\s*([-+]?(?:[0-9]+\\.?[0-9]*|\\.[0-9]+))\\s*([kKmMgGtT])[bB]?\\s*");
+
+   private ParameterValues() {
+   }
+
+   /**
+    * Parses numeric value of the parameter.
+    *
+    * @param value parameter value
+    * @return the number or null, if the value isn't a number
+    */
+   public static Double parseNumber(String value) {
+      if (value == null || value.length() > MAX_LENGTH) {
+         return null;
+      }
+      Double result = null;
+      Matcher number = NUMBER.matcher(value);
+      Matcher size = SIZE.matcher(value);
+      if (number.matches()) {
+         result = Double.valueOf(number.group(1));
+      } else if (size.matches()) {
+         result = Double.valueOf(size.group(1)) * multiplier(size.group(2).toLowerCase(Locale.ENGLISH).charAt(0));
+      }
+      return result;
+   }
+
+   private static double multiplier(char suffix) {
+      switch (suffix) {
+         case 'k':
+            return 1024d;
+         case 'm':
+            return 1024d * 1024;
+         case 'g':
+            return 1024d * 1024 * 1024;
+         default:
+            return 1024d * 1024 * 1024 * 1024;
+      }
+   }
+}
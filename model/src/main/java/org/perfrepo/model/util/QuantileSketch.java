@@ -0,0 +1,398 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Mergeable streaming sketch of a distribution of metric values, used for quantiles and trimmed means. Values are
+ * counted in logarithmic buckets, bucket i holds values from (gamma^(i-1), gamma^i], where
+ * gamma = (1 + accuracy) / (1 - accuracy), so every quantile is estimated with relative error at most
+ * {@link #RELATIVE_ACCURACY}. Negative values are counted in mirrored buckets, values closer to zero than
+ * {@link #MIN_MAGNITUDE} are counted as zero.
+ *
+ * Sketches are merged by adding the bucket counts, so the result doesn't depend on the order of the values. Values
+ * can be also removed, so the sketch can be maintained over a sliding window. Counts are doubles, so a part of
+ * a sketch can be merged with a weight. Number of buckets is bounded, when the values span too many orders
+ * of magnitude, buckets of the values closest to zero are collapsed.
+ *
+ * The class isn't thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public class QuantileSketch {
+
+   /**
+    * Maximum relative error of the estimated quantiles.
+    */
+   public static final double RELATIVE_ACCURACY = 0.01;
+
+   /**
+    * Values with smaller magnitude are counted as zero.
+    */
+   public static final double MIN_MAGNITUDE = 1e-9;
+
+   private static final int MAX_BUCKETS = 2048;
+   private static final byte FORMAT_VERSION = 1;
+   private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+   private static final double LOG_GAMMA = Math.log(GAMMA);
+
+   private final Buckets positive = new Buckets();
+   private final Buckets negative = new Buckets();
+   private double zeroCount;
+
+   /**
+    * Adds the value.
+    *
+    * @param value
+    */
+   public void add(double value) {
+      add(value, 1);
+   }
+
+   /**
+    * Adds the value with a weight, negative weight removes the value.
+    *
+    * @param value
+    * @param weight
+    */
+   public void add(double value, double weight) {
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+         throw new IllegalArgumentException("Only finite values can be added to the sketch.");
+      }
+
+      if (value > MIN_MAGNITUDE) {
+         positive.add(index(value), weight);
+      } else if (value < -MIN_MAGNITUDE) {
+         negative.add(index(-value), weight);
+      } else {
+         zeroCount += weight;
+      }
+   }
+
+   /**
+    * Removes the value, it has to be added before.
+    *
+    * @param value
+    */
+   public void remove(double value) {
+      add(value, -1);
+   }
+
+   /**
+    * Adds all values of the other sketch.
+    *
+    * @param other
+    */
+   public void merge(QuantileSketch other) {
+      merge(other, 1);
+   }
+
+   /**
+    * Adds all values of the other sketch with a weight, e.g. the weight 0.5 stands for a half of the values
+    * with the same distribution.
+    *
+    * @param other
+    * @param weight
+    */
+   public void merge(QuantileSketch other, double weight) {
+      positive.merge(other.positive, weight);
+      negative.merge(other.negative, weight);
+      zeroCount += other.zeroCount * weight;
+   }
+
+   /**
+    * @return sum of weights of all values
+    */
+   public double getCount() {
+      return zeroCount + positive.total() + negative.total();
+   }
+
+   /**
+    * Estimates the quantile.
+    *
+    * @param quantile from 0 to 1, e.g. 0.5 for median
+    * @return value of the quantile or NaN if the sketch is empty
+    */
+   public double getQuantile(double quantile) {
+      if (quantile < 0 || quantile > 1) {
+         throw new IllegalArgumentException("Quantile has to be between 0 and 1.");
+      }
+
+      double count = getCount();
+      if (count <= 0) {
+         return Double.NaN;
+      }
+
+      // the value of the given rank, counted from zero like the lower of the nearest ranks
+      double rank = quantile * (count - 1);
+      double cumulative = 0;
+      double last = Double.NaN;
+      for (int i = negative.maxIndex(); i >= negative.minIndex(); i--) {
+         if (negative.count(i) > 0) {
+            cumulative += negative.count(i);
+            last = -value(i);
+            if (cumulative > rank) {
+               return last;
+            }
+         }
+      }
+      if (zeroCount > 0) {
+         cumulative += zeroCount;
+         last = 0;
+         if (cumulative > rank) {
+            return last;
+         }
+      }
+      for (int i = positive.minIndex(); i <= positive.maxIndex(); i++) {
+         if (positive.count(i) > 0) {
+            cumulative += positive.count(i);
+            last = value(i);
+            if (cumulative > rank) {
+               return last;
+            }
+         }
+      }
+
+      // rounding errors of the weighted counts
+      return last;
+   }
+
+   /**
+    * Estimates mean of the values without the given fraction of the lowest and of the highest values.
+    *
+    * @param trimmed fraction of the values trimmed from each side, from 0 to 0.5 (exclusive)
+    * @return trimmed mean or NaN if the sketch is empty
+    */
+   public double getTrimmedMean(double trimmed) {
+      if (trimmed < 0 || trimmed >= 0.5) {
+         throw new IllegalArgumentException("Trimmed fraction has to be at least 0 and less than 0.5.");
+      }
+
+      double count = getCount();
+      if (count <= 0) {
+         return Double.NaN;
+      }
+
+      double from = trimmed * count;
+      double to = count - from;
+      double cumulative = 0;
+      double sum = 0;
+      double weight = 0;
+      for (int i = negative.maxIndex(); i >= negative.minIndex(); i--) {
+         double overlap = overlap(cumulative, negative.count(i), from, to);
+         sum -= overlap * value(i);
+         weight += overlap;
+         cumulative += negative.count(i);
+      }
+      weight += overlap(cumulative, zeroCount, from, to);
+      cumulative += zeroCount;
+      for (int i = positive.minIndex(); i <= positive.maxIndex(); i++) {
+         double overlap = overlap(cumulative, positive.count(i), from, to);
+         sum += overlap * value(i);
+         weight += overlap;
+         cumulative += positive.count(i);
+      }
+
+      return weight <= 0 ? Double.NaN : sum / weight;
+   }
+
+   /**
+    * @return independent copy of the sketch
+    */
+   public QuantileSketch copy() {
+      QuantileSketch copy = new QuantileSketch();
+      copy.merge(this);
+      return copy;
+   }
+
+   /**
+    * Serializes the sketch, e.g. to be stored with a rollup.
+    *
+    * @return serialized sketch
+    */
+   public byte[] toBytes() {
+      try {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         DataOutputStream out = new DataOutputStream(bytes);
+         out.writeByte(FORMAT_VERSION);
+         out.writeDouble(zeroCount);
+         positive.write(out);
+         negative.write(out);
+         out.flush();
+         return bytes.toByteArray();
+      } catch (IOException e) {
+         throw new IllegalStateException("Sketch can't be serialized.", e);
+      }
+   }
+
+   /**
+    * Deserializes the sketch.
+    *
+    * @param bytes sketch serialized by {@link #toBytes()}
+    * @return sketch
+    */
+   public static QuantileSketch fromBytes(byte[] bytes) {
+      try {
+         DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+         if (in.readByte() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported format of the sketch.");
+         }
+         QuantileSketch sketch = new QuantileSketch();
+         sketch.zeroCount = in.readDouble();
+         sketch.positive.read(in);
+         sketch.negative.read(in);
+         return sketch;
+      } catch (IOException e) {
+         throw new IllegalArgumentException("Sketch is corrupted.", e);
+      }
+   }
+
+   private static int index(double magnitude) {
+      return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+   }
+
+   /**
+    * Helper method. Representative value of the bucket, it has the same relative distance from both bounds
+    * of the bucket.
+    *
+    * @param index
+    * @return value
+    */
+   private static double value(int index) {
+      return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+   }
+
+   private static double overlap(double start, double count, double from, double to) {
+      return Math.max(0, Math.min(start + count, to) - Math.max(start, from));
+   }
+
+   /**
+    * Counts of the buckets of one sign, stored densely from the lowest used index.
+    */
+   private static class Buckets {
+
+      private double[] counts = new double[0];
+      private int offset;
+
+      private void add(int index, double weight) {
+         if (counts.length == 0) {
+            counts = new double[16];
+            offset = index - counts.length / 2;
+         }
+         if (index < offset || index >= offset + counts.length) {
+            grow(index);
+         }
+         // collapsed buckets of the smallest values
+         index = Math.max(index, offset);
+         counts[index - offset] += weight;
+      }
+
+      private void merge(Buckets other, double weight) {
+         for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+               add(other.offset + i, other.counts[i] * weight);
+            }
+         }
+      }
+
+      /**
+       * Helper method. Extends the range of buckets so the index fits in, spare buckets are added in the direction
+       * of the growth. When the used range would exceed maximum number of buckets, buckets of the smallest values
+       * are collapsed into the lowest kept bucket.
+       *
+       * @param index
+       */
+      private void grow(int index) {
+         int first = offset;
+         int last = offset + counts.length - 1;
+         while (first <= last && counts[first - offset] == 0) {
+            first++;
+         }
+         while (last >= first && counts[last - offset] == 0) {
+            last--;
+         }
+
+         boolean empty = first > last;
+         int from = empty ? index : Math.min(first, index);
+         int to = empty ? index + 1 : Math.max(last + 1, index + 1);
+         int length = Math.min(Math.max(to - from, counts.length * 2), MAX_BUCKETS);
+         if (to - from > length || (!empty && index < first)) {
+            from = to - length;
+         }
+
+         double[] grown = new double[length];
+         for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+               grown[Math.max(offset + i, from) - from] += counts[i];
+            }
+         }
+         counts = grown;
+         offset = from;
+      }
+
+      private double count(int index) {
+         return counts[index - offset];
+      }
+
+      private double total() {
+         double total = 0;
+         for (double count : counts) {
+            total += count;
+         }
+         return total;
+      }
+
+      private int minIndex() {
+         return offset;
+      }
+
+      private int maxIndex() {
+         return offset + counts.length - 1;
+      }
+
+      private void write(DataOutputStream out) throws IOException {
+         int first = 0;
+         int last = counts.length - 1;
+         while (first <= last && counts[first] == 0) {
+            first++;
+         }
+         while (last >= first && counts[last] == 0) {
+            last--;
+         }
+         out.writeInt(offset + first);
+         out.writeInt(last - first + 1);
+         for (int i = first; i <= last; i++) {
+            out.writeDouble(counts[i]);
+         }
+      }
+
+      private void read(DataInputStream in) throws IOException {
+         offset = in.readInt();
+         int length = in.readInt();
+         if (length < 0 || length > MAX_BUCKETS) {
+            throw new IOException("Invalid number of buckets " + length);
+         }
+         counts = new double[length];
+         for (int i = 0; i < length; i++) {
+            counts[i] = in.readDouble();
+         }
+      }
+   }
+}
@@ -0,0 +1,180 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.model.util;
+
+/**
+ * Single-pass accumulator of count, mean and variance of metric values. Values are added by Welford's algorithm,
+ * which updates the mean and the sum of squared deviations from the mean, so it doesn't suffer from the cancellation
+ * of the naive sum of squares. Values can be also removed, so the statistics can be maintained over a sliding window,
+ * and accumulators are merged by the pairwise formula of Chan et al. Count is a double, so a part of the values
+ * can be merged with a weight.
+ *
+ * The class isn't thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public class RunningStatistics {
+
+   private double count;
+   private double mean;
+   // sum of squared deviations from the mean
+   private double m2;
+
+   public RunningStatistics() {
+   }
+
+   /**
+    * @param count number of the values
+    * @param mean mean of the values
+    * @param populationVariance population variance of the values, see {@link #getPopulationVariance()}
+    */
+   public RunningStatistics(double count, double mean, double populationVariance) {
+      if (count > 0) {
+         this.count = count;
+         this.mean = mean;
+         this.m2 = populationVariance * count;
+      }
+   }
+
+   /**
+    * Adds the value.
+    *
+    * @param value
+    */
+   public void add(double value) {
+      count++;
+      double delta = value - mean;
+      mean += delta / count;
+      m2 += delta * (value - mean);
+   }
+
+   /**
+    * Adds values from the primitive array.
+    *
+    * @param values
+    * @param from index of the first value
+    * @param to index after the last value
+    */
+   public void add(double[] values, int from, int to) {
+      for (int i = from; i < to; i++) {
+         add(values[i]);
+      }
+   }
+
+   /**
+    * Removes the value, it has to be added before.
+    *
+    * @param value
+    */
+   public void remove(double value) {
+      if (count <= 1) {
+         count = 0;
+         mean = 0;
+         m2 = 0;
+         return;
+      }
+
+      count--;
+      double delta = value - mean;
+      mean -= delta / count;
+      m2 = Math.max(m2 - delta * (value - mean), 0);
+   }
+
+   /**
+    * Adds all values of the other accumulator.
+    *
+    * @param other
+    */
+   public void merge(RunningStatistics other) {
+      if (other.count <= 0) {
+         return;
+      }
+      if (count <= 0) {
+         count = other.count;
+         mean = other.mean;
+         m2 = other.m2;
+         return;
+      }
+
+      double total = count + other.count;
+      double delta = other.mean - mean;
+      mean += delta * other.count / total;
+      m2 += other.m2 + delta * delta * count * other.count / total;
+      count = total;
+   }
+
+   /**
+    * @return number of the values
+    */
+   public double getCount() {
+      return count;
+   }
+
+   /**
+    * @return mean of the values, NaN if there are no values
+    */
+   public double getMean() {
+      return count > 0 ? mean : Double.NaN;
+   }
+
+   /**
+    * @return sample variance of the values, NaN if there are less than two values
+    */
+   public double getVariance() {
+      return count > 1 ? m2 / (count - 1) : Double.NaN;
+   }
+
+   /**
+    * @return population variance of the values, NaN if there are no values
+    */
+   public double getPopulationVariance() {
+      return count > 0 ? m2 / count : Double.NaN;
+   }
+
+   /**
+    * @return sample standard deviation of the values, NaN if there are less than two values
+    */
+   public double getStandardDeviation() {
+      return Math.sqrt(getVariance());
+   }
+
+   /**
+    * @return sample standard deviation relative to the mean, NaN if it isn't defined
+    */
+   public double getCoefficientOfVariation() {
+      double mean = getMean();
+      return mean == 0 ? Double.NaN : getStandardDeviation() / Math.abs(mean);
+   }
+
+   /**
+    * Number of sample standard deviations the value is away from the mean.
+    *
+    * @param value
+    * @return z-score of the value, NaN if the standard deviation is zero or isn't defined
+    */
+   public double getZScore(double value) {
+      double deviation = getStandardDeviation();
+      return deviation > 0 ? (value - mean) / deviation : Double.NaN;
+   }
+
+   /**
+    * @return independent copy of the accumulator
+    */
+   public RunningStatistics copy() {
+      RunningStatistics copy = new RunningStatistics();
+      copy.merge(this);
+      return copy;
+   }
+}
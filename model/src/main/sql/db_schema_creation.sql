@@ -303,7 +303,8 @@ CREATE TABLE value (
     id bigint NOT NULL,
     result_value double precision,
     metric_id bigint NOT NULL,
-    test_execution_id bigint NOT NULL
+    test_execution_id bigint NOT NULL,
+    started timestamp without time zone NOT NULL
 );
 
 
@@ -317,7 +318,8 @@ CREATE TABLE value_parameter (
     id bigint NOT NULL,
     name character varying(255),
     value character varying(255),
-    value_id bigint NOT NULL
+    value_id bigint NOT NULL,
+    started timestamp without time zone NOT NULL
 );
 
 
@@ -593,8 +595,11 @@ ADD comment character varying(10239) NULL;
 -----------------------------------------------------------------------------------------------
 
 CREATE INDEX value_test_execution ON value(test_execution_id);
+CREATE INDEX value_metric_result ON value(metric_id, result_value);
+CREATE INDEX value_metric_started ON value(metric_id, started);
 CREATE INDEX value_parameter_value ON value_parameter(value_id);
 CREATE INDEX test_execution_test ON test_execution(test_id);
+CREATE INDEX test_execution_started ON test_execution(started);
 CREATE INDEX test_metric_test ON test_metric(test_id);
 CREATE INDEX test_metric_metric ON test_metric(metric_id);
 
@@ -813,7 +818,10 @@ CREATE TABLE alert (
   description character varying(2097) NOT NULL,
   condition character varying(2097) NOT NULL,
   metric_id bigint NOT NULL,
-  test_id bigint NOT NULL
+  test_id bigint NOT NULL,
+  type character varying(255) NOT NULL DEFAULT 'CONDITION',
+  change_window integer,
+  change_threshold double precision
 );
 
 
@@ -861,6 +869,108 @@ CREATE INDEX alert_tag_alert ON alert_tag(alert_id);
 CREATE INDEX alert_tag_tag ON alert_tag(tag_id);
 
 
+--
+-- Name: metric_series; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+CREATE TABLE metric_series (
+  value_id bigint NOT NULL,
+  test_id bigint NOT NULL,
+  metric_id bigint NOT NULL,
+  test_execution_id bigint NOT NULL,
+  started timestamp without time zone NOT NULL,
+  result_value double precision,
+  tags character varying(10239) NOT NULL
+);
+
+ALTER TABLE public.metric_series OWNER TO perfrepo;
+ALTER TABLE ONLY public.metric_series
+ADD CONSTRAINT metric_series_pkey PRIMARY KEY (value_id);
+ALTER TABLE ONLY public.metric_series
+ADD CONSTRAINT metric_series_value_fkey FOREIGN KEY (value_id) REFERENCES value(id) ON DELETE CASCADE;
+CREATE INDEX metric_series_test_metric_started ON metric_series(test_id, metric_id, started);
+CREATE INDEX metric_series_test_execution ON metric_series(test_execution_id);
+
+--
+-- Name: retention_policy; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+CREATE TABLE retention_policy (
+  id bigint NOT NULL,
+  test_id bigint NOT NULL,
+  raw_days integer NOT NULL,
+  bucket_hours integer NOT NULL
+);
+
+ALTER TABLE public.retention_policy OWNER TO perfrepo;
+ALTER TABLE ONLY public.retention_policy
+ADD CONSTRAINT retention_policy_pkey PRIMARY KEY (id);
+ALTER TABLE ONLY public.retention_policy
+ADD CONSTRAINT retention_policy_test_key UNIQUE (test_id);
+ALTER TABLE ONLY public.retention_policy
+ADD CONSTRAINT retention_policy_test_fkey FOREIGN KEY (test_id) REFERENCES test(id) ON DELETE CASCADE;
+
+CREATE SEQUENCE retention_policy_sequence
+START WITH 1
+INCREMENT BY 1
+NO MAXVALUE
+NO MINVALUE
+CACHE 1;
+
+ALTER TABLE public.retention_policy_sequence OWNER TO perfrepo;
+
+--
+-- Name: metric_rollup; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+CREATE TABLE metric_rollup (
+  id bigint NOT NULL,
+  test_id bigint NOT NULL,
+  metric_id bigint NOT NULL,
+  tags character varying(10239) NOT NULL,
+  bucket_start timestamp without time zone NOT NULL,
+  bucket_end timestamp without time zone NOT NULL,
+  value_count bigint NOT NULL,
+  min_value double precision NOT NULL,
+  max_value double precision NOT NULL,
+  mean_value double precision NOT NULL,
+  p50_value double precision NOT NULL,
+  p90_value double precision NOT NULL,
+  p99_value double precision NOT NULL,
+  variance_value double precision NOT NULL,
+  sketch bytea
+);
+
+ALTER TABLE public.metric_rollup OWNER TO perfrepo;
+ALTER TABLE ONLY public.metric_rollup
+ADD CONSTRAINT metric_rollup_pkey PRIMARY KEY (id);
+ALTER TABLE ONLY public.metric_rollup
+ADD CONSTRAINT metric_rollup_test_fkey FOREIGN KEY (test_id) REFERENCES test(id) ON DELETE CASCADE;
+ALTER TABLE ONLY public.metric_rollup
+ADD CONSTRAINT metric_rollup_metric_fkey FOREIGN KEY (metric_id) REFERENCES metric(id) ON DELETE CASCADE;
+CREATE UNIQUE INDEX metric_rollup_test_metric_bucket ON metric_rollup(test_id, metric_id, bucket_start, tags);
+CREATE INDEX metric_rollup_metric_bucket ON metric_rollup(metric_id, bucket_start);
+
+CREATE SEQUENCE metric_rollup_sequence
+START WITH 1
+INCREMENT BY 1
+NO MAXVALUE
+NO MINVALUE
+CACHE 1;
+
+ALTER TABLE public.metric_rollup_sequence OWNER TO perfrepo;
+
+--
+-- full-text search vector of test execution name and comment, maintained by trigger on insert and update
+--
+ALTER TABLE test_execution ADD COLUMN search_vector tsvector;
+CREATE INDEX test_execution_search_vector ON test_execution USING gin(search_vector);
+CREATE TRIGGER test_execution_search_vector_update BEFORE INSERT OR UPDATE ON test_execution
+FOR EACH ROW EXECUTE PROCEDURE tsvector_update_trigger(search_vector, 'pg_catalog.english', name, comment);
+
+--
+-- parsed numeric value of test execution parameters, used by range criteria, null for non-numeric values
+--
+ALTER TABLE test_execution_parameter ADD COLUMN numeric_value double precision;
+CREATE INDEX test_execution_parameter_name_numeric ON test_execution_parameter(name, numeric_value);
+
 --
 -- User/Group data
 --
@@ -0,0 +1,160 @@
+-----------------------------------------------------------------------------------------------
+--                                                                                           --
+-- Upgrade of db schema from version 1.4 to 1.5                                           --
+--                                                                                           --
+-----------------------------------------------------------------------------------------------
+
+--
+-- Name: metric_series; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+CREATE TABLE metric_series (
+  value_id bigint NOT NULL,
+  test_id bigint NOT NULL,
+  metric_id bigint NOT NULL,
+  test_execution_id bigint NOT NULL,
+  started timestamp without time zone NOT NULL,
+  result_value double precision,
+  tags character varying(10239) NOT NULL
+);
+
+ALTER TABLE public.metric_series OWNER TO perfrepo;
+ALTER TABLE ONLY public.metric_series
+ADD CONSTRAINT metric_series_pkey PRIMARY KEY (value_id);
+ALTER TABLE ONLY public.metric_series
+ADD CONSTRAINT metric_series_value_fkey FOREIGN KEY (value_id) REFERENCES value(id) ON DELETE CASCADE;
+CREATE INDEX metric_series_test_metric_started ON metric_series(test_id, metric_id, started);
+CREATE INDEX metric_series_test_execution ON metric_series(test_execution_id);
+
+-- fill the series from existing values, same statement as rebuild_metric_series.sql
+INSERT INTO metric_series (value_id, test_id, metric_id, test_execution_id, started, result_value, tags)
+SELECT v.id, te.test_id, v.metric_id, te.id, te.started, v.result_value,
+       ' ' || array_to_string(ARRAY(SELECT t.name FROM test_execution_tag tet JOIN tag t ON t.id = tet.tag_id
+                                    WHERE tet.test_execution_id = te.id ORDER BY t.name), ' ') || ' '
+FROM value v JOIN test_execution te ON te.id = v.test_execution_id;
+
+--
+-- start of the test execution copied to values and value parameters, it's the partitioning key
+-- of these tables when the optional partitioning.sql is applied
+--
+ALTER TABLE value ADD COLUMN started timestamp without time zone;
+UPDATE value v SET started = te.started FROM test_execution te WHERE te.id = v.test_execution_id;
+ALTER TABLE value ALTER COLUMN started SET NOT NULL;
+
+ALTER TABLE value_parameter ADD COLUMN started timestamp without time zone;
+UPDATE value_parameter vp SET started = v.started FROM value v WHERE v.id = vp.value_id;
+ALTER TABLE value_parameter ALTER COLUMN started SET NOT NULL;
+
+CREATE INDEX test_execution_started ON test_execution(started);
+
+--
+-- Name: retention_policy; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+CREATE TABLE retention_policy (
+  id bigint NOT NULL,
+  test_id bigint NOT NULL,
+  raw_days integer NOT NULL,
+  bucket_hours integer NOT NULL
+);
+
+ALTER TABLE public.retention_policy OWNER TO perfrepo;
+ALTER TABLE ONLY public.retention_policy
+ADD CONSTRAINT retention_policy_pkey PRIMARY KEY (id);
+ALTER TABLE ONLY public.retention_policy
+ADD CONSTRAINT retention_policy_test_key UNIQUE (test_id);
+ALTER TABLE ONLY public.retention_policy
+ADD CONSTRAINT retention_policy_test_fkey FOREIGN KEY (test_id) REFERENCES test(id) ON DELETE CASCADE;
+
+CREATE SEQUENCE retention_policy_sequence
+START WITH 1
+INCREMENT BY 1
+NO MAXVALUE
+NO MINVALUE
+CACHE 1;
+
+ALTER TABLE public.retention_policy_sequence OWNER TO perfrepo;
+
+--
+-- Name: metric_rollup; Type: TABLE; Schema: public; Owner: perfrepo; Tablespace:
+--
+CREATE TABLE metric_rollup (
+  id bigint NOT NULL,
+  test_id bigint NOT NULL,
+  metric_id bigint NOT NULL,
+  tags character varying(10239) NOT NULL,
+  bucket_start timestamp without time zone NOT NULL,
+  bucket_end timestamp without time zone NOT NULL,
+  value_count bigint NOT NULL,
+  min_value double precision NOT NULL,
+  max_value double precision NOT NULL,
+  mean_value double precision NOT NULL,
+  p50_value double precision NOT NULL,
+  p90_value double precision NOT NULL,
+  p99_value double precision NOT NULL,
+  variance_value double precision NOT NULL,
+  sketch bytea
+);
+
+ALTER TABLE public.metric_rollup OWNER TO perfrepo;
+ALTER TABLE ONLY public.metric_rollup
+ADD CONSTRAINT metric_rollup_pkey PRIMARY KEY (id);
+ALTER TABLE ONLY public.metric_rollup
+ADD CONSTRAINT metric_rollup_test_fkey FOREIGN KEY (test_id) REFERENCES test(id) ON DELETE CASCADE;
+ALTER TABLE ONLY public.metric_rollup
+ADD CONSTRAINT metric_rollup_metric_fkey FOREIGN KEY (metric_id) REFERENCES metric(id) ON DELETE CASCADE;
+CREATE UNIQUE INDEX metric_rollup_test_metric_bucket ON metric_rollup(test_id, metric_id, bucket_start, tags);
+CREATE INDEX metric_rollup_metric_bucket ON metric_rollup(metric_id, bucket_start);
+
+CREATE SEQUENCE metric_rollup_sequence
+START WITH 1
+INCREMENT BY 1
+NO MAXVALUE
+NO MINVALUE
+CACHE 1;
+
+ALTER TABLE public.metric_rollup_sequence OWNER TO perfrepo;
+
+--
+-- full-text search vector of test execution name and comment, maintained by trigger on insert and update,
+-- tsvector_update_trigger is built-in, so it doesn't require plpgsql
+--
+ALTER TABLE test_execution ADD COLUMN search_vector tsvector;
+UPDATE test_execution SET search_vector = to_tsvector('pg_catalog.english', coalesce(name, '') || ' ' || coalesce(comment, ''));
+CREATE INDEX test_execution_search_vector ON test_execution USING gin(search_vector);
+CREATE TRIGGER test_execution_search_vector_update BEFORE INSERT OR UPDATE ON test_execution
+FOR EACH ROW EXECUTE PROCEDURE tsvector_update_trigger(search_vector, 'pg_catalog.english', name, comment);
+
+--
+-- parsed numeric value of test execution parameters, used by range criteria, null for non-numeric values,
+-- new values are parsed by the application (ParameterValues), this fills the existing ones,
+-- very long values and exponents out of double range are left non-numeric
+--
+ALTER TABLE test_execution_parameter ADD COLUMN numeric_value double precision;
+UPDATE test_execution_parameter SET numeric_value = CAST(trim(value) AS double precision)
+WHERE length(value) <= 64 AND value ~ '^[[:space:]]*[-+]?(?:[0-9]+[.]?[0-9]*|[.][0-9]+)(?:[eE][-+]?[0-9]{1,2})?[[:space:]]*$';
+UPDATE test_execution_parameter SET numeric_value =
+  CAST(substring(value from '[-+]?(?:[0-9]+[.]?[0-9]*|[.][0-9]+)') AS double precision) *
+  CASE lower(substring(value from '[kKmMgGtT]'))
+    WHEN 'k' THEN 1024.0
+    WHEN 'm' THEN 1024.0 * 1024
+    WHEN 'g' THEN 1024.0 * 1024 * 1024
+    ELSE 1024.0 * 1024 * 1024 * 1024
+  END
+WHERE length(value) <= 64 AND value ~ '^[[:space:]]*[-+]?(?:[0-9]+[.]?[0-9]*|[.][0-9]+)[[:space:]]*[kKmMgGtT][bB]?[[:space:]]*$';
+CREATE INDEX test_execution_parameter_name_numeric ON test_execution_parameter(name, numeric_value);
+
+--
+-- metric value restrictions and ordering of test executions by metric value
+--
+CREATE INDEX value_metric_result ON value(metric_id, result_value);
+
+--
+-- alert aggregates over the newest values of a metric
+--
+CREATE INDEX value_metric_started ON value(metric_id, started);
+
+--
+-- change-point alerts
+--
+ALTER TABLE alert ADD COLUMN type character varying(255) NOT NULL DEFAULT 'CONDITION';
+ALTER TABLE alert ADD COLUMN change_window integer;
+ALTER TABLE alert ADD COLUMN change_threshold double precision;
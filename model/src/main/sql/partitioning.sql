@@ -0,0 +1,160 @@
+-----------------------------------------------------------------------------------------------
+--                                                                                           --
+-- Optional: monthly range partitioning of test executions and values by start              --
+-- Requires PostgreSQL 11 or newer and schema version 1.5                                    --
+--                                                                                           --
+-----------------------------------------------------------------------------------------------
+--
+-- test_execution, value, value_parameter and metric_series are partitioned by month of the test execution
+-- start (value, value_parameter and metric_series carry a copy of it in column "started"), so values always live
+-- in the same month as their execution. Old data can be removed by perfrepo_drop_month_partitions(month),
+-- which drops the partitions instead of deleting rows.
+--
+-- Partitioned tables can't be referenced by foreign keys on "id" only, so the foreign keys pointing to these
+-- tables are dropped, the consistency is kept by the application.
+--
+-- Partitions have to exist before the data arrive, run periodically (e.g. monthly from cron)
+--    SELECT perfrepo_create_month_partitions((now() + interval '12 months')::date);
+-- Rows out of all month partitions end up in the default partitions.
+--
+-- Queries of values are restricted by "started" whenever the search has a start range (searches, exports, charts,
+-- alerts with a date range), so only partitions of the range are scanned. These queries scan all partitions:
+-- searches without a start range, LAST windows of alerts (the newest values of the whole history) and alert
+-- replays, which read the whole history of the metric.
+--
+-- Before PostgreSQL 13 row triggers can't be defined on a partitioned table, so the trigger maintaining
+-- test_execution.search_vector is created on every test_execution partition.
+--
+
+BEGIN;
+
+--
+-- foreign keys referencing the partitioned tables
+--
+ALTER TABLE value DROP CONSTRAINT fk6ac9171fdfcba9a;
+ALTER TABLE value_parameter DROP CONSTRAINT fkfd9de65b92d882df;
+ALTER TABLE test_execution_parameter DROP CONSTRAINT fk8f4e9015fdfcba9a;
+ALTER TABLE test_execution_tag DROP CONSTRAINT fkf95a5d06fdfcba9a;
+ALTER TABLE test_execution_attachment DROP CONSTRAINT fkca230a37fdfcba9a;
+ALTER TABLE metric_series DROP CONSTRAINT metric_series_value_fkey;
+
+--
+-- partitioned tables with the same columns as the original ones
+--
+ALTER TABLE test_execution RENAME TO test_execution_unpartitioned;
+ALTER TABLE value RENAME TO value_unpartitioned;
+ALTER TABLE value_parameter RENAME TO value_parameter_unpartitioned;
+ALTER TABLE metric_series RENAME TO metric_series_unpartitioned;
+
+CREATE TABLE test_execution (LIKE test_execution_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (started);
+CREATE TABLE value (LIKE value_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (started);
+CREATE TABLE value_parameter (LIKE value_parameter_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (started);
+CREATE TABLE metric_series (LIKE metric_series_unpartitioned INCLUDING DEFAULTS) PARTITION BY RANGE (started);
+
+ALTER TABLE public.test_execution OWNER TO perfrepo;
+ALTER TABLE public.value OWNER TO perfrepo;
+ALTER TABLE public.value_parameter OWNER TO perfrepo;
+ALTER TABLE public.metric_series OWNER TO perfrepo;
+
+CREATE TABLE test_execution_default PARTITION OF test_execution DEFAULT;
+CREATE TABLE value_default PARTITION OF value DEFAULT;
+CREATE TABLE value_parameter_default PARTITION OF value_parameter DEFAULT;
+CREATE TABLE metric_series_default PARTITION OF metric_series DEFAULT;
+
+CREATE TRIGGER test_execution_search_vector_update BEFORE INSERT OR UPDATE ON test_execution_default
+FOR EACH ROW EXECUTE PROCEDURE tsvector_update_trigger(search_vector, 'pg_catalog.english', name, comment);
+
+--
+-- Name: perfrepo_create_month_partitions; Type: FUNCTION; Schema: public; Owner: perfrepo
+--
+CREATE OR REPLACE FUNCTION perfrepo_create_month_partitions(month date) RETURNS void AS $$
+DECLARE
+  month_start timestamp := date_trunc('month', month);
+  month_end timestamp := date_trunc('month', month) + interval '1 month';
+  suffix text := to_char(month, 'YYYY_MM');
+  parent text;
+BEGIN
+  FOREACH parent IN ARRAY ARRAY['test_execution', 'value', 'value_parameter', 'metric_series'] LOOP
+    IF to_regclass(parent || '_' || suffix) IS NULL THEN
+      EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                     parent || '_' || suffix, parent, month_start, month_end);
+      IF parent = 'test_execution' THEN
+        EXECUTE format('CREATE TRIGGER test_execution_search_vector_update BEFORE INSERT OR UPDATE ON %I '
+                       'FOR EACH ROW EXECUTE PROCEDURE tsvector_update_trigger(search_vector, ''pg_catalog.english'', name, comment)',
+                       parent || '_' || suffix);
+      END IF;
+    END IF;
+  END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+--
+-- Name: perfrepo_drop_month_partitions; Type: FUNCTION; Schema: public; Owner: perfrepo
+--
+CREATE OR REPLACE FUNCTION perfrepo_drop_month_partitions(month date) RETURNS void AS $$
+DECLARE
+  month_start timestamp := date_trunc('month', month);
+  month_end timestamp := date_trunc('month', month) + interval '1 month';
+  suffix text := to_char(month, 'YYYY_MM');
+BEGIN
+  -- the rest of the test execution data isn't partitioned
+  DELETE FROM test_execution_parameter WHERE test_execution_id IN
+    (SELECT id FROM test_execution WHERE started >= month_start AND started < month_end);
+  DELETE FROM test_execution_tag WHERE test_execution_id IN
+    (SELECT id FROM test_execution WHERE started >= month_start AND started < month_end);
+  PERFORM lo_unlink(content) FROM test_execution_attachment WHERE test_execution_id IN
+    (SELECT id FROM test_execution WHERE started >= month_start AND started < month_end);
+  DELETE FROM test_execution_attachment WHERE test_execution_id IN
+    (SELECT id FROM test_execution WHERE started >= month_start AND started < month_end);
+
+  EXECUTE format('DROP TABLE IF EXISTS %I, %I, %I, %I',
+                 'metric_series_' || suffix, 'value_parameter_' || suffix, 'value_' || suffix, 'test_execution_' || suffix);
+END;
+$$ LANGUAGE plpgsql;
+
+--
+-- month partitions for the existing data and the next year
+--
+SELECT perfrepo_create_month_partitions(month::date)
+FROM generate_series(date_trunc('month', (SELECT coalesce(min(started), now()) FROM test_execution_unpartitioned)),
+                     date_trunc('month', now()) + interval '12 months', interval '1 month') month;
+
+INSERT INTO test_execution SELECT * FROM test_execution_unpartitioned;
+INSERT INTO value SELECT * FROM value_unpartitioned;
+INSERT INTO value_parameter SELECT * FROM value_parameter_unpartitioned;
+INSERT INTO metric_series SELECT * FROM metric_series_unpartitioned;
+
+DROP TABLE metric_series_unpartitioned;
+DROP TABLE value_parameter_unpartitioned;
+DROP TABLE value_unpartitioned;
+DROP TABLE test_execution_unpartitioned;
+
+--
+-- keys and indexes, primary keys of partitioned tables have to contain the partitioning key
+--
+ALTER TABLE public.test_execution
+ADD CONSTRAINT test_execution_pkey PRIMARY KEY (id, started);
+ALTER TABLE public.test_execution
+ADD CONSTRAINT test_execution_test_fkey FOREIGN KEY (test_id) REFERENCES test(id);
+CREATE INDEX test_execution_test ON test_execution(test_id);
+CREATE INDEX test_execution_started ON test_execution(started);
+CREATE INDEX test_execution_search_vector ON test_execution USING gin(search_vector);
+
+ALTER TABLE public.value
+ADD CONSTRAINT value_pkey PRIMARY KEY (id, started);
+ALTER TABLE public.value
+ADD CONSTRAINT value_metric_fkey FOREIGN KEY (metric_id) REFERENCES metric(id);
+CREATE INDEX value_test_execution ON value(test_execution_id);
+CREATE INDEX value_metric_result ON value(metric_id, result_value);
+CREATE INDEX value_metric_started ON value(metric_id, started);
+
+ALTER TABLE public.value_parameter
+ADD CONSTRAINT value_parameter_pkey PRIMARY KEY (id, started);
+CREATE INDEX value_parameter_value ON value_parameter(value_id);
+
+ALTER TABLE public.metric_series
+ADD CONSTRAINT metric_series_pkey PRIMARY KEY (value_id, started);
+CREATE INDEX metric_series_test_metric_started ON metric_series(test_id, metric_id, started);
+CREATE INDEX metric_series_test_execution ON metric_series(test_execution_id);
+
+COMMIT;
@@ -0,0 +1,24 @@
+-----------------------------------------------------------------------------------------------
+--                                                                                           --
+-- Maintenance: rebuild of the metric history series from all stored values                  --
+-- Requires schema version 1.5                                                               --
+--                                                                                           --
+-----------------------------------------------------------------------------------------------
+--
+-- metric_series is refreshed by the application per test execution, this script is needed only when
+-- the series got out of sync, e.g. after values or tags were changed directly in the database.
+-- It rewrites the whole table in one transaction, so run it by the database owner in a maintenance window.
+-- The INSERT is the same statement as MetricSeriesDAO uses for one test execution.
+--
+
+BEGIN;
+
+DELETE FROM metric_series;
+
+INSERT INTO metric_series (value_id, test_id, metric_id, test_execution_id, started, result_value, tags)
+SELECT v.id, te.test_id, v.metric_id, te.id, te.started, v.result_value,
+       ' ' || array_to_string(ARRAY(SELECT t.name FROM test_execution_tag tet JOIN tag t ON t.id = tet.tag_id
+                                    WHERE tet.test_execution_id = te.id ORDER BY t.name), ' ') || ' '
+FROM value v JOIN test_execution te ON te.id = v.test_execution_id;
+
+COMMIT;
@@ -32,6 +32,13 @@ IN                   : 'IN';
 AVG                  : 'AVG';
 MIN                  : 'MIN';
 MAX                  : 'MAX';
+MEDIAN               : 'MEDIAN';
+PERCENTILE           : 'PERCENTILE';
+TRIMMEDMEAN          : 'TRIMMEDMEAN';
+STDDEV               : 'STDDEV';
+VARIANCE             : 'VARIANCE';
+CV                   : 'CV';
+ZSCORE               : 'ZSCORE';
 NUMBER_NOT_ONE       : ('0' | '2'..'9');
 ONE                  : '1';
 COMMA                : ',';
@@ -51,11 +58,29 @@ assign            : any ASSIGN^ '('! simple_select ')'! |
                     any ASSIGN^ simple_select |
                     any ASSIGN^ avg |
                     any ASSIGN^ max |
-                    any ASSIGN^ min;
+                    any ASSIGN^ min |
+                    any ASSIGN^ median |
+                    any ASSIGN^ percentile |
+                    any ASSIGN^ trimmedmean |
+                    any ASSIGN^ stddev |
+                    any ASSIGN^ variance |
+                    any ASSIGN^ cv |
+                    any ASSIGN^ zscore;
 
 avg               : AVG^ '('! multi_select ')'!;
 max               : MAX^ '('! multi_select ')'!;
 min               : MIN^ '('! multi_select ')'!;
+median            : MEDIAN^ '('! multi_select ')'!;
+// the first argument is the percentile, e.g. PERCENTILE(95, SELECT LAST 20)
+percentile        : PERCENTILE^ '('! any COMMA! multi_select ')'!;
+// the optional first argument is the trimmed percentage from each side, 10 by default
+trimmedmean       : TRIMMEDMEAN^ '('! multi_select ')'! |
+                    TRIMMEDMEAN^ '('! any COMMA! multi_select ')'!;
+stddev            : STDDEV^ '('! multi_select ')'!;
+variance          : VARIANCE^ '('! multi_select ')'!;
+cv                : CV^ '('! multi_select ')'!;
+// the first argument is the value, usually the current result, e.g. ZSCORE(result, SELECT LAST 30)
+zscore            : ZSCORE^ '('! any COMMA! multi_select ')'!;
 
 simple_select     : SELECT^ equals_where simple_last? | SELECT^ simple_last;
 
@@ -78,5 +103,6 @@ equals_condition  : any ASSIGN^ any |
 in_condition      : any IN^ '('! any (COMMA! any)* ')'!;
 
 number            : (NUMBER_NOT_ONE | ONE)* -> ANY[$text];
-any_with_equals   : ('=' | '(' | ')' | ANY_CHAR | NUMBER_NOT_ONE | ONE)* -> ANY[$text];
+// CONDITION is passed as a whole to org.perfrepo.web.alerting.ExpressionParser, which has the expression grammar
+any_with_equals   : ('=' | '(' | ')' | LTE | GTE | COMMA | ANY_CHAR | NUMBER_NOT_ONE | ONE)* -> ANY[$text];
 any               : (NUMBER_NOT_ONE | ONE | ANY_CHAR)* -> ANY[$text];
@@ -0,0 +1,152 @@
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.model.to.AlertReplayTO;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replays of alerts running in background and their results, see {@link ConditionChecker#replay}. Only the newest
+ * replays are kept, the registry isn't persistent. Stored replays are never modified, a new instance replaces
+ * the running replay when it's finished.
+ *
+ * Every replay belongs to the user who started it and it's visible only to that user. The replays scan the whole history
+ * of the metric, so only few of them can run at once.
+ *
+ * @author agent (agent@local)
+ */
+@ApplicationScoped
+public class AlertReplayRegistry {
+
+   /**
+    * Maximum number of kept replays, the oldest finished ones are removed.
+    */
+   public static final int MAX_REPLAYS = 100;
+
+   /**
+    * Maximum number of replays running at once.
+    */
+   public static final int MAX_RUNNING_REPLAYS = 4;
+
+   /**
+    * Maximum number of replays running at once for one user.
+    */
+   public static final int MAX_RUNNING_REPLAYS_PER_USER = 1;
+
+   private long lastId;
+
+   private final Map<Long, Entry> replays = new LinkedHashMap<>();
+
+   /**
+    * Registers new running replay.
+    *
+    * @param userId id of the user who started the replay
+    * @param alertId id of the replayed alert, null if the alert isn't stored
+    * @param from start of the replayed history, null for the whole history
+    * @return running replay with new id or null, if too many replays are running
+    */
+   public synchronized AlertReplayTO start(Long userId, Long alertId, Date from) {
+      int running = 0;
+      int runningForUser = 0;
+      for (Entry entry : replays.values()) {
+         if (entry.replay.getStatus() == AlertReplayTO.Status.RUNNING) {
+            running++;
+            if (entry.userId.equals(userId)) {
+               runningForUser++;
+            }
+         }
+      }
+      if (running >= MAX_RUNNING_REPLAYS || runningForUser >= MAX_RUNNING_REPLAYS_PER_USER) {
+         return null;
+      }
+
+      AlertReplayTO replay = new AlertReplayTO();
+      replay.setId(++lastId);
+      replay.setAlertId(alertId);
+      replay.setFrom(from);
+      replay.setStatus(AlertReplayTO.Status.RUNNING);
+      replays.put(replay.getId(), new Entry(userId, replay));
+      removeEldest();
+
+      return replay;
+   }
+
+   /**
+    * Stores result of the replay.
+    *
+    * @param id id of the replay
+    * @param result firing points of the alert
+    */
+   public synchronized void finish(Long id, AlertReplayTO result) {
+      Entry running = replays.get(id);
+      if (running == null) {
+         return;
+      }
+
+      result.setId(id);
+      result.setAlertId(running.replay.getAlertId());
+      result.setFrom(running.replay.getFrom());
+      result.setStatus(AlertReplayTO.Status.FINISHED);
+      replays.put(id, new Entry(running.userId, result));
+   }
+
+   /**
+    * Marks the replay as failed.
+    *
+    * @param id id of the replay
+    * @param error error message
+    */
+   public synchronized void fail(Long id, String error) {
+      Entry running = replays.get(id);
+      if (running == null || running.replay.getStatus() != AlertReplayTO.Status.RUNNING) {
+         return;
+      }
+
+      AlertReplayTO failed = new AlertReplayTO();
+      failed.setId(id);
+      failed.setAlertId(running.replay.getAlertId());
+      failed.setFrom(running.replay.getFrom());
+      failed.setStatus(AlertReplayTO.Status.FAILED);
+      failed.setError(error);
+      replays.put(id, new Entry(running.userId, failed));
+   }
+
+   /**
+    * @param userId id of the user asking for the replay
+    * @param id
+    * @return the replay or null, if it doesn't exist, it was already removed or it belongs to another user
+    */
+   public synchronized AlertReplayTO get(Long userId, Long id) {
+      Entry entry = replays.get(id);
+      return entry == null || !entry.userId.equals(userId) ? null : entry.replay;
+   }
+
+   /**
+    * Helper method. Removes the oldest replays over {@link #MAX_REPLAYS}, running replays are never removed.
+    */
+   private void removeEldest() {
+      Iterator<Entry> it = replays.values().iterator();
+      while (replays.size() > MAX_REPLAYS && it.hasNext()) {
+         if (it.next().replay.getStatus() != AlertReplayTO.Status.RUNNING) {
+            it.remove();
+         }
+      }
+   }
+
+   /**
+    * Helper class. Stored replay with its owner.
+    */
+   private static class Entry {
+
+      private final Long userId;
+      private final AlertReplayTO replay;
+
+      private Entry(Long userId, AlertReplayTO replay) {
+         this.userId = userId;
+         this.replay = replay;
+      }
+   }
+}
@@ -0,0 +1,58 @@
+package org.perfrepo.web.alerting;
+
+import org.apache.log4j.Logger;
+import org.perfrepo.model.Alert;
+
+import javax.ejb.Asynchronous;
+import javax.ejb.EJBException;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Runs replays of alerts in background and stores their results in {@link AlertReplayRegistry}.
+ *
+ * @author agent (agent@local)
+ */
+@Stateless
+@TransactionManagement(TransactionManagementType.CONTAINER)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class AlertReplayWorker {
+
+   private static final Logger log = Logger.getLogger(AlertReplayWorker.class);
+
+   @Inject
+   private ConditionChecker conditionChecker;
+
+   @Inject
+   private AlertReplayRegistry alertReplayRegistry;
+
+   /**
+    * Replays the alert, see {@link ConditionChecker#replay(Alert, Date, List)}. The replay runs without
+    * transaction, so the entities of the alert have to be loaded already. The replay is always finished or failed
+    * in the registry, otherwise it would count as running forever.
+    *
+    * @param replayId id of the running replay in {@link AlertReplayRegistry}
+    * @param alert
+    * @param from
+    * @param userGroups groups of the user who requested the replay
+    */
+   @Asynchronous
+   public void replay(Long replayId, Alert alert, Date from, List<String> userGroups) {
+      try {
+         alertReplayRegistry.finish(replayId, conditionChecker.replay(alert, from, userGroups));
+      } catch (RuntimeException ex) {
+         Throwable cause = ex instanceof EJBException && ex.getCause() != null ? ex.getCause() : ex;
+         log.error("Replay of alert " + alert.getName() + " failed.", cause);
+         alertReplayRegistry.fail(replayId, cause.getMessage());
+      } finally {
+         // no-op if the replay was already finished or failed above
+         alertReplayRegistry.fail(replayId, "Replay was interrupted.");
+      }
+   }
+}
@@ -0,0 +1,160 @@
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.model.MetricComparator;
+import org.perfrepo.model.util.RunningStatistics;
+
+/**
+ * Detects a change point in the newest results of a metric, i.e. the first result of the test execution where the mean
+ * of the results shifted. The series is split where the cumulative sum of deviations from the mean of the series
+ * reaches its maximum magnitude, which is the most likely change of the mean, both step changes and slow drifts.
+ * Significance of the shift is the Welch's t-statistic of the two segments. One detection takes O(n) time
+ * for the series of n results.
+ *
+ * @author agent (agent@local)
+ */
+public class ChangePointDetector {
+
+   /**
+    * Number of the newest results searched for a change point when the alert doesn't specify it.
+    */
+   public static final int DEFAULT_WINDOW = 30;
+
+   /**
+    * Maximum number of the newest results searched for a change point.
+    */
+   public static final int MAX_WINDOW = 1000;
+
+   /**
+    * Minimal score of a reported change point when the alert doesn't specify it.
+    */
+   public static final double DEFAULT_THRESHOLD = 4;
+
+   /**
+    * Minimal number of results on each side of the change point, so a single outlier isn't reported.
+    */
+   public static final int MIN_SEGMENT = 3;
+
+   /**
+    * Variables of the result of change-point alert, they can be used in the description of the alert.
+    */
+   public static final String FIRST_BAD_EXECUTION_VARIABLE = "firstBadExecution";
+   public static final String MEAN_BEFORE_VARIABLE = "meanBefore";
+   public static final String MEAN_AFTER_VARIABLE = "meanAfter";
+   public static final String SCORE_VARIABLE = "score";
+
+   private ChangePointDetector() {
+   }
+
+   /**
+    * Validates parameters of change-point alert.
+    *
+    * @param window number of the newest results searched for a change point or null for the default
+    * @param threshold minimal score of a reported change point or null for the default
+    * @throws IllegalArgumentException if a parameter is out of range
+    */
+   public static void validateParameters(Integer window, Double threshold) {
+      if (window != null && (window < 2 * MIN_SEGMENT || window > MAX_WINDOW)) {
+         throw new IllegalArgumentException("Window has to be from " + 2 * MIN_SEGMENT + " to " + MAX_WINDOW + " results.");
+      }
+      if (threshold != null && !(threshold > 0)) {
+         throw new IllegalArgumentException("Threshold has to be positive.");
+      }
+   }
+
+   /**
+    * Finds the most likely change point in the first values of the series.
+    *
+    * @param series results, the oldest first
+    * @param length number of the values from the start of the series that are searched
+    * @param comparator decides whether the shift is a regression, null means every shift is a regression
+    * @param threshold minimal score of the change point
+    * @return change point or null if there's no significant change point
+    */
+   public static ChangePoint detect(RollingWindow.Series series, int length, MetricComparator comparator, double threshold) {
+      if (length < 2 * MIN_SEGMENT) {
+         return null;
+      }
+
+      RunningStatistics all = new RunningStatistics();
+      for (int i = 0; i < length; i++) {
+         all.add(series.getValue(i));
+      }
+
+      // change point is the first value after the split
+      double cumulativeSum = 0;
+      double maxMagnitude = -1;
+      int split = -1;
+      for (int i = 1; i <= length - MIN_SEGMENT; i++) {
+         cumulativeSum += series.getValue(i - 1) - all.getMean();
+         if (i >= MIN_SEGMENT && Math.abs(cumulativeSum) > maxMagnitude) {
+            maxMagnitude = Math.abs(cumulativeSum);
+            split = i;
+         }
+      }
+
+      RunningStatistics before = new RunningStatistics();
+      RunningStatistics after = new RunningStatistics();
+      for (int i = 0; i < length; i++) {
+         (i < split ? before : after).add(series.getValue(i));
+      }
+
+      double shift = after.getMean() - before.getMean();
+      double error = Math.sqrt(before.getVariance() / before.getCount() + after.getVariance() / after.getCount());
+      double score = error > 0 ? Math.abs(shift) / error : (shift == 0 ? 0 : Double.POSITIVE_INFINITY);
+      if (score < threshold) {
+         return null;
+      }
+
+      boolean regression = comparator == null || (comparator == MetricComparator.HB ? shift < 0 : shift > 0);
+      return new ChangePoint(series.getExecId(split), before.getMean(), after.getMean(), score, regression);
+   }
+
+   /**
+    * Detected change point. Immutable class.
+    */
+   public static class ChangePoint {
+
+      private final long execId;
+      private final double meanBefore;
+      private final double meanAfter;
+      private final double score;
+      private final boolean regression;
+
+      public ChangePoint(long execId, double meanBefore, double meanAfter, double score, boolean regression) {
+         this.execId = execId;
+         this.meanBefore = meanBefore;
+         this.meanAfter = meanAfter;
+         this.score = score;
+         this.regression = regression;
+      }
+
+      /**
+       * @return id of the first test execution after the change, i.e. the suspected first bad test execution
+       */
+      public long getExecId() {
+         return execId;
+      }
+
+      public double getMeanBefore() {
+         return meanBefore;
+      }
+
+      public double getMeanAfter() {
+         return meanAfter;
+      }
+
+      /**
+       * @return Welch's t-statistic of the shift, infinity if both segments are constant
+       */
+      public double getScore() {
+         return score;
+      }
+
+      /**
+       * @return true if the mean shifted in the worse direction
+       */
+      public boolean isRegression() {
+         return regression;
+      }
+   }
+}
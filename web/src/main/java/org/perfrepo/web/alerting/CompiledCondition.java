@@ -0,0 +1,141 @@
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Alert condition compiled to an executable plan, i.e. the compiled CONDITION expression and the search criteria
+ * of all variables from DEFINE. The plan is immutable, so it can be cached and shared, evaluation requires only
+ * the data lookups of the variables.
+ *
+ * @author agent (agent@local)
+ */
+public class CompiledCondition {
+
+   private final String condition;
+   private final Expression expression;
+   private final List<VariableDefinition> definitions;
+
+   public CompiledCondition(String condition, Expression expression, List<VariableDefinition> definitions) {
+      this.condition = condition;
+      this.expression = expression;
+      this.definitions = Collections.unmodifiableList(new ArrayList<>(definitions));
+   }
+
+   /**
+    * @return source of the condition in alerting DSL
+    */
+   public String getCondition() {
+      return condition;
+   }
+
+   public List<VariableDefinition> getDefinitions() {
+      return definitions;
+   }
+
+   /**
+    * Evaluates the CONDITION expression.
+    *
+    * @param variables values of the variables, including "result"
+    * @return true if condition holds
+    */
+   public boolean evaluate(Map<String, Object> variables) {
+      return expression.evaluateCondition(variables);
+   }
+
+   /**
+    * Variable from DEFINE, i.e. SELECT criteria and optional grouping function.
+    */
+   public static class VariableDefinition {
+
+      private final String name;
+      private final DslGroupingFunctions groupingFunction;
+      private final Double argument;
+      private final TestExecutionSearchTO searchCriteria;
+
+      /**
+       * @param name
+       * @param groupingFunction grouping function or null for single select
+       * @param searchCriteria criteria of the SELECT, the instance must not be modified afterwards
+       */
+      public VariableDefinition(String name, DslGroupingFunctions groupingFunction, TestExecutionSearchTO searchCriteria) {
+         this(name, groupingFunction, null, searchCriteria);
+      }
+
+      /**
+       * @param name
+       * @param groupingFunction grouping function or null for single select
+       * @param argument argument of the grouping function, e.g. percentile of PERCENTILE, or null
+       * @param searchCriteria criteria of the SELECT, the instance must not be modified afterwards
+       */
+      public VariableDefinition(String name, DslGroupingFunctions groupingFunction, Double argument, TestExecutionSearchTO searchCriteria) {
+         this.name = name;
+         this.groupingFunction = groupingFunction;
+         this.argument = argument;
+         this.searchCriteria = copy(searchCriteria);
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      /**
+       * @return grouping function or null for single select
+       */
+      public DslGroupingFunctions getGroupingFunction() {
+         return groupingFunction;
+      }
+
+      /**
+       * @return argument of the grouping function or null
+       */
+      public Double getArgument() {
+         return argument;
+      }
+
+      /**
+       * Search criteria are modified during the search, so every call returns a new copy.
+       *
+       * @return criteria of the SELECT
+       */
+      public TestExecutionSearchTO getSearchCriteria() {
+         return copy(searchCriteria);
+      }
+
+      /**
+       * Helper method. Copies the criteria that can be specified in alerting DSL.
+       *
+       * @param searchCriteria
+       * @return copy of the criteria
+       */
+      private static TestExecutionSearchTO copy(TestExecutionSearchTO searchCriteria) {
+         TestExecutionSearchTO copy = new TestExecutionSearchTO();
+         copy.setIds(searchCriteria.getIds() == null ? null : new ArrayList<>(searchCriteria.getIds()));
+         copy.setTags(searchCriteria.getTags());
+         copy.setStartedFrom(copy(searchCriteria.getStartedFrom()));
+         copy.setStartedTo(copy(searchCriteria.getStartedTo()));
+         copy.setLimitFrom(searchCriteria.getLimitFrom());
+         copy.setLimitHowMany(searchCriteria.getLimitHowMany());
+         for (ParamCriteria paramCriteria : searchCriteria.getParameters()) {
+            ParamCriteria paramCopy = new ParamCriteria();
+            paramCopy.setName(paramCriteria.getName());
+            paramCopy.setValue(paramCriteria.getValue());
+            paramCopy.setValueTo(paramCriteria.getValueTo());
+            paramCopy.setOperator(paramCriteria.getOperator());
+            copy.getParameters().add(paramCopy);
+         }
+
+         return copy;
+      }
+
+      private static Date copy(Date date) {
+         return date == null ? null : new Date(date.getTime());
+      }
+   }
+}
@@ -0,0 +1,44 @@
+package org.perfrepo.web.alerting;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of compiled alert conditions by alert id. Cached condition is used only while the alert has the same
+ * condition, so a stale entry is never evaluated even if the alert was changed without invalidation.
+ *
+ * @author agent (agent@local)
+ */
+@ApplicationScoped
+public class CompiledConditionCache {
+
+   private final ConcurrentMap<Long, CompiledCondition> conditions = new ConcurrentHashMap<>();
+
+   /**
+    * @param alertId
+    * @param condition current condition of the alert
+    * @return compiled condition or null, if it isn't cached or the alert condition has changed
+    */
+   public CompiledCondition get(Long alertId, String condition) {
+      CompiledCondition compiled = conditions.get(alertId);
+      if (compiled == null || !compiled.getCondition().equals(condition)) {
+         return null;
+      }
+
+      return compiled;
+   }
+
+   public void put(Long alertId, CompiledCondition compiled) {
+      conditions.put(alertId, compiled);
+   }
+
+   /**
+    * Removes compiled condition of the alert.
+    *
+    * @param alertId
+    */
+   public void invalidate(Long alertId) {
+      conditions.remove(alertId);
+   }
+}
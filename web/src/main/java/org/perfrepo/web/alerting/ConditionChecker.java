@@ -15,12 +15,18 @@
 package org.perfrepo.web.alerting;
 
 
+import org.perfrepo.model.Alert;
 import org.perfrepo.model.Metric;
+import org.perfrepo.model.to.AlertReplayTO;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
- * API for checking of condition for alerting.
+ * API for checking of condition for alerting. Implementations are thread-safe, every evaluation returns its own
+ * immutable {@link ConditionResult}.
  *
  * @author Jiri Holusa (jholusa@redhat.com)
  */
@@ -33,14 +39,45 @@ public interface ConditionChecker {
     * @param currentResult result of the test execution that is currently being processed, e.g. against which the
     *                      condition should hold. This value will replace the "result" variable in condition!
     * @param metric metric that the condition is linked to
-    * @return true if condition still hold | false if condition is broken
+    * @return verdict and evaluated variables
     */
-   public boolean checkCondition(String condition, double currentResult, Metric metric);
+   public ConditionResult checkCondition(String condition, double currentResult, Metric metric);
 
    /**
-    * Retrieves a map of variables used in the condition (as a key) with the values assigned to them (as a value).
+    * Checks the condition of the alert. The condition is compiled once and reused until the alert condition changes
+    * or the compiled condition is invalidated, see {@link CompiledConditionCache}. Change-point alerts have
+    * no condition, the newest results are searched for a regression instead, see {@link ChangePointDetector}.
     *
-    * @return
+    * @param alert alert with the condition
+    * @param currentResult result of the test execution that is currently being processed
+    * @param metric metric that the condition is linked to
+    * @return verdict and evaluated variables
+    */
+   public ConditionResult checkCondition(Alert alert, double currentResult, Metric metric);
+
+   /**
+    * Checks conditions of all the alerts against the results of one test execution. Identical SELECTs of the same
+    * metric are evaluated only once, even if they're defined by different alerts. The SELECTs are evaluated
+    * in the transaction of the caller, so they see the test execution being processed, the conditions themselves
+    * are then evaluated concurrently.
+    *
+    * @param alerts alerts to check, alerts of metrics without result are skipped
+    * @param results results of the test execution that is currently being processed, metric id is the key
+    * @return results of the checked alerts, in the order of the alerts
+    */
+   public Map<Alert, ConditionResult> checkConditions(Collection<Alert> alerts, Map<Long, Double> results);
+
+   /**
+    * Replays the alert over the history of its metric, i.e. checks the alert against every stored test execution
+    * of its test with all tags of the alert, in the order of their start, as if the test executions were uploaded
+    * one by one. All values of the metric are read by a single ordered scan, LAST windows slide over the scan
+    * the same way as rolling windows during uploads. Other SELECTs are evaluated only once, against the current data.
+    *
+    * @param alert alert to replay, it doesn't have to be stored
+    * @param from the alert is checked only against test executions started since this date, null for the whole
+    *             history, older test executions still fill LAST windows
+    * @param userGroups groups of the user who requested the replay
+    * @return firing points of the alert, id and status of the replay aren't set
     */
-   public Map<String, Object> getEvaluatedVariables();
+   public AlertReplayTO replay(Alert alert, Date from, List<String> userGroups);
 }
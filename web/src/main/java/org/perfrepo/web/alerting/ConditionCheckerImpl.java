@@ -6,12 +6,25 @@ import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.TokenStream;
 import org.antlr.runtime.tree.CommonTree;
 import org.antlr.runtime.tree.Tree;
+import org.perfrepo.model.Alert;
+import org.perfrepo.model.AlertType;
 import org.perfrepo.model.Metric;
-import org.perfrepo.model.TestExecution;
-import org.perfrepo.model.Value;
+import org.perfrepo.model.MetricComparator;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.Tag;
+import org.perfrepo.model.to.AlertReplayTO;
+import org.perfrepo.model.to.MetricAggregateTO;
+import org.perfrepo.model.to.ResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
+import org.perfrepo.model.util.QuantileSketch;
+import org.perfrepo.model.util.RunningStatistics;
+import org.perfrepo.web.alerting.ChangePointDetector.ChangePoint;
+import org.perfrepo.web.alerting.CompiledCondition.VariableDefinition;
+import org.perfrepo.web.dao.MetricRollupDAO;
 import org.perfrepo.web.dao.TestExecutionDAO;
 import org.perfrepo.web.service.UserService;
+import org.perfrepo.web.util.TagUtils;
 
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
@@ -20,19 +33,20 @@ import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
-import javax.script.SimpleBindings;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * Implementation of @link{ConditionChecker}
@@ -45,54 +59,372 @@ import java.util.Map;
 @TransactionAttribute(TransactionAttributeType.REQUIRED)
 public class ConditionCheckerImpl implements ConditionChecker {
 
-   private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+   //SimpleDateFormat isn't thread-safe, so a new instance is created for every parsed date
+   private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm";
+   //WHERE property restricting test execution parameter, e.g. param.threads >= 8
+   private static final String PARAM_PROPERTY_PREFIX = "param.";
+   //argument of grouping function standing for the current result, e.g. ZSCORE(result, SELECT LAST 30)
+   private static final String RESULT_ARGUMENT = "result";
 
    @Inject
    private TestExecutionDAO testExecutionDAO;
 
+   @Inject
+   private MetricRollupDAO metricRollupDAO;
+
    @Inject
    private UserService userService;
 
-   private String expression;
-   private Map<String, Object> variables;
-   private Metric metric;
+   @Inject
+   private CompiledConditionCache compiledConditionCache;
+
+   @Inject
+   private RollingWindowCache rollingWindowCache;
+
+   @Inject
+   private ConditionEvaluationExecutor conditionEvaluationExecutor;
 
    @Override
-   public boolean checkCondition(String condition, double currentResult, Metric metric) {
-      expression = null;
-      variables = new HashMap<>();
+   public ConditionResult checkCondition(String condition, double currentResult, Metric metric) {
+      return check(compile(condition), currentResult, metric);
+   }
+
+   @Override
+   public ConditionResult checkCondition(Alert alert, double currentResult, Metric metric) {
+      if (alert.getType() == AlertType.CHANGE_POINT) {
+         return evaluateChangePoint(alert, currentResult, getChangePointSeries(alert, userService.getLoggedUserGroupNames()));
+      }
+
+      return check(getCompiledCondition(alert), currentResult, metric);
+   }
+
+   @Override
+   public Map<Alert, ConditionResult> checkConditions(Collection<Alert> alerts, Map<Long, Double> results) {
+      // the SELECTs are evaluated in this thread, they have to see the uncommitted test execution
+      final SharedSelects sharedSelects = new SharedSelects(userService.getLoggedUserGroupNames());
+      List<Alert> checkedAlerts = new ArrayList<>();
+      List<Callable<ConditionResult>> evaluations = new ArrayList<>();
+      for (final Alert alert : alerts) {
+         final Double result = results.get(alert.getMetric().getId());
+         if (result == null) {
+            continue;
+         }
+
+         if (alert.getType() == AlertType.CHANGE_POINT) {
+            final RollingWindow.Series series = getChangePointSeries(alert, sharedSelects.userGroups);
+            checkedAlerts.add(alert);
+            evaluations.add(new Callable<ConditionResult>() {
+               @Override
+               public ConditionResult call() {
+                  return evaluateChangePoint(alert, result, series);
+               }
+            });
+            continue;
+         }
+
+         final CompiledCondition compiled = getCompiledCondition(alert);
+         final Metric metric = alert.getMetric();
+         resolveSelects(compiled, metric, sharedSelects);
+         checkedAlerts.add(alert);
+         evaluations.add(new Callable<ConditionResult>() {
+            @Override
+            public ConditionResult call() {
+               return evaluate(compiled, result, metric, sharedSelects);
+            }
+         });
+      }
+
+      // the conditions only read the resolved SELECTs, so they can be evaluated concurrently
+      List<ConditionResult> conditionResults = conditionEvaluationExecutor.invokeAll(evaluations);
+      Map<Alert, ConditionResult> checked = new LinkedHashMap<>();
+      for (int i = 0; i < checkedAlerts.size(); i++) {
+         checked.put(checkedAlerts.get(i), conditionResults.get(i));
+      }
+
+      return checked;
+   }
+
+   @Override
+   public AlertReplayTO replay(final Alert alert, final Date from, List<String> userGroups) {
+      final Metric metric = alert.getMetric();
+      final boolean changePoint = alert.getType() == AlertType.CHANGE_POINT;
+      final SharedSelects staticSelects = new SharedSelects(userGroups);
+      final Map<SelectKey, ReplayWindow> windows = new HashMap<>();
+      Map<String, Set<Long>> execIdsByTags = new HashMap<>();
+
+      // the condition isn't taken from the cache, the alert may be replayed before it's stored
+      final CompiledCondition compiled = changePoint ? null : compile(alert.getCondition());
+      final SelectKey changePointKey;
+      if (changePoint) {
+         TestExecutionSearchTO searchCriteria = createChangePointSearchCriteria(alert);
+         changePointKey = new SelectKey(metric.getId(), searchCriteria);
+         windows.put(changePointKey, createReplayWindow(searchCriteria, metric, userGroups, execIdsByTags));
+      } else {
+         changePointKey = null;
+         for (VariableDefinition definition : compiled.getDefinitions()) {
+            TestExecutionSearchTO searchCriteria = definition.getSearchCriteria();
+            SelectKey key = new SelectKey(metric.getId(), searchCriteria);
+            if (!isRollingWindow(definition, searchCriteria, metric)) {
+               resolveSelect(definition, metric, staticSelects);
+            } else if (!windows.containsKey(key)) {
+               windows.put(key, createReplayWindow(searchCriteria, metric, userGroups, execIdsByTags));
+            }
+         }
+      }
+
+      // the alert is checked only against test executions of its test with all its tags, like in processing of alerts
+      TestExecutionSearchTO alertSearch = new TestExecutionSearchTO();
+      alertSearch.setTestUID(alert.getTest().getUid());
+      alertSearch.setTags(getTags(alert));
+      final Set<Long> alertExecIds = testExecutionDAO.getMetricValueExecIds(alertSearch, metric, userGroups);
+
+      final AlertReplayTO replay = new AlertReplayTO();
+      testExecutionDAO.scrollMetricValues(new TestExecutionSearchTO(), metric, userGroups, value -> {
+         for (ReplayWindow window : windows.values()) {
+            window.add(value);
+         }
+         if (!alertExecIds.contains(value.getExecId()) || (from != null && value.getStartedDate().before(from))) {
+            return;
+         }
+
+         ConditionResult result = changePoint
+             ? evaluateChangePoint(alert, value.getValue(), windows.get(changePointKey).window.getSeries())
+             : evaluate(compiled, value.getValue(), metric, createReplaySelects(compiled, metric, staticSelects, windows));
+         replay.setEvaluated(replay.getEvaluated() + 1);
+         if (!result.isHolding()) {
+            replay.getFirings().add(new AlertReplayTO.Firing(value.getExecId(), value.getStartedDate(), value.getValue()));
+         }
+      });
+
+      return replay;
+   }
+
+   /**
+    * Helper method. Creates empty window of LAST SELECT replayed over the history.
+    *
+    * @param searchCriteria criteria of the SELECT
+    * @param metric
+    * @param userGroups
+    * @param execIdsByTags ids of test executions with given tags retrieved so far
+    * @return replayed window
+    */
+   private ReplayWindow createReplayWindow(TestExecutionSearchTO searchCriteria, Metric metric, List<String> userGroups, Map<String, Set<Long>> execIdsByTags) {
+      Set<Long> execIds = null;
+      String tags = searchCriteria.getTags() == null ? "" : searchCriteria.getTags().trim().toLowerCase();
+      if (!tags.isEmpty()) {
+         execIds = execIdsByTags.get(tags);
+         if (execIds == null) {
+            TestExecutionSearchTO tagSearch = new TestExecutionSearchTO();
+            tagSearch.setTags(tags);
+            execIds = testExecutionDAO.getMetricValueExecIds(tagSearch, metric, userGroups);
+            execIdsByTags.put(tags, execIds);
+         }
+      }
+
+      return new ReplayWindow(new RollingWindow(searchCriteria.getLimitFrom(), searchCriteria.getLimitHowMany()), execIds);
+   }
+
+   /**
+    * Helper method. Resolves SELECTs of the condition at one point of the replay, LAST windows are taken from
+    * the replayed windows, other SELECTs are the same for all the points. Values already compacted into rollups
+    * aren't replayed, so the windows have no rollups.
+    *
+    * @param compiled
+    * @param metric
+    * @param staticSelects resolved SELECTs that aren't LAST windows
+    * @param windows replayed windows
+    * @return resolved SELECTs
+    */
+   private SharedSelects createReplaySelects(CompiledCondition compiled, Metric metric, SharedSelects staticSelects, Map<SelectKey, ReplayWindow> windows) {
+      SharedSelects sharedSelects = new SharedSelects(staticSelects.userGroups);
+      sharedSelects.aggregates.putAll(staticSelects.aggregates);
+      sharedSelects.rollups.putAll(staticSelects.rollups);
+      sharedSelects.sketches.putAll(staticSelects.sketches);
+      sharedSelects.statistics.putAll(staticSelects.statistics);
+
+      for (VariableDefinition definition : compiled.getDefinitions()) {
+         SelectKey key = new SelectKey(metric.getId(), definition.getSearchCriteria());
+         ReplayWindow replayWindow = windows.get(key);
+         if (replayWindow == null) {
+            continue;
+         }
+
+         if (!sharedSelects.aggregates.containsKey(key)) {
+            sharedSelects.aggregates.put(key, replayWindow.window.getAggregate());
+            sharedSelects.rollups.put(key, Collections.<MetricRollup>emptyList());
+         }
+         if (definition.getGroupingFunction().isQuantile() && !sharedSelects.sketches.containsKey(key)) {
+            sharedSelects.sketches.put(key, replayWindow.window.getSketch());
+         }
+         if (definition.getGroupingFunction().isDispersion() && !sharedSelects.statistics.containsKey(key)) {
+            sharedSelects.statistics.put(key, replayWindow.window.getStatistics());
+         }
+      }
+
+      return sharedSelects;
+   }
+
+   /**
+    * Helper method. Retrieves compiled condition of the alert from the cache, the condition is compiled if it isn't
+    * cached yet.
+    *
+    * @param alert
+    * @return compiled condition
+    */
+   private CompiledCondition getCompiledCondition(Alert alert) {
+      CompiledCondition compiled = compiledConditionCache.get(alert.getId(), alert.getCondition());
+      if (compiled == null) {
+         compiled = compile(alert.getCondition());
+         compiledConditionCache.put(alert.getId(), compiled);
+      }
+
+      return compiled;
+   }
+
+   /**
+    * Helper method. Checks single condition in the calling thread.
+    *
+    * @param compiled
+    * @param currentResult
+    * @param metric
+    * @return verdict and evaluated variables
+    */
+   private ConditionResult check(CompiledCondition compiled, double currentResult, Metric metric) {
+      SharedSelects sharedSelects = new SharedSelects(userService.getLoggedUserGroupNames());
+      resolveSelects(compiled, metric, sharedSelects);
+      return evaluate(compiled, currentResult, metric, sharedSelects);
+   }
+
+   /**
+    * Helper method. Evaluates all variables of the compiled condition and then the condition itself. The SELECTs
+    * of the variables have to be resolved already, the evaluation doesn't access the database and doesn't modify
+    * the shared SELECTs, so it may run in any thread.
+    *
+    * @param compiled
+    * @param currentResult
+    * @param metric
+    * @param sharedSelects resolved SELECTs of the condition
+    * @return verdict and evaluated variables
+    */
+   private ConditionResult evaluate(CompiledCondition compiled, double currentResult, Metric metric, SharedSelects sharedSelects) {
+      Map<String, Object> variables = new LinkedHashMap<>();
       variables.put("result", currentResult);
-      this.metric = metric;
 
-      CommonTree ast = parseTree(condition);
-      walkTree(ast);
+      for (VariableDefinition definition : compiled.getDefinitions()) {
+         variables.put(definition.getName(), evaluateVariable(definition, currentResult, metric, sharedSelects));
+      }
 
-      if (expression == null) {
-         throw new IllegalStateException("Condition was not correctly parsed.");
+      return new ConditionResult(compiled.evaluate(variables), variables);
+   }
+
+   /**
+    * Helper method. Retrieves the newest results of the metric of the change-point alert from the rolling window
+    * of the test executions with all tags of the alert. The window contains also the result being processed.
+    *
+    * @param alert change-point alert
+    * @param userGroups groups of the logged user
+    * @return the newest results, the oldest first
+    */
+   private RollingWindow.Series getChangePointSeries(Alert alert, List<String> userGroups) {
+      return getWindow(createChangePointSearchCriteria(alert), alert.getMetric(), userGroups).getSeries();
+   }
+
+   /**
+    * Helper method. Creates search criteria of the window searched for a change point, i.e. the newest results
+    * of the test executions with all tags of the alert.
+    *
+    * @param alert change-point alert
+    * @return search criteria with LAST window
+    */
+   private TestExecutionSearchTO createChangePointSearchCriteria(Alert alert) {
+      int window = alert.getChangeWindow() == null ? ChangePointDetector.DEFAULT_WINDOW : alert.getChangeWindow();
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setTags(getTags(alert));
+      searchCriteria.setLimitFrom(window);
+      searchCriteria.setLimitHowMany(window);
+
+      return searchCriteria;
+   }
+
+   /**
+    * Helper method.
+    *
+    * @param alert
+    * @return tags of the alert separated by space, null if the alert has no tags
+    */
+   private String getTags(Alert alert) {
+      List<String> tags = new ArrayList<>();
+      if (alert.getTags() != null) {
+         for (Tag tag : alert.getTags()) {
+            tags.add(tag.getName());
+         }
       }
 
-      ScriptEngine engine = new ScriptEngineManager().getEngineByName("JavaScript");
+      return tags.isEmpty() ? null : String.join(" ", tags);
+   }
 
-      Object result;
-      try {
-         result = engine.eval(expression, new SimpleBindings(variables));
-      } catch (ScriptException e) {
-         throw new IllegalArgumentException("Error occurred while evaluating the expression.", e);
+   /**
+    * Helper method. Searches the newest results for a regression. The alert fails only when the change point is
+    * detected for the first time, i.e. it wasn't detected already without the newest result, so one change
+    * is reported once. Doesn't access the database, so it may run in any thread.
+    *
+    * @param alert change-point alert
+    * @param currentResult
+    * @param series the newest results including the current one, the oldest first
+    * @return verdict and the detected change point, its variables are missing if there's no regression
+    */
+   private ConditionResult evaluateChangePoint(Alert alert, double currentResult, RollingWindow.Series series) {
+      double threshold = alert.getChangeThreshold() == null ? ChangePointDetector.DEFAULT_THRESHOLD : alert.getChangeThreshold();
+      MetricComparator comparator = alert.getMetric().getComparator();
+      Map<String, Object> variables = new LinkedHashMap<>();
+      variables.put("result", currentResult);
+
+      ChangePoint changePoint = ChangePointDetector.detect(series, series.size(), comparator, threshold);
+      if (changePoint == null || !changePoint.isRegression()) {
+         return new ConditionResult(true, variables);
+      }
+      variables.put(ChangePointDetector.FIRST_BAD_EXECUTION_VARIABLE, changePoint.getExecId());
+      variables.put(ChangePointDetector.MEAN_BEFORE_VARIABLE, changePoint.getMeanBefore());
+      variables.put(ChangePointDetector.MEAN_AFTER_VARIABLE, changePoint.getMeanAfter());
+      variables.put(ChangePointDetector.SCORE_VARIABLE, changePoint.getScore());
+
+      ChangePoint previous = ChangePointDetector.detect(series, series.size() - 1, comparator, threshold);
+      boolean reported = previous != null && previous.isRegression() && previous.getExecId() == changePoint.getExecId();
+      return new ConditionResult(reported, variables);
+   }
+
+   /**
+    * Parses the condition and compiles it into an executable plan.
+    *
+    * @param condition condition in alerting DSL
+    * @return compiled condition
+    */
+   private CompiledCondition compile(String condition) {
+      CommonTree ast = parseTree(condition);
+      List<VariableDefinition> definitions = new ArrayList<>();
+      String expression = walkTree(ast, definitions);
+
+      if (expression == null) {
+         throw new IllegalStateException("Condition was not correctly parsed.");
       }
 
-      if (!(result instanceof Boolean)) {
-         throw new IllegalStateException("Result of the expression is not boolean.");
+      Set<String> variableNames = new HashSet<>();
+      variableNames.add("result");
+      for (VariableDefinition definition : definitions) {
+         variableNames.add(definition.getName());
       }
 
-      return ((Boolean) result).booleanValue();
+      return new CompiledCondition(condition, Expression.compileCondition(expression, variableNames), definitions);
    }
 
    /**
     * Walks through the AST and extract condition expression and it's parameters
     *
     * @param tree
+    * @param definitions collects definitions of the variables
+    * @return condition expression
     */
-   private void walkTree(CommonTree tree) {
+   private String walkTree(CommonTree tree, List<VariableDefinition> definitions) {
       if (tree == null) {
          throw new IllegalArgumentException("Tree cannot be null.");
       }
@@ -108,23 +440,25 @@ public class ConditionCheckerImpl implements ConditionChecker {
       }
 
       String equation = tree.getChild(0).getChild(0).getText(); //equation after condition
-      expression = equation;
 
       //process variables
       Tree defineNode = tree.getChild(1);
 
       for (int i = 0; i < defineNode.getChildCount(); i++) {
          Tree variableAssignment = defineNode.getChild(i);
-         processVariableAssignment(variableAssignment);
+         definitions.add(processVariableAssignment(variableAssignment));
       }
+
+      return equation;
    }
 
    /**
     * Processes every single assignment, e.g. x = (SELECT WHERE id = 1) or x = AVG(SELECT LAST 10) etc.
     *
     * @param assignmentRoot subtree with '=' char as a root
+    * @return definition of the variable
     */
-   private void processVariableAssignment(Tree assignmentRoot) {
+   private VariableDefinition processVariableAssignment(Tree assignmentRoot) {
       if (!assignmentRoot.getText().equalsIgnoreCase("=")) {
          throw new IllegalArgumentException("Wrong syntax, expected '='.");
       }
@@ -135,45 +469,269 @@ public class ConditionCheckerImpl implements ConditionChecker {
          throw new IllegalArgumentException("Wrong syntax, expected SELECT or grouping function.");
       }
 
-      List<TestExecution> testExecutions = null;
-      Double variableValue = null;
-
       //there is a grouping function and multi-select will follow
       if (DslGroupingFunctions.contains(groupFunctionOrSelect.getText())) {
          DslGroupingFunctions groupingFunction = DslGroupingFunctions.parseString(groupFunctionOrSelect.getText());
+         //PERCENTILE, TRIMMEDMEAN and ZSCORE have the argument before the SELECT, 'result' stands for null
+         Double argument = null;
          Tree select = groupFunctionOrSelect.getChild(0);
+         if (groupFunctionOrSelect.getChildCount() == 2) {
+            if (!RESULT_ARGUMENT.equalsIgnoreCase(select.getText().trim())) {
+               argument = parseArgument(select.getText());
+            } else if (groupingFunction != DslGroupingFunctions.ZSCORE) {
+               throw new IllegalArgumentException("Only ZSCORE accepts 'result' as the argument.");
+            }
+            select = groupFunctionOrSelect.getChild(1);
+         }
+         groupingFunction.validateArgument(argument);
+
+         return new VariableDefinition(variableName, groupingFunction, argument, createSearchCriteria(select));
+      }
+
+      //single select
+      return new VariableDefinition(variableName, null, createSearchCriteria(groupFunctionOrSelect));
+   }
+
+   /**
+    * Helper method. Parses numeric argument of the grouping function.
+    *
+    * @param argument
+    * @return parsed argument
+    */
+   private Double parseArgument(String argument) {
+      try {
+         return Double.valueOf(argument.trim());
+      } catch (NumberFormatException ex) {
+         throw new IllegalArgumentException("Wrong syntax, expected number as the argument of grouping function: " + argument, ex);
+      }
+   }
+
+   /**
+    * Helper method. Retrieves aggregates and rollups of the metric values selected by the variables of the condition,
+    * unless they're already resolved for another variable with identical SELECT. Grouping functions over LAST
+    * windows restricted only by tags are answered from rolling windows, otherwise the aggregate is computed
+    * by the database. Quantile functions need the sketch of the values and dispersion functions need running
+    * statistics of the values, both are built the same way and merged with the rollups.
+    *
+    * @param compiled
+    * @param metric
+    * @param sharedSelects SELECTs resolved so far
+    */
+   private void resolveSelects(CompiledCondition compiled, Metric metric, SharedSelects sharedSelects) {
+      for (VariableDefinition definition : compiled.getDefinitions()) {
+         resolveSelect(definition, metric, sharedSelects);
+      }
+   }
 
-         testExecutions = handleSelect(select);
-         if (testExecutions == null) {
+   /**
+    * Helper method. Retrieves aggregate and rollups of the metric values selected by the variable, see
+    * {@link #resolveSelects(CompiledCondition, Metric, SharedSelects)}.
+    *
+    * @param definition
+    * @param metric
+    * @param sharedSelects SELECTs resolved so far
+    */
+   private void resolveSelect(VariableDefinition definition, Metric metric, SharedSelects sharedSelects) {
+      TestExecutionSearchTO searchCriteria = definition.getSearchCriteria();
+      SelectKey key = new SelectKey(metric.getId(), searchCriteria);
+      MetricAggregateTO aggregate = sharedSelects.aggregates.get(key);
+      if (aggregate == null) {
+         aggregate = isRollingWindow(definition, searchCriteria, metric)
+             ? getWindowAggregate(searchCriteria, metric, sharedSelects.userGroups)
+             : testExecutionDAO.aggregateMetricValues(searchCriteria, metric, sharedSelects.userGroups);
+         if (aggregate == null) {
             throw new IllegalArgumentException("Error occurred during getting test executions.");
          }
+         sharedSelects.aggregates.put(key, aggregate);
+      }
+
+      if (definition.getGroupingFunction() != null && !sharedSelects.rollups.containsKey(key)) {
+         sharedSelects.rollups.put(key, getRollups(searchCriteria, metric, aggregate.getStoredCount()));
+      }
+
+      if (definition.getGroupingFunction() != null && definition.getGroupingFunction().isQuantile() && !sharedSelects.sketches.containsKey(key)) {
+         QuantileSketch sketch = isRollingWindow(definition, searchCriteria, metric)
+             ? getWindowSketch(searchCriteria, metric, sharedSelects.userGroups)
+             : testExecutionDAO.sketchMetricValues(searchCriteria, metric, sharedSelects.userGroups);
+         addRollups(sketch, sharedSelects.rollups.get(key));
+         sharedSelects.sketches.put(key, sketch);
+      }
 
-         List<Double> values = getValuesFromTestExecutions(testExecutions);
-         variableValue = (values == null || values.isEmpty()) ? null : groupingFunction.compute(values);
-      } else { //single select
-         testExecutions = handleSelect(groupFunctionOrSelect);
-         if (testExecutions == null || testExecutions.size() > 1) {
-            throw new IllegalArgumentException("Error occurred or there is more than one test execution found, but no grouping function applied.");
+      if (definition.getGroupingFunction() != null && definition.getGroupingFunction().isDispersion() && !sharedSelects.statistics.containsKey(key)) {
+         RunningStatistics statistics = isRollingWindow(definition, searchCriteria, metric)
+             ? getWindowStatistics(searchCriteria, metric, sharedSelects.userGroups)
+             : testExecutionDAO.summarizeMetricValues(searchCriteria, metric, sharedSelects.userGroups);
+         addRollups(statistics, sharedSelects.rollups.get(key));
+         sharedSelects.statistics.put(key, statistics);
+      }
+   }
+
+   /**
+    * Helper method. Computes value of the variable from the resolved aggregate and rollups of its SELECT.
+    * Dispersion functions that aren't defined for the values, e.g. variance of a single value, are null.
+    *
+    * @param definition
+    * @param currentResult
+    * @param metric
+    * @param sharedSelects resolved SELECTs
+    * @return value of the variable
+    */
+   private Double evaluateVariable(VariableDefinition definition, double currentResult, Metric metric, SharedSelects sharedSelects) {
+      SelectKey key = new SelectKey(metric.getId(), definition.getSearchCriteria());
+      MetricAggregateTO aggregate = sharedSelects.aggregates.get(key);
+      if (definition.getGroupingFunction() != null && definition.getGroupingFunction().isQuantile()) {
+         QuantileSketch sketch = sharedSelects.sketches.get(key);
+         return sketch.getCount() <= 0 ? null : definition.getGroupingFunction().compute(sketch, definition.getArgument());
+      }
+      if (definition.getGroupingFunction() != null && definition.getGroupingFunction().isDispersion()) {
+         Double argument = definition.getArgument();
+         if (definition.getGroupingFunction() == DslGroupingFunctions.ZSCORE && argument == null) {
+            argument = currentResult;
          }
-         variableValue = getValueFromMetric(testExecutions.get(0));
+         double value = definition.getGroupingFunction().compute(sharedSelects.statistics.get(key), argument);
+         return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+      }
+      if (definition.getGroupingFunction() != null) {
+         List<MetricRollup> rollups = sharedSelects.rollups.get(key);
+         return (aggregate.getCount() == 0 && rollups.isEmpty()) ? null : definition.getGroupingFunction().compute(aggregate, rollups);
       }
 
-      variables.put(variableName, variableValue);
+      if (aggregate.getCount() > 1) {
+         throw new IllegalArgumentException("There is more than one test execution found, but no grouping function applied.");
+      }
+      return aggregate.getMin();
+   }
+
+   /**
+    * Helper method. Decides whether the variable can be computed from a rolling window, i.e. it's a grouping
+    * function over LAST window and the SELECT is restricted only by tags.
+    *
+    * @param definition
+    * @param searchCriteria criteria of the SELECT
+    * @param metric
+    * @return true if rolling window can be used
+    */
+   private boolean isRollingWindow(VariableDefinition definition, TestExecutionSearchTO searchCriteria, Metric metric) {
+      return definition.getGroupingFunction() != null && metric.getId() != null
+          && searchCriteria.getLimitFrom() != null && searchCriteria.getLimitHowMany() != null
+          && searchCriteria.getLimitFrom() <= RollingWindowCache.MAX_WINDOW_END && searchCriteria.getLimitHowMany() > 0
+          && searchCriteria.getIds() == null && searchCriteria.getStartedFrom() == null && searchCriteria.getStartedTo() == null
+          && searchCriteria.getParameters().isEmpty() && searchCriteria.getMetrics().isEmpty();
+   }
+
+   /**
+    * Helper method. Retrieves aggregate of the LAST window from the cached rolling window, the window is built
+    * from the newest values in the database, if it isn't cached.
+    *
+    * @param searchCriteria criteria of the SELECT
+    * @param metric
+    * @param userGroups groups of the logged user
+    * @return aggregate of the window
+    */
+   private MetricAggregateTO getWindowAggregate(TestExecutionSearchTO searchCriteria, Metric metric, List<String> userGroups) {
+      return getWindow(searchCriteria, metric, userGroups).getAggregate();
+   }
+
+   /**
+    * Helper method. Retrieves quantile sketch of the LAST window from the cached rolling window.
+    *
+    * @param searchCriteria criteria of the SELECT
+    * @param metric
+    * @param userGroups groups of the logged user
+    * @return copy of the sketch of the window
+    */
+   private QuantileSketch getWindowSketch(TestExecutionSearchTO searchCriteria, Metric metric, List<String> userGroups) {
+      return getWindow(searchCriteria, metric, userGroups).getSketch();
+   }
+
+   /**
+    * Helper method. Retrieves running statistics of the LAST window from the cached rolling window.
+    *
+    * @param searchCriteria criteria of the SELECT
+    * @param metric
+    * @param userGroups groups of the logged user
+    * @return copy of the statistics of the window
+    */
+   private RunningStatistics getWindowStatistics(TestExecutionSearchTO searchCriteria, Metric metric, List<String> userGroups) {
+      return getWindow(searchCriteria, metric, userGroups).getStatistics();
+   }
+
+   /**
+    * Helper method. Retrieves the cached rolling window of the LAST window, the window is built from the newest values
+    * in the database, if it isn't cached.
+    *
+    * @param searchCriteria criteria of the SELECT
+    * @param metric
+    * @param userGroups groups of the logged user
+    * @return rolling window
+    */
+   private RollingWindow getWindow(TestExecutionSearchTO searchCriteria, Metric metric, List<String> userGroups) {
+      int windowEnd = searchCriteria.getLimitFrom();
+      int windowSize = searchCriteria.getLimitHowMany();
+      RollingWindow window = rollingWindowCache.get(metric.getId(), searchCriteria.getTags(), windowEnd, windowSize);
+      if (window == null) {
+         long version = rollingWindowCache.getVersion(metric.getId());
+         List<ResultWrapper> values = testExecutionDAO.getNewestMetricValues(searchCriteria, metric, windowEnd, userGroups);
+         window = new RollingWindow(windowEnd, windowSize);
+         for (int i = values.size() - 1; i >= 0; i--) {
+            window.add(values.get(i).getValue(), values.get(i).getStartedDate(), values.get(i).getExecId());
+         }
+         rollingWindowCache.put(metric.getId(), searchCriteria.getTags(), windowEnd, windowSize, window, version);
+      }
+
+      return window;
+   }
+
+   /**
+    * Helper method. Merges the rollups into the running statistics. A part of a rollup is merged with the mean
+    * and the variance of the whole rollup.
+    *
+    * @param statistics
+    * @param rollups rollups falling into the SELECT, see {@link #getRollups(TestExecutionSearchTO, Metric, long)}
+    */
+   private void addRollups(RunningStatistics statistics, List<MetricRollup> rollups) {
+      for (MetricRollup rollup : rollups) {
+         statistics.merge(new RunningStatistics(rollup.getCount(), rollup.getMean(), rollup.getVariance()));
+      }
+   }
+
+   /**
+    * Helper method. Merges sketches of the rollups into the sketch. A part of a rollup is merged with weight
+    * proportional to its reduced count, a rollup without sketch contributes only its mean.
+    *
+    * @param sketch
+    * @param rollups rollups falling into the SELECT, see {@link #getRollups(TestExecutionSearchTO, Metric, long)}
+    */
+   private void addRollups(QuantileSketch sketch, List<MetricRollup> rollups) {
+      for (MetricRollup rollup : rollups) {
+         if (rollup.getCount() <= 0) {
+            continue;
+         }
+         if (rollup.getSketch() == null) {
+            sketch.add(rollup.getMean(), rollup.getCount());
+            continue;
+         }
+
+         QuantileSketch rollupSketch = QuantileSketch.fromBytes(rollup.getSketch());
+         double rollupCount = rollupSketch.getCount();
+         if (rollupCount > 0) {
+            sketch.merge(rollupSketch, rollup.getCount() / rollupCount);
+         }
+      }
    }
 
    /**
-    * Handles SELECT clause
+    * Helper method. Translates SELECT clause to test execution search criteria.
     *
     * @param select root of the tree with SELECT as a root keyword
-    * @return list of test executions according to the SELECT query
+    * @return search criteria according to the SELECT query
     */
-   private List<TestExecution> handleSelect(Tree select) {
+   private TestExecutionSearchTO createSearchCriteria(Tree select) {
       if (!select.getText().equalsIgnoreCase("SELECT")) {
          throw new IllegalArgumentException("Wrong syntax, expected SELECT.");
       }
 
       TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
-      List<TestExecution> testExecutions = null;
       Tree whereOrLast = select.getChild(0);
       Map<String, Integer> parsedLast = null;
 
@@ -211,44 +769,62 @@ public class ConditionCheckerImpl implements ConditionChecker {
          }
       }
 
-      testExecutions = testExecutionDAO.searchTestExecutions(searchCriteria, userService.getLoggedUserGroupNames());
-
-      return testExecutions;
+      return searchCriteria;
    }
 
    /**
-    * Extracts actual double values directly from test executions
+    * Helper method. Retrieves rollups of the metric that replace test executions removed by retention policies
+    * and fall into the SELECT. Rollups are older than all stored test executions, so with LAST they're used only
+    * when the interval reaches past the oldest stored test execution. When only a part of a rollup falls into the
+    * interval, its count is reduced accordingly, minimum and maximum of the whole rollup are kept.
     *
-    * @param testExecutions
-    * @return
+    * @param searchCriteria criteria of the SELECT
+    * @param metric
+    * @param storedCount number of stored values matching the SELECT, see {@link MetricAggregateTO#getStoredCount()}
+    * @return rollups
     */
-   private List<Double> getValuesFromTestExecutions(List<TestExecution> testExecutions) {
-      List<Double> results = new ArrayList<>();
-      for (TestExecution testExecution : testExecutions) {
-         Double result = getValueFromMetric(testExecution);
-         if (result != null) {
-            results.add(result);
+   private List<MetricRollup> getRollups(TestExecutionSearchTO searchCriteria, Metric metric, long storedCount) {
+      if (searchCriteria.getIds() != null) {
+         return Collections.emptyList();
+      }
+
+      List<String> includedTags = new ArrayList<>();
+      List<String> excludedTags = new ArrayList<>();
+      if (searchCriteria.getTags() != null) {
+         for (String tag : TagUtils.parseTags(searchCriteria.getTags().toLowerCase())) {
+            if (tag.startsWith("-")) {
+               excludedTags.add(tag.substring(1));
+            } else if (!tag.isEmpty()) {
+               includedTags.add(tag);
+            }
          }
       }
 
-      return results;
-   }
+      if (searchCriteria.getLimitFrom() == null || searchCriteria.getLimitHowMany() == null) {
+         return metricRollupDAO.search(metric.getId(), includedTags, excludedTags, searchCriteria.getStartedFrom(), searchCriteria.getStartedTo(), null);
+      }
 
-   /**
-    * Helper method. Returns value from test execution assigned to the given metric. Works only for single-valued test
-    * executions.
-    *
-    * @param testExecution
-    * @return
-    */
-   private Double getValueFromMetric(TestExecution testExecution) {
-      for (Value value : testExecution.getValues()) {
-         if (value.getMetricName().equals(metric.getName())) {
-            return value.getResultValue();
+      // LAST interval counted from the newest test execution, rollups continue after the stored test executions
+      long intervalEnd = searchCriteria.getLimitFrom();
+      long intervalStart = Math.max(intervalEnd - searchCriteria.getLimitHowMany(), storedCount);
+      if (intervalStart >= intervalEnd) {
+         return Collections.emptyList();
+      }
+
+      List<MetricRollup> result = new ArrayList<>();
+      long position = storedCount;
+      for (MetricRollup rollup : metricRollupDAO.search(metric.getId(), includedTags, excludedTags, null, null, (int) (intervalEnd - storedCount))) {
+         long from = Math.max(position, intervalStart);
+         long to = Math.min(position + rollup.getCount(), intervalEnd);
+         if (to > from) {
+            MetricRollup part = rollup.clone();
+            part.setCount(to - from);
+            result.add(part);
          }
+         position += rollup.getCount();
       }
 
-      return null;
+      return result;
    }
 
    /**
@@ -300,9 +876,9 @@ public class ConditionCheckerImpl implements ConditionChecker {
       } else if (propertyName.equalsIgnoreCase("date")) {
          Date parsedDate = null;
          try {
-            parsedDate = DATE_FORMAT.parse(propertyValue);
+            parsedDate = new SimpleDateFormat(DATE_PATTERN).parse(propertyValue);
          } catch (ParseException e) {
-            throw new IllegalArgumentException("Date is in a wrong format. Accepted format is " + DATE_FORMAT.toPattern());
+            throw new IllegalArgumentException("Date is in a wrong format. Accepted format is " + DATE_PATTERN);
          }
 
          if (operator.equals(">=")) {
@@ -310,8 +886,23 @@ public class ConditionCheckerImpl implements ConditionChecker {
          } else if (operator.equals("<=")) {
             searchCriteria.setStartedTo(parsedDate);
          }
+      } else if (propertyName.toLowerCase().startsWith(PARAM_PROPERTY_PREFIX)) {
+         ParamCriteria paramCriteria = new ParamCriteria();
+         paramCriteria.setName(propertyName.substring(PARAM_PROPERTY_PREFIX.length()));
+         paramCriteria.setValue(propertyValue);
+         if (operator.equals(">=")) {
+            paramCriteria.setOperator(ParamCriteria.Operator.GE);
+         } else if (operator.equals("<=")) {
+            paramCriteria.setOperator(ParamCriteria.Operator.LE);
+         }
+         searchCriteria.getParameters().add(paramCriteria);
+
+         if (parsedLast != null) { //LAST is present
+            searchCriteria.setLimitFrom(parsedLast.get("lastFrom"));
+            searchCriteria.setLimitHowMany(parsedLast.get("howMany"));
+         }
       } else {
-         throw new UnsupportedOperationException("Currently supported properties with operator '=' are 'id', 'tags', 'date'.");
+         throw new UnsupportedOperationException("Currently supported properties are 'id', 'tags', 'date' and 'param.<name>'.");
       }
    }
 
@@ -374,16 +965,99 @@ public class ConditionCheckerImpl implements ConditionChecker {
       return result;
    }
 
+   /**
+    * Window of LAST SELECT replayed over the history, only values of the test executions matching its tags
+    * are added.
+    */
+   private static class ReplayWindow {
+
+      private final RollingWindow window;
+      // ids of the test executions matching tags of the window, null if the window has no tags
+      private final Set<Long> execIds;
+
+      private ReplayWindow(RollingWindow window, Set<Long> execIds) {
+         this.window = window;
+         this.execIds = execIds;
+      }
+
+      private void add(ResultWrapper value) {
+         if (execIds == null || execIds.contains(value.getExecId())) {
+            window.add(value.getValue(), value.getStartedDate(), value.getExecId());
+         }
+      }
+   }
+
+   /**
+    * Results of the SELECTs evaluated within one check of conditions, they're shared by all variables with
+    * identical SELECT of the same metric. The SELECTs are resolved by a single thread before the conditions
+    * are evaluated, the evaluations only read them.
+    */
+   private static class SharedSelects {
+
+      private final List<String> userGroups;
+      private final Map<SelectKey, MetricAggregateTO> aggregates = new HashMap<>();
+      private final Map<SelectKey, List<MetricRollup>> rollups = new HashMap<>();
+      private final Map<SelectKey, QuantileSketch> sketches = new HashMap<>();
+      private final Map<SelectKey, RunningStatistics> statistics = new HashMap<>();
+
+      private SharedSelects(List<String> userGroups) {
+         this.userGroups = userGroups;
+      }
+   }
+
+   /**
+    * SELECT of a metric, i.e. the metric and search criteria of the SELECT.
+    */
+   private static class SelectKey {
+
+      private final Long metricId;
+      private final TestExecutionSearchTO searchCriteria;
+
+      private SelectKey(Long metricId, TestExecutionSearchTO searchCriteria) {
+         this.metricId = metricId;
+         this.searchCriteria = searchCriteria;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof SelectKey)) {
+            return false;
+         }
+
+         SelectKey that = (SelectKey) o;
+         return (metricId == null ? that.metricId == null : metricId.equals(that.metricId)) && searchCriteria.equals(that.searchCriteria);
+      }
+
+      @Override
+      public int hashCode() {
+         return 31 * (metricId == null ? 0 : metricId.hashCode()) + searchCriteria.hashCode();
+      }
+   }
+
    public void setTestExecutionDAO(TestExecutionDAO testExecutionDAO) {
       this.testExecutionDAO = testExecutionDAO;
    }
 
+   public void setMetricRollupDAO(MetricRollupDAO metricRollupDAO) {
+      this.metricRollupDAO = metricRollupDAO;
+   }
+
    public void setUserService(UserService userService) {
       this.userService = userService;
    }
 
-   @Override
-   public Map<String, Object> getEvaluatedVariables() {
-      return variables;
+   public void setCompiledConditionCache(CompiledConditionCache compiledConditionCache) {
+      this.compiledConditionCache = compiledConditionCache;
+   }
+
+   public void setRollingWindowCache(RollingWindowCache rollingWindowCache) {
+      this.rollingWindowCache = rollingWindowCache;
+   }
+
+   public void setConditionEvaluationExecutor(ConditionEvaluationExecutor conditionEvaluationExecutor) {
+      this.conditionEvaluationExecutor = conditionEvaluationExecutor;
    }
 }
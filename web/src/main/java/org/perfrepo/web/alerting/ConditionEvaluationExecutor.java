@@ -0,0 +1,119 @@
+package org.perfrepo.web.alerting;
+
+import org.apache.log4j.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded thread pool evaluating alert conditions concurrently. When the pool and its queue are full, the conditions
+ * are evaluated by the calling thread, so the number of threads and queued conditions never exceeds the bounds.
+ * Only evaluations without database access may be submitted, the pool threads run outside of the transaction
+ * of the caller.
+ *
+ * @author agent (agent@local)
+ */
+@ApplicationScoped
+public class ConditionEvaluationExecutor {
+
+   private static final Logger log = Logger.getLogger(ConditionEvaluationExecutor.class);
+
+   /**
+    * Smaller batches are evaluated by the calling thread, the hand-off would cost more than the evaluation.
+    */
+   public static final int MIN_PARALLEL_BATCH = 4;
+
+   private static final int THREADS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+   private static final int QUEUE_CAPACITY = 1000;
+
+   private final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                                                                      new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                                                                      new EvaluationThreadFactory(),
+                                                                      new ThreadPoolExecutor.CallerRunsPolicy());
+
+   public ConditionEvaluationExecutor() {
+      executor.allowCoreThreadTimeOut(true);
+   }
+
+   /**
+    * Evaluates all the tasks and waits for their results.
+    *
+    * @param tasks
+    * @param <T> type of the results
+    * @return results in the order of the tasks
+    */
+   public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+      List<T> results = new ArrayList<>(tasks.size());
+      if (tasks.size() < MIN_PARALLEL_BATCH) {
+         for (Callable<T> task : tasks) {
+            results.add(call(task));
+         }
+         return results;
+      }
+
+      List<Future<T>> futures = new ArrayList<>(tasks.size());
+      try {
+         for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+         }
+         for (Future<T> future : futures) {
+            results.add(future.get());
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Evaluation of alert conditions was interrupted.", e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         throw new IllegalStateException("Evaluation of alert condition failed.", e.getCause());
+      } finally {
+         for (Future<T> future : futures) {
+            future.cancel(true);
+         }
+      }
+
+      return results;
+   }
+
+   @PreDestroy
+   public void shutdown() {
+      executor.shutdownNow();
+      log.debug("Alert condition evaluation pool shut down");
+   }
+
+   private static <T> T call(Callable<T> task) {
+      try {
+         return task.call();
+      } catch (RuntimeException e) {
+         throw e;
+      } catch (Exception e) {
+         throw new IllegalStateException("Evaluation of alert condition failed.", e);
+      }
+   }
+
+   /**
+    * Creates named daemon threads, so the pool never blocks the shutdown of the server.
+    */
+   private static class EvaluationThreadFactory implements ThreadFactory {
+
+      private final AtomicInteger number = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+         Thread thread = new Thread(runnable, "alert-evaluation-" + number.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+}
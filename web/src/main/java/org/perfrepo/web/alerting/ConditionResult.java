@@ -0,0 +1,40 @@
+package org.perfrepo.web.alerting;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of one evaluation of alert condition, i.e. the verdict and values of all variables the condition was
+ * evaluated with. Immutable class, so results can be safely passed between threads.
+ *
+ * @author agent (agent@local)
+ */
+public class ConditionResult {
+
+   private final boolean holding;
+   private final Map<String, Object> variables;
+
+   /**
+    * @param holding true if the condition holds
+    * @param variables values of the variables, including "result"
+    */
+   public ConditionResult(boolean holding, Map<String, Object> variables) {
+      this.holding = holding;
+      this.variables = Collections.unmodifiableMap(new LinkedHashMap<>(variables));
+   }
+
+   /**
+    * @return true if condition still holds | false if condition is broken
+    */
+   public boolean isHolding() {
+      return holding;
+   }
+
+   /**
+    * @return unmodifiable map of variables used in the condition (as a key) with the values assigned to them
+    */
+   public Map<String, Object> getVariables() {
+      return variables;
+   }
+}
@@ -1,7 +1,9 @@
 package org.perfrepo.web.alerting;
 
-import com.google.common.math.DoubleMath;
-import com.google.common.primitives.Doubles;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.to.MetricAggregateTO;
+import org.perfrepo.model.util.QuantileSketch;
+import org.perfrepo.model.util.RunningStatistics;
 
 import java.util.List;
 
@@ -12,12 +14,69 @@ import java.util.List;
  */
 public enum DslGroupingFunctions {
 
-   AVG("AVG"), MAX("MAX"), MIN("MIN");
+   AVG("AVG", Input.AGGREGATE), MAX("MAX", Input.AGGREGATE), MIN("MIN", Input.AGGREGATE),
+   MEDIAN("MEDIAN", Input.SKETCH), PERCENTILE("PERCENTILE", Input.SKETCH), TRIMMEDMEAN("TRIMMEDMEAN", Input.SKETCH),
+   STDDEV("STDDEV", Input.STATISTICS), VARIANCE("VARIANCE", Input.STATISTICS), CV("CV", Input.STATISTICS),
+   ZSCORE("ZSCORE", Input.STATISTICS);
+
+   /**
+    * Percentage of the values trimmed from each side by TRIMMEDMEAN without argument.
+    */
+   public static final double DEFAULT_TRIMMED_PERCENT = 10;
 
    private String stringRepresentation;
+   private Input input;
 
-   DslGroupingFunctions(String stringRepresentation) {
+   DslGroupingFunctions(String stringRepresentation, Input input) {
       this.stringRepresentation = stringRepresentation;
+      this.input = input;
+   }
+
+   /**
+    * Quantile functions depend on the whole distribution of the values, so they're computed from
+    * {@link QuantileSketch} instead of the aggregate.
+    *
+    * @return true if the function is computed from quantile sketch
+    */
+   public boolean isQuantile() {
+      return input == Input.SKETCH;
+   }
+
+   /**
+    * Dispersion functions are computed from {@link RunningStatistics}, i.e. mean and variance accumulated in one pass.
+    *
+    * @return true if the function is computed from running statistics
+    */
+   public boolean isDispersion() {
+      return input == Input.STATISTICS;
+   }
+
+   /**
+    * Validates the argument of the function, i.e. percentile of PERCENTILE, trimmed percentage of TRIMMEDMEAN
+    * and the value of ZSCORE.
+    *
+    * @param argument argument or null if not specified, null value of ZSCORE stands for the current result
+    * @throws IllegalArgumentException if the argument is missing, not allowed or out of range
+    */
+   public void validateArgument(Double argument) {
+      switch (this) {
+         case ZSCORE:
+            return;
+         case PERCENTILE:
+            if (argument == null || argument < 0 || argument > 100) {
+               throw new IllegalArgumentException("PERCENTILE requires percentile from 0 to 100 as the first argument.");
+            }
+            return;
+         case TRIMMEDMEAN:
+            if (argument != null && (argument < 0 || argument >= 50)) {
+               throw new IllegalArgumentException("TRIMMEDMEAN requires trimmed percentage at least 0 and less than 50.");
+            }
+            return;
+         default:
+            if (argument != null) {
+               throw new IllegalArgumentException(stringRepresentation + " doesn't accept any argument.");
+            }
+      }
    }
 
    /**
@@ -37,20 +96,120 @@ public enum DslGroupingFunctions {
    /**
     * Applies grouping function to values
     *
+    * @param argument percentile of PERCENTILE, trimmed percentage of TRIMMEDMEAN or null
     * @param values
     * @return
     */
-   public double compute(List<Double> values) {
+   public double compute(Double argument, double... values) {
+      QuantileSketch sketch = isQuantile() ? new QuantileSketch() : null;
+      double sum = 0;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (double value : values) {
+         sum += value;
+         min = Math.min(min, value);
+         max = Math.max(max, value);
+         if (sketch != null) {
+            sketch.add(value);
+         }
+      }
+
+      switch (this) {
+         case AVG:
+            return sum / values.length;
+         case MIN:
+            return min;
+         case MAX:
+            return max;
+      }
+
+      if (isDispersion()) {
+         RunningStatistics statistics = new RunningStatistics();
+         statistics.add(values, 0, values.length);
+         return compute(statistics, argument);
+      }
+      return compute(sketch, argument);
+   }
+
+   /**
+    * Applies quantile function to the sketch of values.
+    *
+    * @param sketch
+    * @param argument percentile of PERCENTILE, trimmed percentage of TRIMMEDMEAN or null
+    * @return estimated value, NaN if the sketch is empty
+    */
+   public double compute(QuantileSketch sketch, Double argument) {
+      switch (this) {
+         case MEDIAN:
+            return sketch.getQuantile(0.5);
+         case PERCENTILE:
+            return sketch.getQuantile(argument / 100);
+         case TRIMMEDMEAN:
+            return sketch.getTrimmedMean((argument == null ? DEFAULT_TRIMMED_PERCENT : argument) / 100);
+      }
+
+      throw new IllegalStateException(stringRepresentation + " isn't a quantile function.");
+   }
+
+   /**
+    * Applies dispersion function to running statistics of values.
+    *
+    * @param statistics
+    * @param argument value of ZSCORE, null for other functions
+    * @return value of the function, NaN if it isn't defined, e.g. for less than two values
+    */
+   public double compute(RunningStatistics statistics, Double argument) {
+      switch (this) {
+         case STDDEV:
+            return statistics.getStandardDeviation();
+         case VARIANCE:
+            return statistics.getVariance();
+         case CV:
+            return statistics.getCoefficientOfVariation();
+         case ZSCORE:
+            if (argument == null) {
+               throw new IllegalArgumentException("ZSCORE requires the value as the first argument.");
+            }
+            return statistics.getZScore(argument);
+      }
+
+      throw new IllegalStateException(stringRepresentation + " isn't a dispersion function.");
+   }
+
+   /**
+    * Applies grouping function to aggregate of values computed by the database together with rollups, every rollup
+    * stands for {@link MetricRollup#getCount()} values.
+    *
+    * @param aggregate
+    * @param rollups
+    * @return
+    */
+   public double compute(MetricAggregateTO aggregate, List<MetricRollup> rollups) {
+      boolean hasValues = aggregate.getCount() > 0;
       switch (this) {
          case AVG:
-            return DoubleMath.mean(values);
+            double sum = hasValues ? aggregate.getSum() : 0;
+            long count = aggregate.getCount();
+            for (MetricRollup rollup : rollups) {
+               sum += rollup.getMean() * rollup.getCount();
+               count += rollup.getCount();
+            }
+            return sum / count;
          case MIN:
-            return Doubles.min(Doubles.toArray(values));
+            double min = hasValues ? aggregate.getMin() : Double.POSITIVE_INFINITY;
+            for (MetricRollup rollup : rollups) {
+               min = Math.min(min, rollup.getMin());
+            }
+            return min;
          case MAX:
-            return Doubles.max(Doubles.toArray(values));
+            double max = hasValues ? aggregate.getMax() : Double.NEGATIVE_INFINITY;
+            for (MetricRollup rollup : rollups) {
+               max = Math.max(max, rollup.getMax());
+            }
+            return max;
       }
 
-      throw new IllegalStateException("There should be associated a group function with the enum.");
+      throw new IllegalStateException(stringRepresentation + " isn't computed from the aggregate.");
    }
 
    /**
@@ -87,4 +246,10 @@ public enum DslGroupingFunctions {
       throw new IllegalArgumentException("Unsupported grouping function.");
    }
 
+   /**
+    * Input the function is computed from.
+    */
+   private enum Input {
+      AGGREGATE, SKETCH, STATISTICS
+   }
 }
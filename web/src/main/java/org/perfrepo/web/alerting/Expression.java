@@ -0,0 +1,382 @@
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.web.alerting.ExpressionException.ErrorType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Arithmetic and boolean expression over numeric variables, used in CONDITION of alerts and in ${...} placeholders
+ * of alert descriptions. The expression is compiled once into a tree of operations, see {@link ExpressionParser}
+ * for the grammar, and the compiled expression is immutable, so it may be evaluated concurrently.
+ *
+ * Semantics follow the JavaScript expressions used before, i.e. all numbers are doubles, division by zero gives
+ * infinity and variable without value (e.g. SELECT didn't find any test execution) counts as 0.
+ *
+ * @author agent (agent@local)
+ */
+public final class Expression {
+
+   /**
+    * Type of value of the expression.
+    */
+   public enum ValueType {
+      NUMBER, BOOLEAN
+   }
+
+   private final String source;
+   private final Node root;
+
+   private Expression(String source, Node root) {
+      this.source = source;
+      this.root = root;
+   }
+
+   /**
+    * Compiles the expression.
+    *
+    * @param source expression
+    * @param variables names of variables that can be used in the expression, null means any name
+    * @return compiled expression
+    * @throws ExpressionException if the expression isn't valid
+    */
+   public static Expression compile(String source, Collection<String> variables) {
+      return new Expression(source, new ExpressionParser(source, variables).parse());
+   }
+
+   /**
+    * Compiles the expression that has to be boolean, i.e. alert condition.
+    *
+    * @param source expression
+    * @param variables names of variables that can be used in the expression, null means any name
+    * @return compiled expression
+    * @throws ExpressionException if the expression isn't valid or it isn't boolean
+    */
+   public static Expression compileCondition(String source, Collection<String> variables) {
+      Expression expression = compile(source, variables);
+      if (expression.getType() != ValueType.BOOLEAN) {
+         throw new ExpressionException(ErrorType.TYPE, "Condition has to be a boolean expression, e.g. result > x.", -1);
+      }
+
+      return expression;
+   }
+
+   public String getSource() {
+      return source;
+   }
+
+   public ValueType getType() {
+      return root.type;
+   }
+
+   /**
+    * Evaluates boolean expression.
+    *
+    * @param variables values of the variables
+    * @return result
+    */
+   public boolean evaluateCondition(Map<String, ?> variables) {
+      if (root.type != ValueType.BOOLEAN) {
+         throw new ExpressionException(ErrorType.TYPE, "Expression isn't boolean.", -1);
+      }
+
+      return root.bool(variables);
+   }
+
+   /**
+    * Evaluates the expression.
+    *
+    * @param variables values of the variables
+    * @return Double or Boolean result
+    */
+   public Object evaluate(Map<String, ?> variables) {
+      return root.type == ValueType.BOOLEAN ? (Object) root.bool(variables) : (Object) root.number(variables);
+   }
+
+   /**
+    * Formats result of the expression for text output. Whole numbers are printed without decimal part.
+    *
+    * @param value result of {@link #evaluate(Map)}
+    * @return text
+    */
+   public static String format(Object value) {
+      if (value instanceof Double) {
+         double number = (Double) value;
+         if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+            return Long.toString((long) number);
+         }
+      }
+
+      return String.valueOf(value);
+   }
+
+   /**
+    * Node of the compiled expression tree.
+    */
+   abstract static class Node {
+
+      final ValueType type;
+      final int position;
+
+      Node(ValueType type, int position) {
+         this.type = type;
+         this.position = position;
+      }
+
+      double number(Map<String, ?> variables) {
+         throw new IllegalStateException("Node isn't numeric.");
+      }
+
+      boolean bool(Map<String, ?> variables) {
+         throw new IllegalStateException("Node isn't boolean.");
+      }
+   }
+
+   static class NumberNode extends Node {
+
+      private final double value;
+
+      NumberNode(double value, int position) {
+         super(ValueType.NUMBER, position);
+         this.value = value;
+      }
+
+      @Override
+      double number(Map<String, ?> variables) {
+         return value;
+      }
+   }
+
+   static class BooleanNode extends Node {
+
+      private final boolean value;
+
+      BooleanNode(boolean value, int position) {
+         super(ValueType.BOOLEAN, position);
+         this.value = value;
+      }
+
+      @Override
+      boolean bool(Map<String, ?> variables) {
+         return value;
+      }
+   }
+
+   static class VariableNode extends Node {
+
+      private final String name;
+
+      VariableNode(String name, int position) {
+         super(ValueType.NUMBER, position);
+         this.name = name;
+      }
+
+      @Override
+      double number(Map<String, ?> variables) {
+         Object value = variables.get(name);
+         if (value == null) {
+            if (!variables.containsKey(name)) {
+               throw new ExpressionException(ErrorType.UNDEFINED_VARIABLE, "Variable '" + name + "' is not defined.", position);
+            }
+            return 0;
+         }
+         if (!(value instanceof Number)) {
+            throw new ExpressionException(ErrorType.TYPE, "Variable '" + name + "' is not a number.", position);
+         }
+
+         return ((Number) value).doubleValue();
+      }
+   }
+
+   static class ArithmeticNode extends Node {
+
+      private final Node left;
+      private final Node right;
+      private final DoubleBinaryOperator operator;
+
+      ArithmeticNode(Node left, Node right, DoubleBinaryOperator operator, int position) {
+         super(ValueType.NUMBER, position);
+         this.left = left;
+         this.right = right;
+         this.operator = operator;
+      }
+
+      @Override
+      double number(Map<String, ?> variables) {
+         return operator.applyAsDouble(left.number(variables), right.number(variables));
+      }
+   }
+
+   static class NegationNode extends Node {
+
+      private final Node operand;
+
+      NegationNode(Node operand, int position) {
+         super(ValueType.NUMBER, position);
+         this.operand = operand;
+      }
+
+      @Override
+      double number(Map<String, ?> variables) {
+         return -operand.number(variables);
+      }
+   }
+
+   /**
+    * Comparison of two numbers.
+    */
+   static class ComparisonNode extends Node {
+
+      /**
+       * Comparison operator, comparisons with NaN are false except of '!='.
+       */
+      interface Comparison {
+         boolean test(double left, double right);
+      }
+
+      private final Node left;
+      private final Node right;
+      private final Comparison comparison;
+
+      ComparisonNode(Node left, Node right, Comparison comparison, int position) {
+         super(ValueType.BOOLEAN, position);
+         this.left = left;
+         this.right = right;
+         this.comparison = comparison;
+      }
+
+      @Override
+      boolean bool(Map<String, ?> variables) {
+         return comparison.test(left.number(variables), right.number(variables));
+      }
+   }
+
+   /**
+    * Equality of two booleans.
+    */
+   static class BooleanEqualityNode extends Node {
+
+      private final Node left;
+      private final Node right;
+      private final boolean negated;
+
+      BooleanEqualityNode(Node left, Node right, boolean negated, int position) {
+         super(ValueType.BOOLEAN, position);
+         this.left = left;
+         this.right = right;
+         this.negated = negated;
+      }
+
+      @Override
+      boolean bool(Map<String, ?> variables) {
+         return (left.bool(variables) == right.bool(variables)) != negated;
+      }
+   }
+
+   /**
+    * Short-circuit AND or OR.
+    */
+   static class LogicalNode extends Node {
+
+      private final Node left;
+      private final Node right;
+      private final boolean and;
+
+      LogicalNode(Node left, Node right, boolean and, int position) {
+         super(ValueType.BOOLEAN, position);
+         this.left = left;
+         this.right = right;
+         this.and = and;
+      }
+
+      @Override
+      boolean bool(Map<String, ?> variables) {
+         return and ? left.bool(variables) && right.bool(variables) : left.bool(variables) || right.bool(variables);
+      }
+   }
+
+   static class NotNode extends Node {
+
+      private final Node operand;
+
+      NotNode(Node operand, int position) {
+         super(ValueType.BOOLEAN, position);
+         this.operand = operand;
+      }
+
+      @Override
+      boolean bool(Map<String, ?> variables) {
+         return !operand.bool(variables);
+      }
+   }
+
+   static class ConditionalNode extends Node {
+
+      private final Node condition;
+      private final Node whenTrue;
+      private final Node whenFalse;
+
+      ConditionalNode(Node condition, Node whenTrue, Node whenFalse, int position) {
+         super(whenTrue.type, position);
+         this.condition = condition;
+         this.whenTrue = whenTrue;
+         this.whenFalse = whenFalse;
+      }
+
+      @Override
+      double number(Map<String, ?> variables) {
+         return condition.bool(variables) ? whenTrue.number(variables) : whenFalse.number(variables);
+      }
+
+      @Override
+      boolean bool(Map<String, ?> variables) {
+         return condition.bool(variables) ? whenTrue.bool(variables) : whenFalse.bool(variables);
+      }
+   }
+
+   static class UnaryFunctionNode extends Node {
+
+      private final Node argument;
+      private final DoubleUnaryOperator function;
+
+      UnaryFunctionNode(Node argument, DoubleUnaryOperator function, int position) {
+         super(ValueType.NUMBER, position);
+         this.argument = argument;
+         this.function = function;
+      }
+
+      @Override
+      double number(Map<String, ?> variables) {
+         return function.applyAsDouble(argument.number(variables));
+      }
+   }
+
+   /**
+    * Function of any number of arguments, arguments are evaluated into an array passed to the function.
+    */
+   static class FunctionNode extends Node {
+
+      private final Node[] arguments;
+      private final ToDoubleFunction<double[]> function;
+
+      FunctionNode(List<Node> arguments, ToDoubleFunction<double[]> function, int position) {
+         super(ValueType.NUMBER, position);
+         this.arguments = arguments.toArray(new Node[arguments.size()]);
+         this.function = function;
+      }
+
+      @Override
+      double number(Map<String, ?> variables) {
+         double[] values = new double[arguments.length];
+         for (int i = 0; i < arguments.length; i++) {
+            values[i] = arguments[i].number(variables);
+         }
+
+         return function.applyAsDouble(values);
+      }
+   }
+}
@@ -0,0 +1,61 @@
+package org.perfrepo.web.alerting;
+
+/**
+ * Error in an alerting expression, reported when the expression is compiled or evaluated.
+ *
+ * @author agent (agent@local)
+ */
+public class ExpressionException extends IllegalArgumentException {
+
+   private static final long serialVersionUID = -6080263461926402214L;
+
+   /**
+    * Kind of the error.
+    */
+   public enum ErrorType {
+      /**
+       * Expression isn't well-formed, e.g. missing parenthesis or operand.
+       */
+      SYNTAX,
+
+      /**
+       * Operand has a wrong type, e.g. comparison used in arithmetic, or the condition isn't boolean.
+       */
+      TYPE,
+
+      /**
+       * Variable isn't defined.
+       */
+      UNDEFINED_VARIABLE,
+
+      /**
+       * Function doesn't exist or is called with wrong number of arguments.
+       */
+      UNKNOWN_FUNCTION
+   }
+
+   private final ErrorType errorType;
+   private final int position;
+
+   /**
+    * @param errorType
+    * @param message
+    * @param position position in the expression where the error was found, -1 if not known
+    */
+   public ExpressionException(ErrorType errorType, String message, int position) {
+      super(position < 0 ? message : message + " (at position " + (position + 1) + ")");
+      this.errorType = errorType;
+      this.position = position;
+   }
+
+   public ErrorType getErrorType() {
+      return errorType;
+   }
+
+   /**
+    * @return zero-based position in the expression where the error was found, -1 if not known
+    */
+   public int getPosition() {
+      return position;
+   }
+}
@@ -0,0 +1,452 @@
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.web.alerting.Expression.ArithmeticNode;
+import org.perfrepo.web.alerting.Expression.BooleanEqualityNode;
+import org.perfrepo.web.alerting.Expression.BooleanNode;
+import org.perfrepo.web.alerting.Expression.ComparisonNode;
+import org.perfrepo.web.alerting.Expression.ConditionalNode;
+import org.perfrepo.web.alerting.Expression.FunctionNode;
+import org.perfrepo.web.alerting.Expression.LogicalNode;
+import org.perfrepo.web.alerting.Expression.NegationNode;
+import org.perfrepo.web.alerting.Expression.Node;
+import org.perfrepo.web.alerting.Expression.NotNode;
+import org.perfrepo.web.alerting.Expression.NumberNode;
+import org.perfrepo.web.alerting.Expression.UnaryFunctionNode;
+import org.perfrepo.web.alerting.Expression.ValueType;
+import org.perfrepo.web.alerting.Expression.VariableNode;
+import org.perfrepo.web.alerting.ExpressionException.ErrorType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Recursive descent parser of alerting expressions. CONDITION of the alerting DSL (see AlertingDSL.g) is passed
+ * here as a whole, the grammar of the expression, from the lowest precedence, is
+ *
+ * <pre>
+ * expression     : or ('?' expression ':' expression)?
+ * or             : and ('||' and)*
+ * and            : equality ('&amp;&amp;' equality)*
+ * equality       : relational (('==' | '!=' | '===' | '!==') relational)*
+ * relational     : additive (('&lt;' | '&lt;=' | '&gt;' | '&gt;=') additive)*
+ * additive       : multiplicative (('+' | '-') multiplicative)*
+ * multiplicative : unary (('*' | '/' | '%') unary)*
+ * unary          : ('!' | '-' | '+') unary | primary
+ * primary        : NUMBER | 'true' | 'false' | IDENTIFIER | IDENTIFIER '(' expression (',' expression)* ')'
+ *                | '(' expression ')'
+ * </pre>
+ *
+ * Functions are abs, sqrt, log, exp, floor, ceil, round, pow, min and max, optionally with 'Math.' prefix.
+ * Types are checked during parsing, arithmetic and comparisons require numbers, logical operators require booleans.
+ *
+ * @author agent (agent@local)
+ */
+class ExpressionParser {
+
+   private static final String[] SYMBOLS = {"===", "!==", "==", "!=", "<=", ">=", "&&", "||",
+                                            "<", ">", "+", "-", "*", "/", "%", "!", "(", ")", ",", "?", ":"};
+
+   private enum TokenKind {
+      NUMBER, IDENTIFIER, SYMBOL, END
+   }
+
+   private final String source;
+   private final Collection<String> variables;
+
+   private int position;
+   private TokenKind kind;
+   private String text;
+   private int tokenStart;
+
+   /**
+    * @param source expression
+    * @param variables allowed variable names, null means any name
+    */
+   ExpressionParser(String source, Collection<String> variables) {
+      this.source = source == null ? "" : source;
+      this.variables = variables;
+   }
+
+   /**
+    * Parses the whole expression.
+    *
+    * @return root of the compiled expression tree
+    */
+   Node parse() {
+      next();
+      if (kind == TokenKind.END) {
+         throw new ExpressionException(ErrorType.SYNTAX, "Expression is empty.", -1);
+      }
+      Node root = expression();
+      if (kind != TokenKind.END) {
+         throw new ExpressionException(ErrorType.SYNTAX, "Unexpected '" + text + "'.", tokenStart);
+      }
+
+      return root;
+   }
+
+   private Node expression() {
+      Node condition = or();
+      if (!isSymbol("?")) {
+         return condition;
+      }
+      int operatorStart = tokenStart;
+      requireType(condition, ValueType.BOOLEAN, "?");
+      next();
+      Node whenTrue = expression();
+      expectSymbol(":");
+      Node whenFalse = expression();
+      if (whenTrue.type != whenFalse.type) {
+         throw new ExpressionException(ErrorType.TYPE, "Both branches of '?' have to be of the same type.", operatorStart);
+      }
+
+      return new ConditionalNode(condition, whenTrue, whenFalse, operatorStart);
+   }
+
+   private Node or() {
+      Node left = and();
+      while (isSymbol("||")) {
+         int operatorStart = tokenStart;
+         next();
+         Node right = and();
+         requireType(left, ValueType.BOOLEAN, "||");
+         requireType(right, ValueType.BOOLEAN, "||");
+         left = new LogicalNode(left, right, false, operatorStart);
+      }
+
+      return left;
+   }
+
+   private Node and() {
+      Node left = equality();
+      while (isSymbol("&&")) {
+         int operatorStart = tokenStart;
+         next();
+         Node right = equality();
+         requireType(left, ValueType.BOOLEAN, "&&");
+         requireType(right, ValueType.BOOLEAN, "&&");
+         left = new LogicalNode(left, right, true, operatorStart);
+      }
+
+      return left;
+   }
+
+   private Node equality() {
+      Node left = relational();
+      while (isSymbol("==") || isSymbol("!=") || isSymbol("===") || isSymbol("!==")) {
+         String operator = text;
+         int operatorStart = tokenStart;
+         next();
+         Node right = relational();
+         boolean negated = operator.startsWith("!");
+         if (left.type != right.type) {
+            throw new ExpressionException(ErrorType.TYPE, "Operands of '" + operator + "' have to be of the same type.", operatorStart);
+         }
+         if (left.type == ValueType.BOOLEAN) {
+            left = new BooleanEqualityNode(left, right, negated, operatorStart);
+         } else if (negated) {
+            left = new ComparisonNode(left, right, (l, r) -> l != r, operatorStart);
+         } else {
+            left = new ComparisonNode(left, right, (l, r) -> l == r, operatorStart);
+         }
+      }
+
+      return left;
+   }
+
+   private Node relational() {
+      Node left = additive();
+      while (isSymbol("<") || isSymbol("<=") || isSymbol(">") || isSymbol(">=")) {
+         String operator = text;
+         int operatorStart = tokenStart;
+         next();
+         Node right = additive();
+         requireType(left, ValueType.NUMBER, operator);
+         requireType(right, ValueType.NUMBER, operator);
+         switch (operator) {
+            case "<":
+               left = new ComparisonNode(left, right, (l, r) -> l < r, operatorStart);
+               break;
+            case "<=":
+               left = new ComparisonNode(left, right, (l, r) -> l <= r, operatorStart);
+               break;
+            case ">":
+               left = new ComparisonNode(left, right, (l, r) -> l > r, operatorStart);
+               break;
+            default:
+               left = new ComparisonNode(left, right, (l, r) -> l >= r, operatorStart);
+         }
+      }
+
+      return left;
+   }
+
+   private Node additive() {
+      Node left = multiplicative();
+      while (isSymbol("+") || isSymbol("-")) {
+         String operator = text;
+         int operatorStart = tokenStart;
+         next();
+         Node right = multiplicative();
+         requireType(left, ValueType.NUMBER, operator);
+         requireType(right, ValueType.NUMBER, operator);
+         left = operator.equals("+") ? new ArithmeticNode(left, right, (l, r) -> l + r, operatorStart)
+             : new ArithmeticNode(left, right, (l, r) -> l - r, operatorStart);
+      }
+
+      return left;
+   }
+
+   private Node multiplicative() {
+      Node left = unary();
+      while (isSymbol("*") || isSymbol("/") || isSymbol("%")) {
+         String operator = text;
+         int operatorStart = tokenStart;
+         next();
+         Node right = unary();
+         requireType(left, ValueType.NUMBER, operator);
+         requireType(right, ValueType.NUMBER, operator);
+         switch (operator) {
+            case "*":
+               left = new ArithmeticNode(left, right, (l, r) -> l * r, operatorStart);
+               break;
+            case "/":
+               left = new ArithmeticNode(left, right, (l, r) -> l / r, operatorStart);
+               break;
+            default:
+               left = new ArithmeticNode(left, right, (l, r) -> l % r, operatorStart);
+         }
+      }
+
+      return left;
+   }
+
+   private Node unary() {
+      int operatorStart = tokenStart;
+      if (isSymbol("!")) {
+         next();
+         Node operand = unary();
+         requireType(operand, ValueType.BOOLEAN, "!");
+         return new NotNode(operand, operatorStart);
+      } else if (isSymbol("-")) {
+         next();
+         Node operand = unary();
+         requireType(operand, ValueType.NUMBER, "-");
+         return new NegationNode(operand, operatorStart);
+      } else if (isSymbol("+")) {
+         next();
+         Node operand = unary();
+         requireType(operand, ValueType.NUMBER, "+");
+         return operand;
+      }
+
+      return primary();
+   }
+
+   private Node primary() {
+      int start = tokenStart;
+      if (kind == TokenKind.NUMBER) {
+         double value = Double.parseDouble(text);
+         next();
+         return new NumberNode(value, start);
+      } else if (kind == TokenKind.IDENTIFIER) {
+         String name = text;
+         next();
+         if (name.equals("true") || name.equals("false")) {
+            return new BooleanNode(Boolean.parseBoolean(name), start);
+         }
+         if (isSymbol("(")) {
+            return function(name, start);
+         }
+         if (variables != null && !variables.contains(name)) {
+            throw new ExpressionException(ErrorType.UNDEFINED_VARIABLE, "Variable '" + name + "' is not defined.", start);
+         }
+         return new VariableNode(name, start);
+      } else if (isSymbol("(")) {
+         next();
+         Node inner = expression();
+         expectSymbol(")");
+         return inner;
+      } else if (kind == TokenKind.END) {
+         throw new ExpressionException(ErrorType.SYNTAX, "Unexpected end of expression.", start);
+      }
+
+      throw new ExpressionException(ErrorType.SYNTAX, "Unexpected '" + text + "'.", start);
+   }
+
+   /**
+    * Helper method. Parses arguments of the function call and creates the function node.
+    *
+    * @param name function name
+    * @param start position of the function name
+    * @return function node
+    */
+   private Node function(String name, int start) {
+      next(); // (
+      List<Node> arguments = new ArrayList<>();
+      if (!isSymbol(")")) {
+         arguments.add(expression());
+         while (isSymbol(",")) {
+            next();
+            arguments.add(expression());
+         }
+      }
+      expectSymbol(")");
+      for (Node argument : arguments) {
+         requireType(argument, ValueType.NUMBER, name);
+      }
+
+      String function = name.startsWith("Math.") ? name.substring("Math.".length()) : name;
+      switch (function) {
+         case "abs":
+            return unaryFunction(name, arguments, Math::abs, start);
+         case "sqrt":
+            return unaryFunction(name, arguments, Math::sqrt, start);
+         case "log":
+            return unaryFunction(name, arguments, Math::log, start);
+         case "exp":
+            return unaryFunction(name, arguments, Math::exp, start);
+         case "floor":
+            return unaryFunction(name, arguments, Math::floor, start);
+         case "ceil":
+            return unaryFunction(name, arguments, Math::ceil, start);
+         case "round":
+            return unaryFunction(name, arguments, x -> Math.floor(x + 0.5), start);
+         case "pow":
+            requireArguments(name, arguments, 2, start);
+            return new FunctionNode(arguments, values -> Math.pow(values[0], values[1]), start);
+         case "min":
+            requireArguments(name, arguments, -1, start);
+            return new FunctionNode(arguments, values -> {
+               double min = values[0];
+               for (double value : values) {
+                  min = Math.min(min, value);
+               }
+               return min;
+            }, start);
+         case "max":
+            requireArguments(name, arguments, -1, start);
+            return new FunctionNode(arguments, values -> {
+               double max = values[0];
+               for (double value : values) {
+                  max = Math.max(max, value);
+               }
+               return max;
+            }, start);
+         default:
+            throw new ExpressionException(ErrorType.UNKNOWN_FUNCTION, "Unknown function '" + name + "'.", start);
+      }
+   }
+
+   private Node unaryFunction(String name, List<Node> arguments, DoubleUnaryOperator function, int start) {
+      requireArguments(name, arguments, 1, start);
+      return new UnaryFunctionNode(arguments.get(0), function, start);
+   }
+
+   /**
+    * Helper method. Checks number of function arguments.
+    *
+    * @param name
+    * @param arguments
+    * @param count required number of arguments, -1 means at least one
+    * @param start
+    */
+   private void requireArguments(String name, List<Node> arguments, int count, int start) {
+      if (count < 0 && arguments.isEmpty()) {
+         throw new ExpressionException(ErrorType.UNKNOWN_FUNCTION, "Function '" + name + "' requires at least one argument.", start);
+      } else if (count >= 0 && arguments.size() != count) {
+         throw new ExpressionException(ErrorType.UNKNOWN_FUNCTION, "Function '" + name + "' requires " + count + " argument(s).", start);
+      }
+   }
+
+   private void requireType(Node node, ValueType type, String operator) {
+      if (node.type != type) {
+         throw new ExpressionException(ErrorType.TYPE, "Operand of '" + operator + "' has to be " + (type == ValueType.NUMBER ? "a number." : "boolean."), node.position);
+      }
+   }
+
+   private boolean isSymbol(String symbol) {
+      return kind == TokenKind.SYMBOL && text.equals(symbol);
+   }
+
+   private void expectSymbol(String symbol) {
+      if (!isSymbol(symbol)) {
+         throw new ExpressionException(ErrorType.SYNTAX, kind == TokenKind.END ? "Expected '" + symbol + "' at the end of expression."
+             : "Expected '" + symbol + "' instead of '" + text + "'.", tokenStart);
+      }
+      next();
+   }
+
+   /**
+    * Helper method. Reads next token.
+    */
+   private void next() {
+      while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+         position++;
+      }
+      tokenStart = position;
+      if (position >= source.length()) {
+         kind = TokenKind.END;
+         text = "";
+         return;
+      }
+
+      char c = source.charAt(position);
+      if (isDigit(c) || (c == '.' && position + 1 < source.length() && isDigit(source.charAt(position + 1)))) {
+         readNumber();
+      } else if (Character.isLetter(c) || c == '_' || c == '$') {
+         while (position < source.length() && isIdentifierPart(source.charAt(position))) {
+            position++;
+         }
+         kind = TokenKind.IDENTIFIER;
+         text = source.substring(tokenStart, position);
+      } else {
+         for (String symbol : SYMBOLS) {
+            if (source.startsWith(symbol, position)) {
+               position += symbol.length();
+               kind = TokenKind.SYMBOL;
+               text = symbol;
+               return;
+            }
+         }
+         throw new ExpressionException(ErrorType.SYNTAX, "Unexpected character '" + c + "'.", position);
+      }
+   }
+
+   private void readNumber() {
+      skipDigits();
+      if (position < source.length() && source.charAt(position) == '.') {
+         position++;
+         skipDigits();
+      }
+      if (position < source.length() && (source.charAt(position) == 'e' || source.charAt(position) == 'E')) {
+         position++;
+         if (position < source.length() && (source.charAt(position) == '+' || source.charAt(position) == '-')) {
+            position++;
+         }
+         int exponentStart = position;
+         skipDigits();
+         if (exponentStart == position) {
+            throw new ExpressionException(ErrorType.SYNTAX, "Malformed number.", tokenStart);
+         }
+      }
+      kind = TokenKind.NUMBER;
+      text = source.substring(tokenStart, position);
+   }
+
+   private void skipDigits() {
+      while (position < source.length() && isDigit(source.charAt(position))) {
+         position++;
+      }
+   }
+
+   private boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+   }
+
+   private boolean isIdentifierPart(char c) {
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+   }
+}
@@ -0,0 +1,238 @@
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.model.to.MetricAggregateTO;
+import org.perfrepo.model.util.QuantileSketch;
+import org.perfrepo.model.util.RunningStatistics;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+
+/**
+ * Newest values of a metric together with running aggregate of the window LAST x, y of alerting DSL, i.e. y values
+ * out of the last x + 1 values, counted from the newest one. The values are kept in a ring buffer, every added value
+ * moves the window by one, so the sum is updated by the entering and the leaving value and minimum and maximum are
+ * maintained by monotonic queues, both in amortized O(1) time. Running mean and variance are updated the same way
+ * as the sum. The sum and the variance are recomputed once per buffer length to avoid accumulating rounding errors.
+ * Quantile sketch of the window is maintained as well, the leaving values are removed from it.
+ *
+ * Values have to be added in the order of start of their test executions, test executions with the same start
+ * are ordered by id, like in the database. Adding the newest value again doesn't change the window, so a committed
+ * value may be safely added to a window that already read it from the database. Works only for single-valued test
+ * executions.
+ * The class is thread-safe.
+ *
+ * @author agent (agent@local)
+ */
+public class RollingWindow {
+
+   private final int windowStart;
+   private final int windowEnd;
+   private final double[] values;
+   private final long[] execIds;
+   private final Deque<Long> minSequence = new ArrayDeque<>();
+   private final Deque<Long> maxSequence = new ArrayDeque<>();
+   private final QuantileSketch sketch = new QuantileSketch();
+
+   // number of added values, i.e. sequence number of the next value
+   private long added;
+   private long count;
+   private double sum;
+   private RunningStatistics statistics = new RunningStatistics();
+   private int addedSinceSum;
+   private Date newestStarted;
+   private long newestExecId;
+
+   /**
+    * @param windowEnd position of the oldest value of the window plus one, counted from the newest value, i.e.
+    *                  limitFrom of the search criteria
+    * @param windowSize size of the window, i.e. limitHowMany of the search criteria
+    */
+   public RollingWindow(int windowEnd, int windowSize) {
+      if (windowEnd < 1 || windowSize < 1) {
+         throw new IllegalArgumentException("Window has to contain at least one value.");
+      }
+
+      this.windowEnd = windowEnd;
+      this.windowStart = Math.max(windowEnd - windowSize, 0);
+      this.values = new double[windowEnd];
+      this.execIds = new long[windowEnd];
+   }
+
+   /**
+    * @return independent copy of the window
+    */
+   public synchronized RollingWindow copy() {
+      RollingWindow copy = new RollingWindow(windowEnd, windowEnd - windowStart);
+      System.arraycopy(values, 0, copy.values, 0, values.length);
+      System.arraycopy(execIds, 0, copy.execIds, 0, execIds.length);
+      copy.minSequence.addAll(minSequence);
+      copy.maxSequence.addAll(maxSequence);
+      copy.sketch.merge(sketch);
+      copy.added = added;
+      copy.count = count;
+      copy.sum = sum;
+      copy.statistics = statistics.copy();
+      copy.addedSinceSum = addedSinceSum;
+      copy.newestStarted = newestStarted;
+      copy.newestExecId = newestExecId;
+
+      return copy;
+   }
+
+   /**
+    * Adds the newest value.
+    *
+    * @param value
+    * @param started start of the test execution of the value
+    * @param execId id of the test execution of the value
+    * @return false if the value is older than the newest value in the window, the window isn't changed then
+    */
+   public synchronized boolean add(double value, Date started, long execId) {
+      if (newestStarted != null) {
+         int order = started.compareTo(newestStarted);
+         if (order < 0 || (order == 0 && execId < newestExecId)) {
+            return false;
+         } else if (order == 0 && execId == newestExecId) {
+            return true;
+         }
+      }
+      newestStarted = started;
+      newestExecId = execId;
+
+      // the oldest value leaves the buffer, it's also the oldest value of the window
+      long leaving = added - windowEnd;
+      if (leaving >= 0) {
+         sum -= values[index(leaving)];
+         sketch.remove(values[index(leaving)]);
+         statistics.remove(values[index(leaving)]);
+         count--;
+         removeFirst(minSequence, leaving);
+         removeFirst(maxSequence, leaving);
+      }
+
+      values[index(added)] = value;
+      execIds[index(added)] = execId;
+      added++;
+
+      long entering = added - 1 - windowStart;
+      if (entering >= 0) {
+         double enteringValue = values[index(entering)];
+         sum += enteringValue;
+         sketch.add(enteringValue);
+         statistics.add(enteringValue);
+         count++;
+         while (!minSequence.isEmpty() && values[index(minSequence.peekLast())] >= enteringValue) {
+            minSequence.pollLast();
+         }
+         minSequence.addLast(entering);
+         while (!maxSequence.isEmpty() && values[index(maxSequence.peekLast())] <= enteringValue) {
+            maxSequence.pollLast();
+         }
+         maxSequence.addLast(entering);
+      }
+
+      if (++addedSinceSum >= windowEnd) {
+         recompute();
+      }
+
+      return true;
+   }
+
+   /**
+    * Aggregate of the window. Number of stored values is the number of added values, so the window has to be filled
+    * with all stored values or at least with {@code windowEnd} newest values.
+    *
+    * @return aggregate of the values in the window
+    */
+   public synchronized MetricAggregateTO getAggregate() {
+      if (count == 0) {
+         return new MetricAggregateTO(0, null, null, null, added);
+      }
+
+      return new MetricAggregateTO(count, sum, values[index(minSequence.peekFirst())], values[index(maxSequence.peekFirst())], added);
+   }
+
+   /**
+    * @return copy of the quantile sketch of the values in the window
+    */
+   public synchronized QuantileSketch getSketch() {
+      return sketch.copy();
+   }
+
+   /**
+    * @return copy of the running statistics of the values in the window
+    */
+   public synchronized RunningStatistics getStatistics() {
+      return statistics.copy();
+   }
+
+   /**
+    * @return copy of the values in the window, the oldest first
+    */
+   public synchronized Series getSeries() {
+      long from = Math.max(added - windowEnd, 0);
+      long to = added - windowStart;
+      int length = (int) Math.max(to - from, 0);
+      double[] seriesValues = new double[length];
+      long[] seriesExecIds = new long[length];
+      for (int i = 0; i < length; i++) {
+         seriesValues[i] = values[index(from + i)];
+         seriesExecIds[i] = execIds[index(from + i)];
+      }
+
+      return new Series(seriesValues, seriesExecIds);
+   }
+
+   /**
+    * Helper method. Recomputes sum and statistics of the window from the buffered values.
+    */
+   private void recompute() {
+      sum = 0;
+      statistics = new RunningStatistics();
+      for (long sequence = Math.max(added - windowEnd, 0); sequence < added - windowStart; sequence++) {
+         sum += values[index(sequence)];
+         statistics.add(values[index(sequence)]);
+      }
+      addedSinceSum = 0;
+   }
+
+   private int index(long sequence) {
+      return (int) (sequence % windowEnd);
+   }
+
+   private static void removeFirst(Deque<Long> sequence, long leaving) {
+      if (!sequence.isEmpty() && sequence.peekFirst() == leaving) {
+         sequence.pollFirst();
+      }
+   }
+
+   /**
+    * Values of the window together with ids of their test executions, the oldest first.
+    */
+   public static class Series {
+
+      private final double[] values;
+      private final long[] execIds;
+
+      public Series(double[] values, long[] execIds) {
+         if (values.length != execIds.length) {
+            throw new IllegalArgumentException("Every value needs id of its test execution.");
+         }
+         this.values = values;
+         this.execIds = execIds;
+      }
+
+      public int size() {
+         return values.length;
+      }
+
+      public double getValue(int index) {
+         return values[index];
+      }
+
+      public long getExecId(int index) {
+         return execIds[index];
+      }
+   }
+}
@@ -0,0 +1,344 @@
+package org.perfrepo.web.alerting;
+
+import org.perfrepo.web.util.TagUtils;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rolling windows of LAST-N alert baselines per metric, tag set and window. Windows are built lazily from
+ * the database and then updated by every added value of the metric, so grouping functions over the window
+ * are answered without the database.
+ *
+ * Every change of the stored values other than adding the newest value invalidates the windows of the metric.
+ * Windows built concurrently with adding a value are not cached, see {@link #getVersion(Long)}. The cached windows
+ * contain only committed values. A value stored by a transaction is added to them after commit, until then only
+ * the same transaction sees it in a private copy of the window, see {@link #valueStored}.
+ *
+ * @author agent (agent@local)
+ */
+@ApplicationScoped
+public class RollingWindowCache {
+
+   /**
+    * Maximum end of a cached window, longer windows are always computed by the database.
+    */
+   public static final int MAX_WINDOW_END = 10000;
+
+   private final ConcurrentMap<Long, ConcurrentMap<WindowKey, RollingWindow>> windows = new ConcurrentHashMap<>();
+
+   private final ConcurrentMap<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+   // key of the values stored by the current transaction in the transaction synchronization registry
+   private final Object pendingValuesKey = new Object();
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   /**
+    * Returns the cached window. If the current transaction stored values of the metric, they're added
+    * to a private copy of the window, which isn't cached.
+    *
+    * @param metricId
+    * @param tags tags of the SELECT, excluded tags start with '-'
+    * @param windowEnd limitFrom of the SELECT
+    * @param windowSize limitHowMany of the SELECT
+    * @return the window or null, if it isn't cached
+    */
+   public RollingWindow get(Long metricId, String tags, int windowEnd, int windowSize) {
+      Map<WindowKey, RollingWindow> metricWindows = windows.get(metricId);
+      WindowKey key = new WindowKey(tags, windowEnd, windowSize);
+      RollingWindow window = metricWindows == null ? null : metricWindows.get(key);
+      List<PendingValue> pendingValues = getPendingValues(metricId);
+      if (window == null || pendingValues.isEmpty()) {
+         return window;
+      }
+
+      RollingWindow copy = window.copy();
+      for (PendingValue pendingValue : pendingValues) {
+         // older value than the newest one in the window, the window has to be built from the database
+         if (key.matches(pendingValue.tags) && !copy.add(pendingValue.value, pendingValue.started, pendingValue.execId)) {
+            return null;
+         }
+      }
+      return copy;
+   }
+
+   /**
+    * Version of the values of the metric, it changes whenever a value is added or the windows are invalidated.
+    * The version has to be retrieved before the values of a new window are read from the database.
+    *
+    * @param metricId
+    * @return version
+    */
+   public long getVersion(Long metricId) {
+      return version(metricId).get();
+   }
+
+   /**
+    * Caches the window, unless the values of the metric have changed since the version was retrieved or the current
+    * transaction stored values of the metric, which the window might contain before they're committed.
+    *
+    * @param metricId
+    * @param tags tags of the SELECT, excluded tags start with '-'
+    * @param window
+    * @param windowEnd limitFrom of the SELECT
+    * @param windowSize limitHowMany of the SELECT
+    * @param version version of the values, the window was built from
+    */
+   public void put(Long metricId, String tags, int windowEnd, int windowSize, RollingWindow window, long version) {
+      if (!getPendingValues(metricId).isEmpty()) {
+         return;
+      }
+
+      ConcurrentMap<WindowKey, RollingWindow> metricWindows = windows.get(metricId);
+      if (metricWindows == null) {
+         windows.putIfAbsent(metricId, new ConcurrentHashMap<>());
+         metricWindows = windows.get(metricId);
+      }
+
+      WindowKey key = new WindowKey(tags, windowEnd, windowSize);
+      metricWindows.put(key, window);
+      // the version might have changed meanwhile, the value might be missing in the window
+      if (getVersion(metricId) != version) {
+         metricWindows.remove(key, window);
+      }
+   }
+
+   /**
+    * Records the newest value of the metric stored by the current transaction. The value is visible only
+    * to the windows retrieved by the same transaction, it's added to the cached windows after commit.
+    * Without transaction the value is added to the cached windows immediately.
+    *
+    * @param metricId
+    * @param tags tags of the test execution
+    * @param started start of the test execution
+    * @param execId id of the test execution
+    * @param value
+    */
+   public void valueStored(Long metricId, Collection<String> tags, Date started, Long execId, double value) {
+      if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+         valueAdded(metricId, tags, started, execId, value);
+         return;
+      }
+
+      @SuppressWarnings("unchecked")
+      List<PendingValue> pendingValues = (List<PendingValue>) transactionSynchronizationRegistry.getResource(pendingValuesKey);
+      if (pendingValues == null) {
+         pendingValues = new ArrayList<>();
+         transactionSynchronizationRegistry.putResource(pendingValuesKey, pendingValues);
+         addAfterCommit(pendingValues);
+      }
+      pendingValues.add(new PendingValue(metricId, tags, started, execId, value));
+   }
+
+   /**
+    * Adds the newest committed value of the metric to all windows with matching tags.
+    *
+    * @param metricId
+    * @param tags tags of the test execution
+    * @param started start of the test execution
+    * @param execId id of the test execution
+    * @param value
+    */
+   public void valueAdded(Long metricId, Collection<String> tags, Date started, Long execId, double value) {
+      version(metricId).incrementAndGet();
+      Map<WindowKey, RollingWindow> metricWindows = windows.get(metricId);
+      if (metricWindows == null) {
+         return;
+      }
+
+      Set<String> lowerCaseTags = toLowerCase(tags);
+      Iterator<Map.Entry<WindowKey, RollingWindow>> iterator = metricWindows.entrySet().iterator();
+      while (iterator.hasNext()) {
+         Map.Entry<WindowKey, RollingWindow> entry = iterator.next();
+         // older value than the newest one in the window has to be inserted, the window is rebuilt instead
+         if (entry.getKey().matches(lowerCaseTags) && !entry.getValue().add(value, started, execId)) {
+            iterator.remove();
+         }
+      }
+   }
+
+   /**
+    * Removes all windows of the metric.
+    *
+    * @param metricId
+    */
+   public void invalidate(Long metricId) {
+      version(metricId).incrementAndGet();
+      windows.remove(metricId);
+   }
+
+   /**
+    * Removes all windows.
+    */
+   public void invalidateAll() {
+      for (AtomicLong version : versions.values()) {
+         version.incrementAndGet();
+      }
+      windows.clear();
+   }
+
+   /**
+    * Only for tests.
+    *
+    * @param transactionSynchronizationRegistry
+    */
+   public void setTransactionSynchronizationRegistry(TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+      this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+   }
+
+   /**
+    * Helper method. Adds the values stored by the current transaction to the cached windows after commit.
+    * Nothing is needed on rollback, the cached windows never contained the values.
+    *
+    * @param pendingValues
+    */
+   private void addAfterCommit(final List<PendingValue> pendingValues) {
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+               for (PendingValue pendingValue : pendingValues) {
+                  valueAdded(pendingValue.metricId, pendingValue.tags, pendingValue.started, pendingValue.execId, pendingValue.value);
+               }
+            }
+         }
+      });
+   }
+
+   /**
+    * Helper method. Retrieves values of the metric stored by the current transaction.
+    *
+    * @param metricId
+    * @return values in the order they were stored, empty without transaction
+    */
+   private List<PendingValue> getPendingValues(Long metricId) {
+      if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+         return Collections.emptyList();
+      }
+
+      @SuppressWarnings("unchecked")
+      List<PendingValue> pendingValues = (List<PendingValue>) transactionSynchronizationRegistry.getResource(pendingValuesKey);
+      if (pendingValues == null) {
+         return Collections.emptyList();
+      }
+
+      List<PendingValue> result = new ArrayList<>();
+      for (PendingValue pendingValue : pendingValues) {
+         if (pendingValue.metricId.equals(metricId)) {
+            result.add(pendingValue);
+         }
+      }
+      return result;
+   }
+
+   private static Set<String> toLowerCase(Collection<String> tags) {
+      Set<String> lowerCaseTags = new HashSet<>();
+      for (String tag : tags) {
+         lowerCaseTags.add(tag.toLowerCase());
+      }
+      return lowerCaseTags;
+   }
+
+   private AtomicLong version(Long metricId) {
+      AtomicLong version = versions.get(metricId);
+      if (version == null) {
+         versions.putIfAbsent(metricId, new AtomicLong());
+         version = versions.get(metricId);
+      }
+
+      return version;
+   }
+
+   /**
+    * Value stored by a transaction, which isn't committed yet.
+    */
+   private static class PendingValue {
+
+      private final Long metricId;
+      private final Set<String> tags;
+      private final Date started;
+      private final Long execId;
+      private final double value;
+
+      private PendingValue(Long metricId, Collection<String> tags, Date started, Long execId, double value) {
+         this.metricId = metricId;
+         this.tags = toLowerCase(tags);
+         this.started = started;
+         this.execId = execId;
+         this.value = value;
+      }
+   }
+
+   /**
+    * Tag set and bounds of a window.
+    */
+   private static class WindowKey {
+
+      private final List<String> includedTags = new ArrayList<>();
+      private final List<String> excludedTags = new ArrayList<>();
+      private final int windowEnd;
+      private final int windowSize;
+
+      private WindowKey(String tags, int windowEnd, int windowSize) {
+         for (String tag : TagUtils.parseTags(tags == null ? "" : tags.toLowerCase())) {
+            if (tag.startsWith("-")) {
+               excludedTags.add(tag.substring(1));
+            } else if (!tag.isEmpty()) {
+               includedTags.add(tag);
+            }
+         }
+         Collections.sort(includedTags);
+         Collections.sort(excludedTags);
+         this.windowEnd = windowEnd;
+         this.windowSize = windowSize;
+      }
+
+      private boolean matches(Set<String> tags) {
+         return tags.containsAll(includedTags) && Collections.disjoint(tags, excludedTags);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof WindowKey)) {
+            return false;
+         }
+
+         WindowKey that = (WindowKey) o;
+         return windowEnd == that.windowEnd && windowSize == that.windowSize
+             && includedTags.equals(that.includedTags) && excludedTags.equals(that.excludedTags);
+      }
+
+      @Override
+      public int hashCode() {
+         int result = includedTags.hashCode();
+         result = 31 * result + excludedTags.hashCode();
+         result = 31 * result + windowEnd;
+         result = 31 * result + windowSize;
+         return result;
+      }
+   }
+}
@@ -17,10 +17,12 @@ package org.perfrepo.web.controller;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.perfrepo.model.Alert;
+import org.perfrepo.model.AlertType;
 import org.perfrepo.model.Metric;
 import org.perfrepo.model.MetricComparator;
 import org.perfrepo.model.Tag;
 import org.perfrepo.model.Test;
+import org.perfrepo.model.to.AlertReplayTO;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.user.User;
 import org.perfrepo.web.service.AlertingService;
@@ -37,7 +39,9 @@ import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Backing bean for editing and displaying details of {@link Test}.
@@ -51,6 +55,8 @@ public class TestController extends BaseController {
 
    private static final long serialVersionUID = 370202307562230671L;
    private static final Logger log = Logger.getLogger(TestController.class);
+   // alert in the pop-up is replayed over the last year by default
+   private static final int DEFAULT_REPLAY_DAYS = 365;
 
    private boolean editMode;
    private boolean createMode;
@@ -73,6 +79,7 @@ public class TestController extends BaseController {
    private Alert alert = null;
    private MetricDetails metricDetails = new MetricDetails();
    private AlertDetails alertDetails = new AlertDetails();
+   private Long alertReplayId;
 
    /**
     * called on preRenderView
@@ -182,19 +189,89 @@ public class TestController extends BaseController {
    }
 
    public void processAlert() {
-      Metric metric = testService.getFullMetric(alertDetails.getMetricId());
+      Alert alert = createAlertFromDetails();
+      if (alert == null) {
+         return;
+      }
 
-      try {
-         alertingService.checkConditionSyntax(alertDetails.getCondition(), metric);
-      } catch (RuntimeException ex) {
-         addSessionMessage(ERROR, "alerting.conditionSyntax.error", ex.getMessage());
-         reloadSessionMessages();
+      if (alertDetails.getId() == null) {
+         alertingService.createAlert(alert);
+         redirectWithMessage("/test/" + testId, INFO, "page.alert.createdSuccesfully");
+      } else {
+         alertingService.updateAlert(alert);
+         redirectWithMessage("/test/" + testId, INFO, "page.alert.updatedSuccesfully");
+      }
+   }
+
+   /**
+    * Starts replay of the alert in the pop-up over the history, the alert doesn't have to be saved.
+    */
+   public void replayAlert() {
+      Alert alert = createAlertFromDetails();
+      if (alert == null) {
          return;
       }
 
+      Integer days = alertDetails.getReplayDays();
+      Date from = days == null ? null : new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days));
+      AlertReplayTO replay = alertingService.replayAlert(alert, from);
+      if (replay == null) {
+         addMessage(ERROR, "alerting.replay.tooManyRunning");
+         return;
+      }
+      alertReplayId = replay.getId();
+   }
+
+   /**
+    * @return replay started in the pop-up or null
+    */
+   public AlertReplayTO getAlertReplay() {
+      return alertReplayId == null ? null : alertingService.getAlertReplay(alertReplayId);
+   }
+
+   public boolean isAlertReplayRunning() {
+      AlertReplayTO replay = getAlertReplay();
+      return replay != null && replay.getStatus() == AlertReplayTO.Status.RUNNING;
+   }
+
+   /**
+    * Helper method. Validates the alert in the pop-up and creates it, the validation errors are shown in the pop-up.
+    *
+    * @return the alert or null, if it isn't valid
+    */
+   private Alert createAlertFromDetails() {
+      Metric metric = testService.getFullMetric(alertDetails.getMetricId());
+
+      boolean changePoint = alertDetails.getType() == AlertType.CHANGE_POINT;
+      if (changePoint) {
+         try {
+            alertingService.checkChangePointParameters(alertDetails.getChangeWindow(), alertDetails.getChangeThreshold());
+         } catch (RuntimeException ex) {
+            addSessionMessage(ERROR, "alerting.changePoint.error", ex.getMessage());
+            reloadSessionMessages();
+            return null;
+         }
+      } else {
+         try {
+            alertingService.checkConditionSyntax(alertDetails.getCondition(), metric);
+         } catch (RuntimeException ex) {
+            addSessionMessage(ERROR, "alerting.conditionSyntax.error", ex.getMessage());
+            reloadSessionMessages();
+            return null;
+         }
+      }
+
       Alert alert = new Alert();
       alert.setName(alertDetails.getName());
-      alert.setCondition(alertDetails.getCondition());
+      alert.setType(alertDetails.getType());
+      if (changePoint) {
+         // change-point alert has no condition
+         alert.setCondition(alertDetails.getCondition() == null ? "" : alertDetails.getCondition());
+         alert.setChangeWindow(alertDetails.getChangeWindow());
+         alert.setChangeThreshold(alertDetails.getChangeThreshold());
+      } else {
+         alert.setCondition(alertDetails.getCondition());
+      }
       alert.setDescription(alertDetails.getDescription());
       alert.setLinks(alertDetails.getLinks());
 
@@ -212,15 +289,9 @@ public class TestController extends BaseController {
       }
 
       alert.setTags(tags);
+      alert.setId(alertDetails.getId());
 
-      if (alertDetails.getId() == null) {
-         alertingService.createAlert(alert);
-         redirectWithMessage("/test/" + testId, INFO, "page.alert.createdSuccesfully");
-      } else {
-         alert.setId(alertDetails.getId());
-         alertingService.updateAlert(alert);
-         redirectWithMessage("/test/" + testId, INFO, "page.alert.updatedSuccesfully");
-      }
+      return alert;
    }
 
    public void deleteAlert(Alert alert) {
@@ -435,6 +506,10 @@ public class TestController extends BaseController {
       private String links;
       private Long metricId;
       private String tags;
+      private AlertType type = AlertType.CONDITION;
+      private Integer changeWindow;
+      private Double changeThreshold;
+      private Integer replayDays = DEFAULT_REPLAY_DAYS;
 
       public Long getId() {
          return id;
@@ -496,6 +571,49 @@ public class TestController extends BaseController {
          this.links = links;
       }
 
+      public AlertType getType() {
+         return type;
+      }
+
+      public void setType(AlertType type) {
+         this.type = type;
+      }
+
+      public Integer getChangeWindow() {
+         return changeWindow;
+      }
+
+      public void setChangeWindow(Integer changeWindow) {
+         this.changeWindow = changeWindow;
+      }
+
+      public Double getChangeThreshold() {
+         return changeThreshold;
+      }
+
+      public void setChangeThreshold(Double changeThreshold) {
+         this.changeThreshold = changeThreshold;
+      }
+
+      /**
+       * @return number of the replayed days before now, null for the whole history
+       */
+      public Integer getReplayDays() {
+         return replayDays;
+      }
+
+      public void setReplayDays(Integer replayDays) {
+         this.replayDays = replayDays;
+      }
+
+      public AlertType[] getAlertTypes() {
+         return AlertType.values();
+      }
+
+      public String getEnumLabel(AlertType alertType) {
+         return MessageUtils.getEnum(alertType);
+      }
+
       public void unset() {
          this.id = null;
          this.name = null;
@@ -504,6 +622,11 @@ public class TestController extends BaseController {
          this.description = null;
          this.metricId = null;
          this.tags = null;
+         this.type = AlertType.CONDITION;
+         this.changeWindow = null;
+         this.changeThreshold = null;
+         this.replayDays = DEFAULT_REPLAY_DAYS;
+         alertReplayId = null;
       }
 
       public void setAlertForUpdate(Alert alert) {
@@ -513,6 +636,11 @@ public class TestController extends BaseController {
          this.links = alert.getLinks();
          this.description = alert.getDescription();
          this.metricId = alert.getMetric().getId();
+         this.type = alert.getType();
+         this.changeWindow = alert.getChangeWindow();
+         this.changeThreshold = alert.getChangeThreshold();
+         this.replayDays = DEFAULT_REPLAY_DAYS;
+         alertReplayId = null;
 
          List<String> tagsString = new ArrayList<>();
          for (Tag tag : alert.getTags()) {
@@ -16,11 +16,12 @@ package org.perfrepo.web.controller;
 
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.to.OrderBy;
+import org.perfrepo.model.to.TestExecutionRowTO;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
 import org.perfrepo.model.userproperty.GroupFilter;
-import org.perfrepo.model.util.EntityUtils;
 import org.perfrepo.web.service.TestService;
+import org.perfrepo.web.service.UserService;
 import org.perfrepo.web.service.exceptions.ServiceException;
 import org.perfrepo.web.session.SearchCriteriaSession;
 import org.perfrepo.web.session.TEComparatorSession;
@@ -53,6 +54,9 @@ public class TestExecutionSearchController extends BaseController {
    @Inject
    private TestService testService;
 
+   @Inject
+   private UserService userService;
+
    @Inject
    private UserSession userSession;
 
@@ -62,8 +66,9 @@ public class TestExecutionSearchController extends BaseController {
    @Inject
    private TEComparatorSession comparatorSession;
 
-   private List<TestExecution> result;
+   private List<TestExecutionRowTO> result;
    private List<String> paramColumns;
+   private List<String> userGroups;
 
    private String tag;
 
@@ -90,7 +95,8 @@ public class TestExecutionSearchController extends BaseController {
       criteria.setGroupFilter(userSession.getGroupFilter());
       criteria.setLimitHowMany(criteria.getLimitHowMany() <= 0 ? null : criteria.getLimitHowMany());
       criteria.setLimitFrom(criteria.getLimitHowMany() == null ? null : (resultsPageNumber - 1) * criteria.getLimitHowMany());
-      result = testService.searchTestExecutions(criteria);
+      result = testService.searchTestExecutionRows(criteria);
+      userGroups = userService.getLoggedUserGroupNames();
 
       totalNumberOfResults = testService.getLastTEQueryResultsCount();
       constructPagination();
@@ -104,14 +110,14 @@ public class TestExecutionSearchController extends BaseController {
          throw new IllegalStateException("Bad request, missing idToDelete");
       }
 
-      TestExecution execToRemove = removeById(idToDelete);
-      if (execToRemove == null) {
+      TestExecutionRowTO rowToRemove = removeById(idToDelete);
+      if (rowToRemove == null) {
          throw new IllegalStateException("Bad request, missing idToDelete");
       }
 
       try {
-         testService.removeTestExecution(execToRemove);
-         addMessage(INFO, "page.execSearch.execSucessfullyDeleted", execToRemove.getName());
+         testService.removeTestExecution(toTestExecution(rowToRemove));
+         addMessage(INFO, "page.execSearch.execSucessfullyDeleted", rowToRemove.getName());
       } catch (ServiceException e) {
          addMessage(e);
       }
@@ -119,8 +125,19 @@ public class TestExecutionSearchController extends BaseController {
       return null;
    }
 
-   public String itemParam(TestExecution exec, String paramName) {
-      return ViewUtils.displayValue(exec.findParameter(paramName));
+   public String itemParam(TestExecutionRowTO row, String paramName) {
+      TestExecutionRowTO.Parameter param = row.getParameter(paramName);
+      return param == null ? ViewUtils.displayValue(null) : ViewUtils.displayValue(param.getId(), param.getValue());
+   }
+
+   /**
+    * Decides whether logged user can modify the test execution, i.e. whether the user is a member of the test's group.
+    *
+    * @param row
+    * @return true if the user can modify the test execution
+    */
+   public boolean canWrite(TestExecutionRowTO row) {
+      return userGroups != null && userGroups.contains(row.getTestGroupId());
    }
 
    public void addParameterCriteria() {
@@ -190,39 +207,76 @@ public class TestExecutionSearchController extends BaseController {
       resultsPageNumber = 1;
    }
 
-   private TestExecution removeById(Long id) {
-      for (TestExecution exec : result) {
-         if (exec.getId().equals(id)) {
-            result.remove(exec);
-            return exec;
+   /**
+    * Orders the results by relevance when a full-text query is entered.
+    *
+    * @param event
+    */
+   public void fullTextChanged(ValueChangeEvent event) {
+      criteriaChanged();
+      String fullText = (String) event.getNewValue();
+      if (fullText != null && !fullText.trim().isEmpty()) {
+         criteriaSession.getExecutionSearchCriteria().setOrderBy(OrderBy.RELEVANCE);
+      } else if (criteriaSession.getExecutionSearchCriteria().getOrderBy() == OrderBy.RELEVANCE) {
+         criteriaSession.getExecutionSearchCriteria().setOrderBy(OrderBy.DATE_DESC);
+      }
+   }
+
+   private TestExecutionRowTO removeById(Long id) {
+      for (TestExecutionRowTO row : result) {
+         if (row.getId().equals(id)) {
+            result.remove(row);
+            return row;
          }
       }
       return null;
    }
 
+   /**
+    * Helper method. Services identify test executions only by id, so for operations on found test
+    * executions it's sufficient to pass test execution with the id set.
+    *
+    * @param row
+    * @return test execution with id set
+    */
+   private TestExecution toTestExecution(TestExecutionRowTO row) {
+      TestExecution testExecution = new TestExecution();
+      testExecution.setId(row.getId());
+      testExecution.setName(row.getName());
+      return testExecution;
+   }
+
+   /**
+    * Helper method.
+    *
+    * @return current results as test executions with id set
+    */
+   private List<TestExecution> resultAsTestExecutions() {
+      return result.stream().map(this::toTestExecution).collect(Collectors.toList());
+   }
+
    /** ----- Methods for mass operations ---- **/
 
    public void addAllCurrentResultsToComparison() {
-      List<Long> ids = EntityUtils.extractIds(result);
-      ids.stream().forEach(id -> comparatorSession.add(id));
+      result.stream().forEach(row -> comparatorSession.add(row.getId()));
    }
 
    public void addTagsToFoundTestExecutions() {
       List<String> tags = TagUtils.parseTags(massOperationAddTags != null ? massOperationAddTags.toLowerCase() : "");
 
-      testService.addTagsToTestExecutions(tags, result);
+      testService.addTagsToTestExecutions(tags, resultAsTestExecutions());
       search();
    }
 
    public void deleteTagsFromFoundTestExecutions() {
       List<String> tags = TagUtils.parseTags(massOperationDeleteTags != null ? massOperationDeleteTags.toLowerCase() : "");
 
-      testService.removeTagsFromTestExecutions(tags, result);
+      testService.removeTagsFromTestExecutions(tags, resultAsTestExecutions());
       search();
    }
 
    public void deleteFoundTestExecutions() {
-      for (TestExecution testExecution : result) {
+      for (TestExecution testExecution : resultAsTestExecutions()) {
          try {
             testService.removeTestExecution(testExecution);
          } catch (ServiceException ex) {
@@ -285,11 +339,11 @@ public class TestExecutionSearchController extends BaseController {
       this.tag = tag;
    }
 
-   public List<TestExecution> getResult() {
+   public List<TestExecutionRowTO> getResult() {
       return result;
    }
 
-   public void setResult(List<TestExecution> result) {
+   public void setResult(List<TestExecutionRowTO> result) {
       this.result = result;
    }
 
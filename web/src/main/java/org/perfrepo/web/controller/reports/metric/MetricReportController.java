@@ -597,6 +597,12 @@ public class MetricReportController extends BaseController {
             pointDetails.execId = series.execIds.get(event.getPointIndex());
          }
 
+         if (pointDetails.execId == null) {
+            // rollup of test executions removed by retention policy, there are no details to show
+            renderDetails = false;
+            return;
+         }
+
          pointDetails.exec = testService.getFullTestExecution(pointDetails.execId);
 
          for (FavoriteParameter fp : userService.getFavoriteParametersForTest(pointDetails.exec.getTest())) {
@@ -750,7 +756,7 @@ public class MetricReportController extends BaseController {
          return chartModel;
       }
 
-      public void addPoint(double x, double y, long execId) {
+      public void addPoint(double x, double y, Long execId) {
          chartModel.put(x, y);
          execIds.add(execId);
       }
@@ -45,4 +45,16 @@ public class AlertDAO extends DAO<Alert, Long> {
       return findByNamedQuery(Alert.GET_BY_TEST_AND_METRIC, params);
    }
 
+   /**
+    * Retrieves all alerts of the test together with their metrics and tags.
+    *
+    * @param test
+    * @return alerts ordered by id
+    */
+   public List<Alert> getByTest(Test test) {
+      Map<String, Object> params = new HashMap<String, Object>();
+      params.put("testId", test.getId());
+      return findByNamedQuery(Alert.GET_BY_TEST, params);
+   }
+
 }
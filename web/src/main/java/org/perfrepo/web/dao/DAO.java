@@ -46,6 +46,9 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
    @PersistenceContext(unitName = "PerfRepoPU")
    private EntityManager em;
 
+   @PersistenceContext(unitName = "PerfRepoReadOnlyPU")
+   private EntityManager readOnlyEm;
+
    private Class<T> type;
 
    @SuppressWarnings("unchecked")
@@ -64,24 +67,24 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
     * @return Entity
     */
    public T get(final PK id) {
-      return em.find(type, id);
+      return entityManager().find(type, id);
    }
 
    public T update(final T entity) {
-      T stored = em.merge(entity);
-      em.flush();
+      T stored = entityManager().merge(entity);
+      entityManager().flush();
       return stored;
    }
 
    public T create(final T entity) {
-      em.persist(entity);
-      em.flush();
+      entityManager().persist(entity);
+      entityManager().flush();
       return entity;
    }
 
    public void remove(final T entity) {
-      em.remove(entity);
-      em.flush();
+      entityManager().remove(entity);
+      entityManager().flush();
    }
 
    /**
@@ -93,7 +96,7 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
       CriteriaQuery<T> criteria = createCriteria();
       Root<T> root = criteria.from(type);
       criteria.select(root);
-      return em.createQuery(criteria).getResultList();
+      return entityManager().createQuery(criteria).getResultList();
    }
 
    /**
@@ -107,8 +110,8 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
       CriteriaQuery<T> criteria = createCriteria();
       Root<T> root = criteria.from(type);
       criteria.select(root);
-      criteria.where(em.getCriteriaBuilder().equal(root.get(propertyName), value));
-      return em.createQuery(criteria).getResultList();
+      criteria.where(entityManager().getCriteriaBuilder().equal(root.get(propertyName), value));
+      return entityManager().createQuery(criteria).getResultList();
    }
 
    /**
@@ -125,7 +128,7 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
       Root<T> root = criteria.from(type);
       criteria.select(root);
       criteria.where(root.get(propertyName).in(cb.parameter(Collection.class, "value")));
-      TypedQuery<T> query = em.createQuery(criteria);
+      TypedQuery<T> query = entityManager().createQuery(criteria);
       query.setParameter("value", value);
 
       return query.getResultList();
@@ -140,7 +143,7 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
     * @return List of entities corresponding to query
     */
    public List<T> findByNamedQuery(String queryName, Map<String, Object> queryParams, boolean clones) {
-      TypedQuery<T> tq = em.createNamedQuery(queryName, type);
+      TypedQuery<T> tq = entityManager().createNamedQuery(queryName, type);
       for (Entry<String, Object> entry : queryParams.entrySet()) {
          tq.setParameter(entry.getKey(), entry.getValue());
       }
@@ -169,7 +172,7 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
    }
 
    public T findWithDepth(Object id, String... fetchRelations) {
-      CriteriaBuilder criteriaBuilder = em.getCriteriaBuilder();
+      CriteriaBuilder criteriaBuilder = entityManager().getCriteriaBuilder();
       CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(type);
       Root<T> root = criteriaQuery.from(type);
       for (String relation : fetchRelations) {
@@ -179,7 +182,7 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
          }
       }
       criteriaQuery.where(criteriaBuilder.equal(root.get("id"), id));
-      return getSingleOrNoneResult(em.createQuery(criteriaQuery));
+      return getSingleOrNoneResult(entityManager().createQuery(criteriaQuery));
    }
 
    /**
@@ -190,27 +193,33 @@ public abstract class DAO<T extends Entity<T>, PK extends Serializable> {
     * @return typed query
     */
    protected <T1> TypedQuery<T1> query(CriteriaQuery<T1> criteria) {
-      return em.createQuery(criteria);
+      return entityManager().createQuery(criteria);
    }
 
    protected CriteriaQuery<T> createCriteria() {
-      return em.getCriteriaBuilder().createQuery(type);
+      return entityManager().getCriteriaBuilder().createQuery(type);
    }
 
    protected CriteriaBuilder criteriaBuilder() {
-      return em.getCriteriaBuilder();
+      return entityManager().getCriteriaBuilder();
    }
 
    protected Query createNamedQuery(String name) {
-      return em.createNamedQuery(name);
+      return entityManager().createNamedQuery(name);
    }
 
    protected <QueryType> TypedQuery<QueryType> createNamedQuery(String name, Class<QueryType> clazz) {
-      return em.createNamedQuery(name, clazz);
+      return entityManager().createNamedQuery(name, clazz);
    }
 
+   /**
+    * Entity manager of the current invocation. Invocations of {@link ReadOnly} methods are served
+    * by the read-only persistence unit (replica database), everything else by the primary one.
+    *
+    * @return entity manager
+    */
    protected EntityManager entityManager() {
-      return em;
+      return ReadOnlyInterceptor.isActive() ? readOnlyEm : em;
    }
 
    private T getSingleOrNoneResult(TypedQuery<T> query) {
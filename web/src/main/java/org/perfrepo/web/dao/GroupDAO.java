@@ -17,6 +17,8 @@ package org.perfrepo.web.dao;
 import org.perfrepo.model.user.Group;
 
 import javax.inject.Named;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * DAO for {@link Group}
@@ -26,4 +28,13 @@ import javax.inject.Named;
 @Named
 public class GroupDAO extends DAO<Group, Long> {
 
+   /**
+    * Retrieves groups of the user, the result is kept in the query cache.
+    *
+    * @param username
+    * @return groups the user is member of
+    */
+   public List<Group> findByUsername(String username) {
+      return findByNamedQuery(Group.FIND_BY_USERNAME, Collections.<String, Object>singletonMap("username", username));
+   }
 }
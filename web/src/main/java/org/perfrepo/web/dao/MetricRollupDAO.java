@@ -0,0 +1,159 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.perfrepo.model.MetricRollup;
+
+import javax.inject.Named;
+import javax.persistence.NoResultException;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * DAO for {@link MetricRollup}
+ *
+ * @author agent (agent@local)
+ */
+@Named
+public class MetricRollupDAO extends DAO<MetricRollup, Long> {
+
+   /**
+    * Finds rollup of the metric of the test executions with the tag set started in the bucket.
+    *
+    * @param testId
+    * @param metricId
+    * @param tags tags string, see {@link MetricRollup#getTags()}
+    * @param bucketStart
+    * @return rollup or null when there is none yet
+    */
+   public MetricRollup find(Long testId, Long metricId, String tags, Date bucketStart) {
+      try {
+         return entityManager().createQuery("SELECT r FROM MetricRollup r WHERE r.testId = :testId AND r.metricId = :metricId "
+                                                + "AND r.tags = :tags AND r.bucketStart = :bucketStart", MetricRollup.class)
+             .setParameter("testId", testId)
+             .setParameter("metricId", metricId)
+             .setParameter("tags", tags)
+             .setParameter("bucketStart", bucketStart)
+             .getSingleResult();
+      } catch (NoResultException e) {
+         return null;
+      }
+   }
+
+   /**
+    * Retrieves latest rollups of the metric of the test, newest first.
+    *
+    * @param testId
+    * @param metricId
+    * @param tagList rolled up test executions have to have all of these tags
+    * @param before only buckets started before this time, null means no restriction
+    * @param limitSize maximum number of rollups
+    * @return rollups
+    */
+   public List<MetricRollup> getRollups(Long testId, Long metricId, List<String> tagList, Date before, int limitSize) {
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<MetricRollup> criteria = createCriteria();
+      Root<MetricRollup> rRollup = criteria.from(MetricRollup.class);
+
+      List<Predicate> predicates = new ArrayList<>();
+      predicates.add(cb.equal(rRollup.get("testId"), cb.parameter(Long.class, "testId")));
+      predicates.add(cb.equal(rRollup.get("metricId"), cb.parameter(Long.class, "metricId")));
+      if (before != null) {
+         predicates.add(cb.lessThan(rRollup.<Date>get("bucketStart"), cb.parameter(Date.class, "before")));
+      }
+      int tagCount = tagList == null ? 0 : tagList.size();
+      for (int i = 0; i < tagCount; i++) {
+         predicates.add(cb.like(rRollup.<String>get("tags"), cb.parameter(String.class, "tag" + i), '\\'));
+      }
+
+      criteria.select(rRollup);
+      criteria.where(predicates.toArray(new Predicate[predicates.size()]));
+      criteria.orderBy(cb.desc(rRollup.get("bucketStart")));
+
+      TypedQuery<MetricRollup> query = query(criteria);
+      query.setParameter("testId", testId);
+      query.setParameter("metricId", metricId);
+      if (before != null) {
+         query.setParameter("before", before);
+      }
+      for (int i = 0; i < tagCount; i++) {
+         query.setParameter("tag" + i, MetricSeriesDAO.tagPattern(tagList.get(i)));
+      }
+      query.setMaxResults(limitSize);
+      return query.getResultList();
+   }
+
+   /**
+    * Searches rollups of the metric of all tests, newest first. Tags are compared case-insensitively, the same
+    * way as when searching test executions.
+    *
+    * @param metricId
+    * @param includedTags rolled up test executions have to have all of these tags
+    * @param excludedTags rolled up test executions mustn't have any of these tags
+    * @param from only buckets ending after this time, null means no restriction
+    * @param to only buckets starting before or at this time, null means no restriction
+    * @param maxResults maximum number of rollups, null means no restriction
+    * @return rollups
+    */
+   public List<MetricRollup> search(Long metricId, List<String> includedTags, List<String> excludedTags, Date from, Date to, Integer maxResults) {
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<MetricRollup> criteria = createCriteria();
+      Root<MetricRollup> rRollup = criteria.from(MetricRollup.class);
+
+      List<Predicate> predicates = new ArrayList<>();
+      predicates.add(cb.equal(rRollup.get("metricId"), cb.parameter(Long.class, "metricId")));
+      if (from != null) {
+         predicates.add(cb.greaterThan(rRollup.<Date>get("bucketEnd"), cb.parameter(Date.class, "from")));
+      }
+      if (to != null) {
+         predicates.add(cb.lessThanOrEqualTo(rRollup.<Date>get("bucketStart"), cb.parameter(Date.class, "to")));
+      }
+      for (int i = 0; i < includedTags.size(); i++) {
+         predicates.add(cb.like(cb.lower(rRollup.<String>get("tags")), cb.parameter(String.class, "includedTag" + i), '\\'));
+      }
+      for (int i = 0; i < excludedTags.size(); i++) {
+         predicates.add(cb.notLike(cb.lower(rRollup.<String>get("tags")), cb.parameter(String.class, "excludedTag" + i), '\\'));
+      }
+
+      criteria.select(rRollup);
+      criteria.where(predicates.toArray(new Predicate[predicates.size()]));
+      criteria.orderBy(cb.desc(rRollup.get("bucketStart")));
+
+      TypedQuery<MetricRollup> query = query(criteria);
+      query.setParameter("metricId", metricId);
+      if (from != null) {
+         query.setParameter("from", from);
+      }
+      if (to != null) {
+         query.setParameter("to", to);
+      }
+      for (int i = 0; i < includedTags.size(); i++) {
+         query.setParameter("includedTag" + i, MetricSeriesDAO.tagPattern(includedTags.get(i).toLowerCase()));
+      }
+      for (int i = 0; i < excludedTags.size(); i++) {
+         query.setParameter("excludedTag" + i, MetricSeriesDAO.tagPattern(excludedTags.get(i).toLowerCase()));
+      }
+      if (maxResults != null) {
+         query.setMaxResults(maxResults);
+      }
+      return query.getResultList();
+   }
+}
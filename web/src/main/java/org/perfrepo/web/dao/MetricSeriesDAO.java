@@ -0,0 +1,160 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.hibernate.SQLQuery;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.MetricSeriesPoint;
+import org.perfrepo.model.to.MetricReportTO;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * DAO for {@link MetricSeriesPoint}. The series is derived from values, test executions and their tags,
+ * it's refreshed per test execution whenever any of them changes, including removal of values (the foreign
+ * key cascade isn't available when the tables are partitioned).
+ *
+ * @author agent (agent@local)
+ */
+@Named
+public class MetricSeriesDAO extends DAO<MetricSeriesPoint, Long> {
+
+   @Inject
+   private MetricRollupDAO metricRollupDAO;
+
+   // Postgres 8.4 doesn't have string_agg, so tags are aggregated by array_to_string(ARRAY(...))
+   private static final String INSERT_SERIES =
+       "INSERT INTO metric_series (value_id, test_id, metric_id, test_execution_id, started, result_value, tags) "
+           + "SELECT v.id, te.test_id, v.metric_id, te.id, te.started, v.result_value, "
+           + "' ' || array_to_string(ARRAY(SELECT t.name FROM test_execution_tag tet JOIN tag t ON t.id = tet.tag_id "
+           + "WHERE tet.test_execution_id = te.id ORDER BY t.name), ' ') || ' ' "
+           + "FROM value v JOIN test_execution te ON te.id = v.test_execution_id";
+
+   /**
+    * Replaces series points of the test execution by the current state of its values, start and tags.
+    *
+    * @param testExecutionId
+    */
+   public void refresh(Long testExecutionId) {
+      // pending changes of values and tags have to be visible to the native statement
+      entityManager().flush();
+      entityManager().createQuery("DELETE FROM MetricSeriesPoint p WHERE p.testExecutionId = :testExecutionId")
+          .setParameter("testExecutionId", testExecutionId)
+          .executeUpdate();
+      insertQuery(" WHERE te.id = :testExecutionId")
+          .setParameter("testExecutionId", testExecutionId)
+          .executeUpdate();
+   }
+
+   /**
+    * Retrieves latest points of the metric history, newest first. When the series doesn't have enough points,
+    * it's continued by means of rollups older than the oldest point.
+    *
+    * @param testId
+    * @param metricId
+    * @param tagList test executions have to have all of these tags
+    * @param limitSize maximum number of points
+    * @return data points, parameter of the point is the start of the test execution or of the rollup bucket
+    */
+   public List<MetricReportTO.DataPoint> getDataPoints(Long testId, Long metricId, List<String> tagList, int limitSize) {
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Tuple> criteria = cb.createTupleQuery();
+      Root<MetricSeriesPoint> rPoint = criteria.from(MetricSeriesPoint.class);
+
+      List<Predicate> predicates = new ArrayList<>();
+      predicates.add(cb.equal(rPoint.get("testId"), cb.parameter(Long.class, "testId")));
+      predicates.add(cb.equal(rPoint.get("metricId"), cb.parameter(Long.class, "metricId")));
+      int tagCount = tagList == null ? 0 : tagList.size();
+      for (int i = 0; i < tagCount; i++) {
+         predicates.add(cb.like(rPoint.<String>get("tags"), cb.parameter(String.class, "tag" + i), '\\'));
+      }
+
+      criteria.multiselect(rPoint.get("started"), rPoint.get("resultValue"), rPoint.get("testExecutionId"));
+      criteria.where(predicates.toArray(new Predicate[predicates.size()]));
+      criteria.orderBy(cb.desc(rPoint.get("started")));
+
+      TypedQuery<Tuple> query = query(criteria);
+      query.setParameter("testId", testId);
+      query.setParameter("metricId", metricId);
+      for (int i = 0; i < tagCount; i++) {
+         query.setParameter("tag" + i, tagPattern(tagList.get(i)));
+      }
+      query.setMaxResults(limitSize);
+
+      List<MetricReportTO.DataPoint> result = new ArrayList<>(limitSize);
+      Date oldestStarted = null;
+      for (Tuple row : query.getResultList()) {
+         oldestStarted = row.get(0, Date.class);
+         result.add(new MetricReportTO.DataPoint(oldestStarted, row.get(1, Double.class), row.get(2, Long.class)));
+      }
+      if (result.size() < limitSize) {
+         for (MetricRollup rollup : metricRollupDAO.getRollups(testId, metricId, tagList, oldestStarted, limitSize - result.size())) {
+            result.add(new MetricReportTO.DataPoint(rollup.getBucketStart(), rollup.getMean(), null));
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Retrieves series points of the test executions.
+    *
+    * @param testExecutionIds
+    * @return series points
+    */
+   public List<MetricSeriesPoint> getPoints(Collection<Long> testExecutionIds) {
+      if (testExecutionIds.isEmpty()) {
+         return new ArrayList<>();
+      }
+      return entityManager().createQuery("SELECT p FROM MetricSeriesPoint p WHERE p.testExecutionId IN :testExecutionIds", MetricSeriesPoint.class)
+          .setParameter("testExecutionIds", testExecutionIds)
+          .getResultList();
+   }
+
+   /**
+    * Helper method. Creates native insert of series points. The statement is declared to touch only the series
+    * table, otherwise Hibernate would invalidate the whole second-level cache on every execution.
+    *
+    * @param where restriction of inserted values
+    * @return query
+    */
+   private Query insertQuery(String where) {
+      Query query = entityManager().createNativeQuery(INSERT_SERIES + where);
+      query.unwrap(SQLQuery.class).addSynchronizedEntityClass(MetricSeriesPoint.class);
+      return query;
+   }
+
+   /**
+    * Helper method. Creates LIKE pattern matching the whole tag name in the tags string.
+    *
+    * @param tag
+    * @return pattern
+    */
+   static String tagPattern(String tag) {
+      String escaped = tag.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+      return "%" + MetricSeriesPoint.TAG_SEPARATOR + escaped + MetricSeriesPoint.TAG_SEPARATOR + "%";
+   }
+}
@@ -0,0 +1,48 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * PostgreSQL dialect with additional SQL functions used by PerfRepo queries.
+ *
+ * @author agent (agent@local)
+ */
+public class PerfRepoPostgreSQLDialect extends PostgreSQLDialect {
+
+   /**
+    * Full-text match of tsvector (first argument) and plain text query (second argument).
+    */
+   public static final String FULL_TEXT_MATCH = "full_text_match";
+
+   /**
+    * Rank of full-text match of tsvector (first argument) and plain text query (second argument).
+    */
+   public static final String FULL_TEXT_RANK = "full_text_rank";
+
+   /**
+    * Text search configuration used for both the stored vectors and the queries.
+    */
+   private static final String TEXT_SEARCH_CONFIG = "'pg_catalog.english'";
+
+   public PerfRepoPostgreSQLDialect() {
+      super();
+      registerFunction(FULL_TEXT_MATCH, new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN, "(?1 @@ plainto_tsquery(" + TEXT_SEARCH_CONFIG + ", ?2))"));
+      registerFunction(FULL_TEXT_RANK, new SQLFunctionTemplate(StandardBasicTypes.DOUBLE, "ts_rank(?1, plainto_tsquery(" + TEXT_SEARCH_CONFIG + ", ?2))"));
+   }
+}
@@ -0,0 +1,38 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks service methods which only read data (searches, reports, exports). All DAO calls made during
+ * such invocation are routed to the read-only persistence unit, see {@link ReadOnlyInterceptor}.
+ * The annotated methods should run in their own transaction (REQUIRES_NEW), so a transaction never
+ * spans both databases.
+ *
+ * @author agent (agent@local)
+ */
+@Retention(RUNTIME)
+@Target({METHOD, TYPE})
+@InterceptorBinding
+public @interface ReadOnly {
+
+}
@@ -0,0 +1,52 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Switches DAOs to the read-only persistence unit for the duration of a {@link ReadOnly} invocation.
+ * Nested invocations stay on the read-only unit until the outermost one finishes.
+ *
+ * @author agent (agent@local)
+ */
+@ReadOnly
+@Interceptor
+public class ReadOnlyInterceptor {
+
+   private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+   @AroundInvoke
+   public Object invoke(InvocationContext ctx) throws Exception {
+      if (isActive()) {
+         return ctx.proceed();
+      }
+      ACTIVE.set(Boolean.TRUE);
+      try {
+         return ctx.proceed();
+      } finally {
+         ACTIVE.remove();
+      }
+   }
+
+   /**
+    * @return true if the current thread is inside of a {@link ReadOnly} invocation
+    */
+   public static boolean isActive() {
+      return Boolean.TRUE.equals(ACTIVE.get());
+   }
+}
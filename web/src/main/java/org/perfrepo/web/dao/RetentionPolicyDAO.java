@@ -0,0 +1,40 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.dao;
+
+import org.perfrepo.model.RetentionPolicy;
+import org.perfrepo.model.Test;
+
+import javax.inject.Named;
+import java.util.List;
+
+/**
+ * DAO for {@link RetentionPolicy}
+ *
+ * @author agent (agent@local)
+ */
+@Named
+public class RetentionPolicyDAO extends DAO<RetentionPolicy, Long> {
+
+   public RetentionPolicy findByTest(Long testId) {
+      Test test = new Test();
+      test.setId(testId);
+      List<RetentionPolicy> policies = getAllByProperty("test", test);
+      if (policies.size() > 0) {
+         return policies.get(0);
+      }
+      return null;
+   }
+}
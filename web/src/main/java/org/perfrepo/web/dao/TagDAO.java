@@ -15,11 +15,16 @@
 package org.perfrepo.web.dao;
 
 import org.perfrepo.model.Tag;
+import org.perfrepo.model.Test;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.TestExecutionTag;
 
 import javax.inject.Named;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Root;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,19 +37,30 @@ import java.util.List;
 public class TagDAO extends DAO<Tag, Long> {
 
    public Tag findByName(String name) {
-      List<Tag> tags = getAllByProperty("name", name);
+      List<Tag> tags = findByNamedQuery(Tag.FIND_BY_NAME, Collections.<String, Object>singletonMap("name", name));
       if (tags.size() > 0) {
          return tags.get(0);
       }
       return null;
    }
 
-   public List<Tag> findByPrefix(String prefix) {
-      CriteriaQuery<Tag> criteria = createCriteria();
-      Root<Tag> root = criteria.from(Tag.class);
-      criteria.select(root);
+   /**
+    * Counts usages of tags in test executions, grouped by tag name and group of the test.
+    *
+    * @return list of triples [tag name, group id, number of test executions]
+    */
+   public List<Object[]> getTagUsageByGroup() {
       CriteriaBuilder cb = criteriaBuilder();
-      criteria.where(cb.like(cb.lower(root.<String>get("name")), prefix.toLowerCase() + "%"));
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+
+      Root<TestExecutionTag> rTestExecutionTag = criteria.from(TestExecutionTag.class);
+      Join<TestExecutionTag, Tag> rTag = rTestExecutionTag.join("tag");
+      Join<TestExecutionTag, TestExecution> rTestExecution = rTestExecutionTag.join("testExecution");
+      Join<TestExecution, Test> rTest = rTestExecution.join("test");
+
+      criteria.multiselect(rTag.get("name"), rTest.get("groupId"), cb.count(rTestExecutionTag));
+      criteria.groupBy(rTag.get("name"), rTest.get("groupId"));
+
       return query(criteria).getResultList();
    }
-}
\ No newline at end of file
+}
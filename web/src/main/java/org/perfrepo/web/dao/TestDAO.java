@@ -16,6 +16,7 @@ package org.perfrepo.web.dao;
 
 import org.perfrepo.model.Entity;
 import org.perfrepo.model.Test;
+import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.TestSearchTO;
 import org.perfrepo.model.userproperty.GroupFilter;
@@ -25,6 +26,8 @@ import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
@@ -108,17 +111,20 @@ public class TestDAO extends DAO<Test, Long> {
    }
 
    /**
-    * Retrieves tests that have provided prefix as a start of its UID.
+    * Counts test executions of every test.
     *
-    * @param prefix
-    * @return
+    * @return list of triples [test uid, group id, number of test executions]
     */
-   public List<Test> findByUIDPrefix(String prefix) {
-      CriteriaQuery<Test> criteria = createCriteria();
-      Root<Test> root = criteria.from(Test.class);
-      criteria.select(root);
+   public List<Object[]> getExecutionCounts() {
       CriteriaBuilder cb = criteriaBuilder();
-      criteria.where(cb.like(root.<String>get("uid"), prefix + "%"));
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+
+      Root<Test> root = criteria.from(Test.class);
+      Join<Test, TestExecution> rTestExecution = root.join("testExecutions", JoinType.LEFT);
+
+      criteria.multiselect(root.get("uid"), root.get("groupId"), cb.count(rTestExecution));
+      criteria.groupBy(root.get("uid"), root.get("groupId"));
+
       return query(criteria).getResultList();
    }
 
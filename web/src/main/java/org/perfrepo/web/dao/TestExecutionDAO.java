@@ -14,47 +14,72 @@
  */
 package org.perfrepo.web.dao;
 
+import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.perfrepo.model.Metric;
+import org.perfrepo.model.MetricComparator;
 import org.perfrepo.model.Tag;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.TestExecutionAttachment;
 import org.perfrepo.model.TestExecutionParameter;
+import org.perfrepo.model.TestExecutionSearchVector;
 import org.perfrepo.model.TestExecutionTag;
 import org.perfrepo.model.Value;
 import org.perfrepo.model.ValueParameter;
-import org.perfrepo.model.to.MetricReportTO;
+import org.perfrepo.model.to.MetricAggregateTO;
 import org.perfrepo.model.to.MultiValueResultWrapper;
 import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.ResultWrapper;
+import org.perfrepo.model.to.TestExecutionRowTO;
 import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.model.to.TestExecutionSearchTO.MetricCriteria;
 import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
 import org.perfrepo.model.userproperty.GroupFilter;
 import org.perfrepo.model.util.EntityUtils;
+import org.perfrepo.model.util.ParameterValues;
+import org.perfrepo.model.util.QuantileSketch;
+import org.perfrepo.model.util.RunningStatistics;
 import org.perfrepo.web.util.TagUtils;
+import org.perfrepo.web.util.TestExecutionExporter;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.persistence.EntityManager;
 import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.AbstractQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Order;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 import javax.persistence.criteria.Subquery;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -70,6 +95,21 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
    @Inject
    private TestExecutionParameterDAO testExecutionParameterDAO;
 
+   /**
+    * Maximum number of ids passed in one IN clause when fetching test executions in batches.
+    */
+   private static final int FETCH_BATCH_SIZE = 500;
+
+   /**
+    * Number of test executions read from the cursor and written at once when exporting.
+    */
+   private static final int EXPORT_BATCH_SIZE = 500;
+
+   /**
+    * Maximum length of test execution comment cut for search result rows, before markup is removed.
+    */
+   private static final int ROW_COMMENT_LENGTH = 512;
+
    private Integer lastQueryResultsCount = null;
 
    public List<TestExecution> getByTest(Long testId) {
@@ -98,6 +138,70 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       return query(resultQuery).getResultList();
    }
 
+   /**
+    * Returns start of the oldest test execution of the test started before the given time.
+    *
+    * @param testId
+    * @param before
+    * @return start of the oldest test execution or null when there is none
+    */
+   public Date getOldestStarted(Long testId, Date before) {
+      return entityManager().createQuery("SELECT MIN(te.started) FROM TestExecution te WHERE te.test.id = :testId AND te.started < :before", Date.class)
+          .setParameter("testId", testId)
+          .setParameter("before", before)
+          .getSingleResult();
+   }
+
+   /**
+    * Returns ids of the oldest test executions of the test started in the given interval.
+    *
+    * @param testId
+    * @param from inclusive
+    * @param to exclusive
+    * @param limit maximum number of ids
+    * @return ids of test executions ordered by start
+    */
+   public List<Long> getIdsStartedBetween(Long testId, Date from, Date to, int limit) {
+      return entityManager().createQuery("SELECT te.id FROM TestExecution te WHERE te.test.id = :testId AND te.started >= :from AND te.started < :to ORDER BY te.started, te.id", Long.class)
+          .setParameter("testId", testId)
+          .setParameter("from", from)
+          .setParameter("to", to)
+          .setMaxResults(limit)
+          .getResultList();
+   }
+
+   /**
+    * Removes test executions with all their values, parameters, tags, attachments and series points by bulk
+    * statements. Unlike removal of single test execution, managed entities and in-memory indexes aren't updated.
+    *
+    * @param ids ids of test executions, small enough to fit into one IN clause
+    * @return number of removed test executions
+    */
+   public int removeAll(Collection<Long> ids) {
+      if (ids.isEmpty()) {
+         return 0;
+      }
+      EntityManager em = entityManager();
+      em.flush();
+      em.createQuery("DELETE FROM ValueParameter vp WHERE vp.value.id IN (SELECT v.id FROM Value v WHERE v.testExecution.id IN :ids)")
+          .setParameter("ids", ids).executeUpdate();
+      em.createQuery("DELETE FROM MetricSeriesPoint p WHERE p.testExecutionId IN :ids")
+          .setParameter("ids", ids).executeUpdate();
+      em.createQuery("DELETE FROM Value v WHERE v.testExecution.id IN :ids")
+          .setParameter("ids", ids).executeUpdate();
+      em.createQuery("DELETE FROM TestExecutionParameter p WHERE p.testExecution.id IN :ids")
+          .setParameter("ids", ids).executeUpdate();
+      em.createQuery("DELETE FROM TestExecutionTag t WHERE t.testExecution.id IN :ids")
+          .setParameter("ids", ids).executeUpdate();
+      // contents of attachments are large objects, deleting the rows would leave them orphaned
+      em.createNativeQuery("SELECT lo_unlink(content) FROM test_execution_attachment WHERE test_execution_id IN (:ids)")
+          .setParameter("ids", ids).getResultList();
+      em.createQuery("DELETE FROM TestExecutionAttachment a WHERE a.testExecution.id IN :ids")
+          .setParameter("ids", ids).executeUpdate();
+      return em.createQuery("DELETE FROM TestExecution te WHERE te.id IN :ids")
+          .setParameter("ids", ids).executeUpdate();
+   }
+
    /**
     * Allows to search test executions by many complex criterias.
     *
@@ -108,36 +212,377 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
    public List<TestExecution> searchTestExecutions(TestExecutionSearchTO search, List<String> userGroups) {
       CriteriaBuilder cb = criteriaBuilder();
 
-      List<String> tags = TagUtils.parseTags(search.getTags() != null ? search.getTags().toLowerCase() : "");
-      List<String> excludedTags = new ArrayList<>();
-      List<String> includedTags = new ArrayList<>();
-      divideTags(tags, includedTags, excludedTags);
+      PreparedSearch prepared = prepareSearch(search);
 
-      lastQueryResultsCount = processSearchCountQuery(search, includedTags, excludedTags, userGroups);
+      lastQueryResultsCount = processSearchCountQuery(search, prepared.includedTags, prepared.excludedTags, userGroups);
+
+      List<Long> metricOrderIds = isMetricOrder(search) ? getTestExecutionIdsByMetric(search, prepared.includedTags, prepared.excludedTags, userGroups) : null;
+      if (metricOrderIds != null && metricOrderIds.isEmpty()) {
+         return new ArrayList<>();
+      }
 
-      CriteriaQuery<TestExecution> criteria = (CriteriaQuery) createSearchSubquery(cb.createQuery(TestExecution.class), search, includedTags, excludedTags);
+      CriteriaQuery<TestExecution> criteria = (CriteriaQuery) createSearchSubquery(cb.createQuery(TestExecution.class), search, prepared.includedTags, prepared.excludedTags);
       Root<TestExecution> root = (Root<TestExecution>) criteria.getRoots().toArray()[0];
       criteria.select(root);
       setOrderBy(criteria, search.getOrderBy(), root);
+      if (metricOrderIds != null) {
+         criteria.where(cb.and(criteria.getRestriction(), root.get("id").in(cb.parameter(List.class, "metricOrderIds"))));
+      }
 
       TypedQuery<TestExecution> query = query(criteria);
-      fillParameterValues(query, search, includedTags, excludedTags, userGroups);
+      fillParameterValues(query, search, prepared.includedTags, prepared.excludedTags, userGroups);
 
-      //handle pagination
-      int firstResult = search.getLimitFrom() == null ? 0 : search.getLimitFrom();
-      query.setFirstResult(firstResult);
-      if (search.getLimitHowMany() != null) {
-         query.setMaxResults(search.getLimitHowMany());
+      //handle pagination, test executions ordered by metric are already limited
+      if (metricOrderIds != null) {
+         query.setParameter("metricOrderIds", metricOrderIds);
+      } else {
+         int firstResult = search.getLimitFrom() == null ? 0 : search.getLimitFrom();
+         query.setFirstResult(firstResult);
+         if (search.getLimitHowMany() != null) {
+            query.setMaxResults(search.getLimitHowMany());
+         }
       }
 
       List<TestExecution> result = query.getResultList();
       List<TestExecution> clonedResult = EntityUtils.clone(result);
       filterResultByParameters(clonedResult, search);
       orderResultsByParameters(clonedResult, search);
+      if (metricOrderIds != null) {
+         sortByIds(clonedResult, metricOrderIds, TestExecution::getId);
+      }
 
       return clonedResult;
    }
 
+   /**
+    * Searches test executions by the same criteria as {@link #searchTestExecutions(TestExecutionSearchTO, List)},
+    * but instead of entities returns only the columns needed for result listings. Tags and values of the displayed
+    * parameters are retrieved by one additional query each.
+    *
+    * @param search
+    * @param userGroups
+    * @return search result rows
+    */
+   public List<TestExecutionRowTO> searchTestExecutionRows(TestExecutionSearchTO search, List<String> userGroups) {
+      PreparedSearch prepared = prepareSearch(search);
+
+      lastQueryResultsCount = processSearchCountQuery(search, prepared.includedTags, prepared.excludedTags, userGroups);
+
+      return getTestExecutionRows(search, userGroups);
+   }
+
+   /**
+    * Same as {@link #searchTestExecutionRows(TestExecutionSearchTO, List)}, but doesn't count all matching test
+    * executions. When ordered by date, test executions with equal start are ordered by id and the keyset cursor
+    * of the search criteria (afterStarted, afterId) is applied, so the pages can be retrieved without offset.
+    *
+    * @param search
+    * @param userGroups
+    * @return search result rows
+    */
+   public List<TestExecutionRowTO> getTestExecutionRows(TestExecutionSearchTO search, List<String> userGroups) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      PreparedSearch prepared = prepareSearch(search);
+
+      List<Long> metricOrderIds = isMetricOrder(search) ? getTestExecutionIdsByMetric(search, prepared.includedTags, prepared.excludedTags, userGroups) : null;
+      if (metricOrderIds != null && metricOrderIds.isEmpty()) {
+         return new ArrayList<>();
+      }
+
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+      Root<TestExecution> rExec = criteria.from(TestExecution.class);
+      Join<TestExecution, Test> rTest = rExec.join("test");
+
+      Subquery<Long> subquery = createSearchIdSubquery(criteria, search, prepared.includedTags, prepared.excludedTags);
+
+      // one row per test execution, tags are retrieved for the page afterwards, so nothing has to be grouped
+      criteria.multiselect(rExec.get("id"), rExec.get("name"), rExec.get("started"),
+                           cb.substring(rExec.<String>get("comment"), 1, ROW_COMMENT_LENGTH),
+                           rTest.get("id"), rTest.get("name"), rTest.get("uid"), rTest.get("groupId"));
+      Predicate pWhere = cb.and(cb.in(rExec.get("id")).value(subquery), createKeysetPredicate(search, rExec));
+      if (search.getOrderBy() == OrderBy.RELEVANCE && hasFullText(search)) {
+         Root<TestExecutionSearchVector> rVector = criteria.from(TestExecutionSearchVector.class);
+         pWhere = cb.and(pWhere, cb.equal(rVector.get("id"), rExec.get("id")));
+         Expression<Double> rank = cb.function(PerfRepoPostgreSQLDialect.FULL_TEXT_RANK, Double.class,
+                                               rVector.get("searchVector"), cb.parameter(String.class, "fullText"));
+         criteria.orderBy(cb.desc(rank), cb.desc(rExec.get("id")));
+      } else if (metricOrderIds != null) {
+         pWhere = cb.and(pWhere, rExec.get("id").in(cb.parameter(List.class, "metricOrderIds")));
+      } else {
+         setKeysetOrderBy(criteria, search.getOrderBy(), rExec);
+      }
+      criteria.where(pWhere);
+
+      TypedQuery<Object[]> query = query(criteria);
+      fillParameterValues(query, search, prepared.includedTags, prepared.excludedTags, userGroups);
+
+      //handle pagination, test executions ordered by metric are already limited
+      if (metricOrderIds != null) {
+         query.setParameter("metricOrderIds", metricOrderIds);
+      } else {
+         int firstResult = search.getLimitFrom() == null ? 0 : search.getLimitFrom();
+         query.setFirstResult(firstResult);
+         if (search.getLimitHowMany() != null) {
+            query.setMaxResults(search.getLimitHowMany());
+         }
+      }
+
+      List<Object[]> rows = query.getResultList();
+
+      Map<Long, List<String>> tagsByExecId = new HashMap<>();
+      if (!rows.isEmpty()) {
+         List<Long> execIds = rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+         List<Object[]> tagRows = entityManager().createQuery("SELECT tet.testExecution.id, t.name FROM TestExecutionTag tet JOIN tet.tag t "
+                                                                 + "WHERE tet.testExecution.id IN :ids ORDER BY t.name", Object[].class)
+             .setParameter("ids", execIds).getResultList();
+         for (Object[] tag : tagRows) {
+            tagsByExecId.computeIfAbsent((Long) tag[0], id -> new ArrayList<>()).add((String) tag[1]);
+         }
+      }
+
+      boolean orderByParameter = Arrays.asList(OrderBy.PARAMETER_ASC, OrderBy.PARAMETER_DESC, OrderBy.VERSION_ASC, OrderBy.VERSION_DESC)
+          .contains(search.getOrderBy());
+      List<String> fetchedParams = new ArrayList<>(prepared.displayedParams);
+      if (orderByParameter && !fetchedParams.contains(search.getOrderByParameter())) {
+         fetchedParams.add(search.getOrderByParameter());
+      }
+      Map<Long, Map<String, TestExecutionRowTO.Parameter>> paramsByExecId = new HashMap<>();
+      if (!fetchedParams.isEmpty() && !rows.isEmpty()) {
+         List<Long> execIds = rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+         for (Object[] param : testExecutionParameterDAO.findValues(execIds, fetchedParams)) {
+            TestExecutionRowTO.Parameter rowParam = new TestExecutionRowTO.Parameter((Long) param[1], (String) param[2], (String) param[3]);
+            paramsByExecId.computeIfAbsent((Long) param[0], id -> new HashMap<>()).put(rowParam.getName(), rowParam);
+         }
+      }
+
+      List<TestExecutionRowTO> result = new ArrayList<>(rows.size());
+      for (Object[] row : rows) {
+         Map<String, TestExecutionRowTO.Parameter> params = paramsByExecId.get((Long) row[0]);
+         result.add(new TestExecutionRowTO((Long) row[0], (String) row[1], (Date) row[2], toPlainText((String) row[3]), (Long) row[4],
+                                           (String) row[5], (String) row[6], (String) row[7], tagsByExecId.get((Long) row[0]),
+                                           params));
+      }
+
+      if (orderByParameter) {
+         int orderCoefficient = search.getOrderBy() == OrderBy.PARAMETER_ASC || search.getOrderBy() == OrderBy.VERSION_ASC ? 1 : -1;
+         Collections.sort(result, (o1, o2) -> {
+            String o1paramValue = o1.getParameterValue(search.getOrderByParameter());
+            if (o1paramValue == null) {
+               return orderCoefficient;
+            }
+            return orderCoefficient * performCompare(o1paramValue, o2.getParameterValue(search.getOrderByParameter()), search);
+         });
+      }
+      if (metricOrderIds != null) {
+         sortByIds(result, metricOrderIds, TestExecutionRowTO::getId);
+      }
+
+      return result;
+   }
+
+   /**
+    * Helper method. Finds ids of test executions matching the search criteria, ordered by the best (METRIC_BEST)
+    * or the worst (METRIC_WORST) value of the metric in the test execution. Which value is better follows
+    * the comparator of the metric. Only test executions having a value of the metric are returned, the limit
+    * of the search criteria is applied.
+    *
+    * @param search
+    * @param includedTags
+    * @param excludedTags
+    * @param userGroups
+    * @return ordered ids of test executions
+    */
+   private List<Long> getTestExecutionIdsByMetric(TestExecutionSearchTO search, List<String> includedTags, List<String> excludedTags, List<String> userGroups) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      CriteriaQuery<Long> criteria = cb.createQuery(Long.class);
+      Root<Value> rValue = criteria.from(Value.class);
+      Join<Value, Metric> rMetric = rValue.join("metric");
+      Path<Long> execId = rValue.<TestExecution>get("testExecution").<Long>get("id");
+      Path<Double> resultValue = rValue.get("resultValue");
+      // values of lower-better metrics are negated, so the higher score is always the better one
+      Expression<Double> score = cb.<Double>selectCase()
+          .when(cb.equal(rMetric.get("comparator"), MetricComparator.LB), cb.neg(resultValue))
+          .otherwise(resultValue);
+
+      Subquery<Long> subquery = createSearchIdSubquery(criteria, search, includedTags, excludedTags);
+      criteria.select(execId);
+      criteria.where(cb.and(cb.in(execId).value(subquery), cb.equal(rMetric.get("name"), cb.parameter(String.class, "orderByMetric")),
+                            createValueStartedPredicate(rValue, search)));
+      criteria.groupBy(execId);
+      if (search.getOrderBy() == OrderBy.METRIC_BEST) {
+         criteria.orderBy(cb.desc(cb.max(score)), cb.desc(execId));
+      } else {
+         criteria.orderBy(cb.asc(cb.min(score)), cb.desc(execId));
+      }
+
+      TypedQuery<Long> query = query(criteria);
+      fillParameterValues(query, search, includedTags, excludedTags, userGroups);
+      fillValueStartedParameters(query, search);
+      query.setParameter("orderByMetric", search.getOrderByMetric());
+      int firstResult = search.getLimitFrom() == null ? 0 : search.getLimitFrom();
+      query.setFirstResult(firstResult);
+      if (search.getLimitHowMany() != null) {
+         query.setMaxResults(search.getLimitHowMany());
+      }
+
+      return query.getResultList();
+   }
+
+   /**
+    * Helper method. Converts beginning of the comment to plain text. The comment is HTML and it's cut in the database,
+    * so the cut might end inside of a tag or an entity, which are removed. The result has to be escaped by the view.
+    *
+    * @param comment beginning of the comment
+    * @return plain text of the comment
+    */
+   private static String toPlainText(String comment) {
+      if (comment == null) {
+         return null;
+      }
+      String text = comment.replaceAll("<[^>]*(>|$)", " ").replaceAll("&[#a-zA-Z0-9]*$", "");
+      return StringEscapeUtils.unescapeHtml(text).replaceAll("\\s+", " ").trim();
+   }
+
+   /**
+    * Helper method. Decides whether test executions are ordered by value of a metric.
+    *
+    * @param search
+    * @return true if ordered by the best or the worst value of the metric
+    */
+   private boolean isMetricOrder(TestExecutionSearchTO search) {
+      return (search.getOrderBy() == OrderBy.METRIC_BEST || search.getOrderBy() == OrderBy.METRIC_WORST)
+          && search.getOrderByMetric() != null && !search.getOrderByMetric().isEmpty();
+   }
+
+   /**
+    * Helper method. Sorts the items in the order of their ids.
+    *
+    * @param items
+    * @param ids
+    * @param idFunction
+    */
+   private <T> void sortByIds(List<T> items, List<Long> ids, Function<T, Long> idFunction) {
+      Map<Long, Integer> positions = new HashMap<>();
+      for (int i = 0; i < ids.size(); i++) {
+         positions.put(ids.get(i), i);
+      }
+      Collections.sort(items, (o1, o2) -> Integer.compare(positions.get(idFunction.apply(o1)), positions.get(idFunction.apply(o2))));
+   }
+
+   /**
+    * Finds values of the metric in test executions found by the same criteria as
+    * {@link #getTestExecutionRows(TestExecutionSearchTO, List)}, including the keyset cursor. Only test executions
+    * having a value of the metric are considered and the limit applies to test executions, so all values
+    * of a test execution are always on the same page.
+    *
+    * @param search
+    * @param metricName
+    * @param userGroups
+    * @return rows of [test execution id, test execution start, metric name, value] in order of test executions
+    */
+   public List<Object[]> getMetricValues(TestExecutionSearchTO search, String metricName, List<String> userGroups) {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      PreparedSearch prepared = prepareSearch(search);
+
+      CriteriaQuery<Long> criteria = cb.createQuery(Long.class);
+      Root<TestExecution> rExec = criteria.from(TestExecution.class);
+
+      Subquery<Long> subquery = createSearchIdSubquery(criteria, search, prepared.includedTags, prepared.excludedTags);
+      Subquery<Long> metricSubquery = criteria.subquery(Long.class);
+      Root<Value> rValue = metricSubquery.from(Value.class);
+      metricSubquery.select(rValue.get("testExecution").<Long>get("id"));
+      metricSubquery.where(cb.equal(rValue.join("metric").get("name"), cb.parameter(String.class, "metricName")),
+                           createValueStartedPredicate(rValue, search));
+
+      criteria.select(rExec.<Long>get("id"));
+      criteria.where(cb.and(cb.in(rExec.get("id")).value(subquery), cb.in(rExec.get("id")).value(metricSubquery),
+                            createKeysetPredicate(search, rExec)));
+      setKeysetOrderBy(criteria, search.getOrderBy(), rExec);
+
+      TypedQuery<Long> query = query(criteria);
+      fillParameterValues(query, search, prepared.includedTags, prepared.excludedTags, userGroups);
+      fillValueStartedParameters(query, search);
+      query.setParameter("metricName", metricName);
+      query.setFirstResult(search.getLimitFrom() == null ? 0 : search.getLimitFrom());
+      if (search.getLimitHowMany() != null) {
+         query.setMaxResults(search.getLimitHowMany());
+      }
+
+      List<Long> execIds = query.getResultList();
+      if (execIds.isEmpty()) {
+         return new ArrayList<>();
+      }
+
+      List<Object[]> values = entityManager().createQuery("SELECT te.id, te.started, m.name, v.resultValue FROM Value v JOIN v.testExecution te JOIN v.metric m "
+                                                              + "WHERE te.id IN :ids AND m.name = :metricName ORDER BY v.id", Object[].class)
+          .setParameter("ids", execIds)
+          .setParameter("metricName", metricName)
+          .getResultList();
+      Map<Long, Integer> positions = new HashMap<>();
+      for (Long execId : execIds) {
+         positions.put(execId, positions.size());
+      }
+      values.sort((o1, o2) -> positions.get((Long) o1[0]).compareTo(positions.get((Long) o2[0])));
+      return values;
+   }
+
+   /**
+    * Exports test executions found by the same criteria as {@link #searchTestExecutions(TestExecutionSearchTO, List)}
+    * together with their tags, parameters and values. Test executions are read by a forward-only cursor, tags,
+    * parameters and values are retrieved for every {@link #EXPORT_BATCH_SIZE} test executions, which are written
+    * and flushed before reading further, so memory consumption doesn't depend on the number of test executions.
+    * Ordering by parameter values isn't supported, such test executions are ordered by start.
+    *
+    * @param search
+    * @param userGroups
+    * @param exporter
+    * @throws IOException
+    */
+   public void exportTestExecutions(TestExecutionSearchTO search, List<String> userGroups, TestExecutionExporter exporter) throws IOException {
+      CriteriaBuilder cb = criteriaBuilder();
+
+      PreparedSearch prepared = prepareSearch(search);
+
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+      Root<TestExecution> rExec = criteria.from(TestExecution.class);
+      Join<TestExecution, Test> rTest = rExec.join("test");
+
+      Subquery<Long> subquery = createSearchIdSubquery(criteria, search, prepared.includedTags, prepared.excludedTags);
+
+      criteria.multiselect(rExec.get("id"), rTest.get("uid"), rExec.get("name"), rExec.get("started"));
+      criteria.where(cb.in(rExec.get("id")).value(subquery));
+      setOrderBy(criteria, search.getOrderBy(), rExec);
+
+      TypedQuery<Object[]> query = query(criteria);
+      fillParameterValues(query, search, prepared.includedTags, prepared.excludedTags, userGroups);
+      query.setFirstResult(search.getLimitFrom() == null ? 0 : search.getLimitFrom());
+      if (search.getLimitHowMany() != null) {
+         query.setMaxResults(search.getLimitHowMany());
+      }
+
+      ScrollableResults cursor = query.unwrap(org.hibernate.Query.class)
+          .setFetchSize(EXPORT_BATCH_SIZE)
+          .setReadOnly(true)
+          .scroll(ScrollMode.FORWARD_ONLY);
+      try {
+         Map<Long, TestExecutionExporter.Row> batch = new LinkedHashMap<>();
+         while (cursor.next()) {
+            Object[] row = cursor.get();
+            batch.put((Long) row[0], new TestExecutionExporter.Row((Long) row[0], (String) row[1], (String) row[2], (Date) row[3]));
+            if (batch.size() == EXPORT_BATCH_SIZE) {
+               exportBatch(batch, exporter);
+               batch.clear();
+            }
+         }
+         exportBatch(batch, exporter);
+      } finally {
+         cursor.close();
+      }
+   }
+
    /**
     * Shortcut for getTestExecutions(tags, testUIDs, null, null)
     *
@@ -212,54 +657,77 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
 
    /**
     * Retrieves result values of the test executions assigned to specific metric.
-    * Behaviour on multi-value test execution in undefined
+    * Behaviour on multi-value test execution in undefined. The search criteria are applied directly
+    * in the value query, pagination criteria are ignored.
     *
     * @param search search criteria object
     * @param metric
     * @param userGroups
-    * @return
+    * @return values in order specified by the search criteria
     */
    public List<ResultWrapper> searchValues(TestExecutionSearchTO search, Metric metric, List<String> userGroups) {
       CriteriaBuilder cb = criteriaBuilder();
-      CriteriaQuery<ResultWrapper> criteriaQuery = cb.createQuery(ResultWrapper.class);
+      CriteriaQuery<Tuple> criteriaQuery = cb.createQuery(Tuple.class);
 
-      List<TestExecution> testExecutions = searchTestExecutions(search, userGroups);
-      List<Long> testExecutionIds = testExecutions.stream().map(TestExecution::getId).collect(Collectors.toList());
+      PreparedSearch prepared = prepareSearch(search);
 
       Root<TestExecution> testExecution = criteriaQuery.from(TestExecution.class);
       Join<TestExecution, Value> valueJoin = testExecution.join("values");
       Join<Value, Metric> metricJoin = valueJoin.join("metric");
 
       Predicate selectedMetric = cb.equal(metricJoin.get("id"), metric.getId());
-      Predicate selectedTestExecutions = testExecution.get("id").in(testExecutionIds);
+      Predicate selectedTestExecutions = cb.in(testExecution.get("id")).value(createSearchIdSubquery(criteriaQuery, search, prepared.includedTags, prepared.excludedTags));
+      SeriesOrder seriesOrder = new SeriesOrder(testExecution, search);
+
+      List<Selection<?>> selections = new ArrayList<>();
+      selections.add(valueJoin.get("resultValue").alias("resultValue"));
+      selections.add(testExecution.get("id").alias("execId"));
+      selections.add(testExecution.get("started").alias("started"));
+      seriesOrder.addSelection(selections);
+
+      List<Expression<?>> groupBy = new ArrayList<>();
+      groupBy.add(testExecution.get("id"));
+      groupBy.add(valueJoin.get("resultValue"));
+      groupBy.add(testExecution.get("started"));
+      groupBy.add(testExecution.get("name"));
+
+      criteriaQuery.multiselect(selections);
+      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions, createValueStartedPredicate(valueJoin, search)));
+      criteriaQuery.orderBy(seriesOrder.getOrders());
+      criteriaQuery.groupBy(groupBy);
 
-      criteriaQuery.select(cb.construct(ResultWrapper.class, valueJoin.get("resultValue"), testExecution.get("id"), testExecution.get("started")));
-      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions));
-      //TODO: this won't work correctly with ordering by parameter value, fix it according to searchMultiValues
-      //TODO: this will be fixed when re-doing Metric history report
-      criteriaQuery.orderBy(cb.asc(testExecution.get("started")));
-      criteriaQuery.groupBy(testExecution.get("id"), valueJoin.get("resultValue"), testExecution.get("started"));
+      TypedQuery<Tuple> query = query(criteriaQuery);
+      fillParameterValues(query, search, prepared.includedTags, prepared.excludedTags, userGroups);
+      fillValueStartedParameters(query, search);
+      seriesOrder.fillParameterValues(query);
 
-      TypedQuery<ResultWrapper> query = query(criteriaQuery);
+      List<ResultWrapper> result = new ArrayList<>();
+      Map<Long, String> sortValues = new HashMap<>();
+      for (Tuple tuple : query.getResultList()) {
+         Long execId = tuple.get("execId", Long.class);
+         result.add(new ResultWrapper(tuple.get("resultValue", Double.class), execId, tuple.get("started", Date.class)));
+         sortValues.put(execId, seriesOrder.getSortValue(tuple));
+      }
+      seriesOrder.sortByVersion(result, wrapper -> sortValues.get(wrapper.getExecId()));
 
-      return query.getResultList();
+      return result;
    }
 
    /**
     * Retrieves result multi-values of the test executions assigned to specific metric.
-    * Behaviour on singe-value test execution in undefined.
+    * Behaviour on singe-value test execution in undefined. The search criteria are applied directly
+    * in the value query, so the whole series is retrieved by one query, pagination criteria are ignored.
     *
     * @param search search criteria object
     * @param metric
     * @param userGroups
-    * @return
+    * @return values grouped by test execution, in order specified by the search criteria
     */
    public List<MultiValueResultWrapper> searchMultiValues(TestExecutionSearchTO search, Metric metric, List<String> userGroups) {
       CriteriaBuilder cb = criteriaBuilder();
       CriteriaQuery<Tuple> criteriaQuery = cb.createQuery(Tuple.class);
 
-      List<TestExecution> testExecutions = searchTestExecutions(search, userGroups);
-      List<Long> testExecutionIds = testExecutions.stream().map(TestExecution::getId).collect(Collectors.toList());
+      PreparedSearch prepared = prepareSearch(search);
 
       Root<TestExecution> testExecution = criteriaQuery.from(TestExecution.class);
       Join<TestExecution, Value> valueJoin = testExecution.join("values");
@@ -268,8 +736,9 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       Join<TestExecution, TestExecutionParameter> executionParameterJoin = null;
 
       Predicate selectedMetric = cb.equal(metricJoin.get("id"), metric.getId());
-      Predicate selectedTestExecutions = testExecution.get("id").in(testExecutionIds);
+      Predicate selectedTestExecutions = cb.in(testExecution.get("id")).value(createSearchIdSubquery(criteriaQuery, search, prepared.includedTags, prepared.excludedTags));
       Predicate labelParameter = cb.and();
+      SeriesOrder seriesOrder = new SeriesOrder(testExecution, search);
 
       Path<?> labelPath = testExecution.get("started");
 
@@ -279,57 +748,63 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
          labelPath = executionParameterJoin.get("value");
       }
 
-      criteriaQuery.multiselect(valueJoin.get("resultValue").alias("resultValue"),
-                                valueParameterJoin.get("name").alias("valueParameterName"),
-                                valueParameterJoin.get("paramValue").alias("valueParameterValue"),
-                                testExecution.get("id").alias("execId"),
-                                labelPath.alias("label")
-      );
-
-      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions, labelParameter));
-      criteriaQuery.orderBy(cb.asc(testExecution.get("started")));
-      criteriaQuery.groupBy(testExecution.get("id"), valueJoin.get("resultValue"), valueParameterJoin.get("name"), valueParameterJoin.get("paramValue"), labelPath);
+      List<Selection<?>> selections = new ArrayList<>();
+      selections.add(valueJoin.get("resultValue").alias("resultValue"));
+      selections.add(valueParameterJoin.get("name").alias("valueParameterName"));
+      selections.add(valueParameterJoin.get("paramValue").alias("valueParameterValue"));
+      selections.add(testExecution.get("id").alias("execId"));
+      selections.add(labelPath.alias("label"));
+      seriesOrder.addSelection(selections);
+
+      List<Expression<?>> groupBy = new ArrayList<>();
+      groupBy.add(testExecution.get("id"));
+      groupBy.add(valueJoin.get("resultValue"));
+      groupBy.add(valueParameterJoin.get("name"));
+      groupBy.add(valueParameterJoin.get("paramValue"));
+      groupBy.add(labelPath);
+      groupBy.add(testExecution.get("started"));
+      groupBy.add(testExecution.get("name"));
+
+      criteriaQuery.multiselect(selections);
+      criteriaQuery.where(cb.and(selectedMetric, selectedTestExecutions, labelParameter, createValueStartedPredicate(valueJoin, search)));
+      criteriaQuery.orderBy(seriesOrder.getOrders());
+      criteriaQuery.groupBy(groupBy);
 
       TypedQuery<Tuple> query = query(criteriaQuery);
-      List<Tuple> queryResult = query.getResultList();
-
-      Map<Long, MultiValueResultWrapper> unsortedResult = new HashMap<>();
+      fillParameterValues(query, search, prepared.includedTags, prepared.excludedTags, userGroups);
+      fillValueStartedParameters(query, search);
+      seriesOrder.fillParameterValues(query);
 
-      //this way of computing might seem strange, but is necessary. We need to keep ordering by
-      //test executions. However, retrieved tuples are one for every value. Therefore, we perform
+      //retrieved tuples are one for every value, but ordered by test executions. Therefore, we perform
       //something like "group by test execution ID" on the results and construct result wrappers.
-      for (Tuple tuple : queryResult) {
+      Map<Long, MultiValueResultWrapper> wrappersByExecId = new LinkedHashMap<>();
+      Map<Long, String> sortValues = new HashMap<>();
+      for (Tuple tuple : query.getResultList()) {
          Long execId = tuple.get("execId", Long.class);
 
-         unsortedResult.putIfAbsent(execId, new MultiValueResultWrapper(execId, tuple.get("label")));
+         MultiValueResultWrapper wrapper = wrappersByExecId.get(execId);
+         if (wrapper == null) {
+            wrapper = new MultiValueResultWrapper(execId, tuple.get("label"));
+            wrappersByExecId.put(execId, wrapper);
+            sortValues.put(execId, seriesOrder.getSortValue(tuple));
+         }
 
          String valueParameterName = tuple.get("valueParameterName", String.class);
          String valueParameterValue = tuple.get("valueParameterValue", String.class);
          Double resultValue = tuple.get("resultValue", Double.class);
 
-         unsortedResult.get(execId).addValue(valueParameterName, valueParameterValue, resultValue);
+         wrapper.addValue(valueParameterName, valueParameterValue, resultValue);
       }
 
-      //perform after-sort, the ResultWrappers have to be in the same order as retrieved test executions
-      List<MultiValueResultWrapper> finalSortedResult = new ArrayList<>();
-      testExecutions.stream().filter(execution -> unsortedResult.keySet().contains(execution.getId())).forEach(execution -> finalSortedResult.add(unsortedResult.get(execution.getId())));
+      List<MultiValueResultWrapper> result = new ArrayList<>(wrappersByExecId.values());
+      seriesOrder.sortByVersion(result, wrapper -> sortValues.get(wrapper.getExecId()));
 
-      return finalSortedResult;
+      return result;
    }
 
-   /**
-    * Finds all values used for computing MetricHistory report
-    *
-    * @param testId
-    * @param metricName
-    * @param tagList
-    * @param limitSize
-    * @return List of ResultWrapper objects
-    */
-   public List<MetricReportTO.DataPoint> searchValues(Long testId, String metricName, List<String> tagList, int limitSize) {
-      boolean useTags = tagList != null && !tagList.isEmpty();
+   public Double getValueForMetric(Long execId, String metricName) {
       CriteriaBuilder cb = criteriaBuilder();
-      CriteriaQuery<MetricReportTO.DataPoint> criteria = cb.createQuery(MetricReportTO.DataPoint.class);
+      CriteriaQuery<Double> criteria = cb.createQuery(Double.class);
       // test executions
       Root<TestExecution> rExec = criteria.from(TestExecution.class);
       // test joined via test exec.
@@ -340,70 +815,327 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       Join<Value, Metric> rMetric = rValue.join("metric");
       // test joined via metric
       Join<Metric, Test> rTestMetric = rMetric.join("testMetrics").join("test");
-      // tag
-      Join<TestExecution, Tag> rTag = null;
-      Predicate pTagNameInFixedList = cb.and(); // default for this predicate is true
-      Predicate pHavingAllTagsPresent = cb.and();
-      if (useTags) {
-         rTag = rExec.join("testExecutionTags").join("tag");
-         pTagNameInFixedList = rTag.get("name").in(cb.parameter(List.class, "tagList"));
-         pHavingAllTagsPresent = cb.ge(cb.count(rTag.get("id")), cb.parameter(Long.class, "tagListSize"));
-      }
 
       Predicate pMetricNameFixed = cb.equal(rMetric.get("name"), cb.parameter(String.class, "metricName"));
-      Predicate pTestFixed = cb.equal(rTestExec.get("id"), cb.parameter(Long.class, "testId"));
+      Predicate pExecFixed = cb.equal(rExec.get("id"), cb.parameter(Long.class, "execId"));
       Predicate pMetricFromSameTest = cb.equal(rTestMetric.get("id"), rTestExec.get("id"));
+      criteria.multiselect(rValue.get("resultValue"));
+      criteria.where(cb.and(pMetricNameFixed, pExecFixed, pMetricFromSameTest));
 
-      //sort by date
-      criteria.select(cb.construct(MetricReportTO.DataPoint.class, rExec.get("started"), rValue.get("resultValue"), rExec.get("id")));
-      criteria.where(cb.and(pMetricNameFixed, pTagNameInFixedList, pTestFixed, pMetricFromSameTest));
-      criteria.groupBy(rValue.get("resultValue"), rExec.get("id"), rExec.get("started"));
-      criteria.orderBy(cb.desc(rExec.get("started")));
+      TypedQuery<Double> query = query(criteria);
+      query.setParameter("execId", execId);
+      query.setParameter("metricName", metricName);
 
-      criteria.having(pHavingAllTagsPresent);
+      List<Double> r = query.getResultList();
+      if (r.isEmpty()) {
+         return null;
+      } else {
+         return r.get(0);
+      }
+   }
 
-      TypedQuery<MetricReportTO.DataPoint> query = query(criteria);
-      query.setParameter("testId", testId);
-      query.setParameter("metricName", metricName);
+   /**
+    * Aggregates values of the metric in test executions matching the search criteria. The aggregate is computed
+    * by the database, no test executions are loaded. If the limit of the search criteria is set, it's applied
+    * as LAST in alerting, i.e. counted from the newest value: limitFrom is the position of the oldest value
+    * of the window and limitHowMany is the size of the window. Only the values of the window are retrieved then.
+    * Works only for single-valued test executions.
+    *
+    * @param search
+    * @param metric
+    * @param userGroups
+    * @return aggregate of the values
+    */
+   public MetricAggregateTO aggregateMetricValues(TestExecutionSearchTO search, Metric metric, List<String> userGroups) {
+      PreparedSearch prepared = prepareSearch(search);
 
-      if (useTags) {
-         query.setParameter("tagList", tagList);
-         query.setParameter("tagListSize", new Long(tagList.size()));
+      if (search.getLimitFrom() == null || search.getLimitHowMany() == null) {
+         return aggregateAllMetricValues(search, metric, prepared.includedTags, prepared.excludedTags, userGroups);
       }
-      query.setMaxResults(limitSize);
-      return query.getResultList();
+
+      // the window can't be limited in a subquery, so the values of the window are retrieved and aggregated here
+      int offset = Math.max(search.getLimitFrom() - search.getLimitHowMany(), 0);
+      int windowSize = search.getLimitFrom() - offset;
+      List<ResultWrapper> values = new ArrayList<>();
+      if (windowSize > 0) {
+         values = findNewestMetricValues(search, metric, prepared.includedTags, prepared.excludedTags, offset, windowSize, userGroups);
+      }
+
+      long storedCount = offset + values.size();
+      if (values.isEmpty() && offset > 0) {
+         // the window is past the oldest value, the exact number of values is needed
+         storedCount = aggregateAllMetricValues(search, metric, prepared.includedTags, prepared.excludedTags, userGroups).getCount();
+      }
+
+      if (values.isEmpty()) {
+         return new MetricAggregateTO(0, null, null, null, storedCount);
+      }
+
+      double sum = 0;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      for (ResultWrapper value : values) {
+         sum += value.getValue();
+         min = Math.min(min, value.getValue());
+         max = Math.max(max, value.getValue());
+      }
+
+      return new MetricAggregateTO(values.size(), sum, min, max, storedCount);
    }
 
-   public Double getValueForMetric(Long execId, String metricName) {
+   /**
+    * Builds quantile sketch of the values of the metric in test executions matching the search criteria. The limit
+    * of the search criteria is applied the same way as by {@link #aggregateMetricValues(TestExecutionSearchTO, Metric, List)}.
+    * Ordered-set aggregates (e.g. percentile_cont) can't be expressed by JPA criteria, so only the values are
+    * retrieved by the database and they're streamed into the sketch without loading them all at once.
+    *
+    * @param search
+    * @param metric
+    * @param userGroups
+    * @return sketch of the values
+    */
+   public QuantileSketch sketchMetricValues(TestExecutionSearchTO search, Metric metric, List<String> userGroups) {
+      QuantileSketch sketch = new QuantileSketch();
+      streamMetricValues(search, metric, userGroups, sketch::add);
+      return sketch;
+   }
+
+   /**
+    * Computes mean and variance of the values of the metric in test executions matching the search criteria in one
+    * pass, the values are streamed the same way as by {@link #sketchMetricValues(TestExecutionSearchTO, Metric, List)}.
+    *
+    * @param search
+    * @param metric
+    * @param userGroups
+    * @return statistics of the values
+    */
+   public RunningStatistics summarizeMetricValues(TestExecutionSearchTO search, Metric metric, List<String> userGroups) {
+      RunningStatistics statistics = new RunningStatistics();
+      streamMetricValues(search, metric, userGroups, statistics::add);
+      return statistics;
+   }
+
+   /**
+    * Helper method. Passes the values of the metric in test executions matching the search criteria to the consumer,
+    * values of a LAST window are retrieved at once, other values are scrolled in batches.
+    *
+    * @param search
+    * @param metric
+    * @param userGroups
+    * @param consumer
+    */
+   private void streamMetricValues(TestExecutionSearchTO search, Metric metric, List<String> userGroups, DoubleConsumer consumer) {
+      PreparedSearch prepared = prepareSearch(search);
+
+      if (search.getLimitFrom() != null && search.getLimitHowMany() != null) {
+         int offset = Math.max(search.getLimitFrom() - search.getLimitHowMany(), 0);
+         int windowSize = search.getLimitFrom() - offset;
+         if (windowSize > 0) {
+            for (ResultWrapper value : findNewestMetricValues(search, metric, prepared.includedTags, prepared.excludedTags, offset, windowSize, userGroups)) {
+               consumer.accept(value.getValue());
+            }
+         }
+         return;
+      }
+
+      CriteriaQuery<Double> criteria = criteriaBuilder().createQuery(Double.class);
+      Root<Value> rValue = criteria.from(Value.class);
+      criteria.select(rValue.<Double>get("resultValue"));
+      criteria.where(createMetricValuePredicate(criteria, rValue, search, prepared.includedTags, prepared.excludedTags));
+
+      TypedQuery<Double> query = query(criteria);
+      fillMetricValueParameters(query, search, metric, prepared.includedTags, prepared.excludedTags, userGroups);
+
+      ScrollableResults cursor = query.unwrap(org.hibernate.Query.class)
+          .setFetchSize(EXPORT_BATCH_SIZE)
+          .setReadOnly(true)
+          .scroll(ScrollMode.FORWARD_ONLY);
+      try {
+         while (cursor.next()) {
+            consumer.accept(cursor.getDouble(0));
+         }
+      } finally {
+         cursor.close();
+      }
+   }
+
+   /**
+    * Retrieves the newest values of the metric in test executions matching the search criteria, the limit
+    * of the search criteria is ignored. Values are ordered by start of the test execution and then by its id,
+    * the newest first. Works only for single-valued test executions.
+    *
+    * @param search
+    * @param metric
+    * @param maxResults maximum number of values
+    * @param userGroups
+    * @return values, the newest first
+    */
+   public List<ResultWrapper> getNewestMetricValues(TestExecutionSearchTO search, Metric metric, int maxResults, List<String> userGroups) {
+      PreparedSearch prepared = prepareSearch(search);
+
+      return findNewestMetricValues(search, metric, prepared.includedTags, prepared.excludedTags, 0, maxResults, userGroups);
+   }
+
+   /**
+    * Passes all values of the metric in test executions matching the search criteria to the consumer, the oldest
+    * first, i.e. ordered by start of the test execution and then by its id. The limit of the search criteria
+    * is ignored. Values are scrolled in batches, so the whole history is never loaded at once.
+    * Works only for single-valued test executions.
+    *
+    * @param search
+    * @param metric
+    * @param userGroups
+    * @param consumer
+    */
+   public void scrollMetricValues(TestExecutionSearchTO search, Metric metric, List<String> userGroups, Consumer<ResultWrapper> consumer) {
+      PreparedSearch prepared = prepareSearch(search);
+
       CriteriaBuilder cb = criteriaBuilder();
-      CriteriaQuery<Double> criteria = cb.createQuery(Double.class);
-      // test executions
-      Root<TestExecution> rExec = criteria.from(TestExecution.class);
-      // test joined via test exec.
-      Join<TestExecution, Test> rTestExec = rExec.join("test");
-      // values
-      Join<TestExecution, Value> rValue = rExec.join("values");
-      // metrics
-      Join<Value, Metric> rMetric = rValue.join("metric");
-      // test joined via metric
-      Join<Metric, Test> rTestMetric = rMetric.join("testMetrics").join("test");
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+      Root<Value> rValue = criteria.from(Value.class);
+      Path<Long> execId = rValue.<TestExecution>get("testExecution").<Long>get("id");
+      criteria.multiselect(rValue.get("resultValue"), execId, rValue.get("started"));
+      criteria.where(createMetricValuePredicate(criteria, rValue, search, prepared.includedTags, prepared.excludedTags));
+      criteria.orderBy(cb.asc(rValue.get("started")), cb.asc(execId));
+
+      TypedQuery<Object[]> query = query(criteria);
+      fillMetricValueParameters(query, search, metric, prepared.includedTags, prepared.excludedTags, userGroups);
+
+      ScrollableResults cursor = query.unwrap(org.hibernate.Query.class)
+          .setFetchSize(EXPORT_BATCH_SIZE)
+          .setReadOnly(true)
+          .scroll(ScrollMode.FORWARD_ONLY);
+      try {
+         while (cursor.next()) {
+            consumer.accept(new ResultWrapper((Double) cursor.get(0), (Long) cursor.get(1), (Date) cursor.get(2)));
+         }
+      } finally {
+         cursor.close();
+      }
+   }
 
-      Predicate pMetricNameFixed = cb.equal(rMetric.get("name"), cb.parameter(String.class, "metricName"));
-      Predicate pExecFixed = cb.equal(rExec.get("id"), cb.parameter(Long.class, "execId"));
-      Predicate pMetricFromSameTest = cb.equal(rTestMetric.get("id"), rTestExec.get("id"));
-      criteria.multiselect(rValue.get("resultValue"));
-      criteria.where(cb.and(pMetricNameFixed, pExecFixed, pMetricFromSameTest));
+   /**
+    * Retrieves ids of test executions matching the search criteria that have value of the metric, the limit
+    * of the search criteria is ignored.
+    *
+    * @param search
+    * @param metric
+    * @param userGroups
+    * @return ids of the test executions
+    */
+   public Set<Long> getMetricValueExecIds(TestExecutionSearchTO search, Metric metric, List<String> userGroups) {
+      PreparedSearch prepared = prepareSearch(search);
+
+      CriteriaQuery<Long> criteria = criteriaBuilder().createQuery(Long.class);
+      Root<Value> rValue = criteria.from(Value.class);
+      criteria.select(rValue.<TestExecution>get("testExecution").<Long>get("id"));
+      criteria.where(createMetricValuePredicate(criteria, rValue, search, prepared.includedTags, prepared.excludedTags));
+
+      TypedQuery<Long> query = query(criteria);
+      fillMetricValueParameters(query, search, metric, prepared.includedTags, prepared.excludedTags, userGroups);
+
+      return new HashSet<>(query.getResultList());
+   }
+
+   /**
+    * Helper method. Retrieves the newest values of the metric in test executions matching the search criteria.
+    *
+    * @param search
+    * @param metric
+    * @param includedTags
+    * @param excludedTags
+    * @param offset number of the newest values to skip
+    * @param maxResults maximum number of values
+    * @param userGroups
+    * @return values, the newest first
+    */
+   private List<ResultWrapper> findNewestMetricValues(TestExecutionSearchTO search, Metric metric, List<String> includedTags, List<String> excludedTags,
+                                                      int offset, int maxResults, List<String> userGroups) {
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Tuple> criteria = cb.createQuery(Tuple.class);
+      Root<Value> rValue = criteria.from(Value.class);
+      Path<Long> execId = rValue.<TestExecution>get("testExecution").<Long>get("id");
+      criteria.multiselect(rValue.get("resultValue").alias("resultValue"), execId.alias("execId"), rValue.get("started").alias("started"));
+      criteria.where(createMetricValuePredicate(criteria, rValue, search, includedTags, excludedTags));
+      criteria.orderBy(cb.desc(rValue.get("started")), cb.desc(execId));
+
+      TypedQuery<Tuple> query = query(criteria);
+      fillMetricValueParameters(query, search, metric, includedTags, excludedTags, userGroups);
+      query.setFirstResult(offset);
+      query.setMaxResults(maxResults);
+
+      List<ResultWrapper> result = new ArrayList<>();
+      for (Tuple tuple : query.getResultList()) {
+         result.add(new ResultWrapper(tuple.get("resultValue", Double.class), tuple.get("execId", Long.class), tuple.get("started", Date.class)));
+      }
+
+      return result;
+   }
+
+   /**
+    * Helper method. Aggregates all values of the metric in test executions matching the search criteria
+    * by one aggregate query, the limit of the search criteria is ignored.
+    *
+    * @param search
+    * @param metric
+    * @param includedTags
+    * @param excludedTags
+    * @param userGroups
+    * @return aggregate of the values
+    */
+   private MetricAggregateTO aggregateAllMetricValues(TestExecutionSearchTO search, Metric metric, List<String> includedTags, List<String> excludedTags, List<String> userGroups) {
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+      Root<Value> rValue = criteria.from(Value.class);
+      Path<Double> resultValue = rValue.get("resultValue");
+      criteria.multiselect(cb.count(resultValue), cb.sum(resultValue), cb.min(resultValue), cb.max(resultValue));
+      criteria.where(createMetricValuePredicate(criteria, rValue, search, includedTags, excludedTags));
+
+      TypedQuery<Object[]> query = query(criteria);
+      fillMetricValueParameters(query, search, metric, includedTags, excludedTags, userGroups);
+
+      Object[] row = query.getSingleResult();
+      long count = (Long) row[0];
+      return new MetricAggregateTO(count, (Double) row[1], (Double) row[2], (Double) row[3], count);
+   }
 
-      TypedQuery<Double> query = query(criteria);
-      query.setParameter("execId", execId);
-      query.setParameter("metricName", metricName);
+   /**
+    * Helper method. Creates predicate matching values of the metric in test executions matching the search criteria,
+    * values without result are ignored. The values are restricted to the start range of the search, so only
+    * partitions of the range are scanned. A LAST window has no start range, it's found by the newest values
+    * of the whole history and it scans all partitions.
+    *
+    * @param criteria
+    * @param rValue
+    * @param search
+    * @param includedTags
+    * @param excludedTags
+    * @return predicate
+    */
+   private Predicate createMetricValuePredicate(CriteriaQuery<?> criteria, Root<Value> rValue, TestExecutionSearchTO search, List<String> includedTags, List<String> excludedTags) {
+      CriteriaBuilder cb = criteriaBuilder();
+      Subquery<Long> subquery = createSearchIdSubquery(criteria, search, includedTags, excludedTags);
+      return cb.and(cb.equal(rValue.get("metric").get("id"), cb.parameter(Long.class, "metricId")),
+                    cb.isNotNull(rValue.get("resultValue")),
+                    cb.in(rValue.get("testExecution").get("id")).value(subquery),
+                    createValueStartedPredicate(rValue, search));
+   }
 
-      List<Double> r = query.getResultList();
-      if (r.isEmpty()) {
-         return null;
-      } else {
-         return r.get(0);
-      }
+   /**
+    * Helper method. Fills parameters of
+    * {@link #createMetricValuePredicate(CriteriaQuery, Root, TestExecutionSearchTO, List, List)}.
+    *
+    * @param query
+    * @param search
+    * @param metric
+    * @param includedTags
+    * @param excludedTags
+    * @param userGroups
+    */
+   private void fillMetricValueParameters(TypedQuery<?> query, TestExecutionSearchTO search, Metric metric, List<String> includedTags, List<String> excludedTags, List<String> userGroups) {
+      fillParameterValues(query, search, includedTags, excludedTags, userGroups);
+      fillValueStartedParameters(query, search);
+      query.setParameter("metricId", metric.getId());
    }
 
    /**
@@ -454,6 +1186,50 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       criteria.orderBy(order);
    }
 
+   /**
+    * Helper method. Adds ordering to the query like {@link #setOrderBy(CriteriaQuery, OrderBy, Root)}, test
+    * executions ordered by date with equal start are further ordered by id, which makes the keyset cursor unambiguous.
+    *
+    * @param criteria
+    * @param orderBy
+    * @param root
+    */
+   private void setKeysetOrderBy(CriteriaQuery<?> criteria, OrderBy orderBy, Root<TestExecution> root) {
+      setOrderBy(criteria, orderBy, root);
+      if (orderBy == OrderBy.DATE_ASC || orderBy == OrderBy.DATE_DESC) {
+         CriteriaBuilder cb = criteriaBuilder();
+         List<Order> orders = new ArrayList<>(criteria.getOrderList());
+         orders.add(orderBy == OrderBy.DATE_ASC ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+         criteria.orderBy(orders);
+      }
+   }
+
+   /**
+    * Helper method. Creates predicate matching test executions ordered after the keyset cursor (afterStarted, afterId)
+    * of the search criteria. The cursor applies only to ordering by date, otherwise the predicate is always true.
+    *
+    * @param search
+    * @param root
+    * @return predicate
+    */
+   private Predicate createKeysetPredicate(TestExecutionSearchTO search, Root<TestExecution> root) {
+      CriteriaBuilder cb = criteriaBuilder();
+      if (search.getAfterStarted() == null || search.getAfterId() == null) {
+         return cb.and();
+      }
+
+      Path<Date> started = root.get("started");
+      Path<Long> id = root.get("id");
+      if (search.getOrderBy() == OrderBy.DATE_ASC) {
+         return cb.or(cb.greaterThan(started, search.getAfterStarted()),
+                      cb.and(cb.equal(started, search.getAfterStarted()), cb.greaterThan(id, search.getAfterId())));
+      } else if (search.getOrderBy() == OrderBy.DATE_DESC) {
+         return cb.or(cb.lessThan(started, search.getAfterStarted()),
+                      cb.and(cb.equal(started, search.getAfterStarted()), cb.lessThan(id, search.getAfterId())));
+      }
+      return cb.and();
+   }
+
    /**
     * Helper method. Creates a criteria query of Criteria API for searching of test executions. Because we also
     * sometimes need to limit the number of results and it's not possible to easily reuse the query for both
@@ -476,6 +1252,8 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       Predicate pTestUID = cb.and();
       Predicate pTestGroups = cb.and();
       Predicate pParamsMatch = cb.and();
+      Predicate pMetricsMatch = cb.and();
+      Predicate pFullText = cb.and();
       Predicate pHavingAllTagsPresent = cb.and();
 
       Root<TestExecution> rExec = criteria.from(TestExecution.class);
@@ -523,11 +1301,42 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
          for (int pCount = 1; pCount < search.getParameters().size() + 1; pCount++) {
             Join<TestExecution, TestExecutionParameter> rParam = rExec.join("parameters");
             pParamsMatch = cb.and(pParamsMatch, cb.equal(rParam.get("name"), cb.parameter(String.class, "paramName" + pCount)));
-            pParamsMatch = cb.and(pParamsMatch, cb.like(rParam.<String>get("value"), cb.parameter(String.class, "paramValue" + pCount)));
+            pParamsMatch = cb.and(pParamsMatch, createParamValuePredicate(cb, rParam, search.getParameters().get(pCount - 1), pCount));
+         }
+      }
+      if (search.getMetrics() != null && !search.getMetrics().isEmpty()) {
+         for (int mCount = 1; mCount < search.getMetrics().size() + 1; mCount++) {
+            MetricCriteria metricCriteria = search.getMetrics().get(mCount - 1);
+            Subquery<Long> sq = criteria.subquery(Long.class);
+            Root<Value> sqValue = sq.from(Value.class);
+            sq.select(sqValue.get("testExecution").<Long>get("id"));
+            Predicate pMetricValue = cb.equal(sqValue.join("metric").get("name"), cb.parameter(String.class, "metricName" + mCount));
+            if (metricCriteria.getValue() != null) {
+               pMetricValue = cb.and(pMetricValue, createComparisonPredicate(cb, sqValue.<Double>get("resultValue"), metricCriteria.getOperator(), "metricValue" + mCount));
+            }
+            // the same start range as of the test executions, filled by fillParameterValues
+            if (search.getStartedFrom() != null) {
+               pMetricValue = cb.and(pMetricValue, cb.greaterThanOrEqualTo(sqValue.<Date>get("started"), cb.parameter(Date.class, "startedFrom")));
+            }
+            if (search.getStartedTo() != null) {
+               pMetricValue = cb.and(pMetricValue, cb.lessThanOrEqualTo(sqValue.<Date>get("started"), cb.parameter(Date.class, "startedTo")));
+            }
+            sq.where(pMetricValue);
+
+            pMetricsMatch = cb.and(pMetricsMatch, rExec.get("id").in(sq));
          }
       }
+      if (hasFullText(search)) {
+         Subquery<Long> sq = criteria.subquery(Long.class);
+         Root<TestExecutionSearchVector> sqVector = sq.from(TestExecutionSearchVector.class);
+         sq.select(sqVector.<Long>get("id"));
+         sq.where(cb.isTrue(cb.function(PerfRepoPostgreSQLDialect.FULL_TEXT_MATCH, Boolean.class,
+                                        sqVector.get("searchVector"), cb.parameter(String.class, "fullText"))));
+
+         pFullText = rExec.get("id").in(sq);
+      }
       // construct query
-      criteria.where(cb.and(pIds, pStartedFrom, pStartedTo, pTagNameInFixedList, pExcludedTags, pTestName, pTestUID, pTestGroups, pParamsMatch));
+      criteria.where(cb.and(pIds, pStartedFrom, pStartedTo, pTagNameInFixedList, pExcludedTags, pTestName, pTestUID, pTestGroups, pParamsMatch, pMetricsMatch, pFullText));
       criteria.having(pHavingAllTagsPresent);
       // this isn't very elegant, but Postgres 8.4 doesn't allow GROUP BY only with id
       // this feature is allowed only since Postgres 9.1+
@@ -536,9 +1345,72 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       return criteria;
    }
 
+   /**
+    * Helper method. Decides whether the search criteria contain a full-text query.
+    *
+    * @param search
+    * @return true if the full-text query isn't empty
+    */
+   private boolean hasFullText(TestExecutionSearchTO search) {
+      return search.getFullText() != null && !search.getFullText().trim().isEmpty();
+   }
+
+   /**
+    * Helper method. Restricts values to the start range of the search. The value table is partitioned
+    * by the start of the test execution, the restriction lets the database skip partitions out of the range.
+    * Searches without start range scan all partitions.
+    *
+    * @param valueJoin
+    * @param search
+    * @return predicate
+    */
+   private Predicate createValueStartedPredicate(From<?, Value> valueJoin, TestExecutionSearchTO search) {
+      CriteriaBuilder cb = criteriaBuilder();
+      Predicate predicate = cb.and();
+      if (search.getStartedFrom() != null) {
+         predicate = cb.and(predicate, cb.greaterThanOrEqualTo(valueJoin.<Date>get("started"), cb.parameter(Date.class, "valueStartedFrom")));
+      }
+      if (search.getStartedTo() != null) {
+         predicate = cb.and(predicate, cb.lessThanOrEqualTo(valueJoin.<Date>get("started"), cb.parameter(Date.class, "valueStartedTo")));
+      }
+      return predicate;
+   }
+
+   /**
+    * Helper method. Fills parameters of {@link #createValueStartedPredicate(From, TestExecutionSearchTO)}.
+    *
+    * @param query
+    * @param search
+    */
+   private void fillValueStartedParameters(TypedQuery<?> query, TestExecutionSearchTO search) {
+      if (search.getStartedFrom() != null) {
+         query.setParameter("valueStartedFrom", search.getStartedFrom());
+      }
+      if (search.getStartedTo() != null) {
+         query.setParameter("valueStartedTo", search.getStartedTo());
+      }
+   }
+
+   /**
+    * Helper method. Creates subquery selecting ids of test executions matching the search criteria.
+    *
+    * @param criteriaQuery parent query
+    * @param search
+    * @param includedTags
+    * @param excludedTags
+    * @return subquery
+    */
+   private Subquery<Long> createSearchIdSubquery(AbstractQuery<?> criteriaQuery, TestExecutionSearchTO search, List<String> includedTags, List<String> excludedTags) {
+      Subquery<Long> subquery = (Subquery) createSearchSubquery(criteriaQuery.subquery(Long.class), search, includedTags, excludedTags);
+      Root<TestExecution> subqueryRoot = (Root<TestExecution>) subquery.getRoots().toArray()[0];
+      subquery.select(subqueryRoot.<Long>get("id"));
+      return subquery;
+   }
+
    /**
     * Helper method. During the search of test executions, if there is a limit set, we have to count
-    * the test executions suit the conditions.
+    * the test executions suit the conditions. When ordered by a metric, only test executions having a value
+    * of the metric are counted, the same as {@link #getTestExecutionIdsByMetric} returns.
     *
     * @param search
     * @param includedTags
@@ -549,13 +1421,30 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
    private Integer processSearchCountQuery(TestExecutionSearchTO search, List<String> includedTags, List<String> excludedTags, List<String> userGroups) {
       CriteriaBuilder cb = criteriaBuilder();
 
+      if (isMetricOrder(search)) {
+         CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+         Root<Value> rValue = countQuery.from(Value.class);
+         Join<Value, Metric> rMetric = rValue.join("metric");
+         Path<Long> execId = rValue.<TestExecution>get("testExecution").<Long>get("id");
+         countQuery.select(cb.countDistinct(execId));
+
+         Subquery<Long> subquery = createSearchIdSubquery(countQuery, search, includedTags, excludedTags);
+
+         countQuery.where(cb.and(cb.in(execId).value(subquery), cb.equal(rMetric.get("name"), cb.parameter(String.class, "orderByMetric")),
+                                 createValueStartedPredicate(rValue, search)));
+         TypedQuery<Long> typedCountQuery = query(countQuery);
+         fillParameterValues(typedCountQuery, search, includedTags, excludedTags, userGroups);
+         fillValueStartedParameters(typedCountQuery, search);
+         typedCountQuery.setParameter("orderByMetric", search.getOrderByMetric());
+
+         return typedCountQuery.getSingleResult().intValue();
+      }
+
       CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
       Root<TestExecution> root = countQuery.from(TestExecution.class);
       countQuery.select(cb.countDistinct(root));
 
-      Subquery<Long> subquery = (Subquery) createSearchSubquery(countQuery.subquery(Long.class), search, includedTags, excludedTags);
-      Root<TestExecution> subqueryRoot = (Root<TestExecution>) subquery.getRoots().toArray()[0];
-      subquery.select(subqueryRoot.<Long>get("id"));
+      Subquery<Long> subquery = createSearchIdSubquery(countQuery, search, includedTags, excludedTags);
 
       countQuery.where(cb.in(root.get("id")).value(subquery));
       TypedQuery<Long> typedCountQuery = query(countQuery);
@@ -574,24 +1463,10 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
     * @param search
     */
    private void filterResultByParameters(List<TestExecution> result, TestExecutionSearchTO search) {
-      List<String> displayedParams = null;
-      //go through the entered test parameters
-      //if the parameter doesn't have the value, add % as the value,
-      //i.e. check if the test execution has this parameter
-      if (search.getParameters() != null && !search.getParameters().isEmpty()) {
-         displayedParams = new ArrayList<String>(search.getParameters().size());
-         for (ParamCriteria pc : search.getParameters()) {
-            if (pc.isDisplayed()) {
-               displayedParams.add(pc.getName());
-            }
-            if (pc.getValue() == null || "".equals(pc.getValue().trim())) {
-               pc.setValue("%");
-            }
-         }
-      }
+      List<String> displayedParams = prepareParamCriteria(search);
 
       List<Long> execIds = EntityUtils.extractIds(result);
-      if (displayedParams != null && !displayedParams.isEmpty() && !execIds.isEmpty()) {
+      if (!displayedParams.isEmpty() && !execIds.isEmpty()) {
          List<TestExecutionParameter> allParams = testExecutionParameterDAO.find(execIds, displayedParams);
          Map<Long, List<TestExecutionParameter>> paramsByExecId = new HashMap<Long, List<TestExecutionParameter>>();
 
@@ -628,6 +1503,108 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       }
    }
 
+   /**
+    * Helper method. Creates the restriction of the parameter value. Pattern criteria match the string value,
+    * numeric criteria compare the parsed numeric value of the parameter, see {@link TestExecutionParameter#getNumericValue()}.
+    * Numeric criteria with value that isn't a number match nothing.
+    *
+    * @param cb
+    * @param rParam
+    * @param paramCriteria
+    * @param pCount index of the criteria, used in the names of the query parameters
+    * @return predicate on the parameter value
+    */
+   private Predicate createParamValuePredicate(CriteriaBuilder cb, Join<TestExecution, TestExecutionParameter> rParam, ParamCriteria paramCriteria, int pCount) {
+      if (!isNumericCriteria(paramCriteria)) {
+         return cb.like(rParam.<String>get("value"), cb.parameter(String.class, "paramValue" + pCount));
+      }
+      if (numericBounds(paramCriteria) == null) {
+         return cb.disjunction();
+      }
+      return createComparisonPredicate(cb, rParam.<Double>get("numericValue"), paramCriteria.getOperator(), "paramValue" + pCount);
+   }
+
+   /**
+    * Helper method. Creates numeric comparison of the path with query parameter of given name, BETWEEN uses
+    * also query parameter with suffix 'To' as the upper bound.
+    *
+    * @param cb
+    * @param path
+    * @param operator
+    * @param parameterName
+    * @return predicate
+    */
+   private Predicate createComparisonPredicate(CriteriaBuilder cb, Path<Double> path, ParamCriteria.Operator operator, String parameterName) {
+      Expression<Double> value = cb.parameter(Double.class, parameterName);
+      switch (operator) {
+         case EQ:
+            return cb.equal(path, value);
+         case LT:
+            return cb.lessThan(path, value);
+         case LE:
+            return cb.lessThanOrEqualTo(path, value);
+         case GT:
+            return cb.greaterThan(path, value);
+         case GE:
+            return cb.greaterThanOrEqualTo(path, value);
+         case BETWEEN:
+            return cb.between(path, value, cb.parameter(Double.class, parameterName + "To"));
+         default:
+            throw new IllegalArgumentException("Operator " + operator + " isn't a numeric comparison.");
+      }
+   }
+
+   /**
+    * Helper method. Numeric criteria without value only check that the test execution has the parameter,
+    * the same way as pattern criteria do.
+    *
+    * @param paramCriteria
+    * @return true if the criteria compares numeric value of the parameter
+    */
+   private boolean isNumericCriteria(ParamCriteria paramCriteria) {
+      return paramCriteria.isNumeric() && !"%".equals(paramCriteria.getValue());
+   }
+
+   /**
+    * Helper method. Parses bounds of numeric criteria.
+    *
+    * @param paramCriteria
+    * @return lower (or the only) bound and upper bound, null if some of the required bounds isn't a number
+    */
+   private Double[] numericBounds(ParamCriteria paramCriteria) {
+      Double from = ParameterValues.parseNumber(paramCriteria.getValue());
+      Double to = null;
+      if (paramCriteria.getOperator() == ParamCriteria.Operator.BETWEEN) {
+         to = ParameterValues.parseNumber(paramCriteria.getValueTo());
+         if (to == null) {
+            return null;
+         }
+      }
+      return from == null ? null : new Double[] {from, to};
+   }
+
+   /**
+    * Helper method. Goes through the entered test parameters, if the parameter doesn't have the value,
+    * adds % as the value, i.e. checks only if the test execution has this parameter.
+    *
+    * @param search
+    * @return names of parameters that should be displayed
+    */
+   private List<String> prepareParamCriteria(TestExecutionSearchTO search) {
+      List<String> displayedParams = new ArrayList<>();
+      if (search.getParameters() != null) {
+         for (ParamCriteria pc : search.getParameters()) {
+            if (pc.isDisplayed()) {
+               displayedParams.add(pc.getName());
+            }
+            if (pc.getValue() == null || "".equals(pc.getValue().trim())) {
+               pc.setValue("%");
+            }
+         }
+      }
+      return displayedParams;
+   }
+
    /**
     * Performs ordering on test executions by values of specified parameter.
     *
@@ -752,14 +1729,40 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       if (GroupFilter.MY_GROUPS.equals(search.getGroupFilter())) {
          query.setParameter("groupNames", userGroups);
       }
+      if (hasFullText(search)) {
+         query.setParameter("fullText", search.getFullText().trim());
+      }
       if (search.getParameters() != null && !search.getParameters().isEmpty()) {
          int pCount = 1;
          for (ParamCriteria paramCriteria : search.getParameters()) {
             query.setParameter("paramName" + pCount, paramCriteria.getName());
-            query.setParameter("paramValue" + pCount, paramCriteria.getValue());
+            if (!isNumericCriteria(paramCriteria)) {
+               query.setParameter("paramValue" + pCount, paramCriteria.getValue());
+            } else {
+               Double[] bounds = numericBounds(paramCriteria);
+               if (bounds != null) {
+                  query.setParameter("paramValue" + pCount, bounds[0]);
+                  if (paramCriteria.getOperator() == ParamCriteria.Operator.BETWEEN) {
+                     query.setParameter("paramValue" + pCount + "To", bounds[1]);
+                  }
+               }
+            }
             pCount++;
          }
       }
+      if (search.getMetrics() != null && !search.getMetrics().isEmpty()) {
+         int mCount = 1;
+         for (MetricCriteria metricCriteria : search.getMetrics()) {
+            query.setParameter("metricName" + mCount, metricCriteria.getName());
+            if (metricCriteria.getValue() != null) {
+               query.setParameter("metricValue" + mCount, metricCriteria.getValue());
+               if (metricCriteria.getOperator() == ParamCriteria.Operator.BETWEEN) {
+                  query.setParameter("metricValue" + mCount + "To", metricCriteria.getValueTo());
+               }
+            }
+            mCount++;
+         }
+      }
    }
 
    /**
@@ -783,6 +1786,97 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       return query;
    }
 
+   /**
+    * Helper method. Fills tags, parameters and values of the exported test executions and writes them.
+    *
+    * @param batch exported test executions by id
+    * @param exporter
+    * @throws IOException
+    */
+   private void exportBatch(Map<Long, TestExecutionExporter.Row> batch, TestExecutionExporter exporter) throws IOException {
+      if (batch.isEmpty()) {
+         return;
+      }
+      EntityManager em = entityManager();
+      Collection<Long> ids = batch.keySet();
+      // values are partitioned by start of the test execution, the range limits the scanned partitions
+      Date minStarted = null;
+      Date maxStarted = null;
+      for (TestExecutionExporter.Row row : batch.values()) {
+         if (minStarted == null || row.getStarted().before(minStarted)) {
+            minStarted = row.getStarted();
+         }
+         if (maxStarted == null || row.getStarted().after(maxStarted)) {
+            maxStarted = row.getStarted();
+         }
+      }
+
+      List<Object[]> tagRows = em.createQuery("SELECT tet.testExecution.id, t.name FROM TestExecutionTag tet JOIN tet.tag t "
+                                                  + "WHERE tet.testExecution.id IN :ids ORDER BY t.name", Object[].class)
+          .setParameter("ids", ids).getResultList();
+      for (Object[] tag : tagRows) {
+         batch.get((Long) tag[0]).getTags().add((String) tag[1]);
+      }
+
+      List<Object[]> parameterRows = em.createQuery("SELECT p.testExecution.id, p.name, p.value FROM TestExecutionParameter p "
+                                                        + "WHERE p.testExecution.id IN :ids ORDER BY p.name", Object[].class)
+          .setParameter("ids", ids).getResultList();
+      for (Object[] parameter : parameterRows) {
+         batch.get((Long) parameter[0]).getParameters().put((String) parameter[1], (String) parameter[2]);
+      }
+
+      Map<Long, TestExecutionExporter.Value> valuesById = new HashMap<>();
+      List<Object[]> valueRows = em.createQuery("SELECT v.id, v.testExecution.id, m.name, v.resultValue FROM Value v JOIN v.metric m "
+                                                    + "WHERE v.testExecution.id IN :ids AND v.started BETWEEN :minStarted AND :maxStarted "
+                                                    + "ORDER BY m.name, v.id", Object[].class)
+          .setParameter("ids", ids)
+          .setParameter("minStarted", minStarted)
+          .setParameter("maxStarted", maxStarted)
+          .getResultList();
+      for (Object[] value : valueRows) {
+         TestExecutionExporter.Value exportedValue = new TestExecutionExporter.Value((String) value[2], (Double) value[3]);
+         batch.get((Long) value[1]).getValues().add(exportedValue);
+         valuesById.put((Long) value[0], exportedValue);
+      }
+
+      if (!valuesById.isEmpty()) {
+         List<Object[]> valueParameterRows = em.createQuery("SELECT vp.value.id, vp.name, vp.paramValue FROM ValueParameter vp "
+                                                                + "WHERE vp.started BETWEEN :minStarted AND :maxStarted "
+                                                                + "AND vp.value.id IN (SELECT v.id FROM Value v WHERE v.testExecution.id IN :ids "
+                                                                + "AND v.started BETWEEN :minStarted AND :maxStarted) "
+                                                                + "ORDER BY vp.name", Object[].class)
+             .setParameter("ids", ids)
+             .setParameter("minStarted", minStarted)
+             .setParameter("maxStarted", maxStarted)
+             .getResultList();
+         for (Object[] valueParameter : valueParameterRows) {
+            valuesById.get((Long) valueParameter[0]).getParameters().put((String) valueParameter[1], (String) valueParameter[2]);
+         }
+      }
+
+      for (TestExecutionExporter.Row row : batch.values()) {
+         exporter.write(row);
+      }
+      exporter.flush();
+   }
+
+   /**
+    * Helper method. Prepares the search criteria for a query, i.e. divides the tags of the search criteria
+    * to included and excluded tags and fills missing values of the parameter criteria,
+    * see {@link #prepareParamCriteria(TestExecutionSearchTO)}.
+    *
+    * @param search
+    * @return included and excluded tags and names of the displayed parameters
+    */
+   private PreparedSearch prepareSearch(TestExecutionSearchTO search) {
+      PreparedSearch prepared = new PreparedSearch();
+      List<String> tags = TagUtils.parseTags(search.getTags() != null ? search.getTags().toLowerCase() : "");
+      divideTags(tags, prepared.includedTags, prepared.excludedTags);
+      prepared.displayedParams = prepareParamCriteria(search);
+
+      return prepared;
+   }
+
    /**
     * Helper method. Divides the list of tags to two groups - included and excluded tags. Excluded tags have
     * prefix '-'. Divides and stores it into the parameters.
@@ -808,6 +1902,243 @@ public class TestExecutionDAO extends DAO<TestExecution, Long> {
       }
    }
 
+   /**
+    * Helper class. Search criteria prepared by {@link #prepareSearch(TestExecutionSearchTO)}.
+    */
+   private static class PreparedSearch {
+
+      private final List<String> includedTags = new ArrayList<>();
+      private final List<String> excludedTags = new ArrayList<>();
+      private List<String> displayedParams;
+   }
+
+   /**
+    * Helper class. Ordering of chart series according to the search criteria. Ordering by date, name and parameter
+    * value is done by the database. Ordering by version can't be expressed in SQL, so the value of the version
+    * parameter is retrieved along with the values and the series is sorted afterwards. Test executions without
+    * the parameter are kept and ordered last.
+    */
+   private class SeriesOrder {
+
+      private final TestExecutionSearchTO search;
+      private final List<Order> orders = new ArrayList<>();
+      private Expression<String> sortValue;
+
+      private SeriesOrder(Root<TestExecution> rExec, TestExecutionSearchTO search) {
+         CriteriaBuilder cb = criteriaBuilder();
+         this.search = search;
+
+         if (isParameterOrder() || isVersionOrder()) {
+            // JPA 2.0 can't restrict the outer join itself, so the value of the parameter is picked from all
+            // joined parameters by aggregation, the rows of one value are grouped anyway
+            Join<TestExecution, TestExecutionParameter> rSortParam = rExec.join("parameters", JoinType.LEFT);
+            Expression<String> paramValue = cb.<String>selectCase()
+                .when(cb.equal(rSortParam.get("name"), cb.parameter(String.class, "orderByParameter")), rSortParam.<String>get("value"))
+                .otherwise(cb.nullLiteral(String.class));
+            sortValue = cb.greatest(paramValue);
+         }
+         if (isParameterOrder()) {
+            orders.add(cb.asc(cb.<Integer>selectCase().when(cb.isNull(sortValue), 1).otherwise(0)));
+         }
+
+         switch (search.getOrderBy()) {
+            case DATE_DESC:
+               orders.add(cb.desc(rExec.get("started")));
+               break;
+            case NAME_ASC:
+               orders.add(cb.asc(rExec.get("name")));
+               break;
+            case NAME_DESC:
+               orders.add(cb.desc(rExec.get("name")));
+               break;
+            case PARAMETER_ASC:
+               orders.add(cb.asc(sortValue));
+               break;
+            case PARAMETER_DESC:
+               orders.add(cb.desc(sortValue));
+               break;
+            default:
+               orders.add(cb.asc(rExec.get("started")));
+         }
+         // keeps rows of one test execution together
+         orders.add(cb.asc(rExec.get("id")));
+      }
+
+      private boolean isParameterOrder() {
+         return search.getOrderBy() == OrderBy.PARAMETER_ASC || search.getOrderBy() == OrderBy.PARAMETER_DESC;
+      }
+
+      private boolean isVersionOrder() {
+         return search.getOrderBy() == OrderBy.VERSION_ASC || search.getOrderBy() == OrderBy.VERSION_DESC;
+      }
+
+      private List<Order> getOrders() {
+         return orders;
+      }
+
+      private void addSelection(List<Selection<?>> selections) {
+         if (sortValue != null) {
+            selections.add(sortValue.alias("sortValue"));
+         }
+      }
+
+      private void fillParameterValues(TypedQuery<?> query) {
+         if (sortValue != null) {
+            query.setParameter("orderByParameter", search.getOrderByParameter());
+         }
+      }
+
+      private String getSortValue(Tuple tuple) {
+         return sortValue == null ? null : tuple.get("sortValue", String.class);
+      }
+
+      private <T> void sortByVersion(List<T> items, Function<T, String> sortValue) {
+         if (!isVersionOrder()) {
+            return;
+         }
+         int orderCoefficient = search.getOrderBy() == OrderBy.VERSION_ASC ? 1 : -1;
+         Collections.sort(items, (o1, o2) -> {
+            String version1 = sortValue.apply(o1);
+            String version2 = sortValue.apply(o2);
+            if (version1 == null || version2 == null) {
+               return version1 == null ? (version2 == null ? 0 : 1) : -1;
+            }
+            return orderCoefficient * new DefaultArtifactVersion(version1).compareTo(new DefaultArtifactVersion(version2));
+         });
+      }
+   }
+
+   /**
+    * Retrieves detached clones of test executions with test, parameters, tags, values (with their parameters)
+    * and attachments fetched. Instead of navigating the relationships of every test execution, each association
+    * is loaded by one query for the whole batch of ids and the clones are assembled in memory, so the number
+    * of queries doesn't depend on the number of test executions.
+    *
+    * @param ids
+    * @return test executions in order of the ids, non-existing ids are skipped
+    */
+   public List<TestExecution> getFullTestExecutions(Collection<Long> ids) {
+      List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+      Map<Long, TestExecution> clones = new HashMap<>();
+      for (int from = 0; from < distinctIds.size(); from += FETCH_BATCH_SIZE) {
+         List<Long> batch = distinctIds.subList(from, Math.min(from + FETCH_BATCH_SIZE, distinctIds.size()));
+         clones.putAll(fetchFullTestExecutions(batch));
+      }
+
+      List<TestExecution> result = new ArrayList<>(ids.size());
+      for (Long id : ids) {
+         TestExecution clone = clones.get(id);
+         if (clone != null) {
+            result.add(clone);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Helper method. Loads one batch of test executions with all associations, using one query per association.
+    *
+    * @param ids
+    * @return map of test execution clones by their id
+    */
+   private Map<Long, TestExecution> fetchFullTestExecutions(List<Long> ids) {
+      CriteriaBuilder cb = criteriaBuilder();
+      Map<Long, TestExecution> clones = new LinkedHashMap<>();
+
+      CriteriaQuery<TestExecution> execCriteria = cb.createQuery(TestExecution.class);
+      Root<TestExecution> rExec = execCriteria.from(TestExecution.class);
+      rExec.fetch("test");
+      execCriteria.select(rExec).where(rExec.get("id").in(cb.parameter(List.class, "ids")));
+      for (TestExecution exec : query(execCriteria).setParameter("ids", ids).getResultList()) {
+         TestExecution clone = fetchTest(exec.clone());
+         clone.setParameters(new ArrayList<>());
+         clone.setTestExecutionTags(new ArrayList<>());
+         clone.setValues(new ArrayList<>());
+         clone.setAttachments(new ArrayList<>());
+         clones.put(clone.getId(), clone);
+      }
+      if (clones.isEmpty()) {
+         return clones;
+      }
+      // values are partitioned by start of the test execution, the range limits the scanned partitions
+      Date minStarted = null;
+      Date maxStarted = null;
+      for (TestExecution clone : clones.values()) {
+         if (minStarted == null || clone.getStarted().before(minStarted)) {
+            minStarted = clone.getStarted();
+         }
+         if (maxStarted == null || clone.getStarted().after(maxStarted)) {
+            maxStarted = clone.getStarted();
+         }
+      }
+
+      CriteriaQuery<TestExecutionParameter> paramCriteria = cb.createQuery(TestExecutionParameter.class);
+      Root<TestExecutionParameter> rParam = paramCriteria.from(TestExecutionParameter.class);
+      paramCriteria.select(rParam).where(rParam.get("testExecution").get("id").in(cb.parameter(List.class, "ids")));
+      for (TestExecutionParameter param : query(paramCriteria).setParameter("ids", ids).getResultList()) {
+         TestExecution exec = clones.get(param.getTestExecution().getId());
+         TestExecutionParameter paramClone = param.clone();
+         paramClone.setTestExecution(exec);
+         exec.getParameters().add(paramClone);
+      }
+
+      CriteriaQuery<TestExecutionTag> tagCriteria = cb.createQuery(TestExecutionTag.class);
+      Root<TestExecutionTag> rTag = tagCriteria.from(TestExecutionTag.class);
+      rTag.fetch("tag");
+      tagCriteria.select(rTag).where(rTag.get("testExecution").get("id").in(cb.parameter(List.class, "ids")));
+      for (TestExecutionTag testExecutionTag : query(tagCriteria).setParameter("ids", ids).getResultList()) {
+         TestExecution exec = clones.get(testExecutionTag.getTestExecution().getId());
+         TestExecutionTag tagClone = testExecutionTag.cloneWithTag();
+         tagClone.setTestExecution(exec);
+         exec.getTestExecutionTags().add(tagClone);
+      }
+
+      CriteriaQuery<Value> valueCriteria = cb.createQuery(Value.class);
+      Root<Value> rValue = valueCriteria.from(Value.class);
+      rValue.fetch("metric");
+      valueCriteria.select(rValue).where(rValue.get("testExecution").get("id").in(cb.parameter(List.class, "ids")),
+                                         cb.between(rValue.<Date>get("started"), cb.parameter(Date.class, "minStarted"), cb.parameter(Date.class, "maxStarted")));
+      TypedQuery<Value> valueQuery = query(valueCriteria).setParameter("ids", ids)
+          .setParameter("minStarted", minStarted)
+          .setParameter("maxStarted", maxStarted);
+      Map<Long, Value> valueClones = new HashMap<>();
+      for (Value value : valueQuery.getResultList()) {
+         TestExecution exec = clones.get(value.getTestExecution().getId());
+         Value valueClone = value.clone();
+         valueClone.setTestExecution(exec);
+         valueClone.setParameters(new ArrayList<>());
+         exec.getValues().add(valueClone);
+         valueClones.put(valueClone.getId(), valueClone);
+      }
+
+      if (!valueClones.isEmpty()) {
+         CriteriaQuery<ValueParameter> valueParamCriteria = cb.createQuery(ValueParameter.class);
+         Root<ValueParameter> rValueParam = valueParamCriteria.from(ValueParameter.class);
+         valueParamCriteria.select(rValueParam)
+             .where(rValueParam.get("value").get("testExecution").get("id").in(cb.parameter(List.class, "ids")),
+                    cb.between(rValueParam.<Date>get("started"), cb.parameter(Date.class, "minStarted"), cb.parameter(Date.class, "maxStarted")));
+         TypedQuery<ValueParameter> valueParamQuery = query(valueParamCriteria).setParameter("ids", ids)
+             .setParameter("minStarted", minStarted)
+             .setParameter("maxStarted", maxStarted);
+         for (ValueParameter valueParam : valueParamQuery.getResultList()) {
+            Value valueClone = valueClones.get(valueParam.getValue().getId());
+            ValueParameter valueParamClone = valueParam.clone();
+            valueParamClone.setValue(valueClone);
+            valueClone.getParameters().add(valueParamClone);
+         }
+      }
+
+      CriteriaQuery<TestExecutionAttachment> attachmentCriteria = cb.createQuery(TestExecutionAttachment.class);
+      Root<TestExecutionAttachment> rAttachment = attachmentCriteria.from(TestExecutionAttachment.class);
+      attachmentCriteria.select(rAttachment)
+          .where(rAttachment.get("testExecution").get("id").in(cb.parameter(List.class, "ids")));
+      for (TestExecutionAttachment attachment : query(attachmentCriteria).setParameter("ids", ids).getResultList()) {
+         clones.get(attachment.getTestExecution().getId()).getAttachments().add(attachment.clone());
+      }
+
+      return clones;
+   }
+
    /**
     * Fetch test via JPA relationship.
     *
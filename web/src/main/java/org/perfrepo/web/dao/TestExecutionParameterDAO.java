@@ -14,6 +14,7 @@
  */
 package org.perfrepo.web.dao;
 
+import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.TestExecutionParameter;
 
@@ -95,20 +96,47 @@ public class TestExecutionParameterDAO extends DAO<TestExecutionParameter, Long>
    }
 
    /**
-    * Finds all test execution parameters with matching prefix
+    * Retrieves values of specified parameters of specified test executions without loading the entities.
     *
-    * @param prefix
-    * @return
+    * @param execIdList
+    * @param paramNameList
+    * @return list of quadruples [test execution id, parameter id, parameter name, parameter value]
     */
-   public List<TestExecutionParameter> findByPrefix(String prefix) {
+   public List<Object[]> findValues(List<Long> execIdList, List<String> paramNameList) {
       CriteriaBuilder cb = criteriaBuilder();
-      CriteriaQuery<TestExecutionParameter> criteria = cb.createQuery(TestExecutionParameter.class);
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
+
+      Root<TestExecutionParameter> rParam = criteria.from(TestExecutionParameter.class);
+
+      Predicate pParamNameInList = rParam.get("name").in(cb.parameter(List.class, "paramNameList"));
+      Predicate pExecIdInList = rParam.get("testExecution").get("id").in(cb.parameter(List.class, "execIdList"));
+
+      criteria.multiselect(rParam.get("testExecution").get("id"), rParam.get("id"), rParam.get("name"), rParam.get("value"));
+      criteria.where(cb.and(pParamNameInList, pExecIdInList));
+
+      TypedQuery<Object[]> query = query(criteria);
+      query.setParameter("paramNameList", paramNameList);
+      query.setParameter("execIdList", execIdList);
+
+      return query.getResultList();
+   }
+
+   /**
+    * Counts usages of parameter names in test executions, grouped by parameter name and group of the test.
+    *
+    * @return list of triples [parameter name, group id, number of test executions]
+    */
+   public List<Object[]> getParameterNameUsageByGroup() {
+      CriteriaBuilder cb = criteriaBuilder();
+      CriteriaQuery<Object[]> criteria = cb.createQuery(Object[].class);
 
-      Root<TestExecutionParameter> testExecutionParameter = criteria.from(TestExecutionParameter.class);
+      Root<TestExecutionParameter> rParam = criteria.from(TestExecutionParameter.class);
+      Join<TestExecutionParameter, TestExecution> rTestExecution = rParam.join("testExecution");
+      Join<TestExecution, Test> rTest = rTestExecution.join("test");
 
-      criteria.select(testExecutionParameter);
-      criteria.where(cb.like(cb.lower(testExecutionParameter.<String>get("name")), prefix.toLowerCase() + "%"));
+      criteria.multiselect(rParam.get("name"), rTest.get("groupId"), cb.count(rParam));
+      criteria.groupBy(rParam.get("name"), rTest.get("groupId"));
 
       return query(criteria).getResultList();
    }
-}
\ No newline at end of file
+}
@@ -17,6 +17,7 @@ package org.perfrepo.web.dao;
 import org.perfrepo.model.user.User;
 
 import javax.inject.Named;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,7 +31,7 @@ import java.util.Map;
 public class UserDAO extends DAO<User, Long> {
 
    public User findByUsername(String name) {
-      List<User> users = getAllByProperty("username", name);
+      List<User> users = findByNamedQuery(User.FIND_BY_USERNAME, Collections.<String, Object>singletonMap("username", name));
       if (users.size() > 0) {
          return users.get(0);
       }
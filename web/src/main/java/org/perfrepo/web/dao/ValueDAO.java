@@ -25,6 +25,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -58,4 +59,23 @@ public class ValueDAO extends DAO<Value, Long> {
       query.setParameter("execId", execId);
       return query.getResultList();
    }
+
+   /**
+    * Propagates new start of the test execution to its values and their parameters. The start is the
+    * partitioning key of both tables, so the rows may move to another partition.
+    *
+    * @param execId
+    * @param started
+    */
+   public void updateStarted(Long execId, Date started) {
+      entityManager().createQuery("UPDATE ValueParameter vp SET vp.started = :started WHERE vp.value.id IN "
+                                      + "(SELECT v.id FROM Value v WHERE v.testExecution.id = :execId)")
+          .setParameter("started", started)
+          .setParameter("execId", execId)
+          .executeUpdate();
+      entityManager().createQuery("UPDATE Value v SET v.started = :started WHERE v.testExecution.id = :execId")
+          .setParameter("started", started)
+          .setParameter("execId", execId)
+          .executeUpdate();
+   }
 }
\ No newline at end of file
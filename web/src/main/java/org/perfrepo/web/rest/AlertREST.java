@@ -0,0 +1,104 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.rest;
+
+import org.perfrepo.model.Alert;
+import org.perfrepo.model.to.AlertReplayTO;
+import org.perfrepo.web.rest.logging.Logged;
+import org.perfrepo.web.service.AlertingService;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST interface for alerts.
+ *
+ * @author agent (agent@local)
+ */
+@Path("/alert")
+@RequestScoped
+public class AlertREST {
+
+   private static Method GET_REPLAY_METHOD;
+
+   static {
+      try {
+         GET_REPLAY_METHOD = AlertREST.class.getMethod("getReplay", Long.class);
+      } catch (Exception e) {
+         e.printStackTrace(System.err);
+      }
+   }
+
+   @Inject
+   private AlertingService alertingService;
+
+   /**
+    * Starts replay of the alert over the history, the replay runs in background and it's polled
+    * by {@link #getReplay(Long)}.
+    *
+    * @param alertId
+    * @param days number of the replayed days before now, the whole history if not set
+    * @param uriInfo
+    * @return running replay, 503 if too many replays are running
+    */
+   @POST
+   @Produces(MediaType.TEXT_XML)
+   @Path("/id/{alertId}/replay")
+   @Logged
+   public Response replay(@PathParam("alertId") Long alertId, @QueryParam("days") Integer days, @Context UriInfo uriInfo) {
+      Alert alert = alertingService.getAlert(alertId);
+      if (alert == null) {
+         return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      if (days != null && days <= 0) {
+         return Response.status(Response.Status.BAD_REQUEST).build();
+      }
+
+      Date from = days == null ? null : new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days));
+      AlertReplayTO replay = alertingService.replayAlert(alert, from);
+      if (replay == null) {
+         return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity("Too many running replays, try it later").build();
+      }
+      return Response.status(Response.Status.ACCEPTED)
+          .location(uriInfo.getBaseUriBuilder().path(AlertREST.class).path(GET_REPLAY_METHOD).build(replay.getId()))
+          .entity(replay)
+          .build();
+   }
+
+   @GET
+   @Produces(MediaType.TEXT_XML)
+   @Path("/replay/{replayId}")
+   @Logged
+   public Response getReplay(@PathParam("replayId") Long replayId) {
+      AlertReplayTO replay = alertingService.getAlertReplay(replayId);
+      if (replay == null) {
+         return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      return Response.ok(replay).build();
+   }
+}
@@ -29,6 +29,7 @@ public class PerfRepoRESTApplication extends Application {
       classes.add(TestExecutionREST.class);
       classes.add(TestREST.class);
       classes.add(ReportREST.class);
+      classes.add(AlertREST.class);
    }
 
    @Override
@@ -18,24 +18,31 @@ import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.TestExecutionAttachment;
 import org.perfrepo.model.Value;
+import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.model.to.TestExecutionSearchTO.MetricCriteria;
+import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
 import org.perfrepo.web.rest.logging.Logged;
 import org.perfrepo.web.service.TestService;
+import org.perfrepo.web.util.TestExecutionExporter;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import java.lang.reflect.Method;
 import java.util.Collection;
@@ -50,6 +57,8 @@ import java.util.Collection;
 @RequestScoped
 public class TestExecutionREST {
 
+   private static final int MAX_PAGE_SIZE = 1000;
+
    private static Method GET_TEST_EXECUTION_METHOD;
    private static Method GET_ATTACHMENT_METHOD;
 
@@ -112,6 +121,64 @@ public class TestExecutionREST {
       return Response.noContent().build();
    }
 
+   @POST()
+   @Path("/search")
+   @Consumes(MediaType.TEXT_XML)
+   @Produces(MediaType.TEXT_XML)
+   @Logged
+   public Response search(TestExecutionSearchTO search, @QueryParam("pageSize") @DefaultValue("100") int pageSize) {
+      if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+         return Response.status(Status.BAD_REQUEST).entity("Page size must be between 1 and " + MAX_PAGE_SIZE).build();
+      }
+      String criteriaError = validateMetricCriteria(search);
+      if (criteriaError != null) {
+         return Response.status(Status.BAD_REQUEST).entity(criteriaError).build();
+      }
+      return Response.ok(testService.searchTestExecutionPage(search, pageSize)).build();
+   }
+
+   @POST()
+   @Path("/search/values")
+   @Consumes(MediaType.TEXT_XML)
+   @Produces(MediaType.TEXT_XML)
+   @Logged
+   public Response searchValues(TestExecutionSearchTO search, @QueryParam("metric") String metric,
+                                @QueryParam("pageSize") @DefaultValue("100") int pageSize) {
+      if (metric == null || metric.isEmpty()) {
+         return Response.status(Status.BAD_REQUEST).entity("Metric name is required").build();
+      }
+      if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+         return Response.status(Status.BAD_REQUEST).entity("Page size must be between 1 and " + MAX_PAGE_SIZE).build();
+      }
+      String criteriaError = validateMetricCriteria(search);
+      if (criteriaError != null) {
+         return Response.status(Status.BAD_REQUEST).entity(criteriaError).build();
+      }
+      return Response.ok(testService.searchMetricValuePage(search, metric, pageSize)).build();
+   }
+
+   @POST()
+   @Path("/export")
+   @Consumes(MediaType.TEXT_XML)
+   @Logged
+   public Response export(TestExecutionSearchTO search, @QueryParam("format") @DefaultValue("csv") String format) {
+      TestExecutionExporter.Format exportFormat = TestExecutionExporter.Format.parse(format);
+      if (exportFormat == null) {
+         return Response.status(Status.BAD_REQUEST).entity("Unsupported export format " + format).build();
+      }
+      String criteriaError = validateMetricCriteria(search);
+      if (criteriaError != null) {
+         return Response.status(Status.BAD_REQUEST).entity(criteriaError).build();
+      }
+      // the executions are read while the response is written
+      StreamingOutput output = outputStream -> {
+         TestExecutionExporter exporter = new TestExecutionExporter(exportFormat, outputStream);
+         testService.exportTestExecutions(search, exporter);
+         exporter.flush();
+      };
+      return Response.ok(output, exportFormat.getMediaType()).build();
+   }
+
    @POST()
    @Path("/{testExecutionId}/addAttachment")
    @Logged
@@ -141,4 +208,28 @@ public class TestExecutionREST {
       response.header("Content-Disposition", "attachment; filename=" + attachment.getFilename());
       return response.build();
    }
+
+   /**
+    * Helper method. Validates metric criteria of the search, they can be entered only over REST.
+    *
+    * @param search
+    * @return description of the first invalid criteria or null if all criteria are valid
+    */
+   private String validateMetricCriteria(TestExecutionSearchTO search) {
+      if (search == null || search.getMetrics() == null) {
+         return null;
+      }
+      for (MetricCriteria criteria : search.getMetrics()) {
+         if (criteria.getName() == null || criteria.getName().isEmpty()) {
+            return "Metric name of metric criteria is required";
+         }
+         if (criteria.getOperator() == null || criteria.getOperator() == ParamCriteria.Operator.LIKE) {
+            return "Operator " + criteria.getOperator() + " isn't applicable to metric " + criteria.getName();
+         }
+         if (criteria.getOperator() == ParamCriteria.Operator.BETWEEN && criteria.getValue() != null && criteria.getValueTo() == null) {
+            return "Operator BETWEEN of metric " + criteria.getName() + " requires the upper bound";
+         }
+      }
+      return null;
+   }
 }
\ No newline at end of file
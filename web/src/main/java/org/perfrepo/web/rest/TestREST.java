@@ -15,8 +15,10 @@
 package org.perfrepo.web.rest;
 
 import org.perfrepo.model.Metric;
+import org.perfrepo.model.RetentionPolicy;
 import org.perfrepo.model.Test;
 import org.perfrepo.web.rest.logging.Logged;
+import org.perfrepo.web.service.RetentionService;
 import org.perfrepo.web.service.TestService;
 
 import javax.enterprise.context.RequestScoped;
@@ -60,6 +62,9 @@ public class TestREST {
    @Inject
    private TestService testService;
 
+   @Inject
+   private RetentionService retentionService;
+
    @GET
    @Produces(MediaType.TEXT_XML)
    @Path("/id/{testId}")
@@ -105,4 +110,69 @@ public class TestREST {
       Long id = testService.addMetric(test, metric).getId();
       return Response.created(uriInfo.getBaseUriBuilder().path(MetricREST.class).path(GET_METRIC_METHOD).build(id)).entity(id).build();
    }
-}
\ No newline at end of file
+
+   @GET
+   @Produces(MediaType.TEXT_XML)
+   @Path("/id/{testId}/retention")
+   @Logged
+   public Response getRetentionPolicy(@PathParam("testId") Long testId) {
+      Test test = testService.getTest(testId);
+      if (test == null) {
+         return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      RetentionPolicy policy = retentionService.getRetentionPolicy(test);
+      if (policy == null) {
+         return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      return Response.ok(policy).build();
+   }
+
+   @POST
+   @Path("/id/{testId}/retention")
+   @Consumes(MediaType.TEXT_XML)
+   @Logged
+   public Response setRetentionPolicy(@PathParam("testId") Long testId, RetentionPolicy policy) throws Exception {
+      Test test = testService.getTest(testId);
+      if (test == null) {
+         return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      String policyError = validateRetentionPolicy(policy);
+      if (policyError != null) {
+         return Response.status(Response.Status.BAD_REQUEST).entity(policyError).build();
+      }
+      retentionService.setRetentionPolicy(test, policy);
+      return Response.noContent().build();
+   }
+
+   @DELETE
+   @Path("/id/{testId}/retention")
+   @Logged
+   public Response removeRetentionPolicy(@PathParam("testId") Long testId) {
+      Test test = testService.getTest(testId);
+      if (test == null) {
+         return Response.status(Response.Status.NOT_FOUND).build();
+      }
+      retentionService.removeRetentionPolicy(test);
+      return Response.noContent().build();
+   }
+
+   /**
+    * Helper method. Validates the retention policy, so the client gets bad request instead of a failed validation
+    * of the entity.
+    *
+    * @param policy
+    * @return description of the first invalid property or null if the policy is valid
+    */
+   private String validateRetentionPolicy(RetentionPolicy policy) {
+      if (policy == null) {
+         return "Retention policy is required";
+      }
+      if (policy.getRawDays() < 1) {
+         return "Retention policy rawDays must be at least 1";
+      }
+      if (policy.getBucketHours() < 1) {
+         return "Retention policy bucketHours must be at least 1";
+      }
+      return null;
+   }
+}
@@ -2,8 +2,8 @@ package org.perfrepo.web.service;
 
 import org.perfrepo.model.Alert;
 import org.perfrepo.model.TestExecution;
+import org.perfrepo.web.alerting.ConditionResult;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -15,19 +15,13 @@ public interface AlertingReporterService {
 
    /**
     * Suppose that the alert has failed. Calling this method will trigger appropriate procedure of reporting the failed
-    * alert, e.g. send an email, log it into file etc. Depends on the implementation.
+    * alert, e.g. send an email, log it into file etc. Depends on the implementation. Results of the conditions
+    * contain values of the variables used in the condition, they can be used for creating more user-friendly alert
+    * messages.
     *
-    * @param alerts
+    * @param failedAlerts failed alerts together with results of their conditions
     * @param testExecution
     */
-   public void reportAlert(List<Alert> alerts, TestExecution testExecution);
-
-   /**
-    * Allows to pass the values of variables used in the condition that failed (for every alert). This can be used for
-    * creating more user-friendly alert messages.
-    *
-    * @param variables
-    */
-   public void setConditionVariables(Map<Alert, Map<String, Object>> variables);
+   public void reportAlert(Map<Alert, ConditionResult> failedAlerts, TestExecution testExecution);
 
 }
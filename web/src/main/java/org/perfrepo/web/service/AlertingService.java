@@ -4,7 +4,9 @@ import org.perfrepo.model.Alert;
 import org.perfrepo.model.Metric;
 import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.to.AlertReplayTO;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -68,4 +70,32 @@ public interface AlertingService {
     * @param metric
     */
    public void checkConditionSyntax(String condition, Metric metric);
+
+   /**
+    * Checks parameters of change-point alert.
+    *
+    * @param window number of the newest results searched for a change point, null for the default
+    * @param threshold minimal score of a reported change point, null for the default
+    */
+   public void checkChangePointParameters(Integer window, Double threshold);
+
+   /**
+    * Starts replay of the alert over the history of its metric in background, i.e. finds the test executions where
+    * the alert would have fired. The alert doesn't have to be stored, so it can be tried out before it's created.
+    *
+    * @param alert
+    * @param from only test executions started since this date are checked, null for the whole history
+    * @return running replay, its id identifies the replay in {@link #getAlertReplay(Long)}, or null if the logged user
+    * or the whole application already runs the maximum number of replays
+    * @throws SecurityException if the logged user can't read the test of the alert
+    */
+   public AlertReplayTO replayAlert(Alert alert, Date from);
+
+   /**
+    * Returns replay of alert started by {@link #replayAlert(Alert, Date)}. Only the user who started the replay can see it.
+    *
+    * @param replayId
+    * @return the replay or null, if it doesn't exist anymore or it was started by another user
+    */
+   public AlertReplayTO getAlertReplay(Long replayId);
 }
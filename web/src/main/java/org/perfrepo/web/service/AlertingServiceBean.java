@@ -7,11 +7,20 @@ import org.perfrepo.model.Test;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.TestExecutionTag;
 import org.perfrepo.model.Value;
+import org.perfrepo.model.auth.AccessType;
+import org.perfrepo.model.to.AlertReplayTO;
+import org.perfrepo.web.alerting.AlertReplayRegistry;
+import org.perfrepo.web.alerting.AlertReplayWorker;
+import org.perfrepo.web.alerting.ChangePointDetector;
+import org.perfrepo.web.alerting.CompiledConditionCache;
 import org.perfrepo.web.alerting.ConditionChecker;
+import org.perfrepo.web.alerting.ConditionResult;
 import org.perfrepo.web.dao.AlertDAO;
 import org.perfrepo.web.dao.MetricDAO;
 import org.perfrepo.web.dao.TagDAO;
 import org.perfrepo.web.dao.TestDAO;
+import org.perfrepo.web.security.AuthorizationService;
+import org.perfrepo.web.util.MessageUtils;
 
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
@@ -22,8 +31,10 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,9 +71,27 @@ public class AlertingServiceBean implements AlertingService {
    @Inject
    private AlertingReporterService alertingReporterService;
 
+   @Inject
+   private CompiledConditionCache compiledConditionCache;
+
+   @Inject
+   private AlertReplayRegistry alertReplayRegistry;
+
+   @Inject
+   private AlertReplayWorker alertReplayWorker;
+
+   @Inject
+   private UserService userService;
+
+   @Inject
+   private AuthorizationService authorizationService;
+
    @Override
    public Alert getAlert(Long id) {
       Alert alert = alertDAO.get(id);
+      if (alert == null) {
+         return null;
+      }
       Collection<Tag> tags = alert.getTags();
 
       List<Tag> clonedTags = new ArrayList<>();
@@ -83,6 +112,7 @@ public class AlertingServiceBean implements AlertingService {
    @Override
    public Alert updateAlert(Alert alert) {
       makeManaged(alert);
+      compiledConditionCache.invalidate(alert.getId());
       return alertDAO.update(alert);
    }
 
@@ -90,6 +120,7 @@ public class AlertingServiceBean implements AlertingService {
    public void removeAlert(Alert alert) {
       Alert freshAlert = alertDAO.get(alert.getId());
       alertDAO.remove(freshAlert);
+      compiledConditionCache.invalidate(alert.getId());
    }
 
    @Override
@@ -111,28 +142,26 @@ public class AlertingServiceBean implements AlertingService {
          return;
       }
 
-      Map<Metric, Double> results = new HashMap<>();
+      Map<Long, Double> results = new HashMap<>();
       for (Value value : values) {
-         results.put(value.getMetric(), value.getResultValue());
+         results.put(value.getMetric().getId(), value.getResultValue());
+      }
+
+      // all alerts of the test are evaluated together, so identical SELECTs are evaluated only once
+      List<Alert> alerts = new ArrayList<>();
+      for (Alert alert : alertDAO.getByTest(test)) {
+         if (results.containsKey(alert.getMetric().getId()) && hasAlertAllTags(testExecution, alert)) {
+            alerts.add(alert);
+         }
       }
 
-      List<Alert> failedAlerts = new ArrayList<>();
-      Map<Alert, Map<String, Object>> failedAlertsVariables = new HashMap<>();
-      for (Metric metric : results.keySet()) {
-         List<Alert> alerts = alertDAO.getByTestAndMetric(test, metric);
-         for (Alert alert : alerts) {
-            if (!hasAlertAllTags(testExecution, alert)) {
-               continue;
-            }
-
-            if (!conditionChecker.checkCondition(alert.getCondition(), results.get(metric), metric)) {
-               failedAlerts.add(alert);
-               failedAlertsVariables.put(alert, conditionChecker.getEvaluatedVariables());
-            }
+      Map<Alert, ConditionResult> failedAlerts = new LinkedHashMap<>();
+      for (Map.Entry<Alert, ConditionResult> checked : conditionChecker.checkConditions(alerts, results).entrySet()) {
+         if (!checked.getValue().isHolding()) {
+            failedAlerts.put(checked.getKey(), checked.getValue());
          }
       }
 
-      alertingReporterService.setConditionVariables(failedAlertsVariables);
       alertingReporterService.reportAlert(failedAlerts, testExecution);
    }
 
@@ -141,6 +170,54 @@ public class AlertingServiceBean implements AlertingService {
       conditionChecker.checkCondition(condition, 0, metric);
    }
 
+   @Override
+   public void checkChangePointParameters(Integer window, Double threshold) {
+      ChangePointDetector.validateParameters(window, threshold);
+   }
+
+   @Override
+   public AlertReplayTO replayAlert(Alert alert, Date from) {
+      // the replay runs outside of this transaction, so it gets a detached copy with loaded entities
+      Alert replayed = new Alert();
+      replayed.setId(alert.getId());
+      replayed.setName(alert.getName());
+      replayed.setType(alert.getType());
+      replayed.setCondition(alert.getCondition());
+      replayed.setChangeWindow(alert.getChangeWindow());
+      replayed.setChangeThreshold(alert.getChangeThreshold());
+      Test test = testDAO.get(alert.getTest().getId());
+      if (test == null || !authorizationService.isUserAuthorizedFor(AccessType.READ, test)) {
+         throw new SecurityException(MessageUtils.getMessage("securityException.101", "replayAlert", "Test", alert.getTest().getId()));
+      }
+      replayed.setTest(test);
+      replayed.setMetric(metricDAO.get(alert.getMetric().getId()));
+
+      List<Tag> tags = new ArrayList<>();
+      if (alert.getTags() != null) {
+         for (Tag tag : alert.getTags()) {
+            tags.add(tag.clone());
+         }
+      }
+      replayed.setTags(tags);
+
+      AlertReplayTO replay = alertReplayRegistry.start(userService.getLoggedUser().getId(), alert.getId(), from);
+      if (replay == null) {
+         return null;
+      }
+      try {
+         alertReplayWorker.replay(replay.getId(), replayed, from, userService.getLoggedUserGroupNames());
+      } catch (RuntimeException ex) {
+         alertReplayRegistry.fail(replay.getId(), ex.getMessage());
+         throw ex;
+      }
+      return replay;
+   }
+
+   @Override
+   public AlertReplayTO getAlertReplay(Long replayId) {
+      return alertReplayRegistry.get(userService.getLoggedUser().getId(), replayId);
+   }
+
    /**
     * Helper method. Retrieves all the associated entities, because we need them in managed state.
     *
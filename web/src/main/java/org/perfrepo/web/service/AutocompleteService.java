@@ -0,0 +1,125 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.perfrepo.model.Test;
+import org.perfrepo.model.TestExecution;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Autocompletion of test UIDs, tag names and test execution parameter names. Answers are served from
+ * in-memory prefix indexes, which are loaded from the database on first use and then kept up to date
+ * by {@link TestService} whenever tests, test executions, tags or parameters change. The changes are applied
+ * after the transaction making them commits.
+ *
+ * @author agent (agent@local)
+ */
+public interface AutocompleteService {
+
+   /**
+    * Returns most frequently used test UIDs starting with prefix, visible to the groups
+    *
+    * @param prefix
+    * @param groups
+    * @return test UIDs
+    */
+   public List<String> getTestUIDsByPrefix(String prefix, Collection<String> groups);
+
+   /**
+    * Returns most frequently used test execution parameter names starting with prefix, visible to the groups
+    *
+    * @param prefix
+    * @param groups
+    * @return parameter names
+    */
+   public List<String> getParameterNamesByPrefix(String prefix, Collection<String> groups);
+
+   /**
+    * Returns most frequently used tags starting with prefix, visible to the groups
+    *
+    * @param prefix
+    * @param groups
+    * @return tag names
+    */
+   public List<String> getTagsByPrefix(String prefix, Collection<String> groups);
+
+   /**
+    * Registers newly created test
+    *
+    * @param test
+    */
+   public void testCreated(Test test);
+
+   /**
+    * Unregisters removed test
+    *
+    * @param test
+    */
+   public void testRemoved(Test test);
+
+   /**
+    * Registers test UID, tags and parameters of newly created test execution
+    *
+    * @param testExecution test execution with test, tags and parameters fetched
+    */
+   public void testExecutionCreated(TestExecution testExecution);
+
+   /**
+    * Unregisters test UID, tags and parameters of removed test execution
+    *
+    * @param testExecution test execution with test, tags and parameters fetched
+    */
+   public void testExecutionRemoved(TestExecution testExecution);
+
+   /**
+    * Registers tags added to a test execution of test from the group
+    *
+    * @param groupId
+    * @param tags
+    */
+   public void tagsAdded(String groupId, Collection<String> tags);
+
+   /**
+    * Unregisters tags removed from a test execution of test from the group
+    *
+    * @param groupId
+    * @param tags
+    */
+   public void tagsRemoved(String groupId, Collection<String> tags);
+
+   /**
+    * Registers parameter added to a test execution of test from the group
+    *
+    * @param groupId
+    * @param parameterName
+    */
+   public void parameterAdded(String groupId, String parameterName);
+
+   /**
+    * Unregisters parameter removed from a test execution of test from the group
+    *
+    * @param groupId
+    * @param parameterName
+    */
+   public void parameterRemoved(String groupId, String parameterName);
+
+   /**
+    * Drops the indexes, they are loaded again from the database on next lookup. The indexes are dropped once more
+    * after the current transaction completes, since indexes loaded meanwhile don't contain its changes.
+    */
+   public void invalidate();
+}
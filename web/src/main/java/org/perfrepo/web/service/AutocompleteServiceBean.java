@@ -0,0 +1,311 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.apache.log4j.Logger;
+import org.perfrepo.model.Test;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.TestExecutionParameter;
+import org.perfrepo.web.dao.TagDAO;
+import org.perfrepo.web.dao.TestDAO;
+import org.perfrepo.web.dao.TestExecutionParameterDAO;
+import org.perfrepo.web.util.PrefixIndex;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implements {@link AutocompleteService}.
+ *
+ * Every name is indexed together with number of its occurrences per group (group of the test), test UIDs
+ * count the test itself plus all its executions. Updates are queued in the surrounding transaction and applied
+ * only after it commits, so rolled back changes never get into the indexes. Indexes loaded concurrently with
+ * a commit may count its changes twice, the counts only rank the suggestions.
+ *
+ * @author agent (agent@local)
+ */
+@Named
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionManagement(TransactionManagementType.CONTAINER)
+@TransactionAttribute(TransactionAttributeType.REQUIRED)
+public class AutocompleteServiceBean implements AutocompleteService {
+
+   private static final Logger log = Logger.getLogger(AutocompleteService.class);
+
+   /**
+    * Maximum number of returned suggestions.
+    */
+   private static final int SUGGESTIONS_LIMIT = 20;
+
+   @Inject
+   private TestDAO testDAO;
+
+   @Inject
+   private TagDAO tagDAO;
+
+   @Inject
+   private TestExecutionParameterDAO testExecutionParameterDAO;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   // key of the changes queued by the current transaction in the transaction synchronization registry
+   private final Object pendingChangesKey = new Object();
+
+   private final PrefixIndex testIndex = new PrefixIndex();
+
+   private final PrefixIndex tagIndex = new PrefixIndex();
+
+   private final PrefixIndex parameterIndex = new PrefixIndex();
+
+   private volatile boolean loaded = false;
+
+   @Override
+   public List<String> getTestUIDsByPrefix(String prefix, Collection<String> groups) {
+      ensureLoaded();
+      return testIndex.find(prefix, groups, SUGGESTIONS_LIMIT);
+   }
+
+   @Override
+   public List<String> getParameterNamesByPrefix(String prefix, Collection<String> groups) {
+      ensureLoaded();
+      return parameterIndex.find(prefix, groups, SUGGESTIONS_LIMIT);
+   }
+
+   @Override
+   public List<String> getTagsByPrefix(String prefix, Collection<String> groups) {
+      ensureLoaded();
+      return tagIndex.find(prefix, groups, SUGGESTIONS_LIMIT);
+   }
+
+   @Override
+   public void testCreated(Test test) {
+      final String uid = test.getUid();
+      final String groupId = test.getGroupId();
+      afterCommit(() -> testIndex.add(uid, groupId));
+   }
+
+   @Override
+   public void testRemoved(Test test) {
+      final String uid = test.getUid();
+      afterCommit(() -> testIndex.removeAll(uid));
+   }
+
+   @Override
+   public void testExecutionCreated(TestExecution testExecution) {
+      final String uid = testExecution.getTest().getUid();
+      final String groupId = testExecution.getTest().getGroupId();
+      final List<String> tags = new ArrayList<>(testExecution.getTags());
+      final List<String> parameterNames = getParameterNames(testExecution);
+      afterCommit(() -> {
+         testIndex.add(uid, groupId);
+         for (String tag : tags) {
+            tagIndex.add(tag, groupId);
+         }
+         for (String parameterName : parameterNames) {
+            parameterIndex.add(parameterName, groupId);
+         }
+      });
+   }
+
+   @Override
+   public void testExecutionRemoved(TestExecution testExecution) {
+      final String uid = testExecution.getTest().getUid();
+      final String groupId = testExecution.getTest().getGroupId();
+      final List<String> tags = new ArrayList<>(testExecution.getTags());
+      final List<String> parameterNames = getParameterNames(testExecution);
+      afterCommit(() -> {
+         testIndex.remove(uid, groupId);
+         for (String tag : tags) {
+            tagIndex.remove(tag, groupId);
+         }
+         for (String parameterName : parameterNames) {
+            parameterIndex.remove(parameterName, groupId);
+         }
+      });
+   }
+
+   @Override
+   public void tagsAdded(final String groupId, Collection<String> tags) {
+      final List<String> addedTags = new ArrayList<>(tags);
+      afterCommit(() -> {
+         for (String tag : addedTags) {
+            tagIndex.add(tag, groupId);
+         }
+      });
+   }
+
+   @Override
+   public void tagsRemoved(final String groupId, Collection<String> tags) {
+      final List<String> removedTags = new ArrayList<>(tags);
+      afterCommit(() -> {
+         for (String tag : removedTags) {
+            tagIndex.remove(tag, groupId);
+         }
+      });
+   }
+
+   @Override
+   public void parameterAdded(final String groupId, final String parameterName) {
+      afterCommit(() -> parameterIndex.add(parameterName, groupId));
+   }
+
+   @Override
+   public void parameterRemoved(final String groupId, final String parameterName) {
+      afterCommit(() -> parameterIndex.remove(parameterName, groupId));
+   }
+
+   @Override
+   public void invalidate() {
+      loaded = false;
+      if (!isTransactionActive()) {
+         return;
+      }
+      // indexes loaded meanwhile by another transaction don't contain the changes of this one
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            loaded = false;
+         }
+      });
+   }
+
+   /**
+    * Helper method. Applies the change of the indexes after the current transaction commits, so changes
+    * of rolled back transactions never get into the indexes. Without transaction the change is applied immediately.
+    *
+    * @param change
+    */
+   private void afterCommit(Runnable change) {
+      if (!isTransactionActive()) {
+         apply(Collections.singletonList(change));
+         return;
+      }
+
+      @SuppressWarnings("unchecked")
+      List<Runnable> pendingChanges = (List<Runnable>) transactionSynchronizationRegistry.getResource(pendingChangesKey);
+      if (pendingChanges == null) {
+         final List<Runnable> newPendingChanges = new ArrayList<>();
+         transactionSynchronizationRegistry.putResource(pendingChangesKey, newPendingChanges);
+         transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+               if (status == Status.STATUS_COMMITTED) {
+                  apply(newPendingChanges);
+               }
+            }
+         });
+         pendingChanges = newPendingChanges;
+      }
+      pendingChanges.add(change);
+   }
+
+   /**
+    * Helper method. Applies the changes to the indexes, unless they aren't loaded yet.
+    *
+    * @param changes
+    */
+   private synchronized void apply(List<Runnable> changes) {
+      if (!loaded) {
+         return;
+      }
+      for (Runnable change : changes) {
+         change.run();
+      }
+   }
+
+   private boolean isTransactionActive() {
+      return transactionSynchronizationRegistry != null && transactionSynchronizationRegistry.getTransactionKey() != null;
+   }
+
+   private static List<String> getParameterNames(TestExecution testExecution) {
+      List<String> parameterNames = new ArrayList<>();
+      if (testExecution.getParameters() != null) {
+         for (TestExecutionParameter parameter : testExecution.getParameters()) {
+            parameterNames.add(parameter.getName());
+         }
+      }
+      return parameterNames;
+   }
+
+   /**
+    * Helper method. Loads all indexes from the database, unless it was already done.
+    */
+   private void ensureLoaded() {
+      if (loaded) {
+         return;
+      }
+      synchronized (this) {
+         if (loaded) {
+            return;
+         }
+         testIndex.clear();
+         for (Object[] row : testDAO.getExecutionCounts()) {
+            testIndex.add((String) row[0], (String) row[1], ((Number) row[2]).longValue() + 1);
+         }
+         tagIndex.clear();
+         for (Object[] row : tagDAO.getTagUsageByGroup()) {
+            tagIndex.add((String) row[0], (String) row[1], ((Number) row[2]).longValue());
+         }
+         parameterIndex.clear();
+         for (Object[] row : testExecutionParameterDAO.getParameterNameUsageByGroup()) {
+            parameterIndex.add((String) row[0], (String) row[1], ((Number) row[2]).longValue());
+         }
+         loaded = true;
+         log.debug("Autocomplete indexes loaded: " + testIndex.size() + " tests, " + tagIndex.size() + " tags, "
+                       + parameterIndex.size() + " parameter names");
+      }
+   }
+
+   public void setTestDAO(TestDAO testDAO) {
+      this.testDAO = testDAO;
+   }
+
+   public void setTagDAO(TagDAO tagDAO) {
+      this.tagDAO = tagDAO;
+   }
+
+   public void setTestExecutionParameterDAO(TestExecutionParameterDAO testExecutionParameterDAO) {
+      this.testExecutionParameterDAO = testExecutionParameterDAO;
+   }
+
+   public void setTransactionSynchronizationRegistry(TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+      this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+   }
+}
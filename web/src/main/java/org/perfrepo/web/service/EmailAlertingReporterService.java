@@ -3,14 +3,14 @@ package org.perfrepo.web.service;
 import org.perfrepo.model.Alert;
 import org.perfrepo.model.TestExecution;
 import org.perfrepo.model.user.User;
+import org.perfrepo.web.alerting.ChangePointDetector;
+import org.perfrepo.web.alerting.ConditionResult;
+import org.perfrepo.web.alerting.Expression;
+import org.perfrepo.web.alerting.ExpressionException;
 import org.perfrepo.web.dao.UserDAO;
 
 import javax.inject.Inject;
 import javax.mail.MessagingException;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
-import javax.script.SimpleBindings;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -24,6 +24,9 @@ import java.util.regex.Pattern;
  */
 public class EmailAlertingReporterService implements AlertingReporterService {
 
+   //regex pattern for ${expression}
+   private static final Pattern EXPRESSION_PATTERN = Pattern.compile("\\$\\{([^}]*)\\}");
+
    @Inject
    private ApplicationConfiguration applicationConfiguration;
 
@@ -33,17 +36,15 @@ public class EmailAlertingReporterService implements AlertingReporterService {
    @Inject
    private UserDAO userDAO;
 
-   private Map<Alert, Map<String, Object>> conditionVariables;
-
    @Override
-   public void reportAlert(List<Alert> alerts, TestExecution testExecution) {
-      if (alerts == null || alerts.isEmpty()) {
+   public void reportAlert(Map<Alert, ConditionResult> failedAlerts, TestExecution testExecution) {
+      if (failedAlerts == null || failedAlerts.isEmpty()) {
          return;
       }
 
       List<User> subscribers = userDAO.findSubscribersForTest(testExecution.getTest().getId());
 
-      String message = composeMessage(alerts, testExecution);
+      String message = composeMessage(failedAlerts, testExecution);
       String subject = composeSubject(testExecution);
       for (User subscriber : subscribers) {
          try {
@@ -54,16 +55,11 @@ public class EmailAlertingReporterService implements AlertingReporterService {
       }
    }
 
-   @Override
-   public void setConditionVariables(Map<Alert, Map<String, Object>> variables) {
-      this.conditionVariables = variables;
-   }
-
    private String composeSubject(TestExecution testExecution) {
       return "PerfRepo - some alerts on test " + testExecution.getTest().getName() + " were triggered.";
    }
 
-   private String composeMessage(List<Alert> alerts, TestExecution testExecution) {
+   private String composeMessage(Map<Alert, ConditionResult> failedAlerts, TestExecution testExecution) {
       String urlPath = applicationConfiguration.getUrl();
 
       StringBuilder message = new StringBuilder();
@@ -81,9 +77,14 @@ public class EmailAlertingReporterService implements AlertingReporterService {
 
       message.append("Alerts that failed: <br />");
       message.append("-----<br />");
-      for (Alert alert : alerts) {
+      for (Map.Entry<Alert, ConditionResult> failedAlert : failedAlerts.entrySet()) {
+         Alert alert = failedAlert.getKey();
          message.append("Alert name: <a href=\"" + urlPath + "/alert/" + alert.getId() + "\">" + alert.getName() + "</a><br />");
-         message.append("Description: " + getEvaluatedDescription(alert) + "<br />");
+         message.append("Description: " + getEvaluatedDescription(alert, failedAlert.getValue().getVariables()) + "<br />");
+         Object firstBadExecution = failedAlert.getValue().getVariables().get(ChangePointDetector.FIRST_BAD_EXECUTION_VARIABLE);
+         if (firstBadExecution != null) {
+            message.append("Suspected first bad test execution: <a href=\"" + urlPath + "/exec/" + firstBadExecution + "\">" + firstBadExecution + "</a><br />");
+         }
          if (alert.getLinks() != null && !alert.getLinks().isEmpty()) {
             message.append("Links: ");
             for (String link : alert.getLinks().split(" ")) {
@@ -107,14 +108,11 @@ public class EmailAlertingReporterService implements AlertingReporterService {
     * variables from the condition. This method parses the description and evaluates such expressions.
     *
     * @param alert
+    * @param variables variables evaluated in the condition of the alert
     * @return evaluated description
     */
-   private String getEvaluatedDescription(Alert alert) {
-      ScriptEngine engine = new ScriptEngineManager().getEngineByName("JavaScript");
-
-      //regex pattern for ${expression}
-      Pattern pattern = Pattern.compile("\\$\\{([^}]*)\\}");
-      Matcher matcher = pattern.matcher(alert.getDescription());
+   private String getEvaluatedDescription(Alert alert, Map<String, Object> variables) {
+      Matcher matcher = EXPRESSION_PATTERN.matcher(alert.getDescription());
       StringBuffer evaluatedDescription = new StringBuffer();
 
       while (matcher.find()) {
@@ -122,12 +120,12 @@ public class EmailAlertingReporterService implements AlertingReporterService {
 
          Object result;
          try {
-            result = engine.eval(expression, new SimpleBindings(conditionVariables.get(alert)));
-         } catch (ScriptException e) {
+            result = Expression.compile(expression, null).evaluate(variables);
+         } catch (ExpressionException e) {
             throw new IllegalArgumentException("Error occurred while evaluating the description.", e);
          }
 
-         matcher.appendReplacement(evaluatedDescription, result.toString());
+         matcher.appendReplacement(evaluatedDescription, Matcher.quoteReplacement(Expression.format(result)));
       }
 
       matcher.appendTail(evaluatedDescription);
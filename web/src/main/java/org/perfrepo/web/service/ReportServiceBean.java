@@ -26,7 +26,9 @@ import org.perfrepo.model.to.MetricReportTO;
 import org.perfrepo.model.user.Group;
 import org.perfrepo.model.user.User;
 import org.perfrepo.web.dao.MetricDAO;
+import org.perfrepo.web.dao.MetricSeriesDAO;
 import org.perfrepo.web.dao.PermissionDAO;
+import org.perfrepo.web.dao.ReadOnly;
 import org.perfrepo.web.dao.ReportDAO;
 import org.perfrepo.web.dao.ReportPropertyDAO;
 import org.perfrepo.web.dao.TestDAO;
@@ -75,6 +77,9 @@ public class ReportServiceBean implements ReportService {
    @Inject
    private TestMetricDAO testMetricDAO;
 
+   @Inject
+   private MetricSeriesDAO metricSeriesDAO;
+
    @Inject
    private TestExecutionDAO testExecutionDAO;
 
@@ -173,6 +178,8 @@ public class ReportServiceBean implements ReportService {
    }
 
    @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
    public MetricReportTO.Response computeMetricReport(MetricReportTO.Request request) {
       MetricReportTO.Response response = new MetricReportTO.Response();
       for (MetricReportTO.ChartRequest chartRequest : request.getCharts()) {
@@ -210,7 +217,7 @@ public class ReportServiceBean implements ReportService {
                   freshMetric.setTestMetrics(null);
                   freshMetric.setValues(null);
                   seriesResponse.setSelectedMetric(freshMetric);
-                  List<MetricReportTO.DataPoint> datapoints = testExecutionDAO.searchValues(freshTest.getId(), seriesRequest.getMetricName(),
+                  List<MetricReportTO.DataPoint> datapoints = metricSeriesDAO.getDataPoints(freshTest.getId(), freshMetric.getId(),
                                                                                             seriesRequest.getTags(), request.getLimitSize());
                   if (datapoints.isEmpty()) {
                      continue;
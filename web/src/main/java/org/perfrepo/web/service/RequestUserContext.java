@@ -0,0 +1,37 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import javax.enterprise.context.RequestScoped;
+
+/**
+ * Holds {@link UserContext} resolved for the current request, so it's looked up just once per request
+ * and all calls within the request see the same data.
+ *
+ * @author agent (agent@local)
+ */
+@RequestScoped
+public class RequestUserContext {
+
+   private UserContext context;
+
+   public UserContext getContext() {
+      return context;
+   }
+
+   public void setContext(UserContext context) {
+      this.context = context;
+   }
+}
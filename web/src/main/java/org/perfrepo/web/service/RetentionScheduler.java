@@ -0,0 +1,40 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+
+/**
+ * Applies retention policies every night. The timer isn't persistent, a run missed while the server was down
+ * is simply done the next night.
+ *
+ * @author agent (agent@local)
+ */
+@Singleton
+public class RetentionScheduler {
+
+   @Inject
+   private RetentionService retentionService;
+
+   @Schedule(hour = "3", minute = "30", persistent = false)
+   @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+   public void applyRetentionPolicies() {
+      retentionService.applyRetentionPolicies();
+   }
+}
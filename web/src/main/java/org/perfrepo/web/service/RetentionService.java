@@ -0,0 +1,74 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.perfrepo.model.RetentionPolicy;
+import org.perfrepo.model.Test;
+import org.perfrepo.web.service.exceptions.ServiceException;
+
+import java.util.Date;
+
+/**
+ * Retention of test executions. Test executions of a test with a {@link RetentionPolicy} are kept in full detail
+ * only for the configured number of days, older ones are rolled into {@link org.perfrepo.model.MetricRollup}
+ * rows per metric, tag set and time bucket and removed. Metric history reports and alert conditions read the
+ * rollups when they reach past the stored test executions.
+ *
+ * @author agent (agent@local)
+ */
+public interface RetentionService {
+
+   /**
+    * Returns retention policy of the test
+    *
+    * @param test
+    * @return retention policy or null when the test executions of the test are kept forever
+    */
+   public RetentionPolicy getRetentionPolicy(Test test);
+
+   /**
+    * Creates or replaces retention policy of the test
+    *
+    * @param test
+    * @param policy
+    * @return stored retention policy
+    * @throws ServiceException
+    */
+   public RetentionPolicy setRetentionPolicy(Test test, RetentionPolicy policy) throws ServiceException;
+
+   /**
+    * Removes retention policy of the test, rollups created so far are kept
+    *
+    * @param test
+    */
+   public void removeRetentionPolicy(Test test);
+
+   /**
+    * Applies all retention policies, every chunk of test executions is rolled up and removed in its own transaction.
+    *
+    * @return number of removed test executions
+    */
+   public int applyRetentionPolicies();
+
+   /**
+    * Rolls up and removes one chunk of test executions of the policy started before the cutoff. All test executions
+    * of the chunk belong to the same time bucket.
+    *
+    * @param policy
+    * @param cutoff start of the first bucket kept in full detail
+    * @return number of removed test executions, zero when there is nothing left to roll up
+    */
+   public int rollupChunk(RetentionPolicy policy, Date cutoff);
+}
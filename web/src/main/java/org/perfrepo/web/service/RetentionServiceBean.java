@@ -0,0 +1,291 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.apache.log4j.Logger;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.MetricSeriesPoint;
+import org.perfrepo.model.RetentionPolicy;
+import org.perfrepo.model.Test;
+import org.perfrepo.model.util.QuantileSketch;
+import org.perfrepo.model.util.RunningStatistics;
+import org.perfrepo.web.alerting.RollingWindowCache;
+import org.perfrepo.web.dao.MetricRollupDAO;
+import org.perfrepo.web.dao.MetricSeriesDAO;
+import org.perfrepo.web.dao.RetentionPolicyDAO;
+import org.perfrepo.web.dao.TestDAO;
+import org.perfrepo.web.dao.TestExecutionDAO;
+import org.perfrepo.web.security.Secured;
+import org.perfrepo.web.service.exceptions.ServiceException;
+
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.ejb.TransactionManagement;
+import javax.ejb.TransactionManagementType;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implements {@link RetentionService}.
+ *
+ * @author agent (agent@local)
+ */
+@Named
+@Stateless
+@TransactionManagement(TransactionManagementType.CONTAINER)
+@TransactionAttribute(TransactionAttributeType.REQUIRED)
+public class RetentionServiceBean implements RetentionService {
+
+   private static final Logger log = Logger.getLogger(RetentionService.class);
+
+   /**
+    * Maximum number of test executions rolled up and removed in one transaction.
+    */
+   private static final int CHUNK_SIZE = 200;
+
+   @Inject
+   private RetentionPolicyDAO retentionPolicyDAO;
+
+   @Inject
+   private MetricRollupDAO metricRollupDAO;
+
+   @Inject
+   private MetricSeriesDAO metricSeriesDAO;
+
+   @Inject
+   private TestExecutionDAO testExecutionDAO;
+
+   @Inject
+   private TestDAO testDAO;
+
+   @Inject
+   private AutocompleteService autocompleteService;
+
+   @Inject
+   private RollingWindowCache rollingWindowCache;
+
+   @Resource
+   private SessionContext sessionContext;
+
+   @Override
+   public RetentionPolicy getRetentionPolicy(Test test) {
+      return retentionPolicyDAO.findByTest(test.getId());
+   }
+
+   @Override
+   @Secured
+   public RetentionPolicy setRetentionPolicy(Test test, RetentionPolicy policy) throws ServiceException {
+      Test freshTest = testDAO.get(test.getId());
+      if (freshTest == null) {
+         throw new ServiceException(ServiceException.Codes.TEST_NOT_FOUND, test.getId());
+      }
+      RetentionPolicy freshPolicy = retentionPolicyDAO.findByTest(freshTest.getId());
+      if (freshPolicy == null) {
+         freshPolicy = new RetentionPolicy();
+         freshPolicy.setTest(freshTest);
+         freshPolicy.setRawDays(policy.getRawDays());
+         freshPolicy.setBucketHours(policy.getBucketHours());
+         return retentionPolicyDAO.create(freshPolicy);
+      }
+      freshPolicy.setRawDays(policy.getRawDays());
+      freshPolicy.setBucketHours(policy.getBucketHours());
+      return retentionPolicyDAO.update(freshPolicy);
+   }
+
+   @Override
+   @Secured
+   public void removeRetentionPolicy(Test test) {
+      RetentionPolicy policy = retentionPolicyDAO.findByTest(test.getId());
+      if (policy != null) {
+         retentionPolicyDAO.remove(policy);
+      }
+   }
+
+   @Override
+   @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+   public int applyRetentionPolicies() {
+      // chunks have to go through the business interface to get their own transactions
+      RetentionService self = sessionContext.getBusinessObject(RetentionService.class);
+      int removed = 0;
+      for (RetentionPolicy policy : retentionPolicyDAO.getAll()) {
+         Date cutoff = bucketStart(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(policy.getRawDays())), policy);
+         try {
+            int chunk;
+            do {
+               chunk = self.rollupChunk(policy, cutoff);
+               removed += chunk;
+            } while (chunk > 0);
+         } catch (RuntimeException e) {
+            log.error("Retention policy of test " + policy.getTest().getId() + " failed", e);
+         }
+      }
+      if (removed > 0) {
+         autocompleteService.invalidate();
+         rollingWindowCache.invalidateAll();
+      }
+      log.info("Retention policies applied, " + removed + " test executions rolled up");
+      return removed;
+   }
+
+   @Override
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+   public int rollupChunk(RetentionPolicy policy, Date cutoff) {
+      Long testId = policy.getTest().getId();
+      Date oldest = testExecutionDAO.getOldestStarted(testId, cutoff);
+      if (oldest == null) {
+         return 0;
+      }
+      Date bucketStart = bucketStart(oldest, policy);
+      Date bucketEnd = new Date(bucketStart.getTime() + TimeUnit.HOURS.toMillis(policy.getBucketHours()));
+      List<Long> ids = testExecutionDAO.getIdsStartedBetween(testId, bucketStart, bucketEnd, CHUNK_SIZE);
+
+      Map<Long, Map<String, List<Double>>> valuesByMetricAndTags = new HashMap<>();
+      for (MetricSeriesPoint point : metricSeriesDAO.getPoints(ids)) {
+         if (point.getResultValue() == null) {
+            continue;
+         }
+         Map<String, List<Double>> valuesByTags = valuesByMetricAndTags.get(point.getMetricId());
+         if (valuesByTags == null) {
+            valuesByTags = new HashMap<>();
+            valuesByMetricAndTags.put(point.getMetricId(), valuesByTags);
+         }
+         List<Double> values = valuesByTags.get(point.getTags());
+         if (values == null) {
+            values = new ArrayList<>();
+            valuesByTags.put(point.getTags(), values);
+         }
+         values.add(point.getResultValue());
+      }
+
+      for (Map.Entry<Long, Map<String, List<Double>>> metricEntry : valuesByMetricAndTags.entrySet()) {
+         for (Map.Entry<String, List<Double>> tagsEntry : metricEntry.getValue().entrySet()) {
+            MetricRollup rollup = createRollup(tagsEntry.getValue());
+            MetricRollup existing = metricRollupDAO.find(testId, metricEntry.getKey(), tagsEntry.getKey(), bucketStart);
+            if (existing == null) {
+               rollup.setTestId(testId);
+               rollup.setMetricId(metricEntry.getKey());
+               rollup.setTags(tagsEntry.getKey());
+               rollup.setBucketStart(bucketStart);
+               rollup.setBucketEnd(bucketEnd);
+               metricRollupDAO.create(rollup);
+            } else {
+               mergeRollup(existing, rollup);
+               metricRollupDAO.update(existing);
+            }
+         }
+      }
+
+      return testExecutionDAO.removeAll(ids);
+   }
+
+   /**
+    * Helper method. Computes start of the bucket of the policy the time belongs to. Buckets are aligned to UTC
+    * midnight, so all buckets have the same length and don't overlap across daylight saving time changes.
+    *
+    * @param time
+    * @param policy
+    * @return start of the bucket
+    */
+   private Date bucketStart(Date time, RetentionPolicy policy) {
+      long bucketMillis = TimeUnit.HOURS.toMillis(policy.getBucketHours());
+      return new Date(time.getTime() - Math.floorMod(time.getTime(), bucketMillis));
+   }
+
+   /**
+    * Helper method. Computes aggregates of the values, percentiles are computed by the nearest-rank method.
+    *
+    * @param values
+    * @return rollup without test, metric, tags and bucket
+    */
+   private MetricRollup createRollup(List<Double> values) {
+      Collections.sort(values);
+      double sum = 0;
+      QuantileSketch sketch = new QuantileSketch();
+      RunningStatistics statistics = new RunningStatistics();
+      for (Double value : values) {
+         sum += value;
+         sketch.add(value);
+         statistics.add(value);
+      }
+      MetricRollup rollup = new MetricRollup();
+      rollup.setCount(values.size());
+      rollup.setMin(values.get(0));
+      rollup.setMax(values.get(values.size() - 1));
+      rollup.setMean(sum / values.size());
+      rollup.setP50(percentile(values, 50));
+      rollup.setP90(percentile(values, 90));
+      rollup.setP99(percentile(values, 99));
+      rollup.setVariance(statistics.getPopulationVariance());
+      rollup.setSketch(sketch.toBytes());
+      return rollup;
+   }
+
+   /**
+    * Helper method. Returns the percentile of sorted values by the nearest-rank method.
+    *
+    * @param sortedValues
+    * @param percent
+    * @return percentile
+    */
+   private double percentile(List<Double> sortedValues, int percent) {
+      int rank = (int) Math.ceil(percent / 100d * sortedValues.size());
+      return sortedValues.get(Math.max(rank, 1) - 1);
+   }
+
+   /**
+    * Helper method. Adds aggregates of the rollup to the existing rollup of the same bucket. Count, minimum,
+    * maximum, mean and variance stay exact, percentiles are estimated from the merged sketches. Existing rollups without
+    * sketch keep it missing and their percentiles are merged as count-weighted averages.
+    *
+    * @param existing
+    * @param added
+    */
+   private void mergeRollup(MetricRollup existing, MetricRollup added) {
+      long count = existing.getCount() + added.getCount();
+      existing.setMin(Math.min(existing.getMin(), added.getMin()));
+      existing.setMax(Math.max(existing.getMax(), added.getMax()));
+      RunningStatistics statistics = new RunningStatistics(existing.getCount(), existing.getMean(), existing.getVariance());
+      statistics.merge(new RunningStatistics(added.getCount(), added.getMean(), added.getVariance()));
+      existing.setMean(statistics.getMean());
+      existing.setVariance(statistics.getPopulationVariance());
+      if (existing.getSketch() != null && added.getSketch() != null) {
+         QuantileSketch sketch = QuantileSketch.fromBytes(existing.getSketch());
+         sketch.merge(QuantileSketch.fromBytes(added.getSketch()));
+         existing.setP50(sketch.getQuantile(0.5));
+         existing.setP90(sketch.getQuantile(0.9));
+         existing.setP99(sketch.getQuantile(0.99));
+         existing.setSketch(sketch.toBytes());
+      } else {
+         existing.setP50(weightedMean(existing.getP50(), existing.getCount(), added.getP50(), added.getCount()));
+         existing.setP90(weightedMean(existing.getP90(), existing.getCount(), added.getP90(), added.getCount()));
+         existing.setP99(weightedMean(existing.getP99(), existing.getCount(), added.getP99(), added.getCount()));
+      }
+      existing.setCount(count);
+   }
+
+   private double weightedMean(double first, long firstCount, double second, long secondCount) {
+      return (first * firstCount + second * secondCount) / (firstCount + secondCount);
+   }
+}
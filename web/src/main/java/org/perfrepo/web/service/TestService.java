@@ -21,11 +21,15 @@ import org.perfrepo.model.TestExecutionAttachment;
 import org.perfrepo.model.TestExecutionParameter;
 import org.perfrepo.model.TestMetric;
 import org.perfrepo.model.Value;
+import org.perfrepo.model.to.TestExecutionPageTO;
+import org.perfrepo.model.to.TestExecutionRowTO;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.to.TestSearchTO;
 import org.perfrepo.model.user.User;
 import org.perfrepo.web.service.exceptions.ServiceException;
+import org.perfrepo.web.util.TestExecutionExporter;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 
@@ -56,6 +60,46 @@ public interface TestService {
     */
    public List<TestExecution> searchTestExecutions(TestExecutionSearchTO search);
 
+   /**
+    * Returns lightweight rows of test executions according to criteria defined by TestExecutionSearchTO,
+    * intended for result listings
+    *
+    * @param search
+    * @return List of {@link TestExecutionRowTO}
+    */
+   public List<TestExecutionRowTO> searchTestExecutionRows(TestExecutionSearchTO search);
+
+   /**
+    * Returns one page of compact test executions according to criteria defined by TestExecutionSearchTO,
+    * intended for REST API. Pages ordered by date are retrieved by keyset cursor, others by offset.
+    *
+    * @param search
+    * @param pageSize
+    * @return {@link TestExecutionPageTO} with test executions
+    */
+   public TestExecutionPageTO searchTestExecutionPage(TestExecutionSearchTO search, int pageSize);
+
+   /**
+    * Returns one page of values of the metric in test executions according to criteria defined by
+    * TestExecutionSearchTO, intended for REST API. Page size is number of test executions.
+    *
+    * @param search
+    * @param metricName
+    * @param pageSize
+    * @return {@link TestExecutionPageTO} with values
+    */
+   public TestExecutionPageTO searchMetricValuePage(TestExecutionSearchTO search, String metricName, int pageSize);
+
+   /**
+    * Streams test executions according to criteria defined by TestExecutionSearchTO, with their tags,
+    * parameters and values, to the exporter
+    *
+    * @param search
+    * @param exporter
+    * @throws IOException
+    */
+   public void exportTestExecutions(TestExecutionSearchTO search, TestExecutionExporter exporter) throws IOException;
+
    /**
     * Returns list of Tests according to criteria defined by TestSearchTO
     *
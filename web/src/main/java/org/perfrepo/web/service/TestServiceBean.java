@@ -16,6 +16,9 @@ package org.perfrepo.web.service;
 
 import org.apache.log4j.Logger;
 import org.perfrepo.model.*;
+import org.perfrepo.model.to.OrderBy;
+import org.perfrepo.model.to.TestExecutionPageTO;
+import org.perfrepo.model.to.TestExecutionRowTO;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
 import org.perfrepo.model.to.TestSearchTO;
@@ -23,11 +26,14 @@ import org.perfrepo.model.user.User;
 import org.perfrepo.model.userproperty.GroupFilter;
 import org.perfrepo.model.util.EntityUtils;
 import org.perfrepo.model.util.EntityUtils.UpdateSet;
+import org.perfrepo.web.alerting.RollingWindowCache;
 import org.perfrepo.web.dao.*;
 import org.perfrepo.web.security.Secured;
 import org.perfrepo.web.service.exceptions.ServiceException;
 import org.perfrepo.web.util.MessageUtils;
+import org.perfrepo.web.util.TestExecutionExporter;
 
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
@@ -35,13 +41,18 @@ import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Implements {@link TestService}.
@@ -84,6 +95,9 @@ public class TestServiceBean implements TestService {
    @Inject
    private MetricDAO metricDAO;
 
+   @Inject
+   private MetricSeriesDAO metricSeriesDAO;
+
    @Inject
    private TestMetricDAO testMetricDAO;
 
@@ -96,6 +110,15 @@ public class TestServiceBean implements TestService {
    @Inject
    private AlertingService alertingService;
 
+   @Inject
+   private AutocompleteService autocompleteService;
+
+   @Inject
+   private RollingWindowCache rollingWindowCache;
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
    private Long lastQueryResultsCount = null;
 
    @Override
@@ -146,45 +169,109 @@ public class TestServiceBean implements TestService {
          }
       }
 
+      metricSeriesDAO.refresh(storedTestExecution.getId());
+
       TestExecution clone = cloneAndFetch(storedTestExecution, true, true, true, true, true);
       log.debug("Created new test execution " + clone.getId());
+      autocompleteService.testExecutionCreated(clone);
 
+      addToRollingWindows(clone);
       alertingService.processAlerts(clone);
 
       return clone;
    }
 
    @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
    public List<TestExecution> getFullTestExecutions(Collection<Long> ids) {
-      List<TestExecution> result = new ArrayList<TestExecution>();
-      for (Long id : ids) {
-         TestExecution testExecution = getFullTestExecution(id);
-         if (testExecution != null) {
-            result.add(testExecution);
-         }
+      if (ids == null || ids.isEmpty()) {
+         return new ArrayList<TestExecution>();
       }
-      return result;
+      return testExecutionDAO.getFullTestExecutions(ids);
    }
 
    @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
    public List<Test> searchTest(TestSearchTO search) {
       return testDAO.searchTests(search, userService.getLoggedUserGroupNames());
    }
 
    @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
    public List<TestExecution> searchTestExecutions(TestExecutionSearchTO search) {
-      // remove param criteria with empty param name
-      if (search.getParameters() != null) {
-         for (Iterator<ParamCriteria> allParams = search.getParameters().iterator(); allParams.hasNext();) {
-            ParamCriteria param = allParams.next();
-            if (param.isNameEmpty()) {
-               allParams.remove();
-            }
+      removeEmptyParamCriteria(search);
+      List<TestExecution> result = testExecutionDAO.searchTestExecutions(search, userService.getLoggedUserGroupNames());
+      return result;
+   }
+
+   @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+   public List<TestExecutionRowTO> searchTestExecutionRows(TestExecutionSearchTO search) {
+      removeEmptyParamCriteria(search);
+      return testExecutionDAO.searchTestExecutionRows(search, userService.getLoggedUserGroupNames());
+   }
+
+   @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+   public TestExecutionPageTO searchTestExecutionPage(TestExecutionSearchTO search, int pageSize) {
+      removeEmptyParamCriteria(search);
+      search.setLimitHowMany(pageSize + 1);
+      List<TestExecutionRowTO> rows = testExecutionDAO.getTestExecutionRows(search, userService.getLoggedUserGroupNames());
+
+      TestExecutionPageTO page = new TestExecutionPageTO();
+      for (TestExecutionRowTO row : rows.subList(0, Math.min(pageSize, rows.size()))) {
+         TestExecutionPageTO.Execution execution = new TestExecutionPageTO.Execution();
+         execution.setId(row.getId());
+         execution.setName(row.getName());
+         execution.setStarted(row.getStarted());
+         execution.setTestUid(row.getTestUid());
+         execution.setTags(new ArrayList<>(row.getTags()));
+         for (TestExecutionRowTO.Parameter parameter : row.getParameters().values()) {
+            execution.getParameters().add(new TestExecutionPageTO.Parameter(parameter.getName(), parameter.getValue()));
          }
+         page.getExecutions().add(execution);
       }
+      if (rows.size() > pageSize) {
+         TestExecutionRowTO last = rows.get(pageSize - 1);
+         setNextPage(page, search, pageSize, last.getId(), last.getStarted());
+      }
+      return page;
+   }
 
-      List<TestExecution> result = testExecutionDAO.searchTestExecutions(search, userService.getLoggedUserGroupNames());
-      return result;
+   @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+   public TestExecutionPageTO searchMetricValuePage(TestExecutionSearchTO search, String metricName, int pageSize) {
+      removeEmptyParamCriteria(search);
+      search.setLimitHowMany(pageSize + 1);
+      List<Object[]> values = testExecutionDAO.getMetricValues(search, metricName, userService.getLoggedUserGroupNames());
+
+      TestExecutionPageTO page = new TestExecutionPageTO();
+      Set<Long> execIds = new HashSet<>();
+      Object[] last = null;
+      for (Object[] value : values) {
+         if (execIds.add((Long) value[0]) && execIds.size() > pageSize) {
+            // values of one more test execution than requested were retrieved just to find out there is a next page
+            setNextPage(page, search, pageSize, (Long) last[0], (Date) last[1]);
+            break;
+         }
+         page.getValues().add(new TestExecutionPageTO.MetricValue((Long) value[0], (Date) value[1], (String) value[2], (Double) value[3]));
+         last = value;
+      }
+      return page;
+   }
+
+   @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+   public void exportTestExecutions(TestExecutionSearchTO search, TestExecutionExporter exporter) throws IOException {
+      removeEmptyParamCriteria(search);
+      testExecutionDAO.exportTestExecutions(search, userService.getLoggedUserGroupNames(), exporter);
    }
 
    @Override
@@ -193,6 +280,8 @@ public class TestServiceBean implements TestService {
    }
 
    @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
    public List<TestExecution> getTestExecutions(List<String> tags, List<String> testUIDs) {
       List<TestExecution> result = new ArrayList<TestExecution>();
       for (String tag : tags) {
@@ -247,6 +336,7 @@ public class TestServiceBean implements TestService {
             addMetric(test, tm.getMetric());
          }
       }
+      autocompleteService.testCreated(createdTest);
       return createdTest;
    }
 
@@ -310,6 +400,11 @@ public class TestServiceBean implements TestService {
    @Secured
    @Override
    public Test updateTest(Test test) {
+      Test oldTest = testDAO.get(test.getId());
+      if (oldTest != null && (!oldTest.getUid().equals(test.getUid()) || !oldTest.getGroupId().equals(test.getGroupId()))) {
+         // renamed test or test moved to another group, suggestions need to be reloaded
+         autocompleteService.invalidate();
+      }
       return testDAO.update(test);
    }
 
@@ -341,6 +436,7 @@ public class TestServiceBean implements TestService {
          }
       }
       testDAO.remove(freshTest);
+      autocompleteService.testRemoved(freshTest);
    }
 
    @Override
@@ -350,6 +446,8 @@ public class TestServiceBean implements TestService {
       if (freshTestExecution == null) {
          throw new ServiceException(ServiceException.Codes.TEST_EXECUTION_NOT_FOUND, testExecution.getId());
       }
+      autocompleteService.testExecutionRemoved(freshTestExecution);
+      invalidateRollingWindows(freshTestExecution);
       for (TestExecutionParameter testExecutionParameter : freshTestExecution.getParameters()) {
          testExecutionParameterDAO.remove(testExecutionParameter);
       }
@@ -370,6 +468,7 @@ public class TestServiceBean implements TestService {
          allTestExecutionAttachments.remove();
       }
       testExecutionDAO.remove(freshTestExecution);
+      metricSeriesDAO.refresh(freshTestExecution.getId());
    }
 
    @Override
@@ -484,13 +583,11 @@ public class TestServiceBean implements TestService {
    }
 
    @Override
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
    public List<TestExecution> getAllFullTestExecutions() {
       List<TestExecution> r = testExecutionDAO.getAll();
-      List<TestExecution> rcopy = new ArrayList<TestExecution>(r.size());
-      for (TestExecution exec : r) {
-         rcopy.add(getFullTestExecution(exec.getId()));
-      }
-      return rcopy;
+      return getFullTestExecutions(EntityUtils.extractIds(r));
    }
 
    @Override
@@ -505,11 +602,16 @@ public class TestServiceBean implements TestService {
       if (execEntity == null) {
          throw new ServiceException(ServiceException.Codes.TEST_EXECUTION_NOT_FOUND, anExec.getId());
       }
+      String groupId = execEntity.getTest().getGroupId();
+      autocompleteService.tagsRemoved(groupId, execEntity.getTags());
       for (TestExecutionTag interObj : execEntity.getTestExecutionTags()) {
          testExecutionTagDAO.remove(interObj);
       }
       execEntity.getTestExecutionTags().clear();
       // this is what can be updated here
+      if (anExec.getStarted() != null && anExec.getStarted().getTime() != execEntity.getStarted().getTime()) {
+         valueDAO.updateStarted(execEntity.getId(), anExec.getStarted());
+      }
       execEntity.setName(anExec.getName());
       execEntity.setStarted(anExec.getStarted());
       execEntity.setComment(anExec.getComment());
@@ -526,6 +628,9 @@ public class TestServiceBean implements TestService {
          testExecutionTagDAO.create(newTestExecutionTag);
          execEntity.getTestExecutionTags().add(newTestExecutionTag);
       }
+      autocompleteService.tagsAdded(groupId, execEntity.getTags());
+      metricSeriesDAO.refresh(execEntity.getId());
+      invalidateRollingWindows(execEntity);
       TestExecution execClone = cloneAndFetch(execEntity, true, true, true, true, true);
       return execClone;
    }
@@ -540,6 +645,13 @@ public class TestServiceBean implements TestService {
       if (testExecutionParameterDAO.hasTestParam(exec.getId(), tep)) {
          throw new ServiceException(ServiceException.Codes.PARAMETER_EXISTS, tep.getName());
       }
+      if (tep.getId() != null) {
+         TestExecutionParameter oldParameter = testExecutionParameterDAO.get(tep.getId());
+         if (oldParameter != null) {
+            autocompleteService.parameterRemoved(exec.getTest().getGroupId(), oldParameter.getName());
+         }
+      }
+      autocompleteService.parameterAdded(exec.getTest().getGroupId(), tep.getName());
 
       return testExecutionParameterDAO.update(tep);
    }
@@ -565,6 +677,7 @@ public class TestServiceBean implements TestService {
          throw new ServiceException(ServiceException.Codes.TEST_EXECUTION_NOT_FOUND, tep.getTestExecution().getId());
       }
       TestExecutionParameter tepRemove = testExecutionParameterDAO.get(tep.getId());
+      autocompleteService.parameterRemoved(exec.getTest().getGroupId(), tepRemove.getName());
       testExecutionParameterDAO.remove(tepRemove);
    }
 
@@ -603,6 +716,8 @@ public class TestServiceBean implements TestService {
          }
       }
       Value freshValue = valueDAO.create(value);
+      metricSeriesDAO.refresh(exec.getId());
+      invalidateRollingWindows(Collections.singleton(metric.getId()));
       Value freshValueClone = freshValue.clone();
       List<ValueParameter> newParams = new ArrayList<ValueParameter>();
       if (value.hasParameters()) {
@@ -628,6 +743,8 @@ public class TestServiceBean implements TestService {
          throw new ServiceException(ServiceException.Codes.VALUE_NOT_FOUND, value.getId());
       }
       Value freshValue = valueDAO.update(value);
+      metricSeriesDAO.refresh(exec.getId());
+      invalidateRollingWindows(Collections.singleton(freshValue.getMetric().getId()));
       Value freshValueClone = freshValue.clone();
       freshValueClone.setMetric(freshValue.getMetric().clone());
       freshValueClone.getMetric().setTestMetrics(null);
@@ -665,6 +782,8 @@ public class TestServiceBean implements TestService {
          valueParameterDAO.remove(vp);
       }
       valueDAO.remove(v);
+      metricSeriesDAO.refresh(exec.getId());
+      invalidateRollingWindows(Collections.singleton(v.getMetric().getId()));
    }
 
    @Override
@@ -688,33 +807,17 @@ public class TestServiceBean implements TestService {
 
    @Override
    public List<String> getTestsByPrefix(String prefix) {
-      List<Test> tests = testDAO.findByUIDPrefix(prefix);
-      List<String> testuids = new ArrayList<String>();
-      for (Test test : tests) {
-         if (userService.isLoggedUserInGroup(test.getGroupId())) {
-            testuids.add(test.getUid());
-         }
-      }
-      return testuids;
+      return autocompleteService.getTestUIDsByPrefix(prefix, userService.getLoggedUserGroupNames());
    }
 
    @Override
    public List<String> getParametersByPrefix(String prefix) {
-      List<TestExecutionParameter> parameters = testExecutionParameterDAO.findByPrefix(prefix);
-      List<String> result = new ArrayList<>();
-      for (TestExecutionParameter parameter : parameters) {
-         result.add(parameter.getName());
-      }
-      return result;
+      return autocompleteService.getParameterNamesByPrefix(prefix, userService.getLoggedUserGroupNames());
    }
 
    @Override
    public List<String> getTagsByPrefix(String prefix) {
-      List<String> tags = new ArrayList<String>();
-      for (Tag tag : tagDAO.findByPrefix(prefix)) {
-         tags.add(tag.getName());
-      }
-      return tags;
+      return autocompleteService.getTagsByPrefix(prefix, userService.getLoggedUserGroupNames());
    }
 
    @Override
@@ -727,6 +830,7 @@ public class TestServiceBean implements TestService {
 
          List<TestExecutionTag> testExecutionTags = new ArrayList<TestExecutionTag>();
          testExecutionTags.addAll(testExecution.getTestExecutionTags());
+         List<String> addedTags = new ArrayList<String>();
          for (String tagName : tags) {
             if (!testExecution.getTags().contains(tagName)) {
                Tag tag = tagDAO.findByName(tagName);
@@ -742,10 +846,14 @@ public class TestServiceBean implements TestService {
 
                TestExecutionTag testExecutionTag = testExecutionTagDAO.create(newTestExecutionTag);
                testExecutionTags.add(testExecutionTag);
+               addedTags.add(tagName);
             }
          }
+         autocompleteService.tagsAdded(testExecution.getTest().getGroupId(), addedTags);
 
          testExecutionDAO.update(testExecution);
+         metricSeriesDAO.refresh(testExecution.getId());
+         invalidateRollingWindows(testExecution);
       }
    }
 
@@ -758,16 +866,21 @@ public class TestServiceBean implements TestService {
          }
 
          List<TestExecutionTag> testExecutionTags = new ArrayList<TestExecutionTag>();
+         List<String> removedTags = new ArrayList<String>();
          for (TestExecutionTag testExecutionTag : testExecution.getTestExecutionTags()) {
             if (tags.contains(testExecutionTag.getTagName())) {
                testExecutionTagDAO.remove(testExecutionTag);
+               removedTags.add(testExecutionTag.getTagName());
             } else {
                testExecutionTags.add(testExecutionTag);
             }
          }
 
+         autocompleteService.tagsRemoved(testExecution.getTest().getGroupId(), removedTags);
          testExecution.setTestExecutionTags(testExecutionTags);
          testExecutionDAO.update(testExecution);
+         metricSeriesDAO.refresh(testExecution.getId());
+         invalidateRollingWindows(testExecution);
       }
    }
 
@@ -836,6 +949,104 @@ public class TestServiceBean implements TestService {
       return testMetricDAO.create(tm);
    }
 
+   /**
+    * Helper method. Removes param criteria with empty param name.
+    *
+    * @param search
+    */
+   private void removeEmptyParamCriteria(TestExecutionSearchTO search) {
+      if (search.getParameters() != null) {
+         for (Iterator<ParamCriteria> allParams = search.getParameters().iterator(); allParams.hasNext();) {
+            ParamCriteria param = allParams.next();
+            if (param.isNameEmpty()) {
+               allParams.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Helper method. Sets cursor of the page following the current one, keyset cursor is used when the test executions
+    * are ordered by date, offset otherwise.
+    *
+    * @param page
+    * @param search criteria of the current page
+    * @param pageSize
+    * @param lastId id of the last test execution on the current page
+    * @param lastStarted start of the last test execution on the current page
+    */
+   private void setNextPage(TestExecutionPageTO page, TestExecutionSearchTO search, int pageSize, Long lastId, Date lastStarted) {
+      page.setMore(true);
+      if (search.getOrderBy() == OrderBy.DATE_ASC || search.getOrderBy() == OrderBy.DATE_DESC) {
+         page.setNextStarted(lastStarted);
+         page.setNextId(lastId);
+      } else {
+         page.setNextLimitFrom((search.getLimitFrom() == null ? 0 : search.getLimitFrom()) + pageSize);
+      }
+   }
+
+   /**
+    * Helper method. Adds values of the new test execution to the rolling windows of alert baselines. Until commit
+    * only the alerts evaluated in this transaction see them, see {@link RollingWindowCache#valueStored}.
+    *
+    * @param testExecution new test execution with fetched tags and values
+    */
+   private void addToRollingWindows(TestExecution testExecution) {
+      if (testExecution.getValues() == null) {
+         return;
+      }
+
+      List<String> tags = testExecution.getTags();
+      for (Value value : testExecution.getValues()) {
+         if (value.getResultValue() != null) {
+            rollingWindowCache.valueStored(value.getMetric().getId(), tags, testExecution.getStarted(), testExecution.getId(),
+                                           value.getResultValue());
+         }
+      }
+   }
+
+   /**
+    * Helper method. Invalidates the rolling windows of alert baselines of all metrics of the test execution.
+    *
+    * @param testExecution
+    */
+   private void invalidateRollingWindows(TestExecution testExecution) {
+      if (testExecution.getValues() == null) {
+         return;
+      }
+
+      Set<Long> metricIds = new HashSet<>();
+      for (Value value : testExecution.getValues()) {
+         metricIds.add(value.getMetric().getId());
+      }
+      invalidateRollingWindows(metricIds);
+   }
+
+   /**
+    * Helper method. Invalidates the rolling windows of alert baselines of the metrics, both immediately and after
+    * completion of the transaction, since a window built meanwhile by another transaction still contains
+    * the original values.
+    *
+    * @param metricIds
+    */
+   private void invalidateRollingWindows(final Set<Long> metricIds) {
+      for (Long metricId : metricIds) {
+         rollingWindowCache.invalidate(metricId);
+      }
+      transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+         @Override
+         public void beforeCompletion() {
+         }
+
+         @Override
+         public void afterCompletion(int status) {
+            for (Long metricId : metricIds) {
+               rollingWindowCache.invalidate(metricId);
+            }
+         }
+      });
+   }
+
    private TestExecution cloneAndFetch(TestExecution exec, boolean fetchTest, boolean fetchParameters,
                                        boolean fetchTags, boolean fetchValues,
                                        boolean fetchAttachments) {
@@ -0,0 +1,79 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import org.perfrepo.model.FavoriteParameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the logged user data needed by almost every request - user id, names of the groups
+ * the user is member of, user properties and favourite parameters. It's resolved once and cached by
+ * {@link UserContextCache}, so the user doesn't have to be re-read from the database on every call.
+ *
+ * @author agent (agent@local)
+ */
+public class UserContext {
+
+   private final Long userId;
+   private final String username;
+   private final List<String> groupNames;
+   private final Map<String, String> properties;
+   private final List<FavoriteParameter> favoriteParameters;
+   private final long created = System.currentTimeMillis();
+
+   public UserContext(Long userId, String username, List<String> groupNames, Map<String, String> properties,
+                      List<FavoriteParameter> favoriteParameters) {
+      this.userId = userId;
+      this.username = username;
+      this.groupNames = Collections.unmodifiableList(new ArrayList<>(groupNames));
+      this.properties = Collections.unmodifiableMap(new HashMap<>(properties));
+      this.favoriteParameters = Collections.unmodifiableList(new ArrayList<>(favoriteParameters));
+   }
+
+   public Long getUserId() {
+      return userId;
+   }
+
+   public String getUsername() {
+      return username;
+   }
+
+   public List<String> getGroupNames() {
+      return groupNames;
+   }
+
+   public Map<String, String> getProperties() {
+      return properties;
+   }
+
+   /**
+    * @return detached copies of the favourite parameters of all tests
+    */
+   public List<FavoriteParameter> getFavoriteParameters() {
+      return favoriteParameters;
+   }
+
+   /**
+    * @return time when the snapshot was taken, in milliseconds
+    */
+   public long getCreated() {
+      return created;
+   }
+}
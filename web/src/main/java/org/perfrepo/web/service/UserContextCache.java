@@ -0,0 +1,125 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.service;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of {@link UserContext} by username, shared by all sessions of the user. Contexts are invalidated
+ * by {@link UserService} whenever the user data change, changes done outside of the application (e.g. group
+ * membership) are picked up after {@link #MAX_AGE} at the latest.
+ * <p>
+ * Invalidation inside of a transaction is repeated after the transaction completes, because the context might be
+ * cached again meanwhile with the data the transaction hasn't committed yet (or with the old data by other transactions).
+ *
+ * @author agent (agent@local)
+ */
+@ApplicationScoped
+public class UserContextCache {
+
+   /**
+    * Maximum age of cached context in milliseconds.
+    */
+   private static final long MAX_AGE = 5 * 60 * 1000;
+
+   private final ConcurrentMap<String, UserContext> contexts = new ConcurrentHashMap<>();
+
+   // key of the usernames invalidated by the current transaction in the transaction synchronization registry
+   private final Object invalidatedUsernamesKey = new Object();
+
+   @Resource
+   private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+   private long maxAge = MAX_AGE;
+
+   /**
+    * @param username
+    * @return cached context of the user or null, if it isn't cached or it's too old
+    */
+   public UserContext get(String username) {
+      UserContext context = contexts.get(username);
+      if (context != null && System.currentTimeMillis() - context.getCreated() > maxAge) {
+         contexts.remove(username, context);
+         return null;
+      }
+      return context;
+   }
+
+   public void put(UserContext context) {
+      contexts.put(context.getUsername(), context);
+   }
+
+   /**
+    * Removes the context of the user, inside of a transaction once more after the transaction completes.
+    *
+    * @param username
+    */
+   public void invalidate(String username) {
+      contexts.remove(username);
+      if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+         return;
+      }
+
+      @SuppressWarnings("unchecked")
+      Set<String> invalidatedUsernames = (Set<String>) transactionSynchronizationRegistry.getResource(invalidatedUsernamesKey);
+      if (invalidatedUsernames == null) {
+         final Set<String> newInvalidatedUsernames = new HashSet<>();
+         transactionSynchronizationRegistry.putResource(invalidatedUsernamesKey, newInvalidatedUsernames);
+         transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+               for (String invalidatedUsername : newInvalidatedUsernames) {
+                  contexts.remove(invalidatedUsername);
+               }
+            }
+         });
+         invalidatedUsernames = newInvalidatedUsernames;
+      }
+      invalidatedUsernames.add(username);
+   }
+
+   public void invalidateAll() {
+      contexts.clear();
+   }
+
+   /**
+    * Only for tests.
+    *
+    * @param transactionSynchronizationRegistry
+    */
+   public void setTransactionSynchronizationRegistry(TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+      this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+   }
+
+   /**
+    * Only for tests.
+    *
+    * @param maxAge maximum age of cached context in milliseconds
+    */
+   public void setMaxAge(long maxAge) {
+      this.maxAge = maxAge;
+   }
+}
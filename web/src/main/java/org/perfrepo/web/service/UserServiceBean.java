@@ -35,6 +35,7 @@ import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
+import javax.enterprise.context.ContextNotActiveException;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.UnsupportedEncodingException;
@@ -43,7 +44,6 @@ import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +69,12 @@ public class UserServiceBean implements UserService {
    @Inject
    private FavoriteParameterDAO favoriteParameterDAO;
 
+   @Inject
+   private UserContextCache userContextCache;
+
+   @Inject
+   private RequestUserContext requestUserContext;
+
    @Resource
    private SessionContext sessionContext;
 
@@ -100,6 +106,8 @@ public class UserServiceBean implements UserService {
       }
 
       User updatedUser = userDAO.update(user);
+      invalidateLoggedUserContext();
+      userContextCache.invalidate(user.getUsername());
       return updatedUser;
    }
 
@@ -124,8 +132,7 @@ public class UserServiceBean implements UserService {
 
    @Override
    public Map<String, String> getUserProperties() {
-      List<UserProperty> ups = userPropertyDAO.findByUserId(getLoggedUser().getId());
-      return transformToMap(ups);
+      return new HashMap<>(getLoggedUserContext().getProperties());
    }
 
    @Override
@@ -144,6 +151,7 @@ public class UserServiceBean implements UserService {
       fp.setUser(user);
 
       favoriteParameterDAO.create(fp);
+      invalidateLoggedUserContext();
    }
 
    @Override
@@ -157,6 +165,7 @@ public class UserServiceBean implements UserService {
       up.setValue(value);
       up.setUser(user);
       userPropertyDAO.create(up);
+      invalidateLoggedUserContext();
    }
 
    @Override
@@ -165,6 +174,7 @@ public class UserServiceBean implements UserService {
 
       if (fp != null) {
          favoriteParameterDAO.remove(fp);
+         invalidateLoggedUserContext();
       }
    }
 
@@ -214,13 +224,8 @@ public class UserServiceBean implements UserService {
 
    @Override
    public List<String> getLoggedUserGroupNames() {
-      List<String> names = new ArrayList<String>();
-      User user = getLoggedUser();
-      Collection<Group> gs = user != null ? getLoggedUser().getGroups() : Collections.emptyList();
-      for (Group group : gs) {
-         names.add(group.getName());
-      }
-      return names;
+      UserContext context = getLoggedUserContext();
+      return context == null ? new ArrayList<String>() : new ArrayList<>(context.getGroupNames());
    }
 
    @Override
@@ -230,25 +235,14 @@ public class UserServiceBean implements UserService {
 
    @Override
    public User getLoggedUser() {
-      Principal principal = sessionContext.getCallerPrincipal();
-      User user = null;
-      if (principal != null) {
-         user = userDAO.findByUsername(principal.getName());
-      }
-      return user;
+      UserContext context = getLoggedUserContext();
+      return context == null ? null : userDAO.get(context.getUserId());
    }
 
    @Override
    public boolean isLoggedUserInGroup(String guid) {
-      User user = getLoggedUser();
-      if (user != null && user.getGroups() != null) {
-         for (Group group : user.getGroups()) {
-            if (group.getName().equals(guid)) {
-               return true;
-            }
-         }
-      }
-      return false;
+      UserContext context = getLoggedUserContext();
+      return context != null && context.getGroupNames().contains(guid);
    }
 
    @Override
@@ -267,9 +261,8 @@ public class UserServiceBean implements UserService {
 
    @Override
    public List<FavoriteParameter> getFavoriteParametersForTest(Test test) {
-      User user = getLoggedUser();
       List<FavoriteParameter> result = new ArrayList<FavoriteParameter>();
-      for (FavoriteParameter favoriteParameter : user.getFavoriteParameters()) {
+      for (FavoriteParameter favoriteParameter : getLoggedUserContext().getFavoriteParameters()) {
          if (favoriteParameter.getTest().getId().equals(test.getId())) {
             result.add(favoriteParameter);
          }
@@ -302,4 +295,90 @@ public class UserServiceBean implements UserService {
 
       return Base64.encodeBase64String(md.digest());
    }
+
+   /**
+    * Helper method. Resolves context of the logged user. It's looked up once per request, between requests
+    * it's cached by {@link UserContextCache}, so the user is read from the database only after a change.
+    * Calls outside of a request (timers, asynchronous methods) use just {@link UserContextCache}.
+    *
+    * @return context of the logged user, null if nobody is logged in
+    */
+   private UserContext getLoggedUserContext() {
+      Principal principal = sessionContext.getCallerPrincipal();
+      if (principal == null) {
+         return null;
+      }
+      UserContext context = getRequestContext();
+      if (context != null && context.getUsername().equals(principal.getName())) {
+         return context;
+      }
+
+      context = userContextCache.get(principal.getName());
+      if (context == null) {
+         context = loadUserContext(principal.getName());
+         if (context == null) {
+            return null;
+         }
+         userContextCache.put(context);
+      }
+      setRequestContext(context);
+      return context;
+   }
+
+   /**
+    * Helper method. Reads the user data from the database.
+    *
+    * @param username
+    * @return context of the user, null if there is no such user
+    */
+   private UserContext loadUserContext(String username) {
+      User user = userDAO.findByUsername(username);
+      if (user == null) {
+         return null;
+      }
+      List<String> groupNames = new ArrayList<>();
+      for (Group group : groupDAO.findByUsername(username)) {
+         groupNames.add(group.getName());
+      }
+      Map<String, String> properties = transformToMap(userPropertyDAO.findByUserId(user.getId()));
+      List<FavoriteParameter> favoriteParameters = EntityUtils.clone(user.getFavoriteParameters());
+      return new UserContext(user.getId(), user.getUsername(), groupNames, properties, favoriteParameters);
+   }
+
+   /**
+    * Helper method. Drops the cached context of the logged user after a change of the user data.
+    */
+   private void invalidateLoggedUserContext() {
+      setRequestContext(null);
+      Principal principal = sessionContext.getCallerPrincipal();
+      if (principal != null) {
+         userContextCache.invalidate(principal.getName());
+      }
+   }
+
+   /**
+    * Helper method.
+    *
+    * @return context resolved for the current request, null if it isn't resolved yet or there is no active request
+    */
+   private UserContext getRequestContext() {
+      try {
+         return requestUserContext.getContext();
+      } catch (ContextNotActiveException e) {
+         return null;
+      }
+   }
+
+   /**
+    * Helper method. Keeps the context for the current request, if there is an active request.
+    *
+    * @param context
+    */
+   private void setRequestContext(UserContext context) {
+      try {
+         requestUserContext.setContext(context);
+      } catch (ContextNotActiveException e) {
+         // nothing to keep outside of a request
+      }
+   }
 }
@@ -11,6 +11,7 @@ import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.model.user.User;
 import org.perfrepo.web.controller.reports.boxplot.Chart;
 import org.perfrepo.web.dao.MetricDAO;
+import org.perfrepo.web.dao.ReadOnly;
 import org.perfrepo.web.dao.TestDAO;
 import org.perfrepo.web.dao.TestExecutionDAO;
 import org.perfrepo.web.service.ReportService;
@@ -125,6 +126,8 @@ public class BoxplotReportServiceBean {
     *
     * @param charts
     */
+   @ReadOnly
+   @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
    public void computeCharts(List<Chart> charts) {
       if (charts == null) {
          return;
@@ -0,0 +1,246 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of distinct names (tags, parameter names, test UIDs) used for autocompletion.
+ * Names are kept sorted case-insensitively, so all names sharing a prefix form one contiguous range.
+ * Every name carries number of occurrences per group, which is used both for visibility filtering
+ * and for ranking of the results.
+ *
+ * The index is thread-safe, lookups may run concurrently, updates are exclusive.
+ *
+ * @author agent (agent@local)
+ */
+public class PrefixIndex {
+
+   private static final Comparator<String> NAME_ORDER = new Comparator<String>() {
+      @Override
+      public int compare(String o1, String o2) {
+         int result = String.CASE_INSENSITIVE_ORDER.compare(o1, o2);
+         return result != 0 ? result : o1.compareTo(o2);
+      }
+   };
+
+   private final TreeMap<String, Map<String, Long>> entries = new TreeMap<>(NAME_ORDER);
+
+   private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+   /**
+    * Adds one occurrence of the name in the group.
+    *
+    * @param name
+    * @param group
+    */
+   public void add(String name, String group) {
+      add(name, group, 1);
+   }
+
+   /**
+    * Adds given number of occurrences of the name in the group.
+    *
+    * @param name
+    * @param group
+    * @param count
+    */
+   public void add(String name, String group, long count) {
+      if (name == null || count <= 0) {
+         return;
+      }
+      lock.writeLock().lock();
+      try {
+         Map<String, Long> groups = entries.get(name);
+         if (groups == null) {
+            groups = new HashMap<>(2);
+            entries.put(name, groups);
+         }
+         Long current = groups.get(group);
+         groups.put(group, current == null ? count : current + count);
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes one occurrence of the name in the group. When the name has no occurrences left,
+    * it's removed from the index.
+    *
+    * @param name
+    * @param group
+    */
+   public void remove(String name, String group) {
+      if (name == null) {
+         return;
+      }
+      lock.writeLock().lock();
+      try {
+         Map<String, Long> groups = entries.get(name);
+         if (groups == null) {
+            return;
+         }
+         Long current = groups.get(group);
+         if (current != null) {
+            if (current <= 1) {
+               groups.remove(group);
+            } else {
+               groups.put(group, current - 1);
+            }
+         }
+         if (groups.isEmpty()) {
+            entries.remove(name);
+         }
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes the name from the index regardless of number of its occurrences.
+    *
+    * @param name
+    */
+   public void removeAll(String name) {
+      if (name == null) {
+         return;
+      }
+      lock.writeLock().lock();
+      try {
+         entries.remove(name);
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * Removes all names from the index.
+    */
+   public void clear() {
+      lock.writeLock().lock();
+      try {
+         entries.clear();
+      } finally {
+         lock.writeLock().unlock();
+      }
+   }
+
+   /**
+    * @return number of distinct names in the index
+    */
+   public int size() {
+      lock.readLock().lock();
+      try {
+         return entries.size();
+      } finally {
+         lock.readLock().unlock();
+      }
+   }
+
+   /**
+    * Finds names starting with the prefix (case-insensitive), visible in at least one of the groups.
+    * Results are ordered by number of occurrences in the visible groups (most frequent first),
+    * names with equal frequency are ordered alphabetically.
+    *
+    * @param prefix
+    * @param groups visible groups, null means no restriction
+    * @param limit maximum number of returned names
+    * @return names matching the prefix
+    */
+   public List<String> find(String prefix, Collection<String> groups, int limit) {
+      if (prefix == null || limit <= 0) {
+         return Collections.emptyList();
+      }
+      // upper case variant is the lowest of all names equal to the prefix ignoring case
+      String from = prefix.toUpperCase(Locale.ENGLISH);
+      PriorityQueue<Match> topMatches = new PriorityQueue<>(limit + 1);
+      lock.readLock().lock();
+      try {
+         for (Map.Entry<String, Map<String, Long>> entry : entries.tailMap(from, true).entrySet()) {
+            String name = entry.getKey();
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+               break;
+            }
+            long frequency = visibleFrequency(entry.getValue(), groups);
+            if (frequency == 0) {
+               continue;
+            }
+            topMatches.add(new Match(name, frequency));
+            if (topMatches.size() > limit) {
+               topMatches.poll();
+            }
+         }
+      } finally {
+         lock.readLock().unlock();
+      }
+
+      List<String> result = new ArrayList<>(topMatches.size());
+      while (!topMatches.isEmpty()) {
+         result.add(topMatches.poll().name);
+      }
+      Collections.reverse(result);
+      return result;
+   }
+
+   /**
+    * Helper method. Sums occurrences of the name in the visible groups.
+    *
+    * @param occurrences
+    * @param groups
+    * @return number of visible occurrences
+    */
+   private long visibleFrequency(Map<String, Long> occurrences, Collection<String> groups) {
+      long frequency = 0;
+      for (Map.Entry<String, Long> occurrence : occurrences.entrySet()) {
+         if (groups == null || groups.contains(occurrence.getKey())) {
+            frequency += occurrence.getValue();
+         }
+      }
+      return frequency;
+   }
+
+   /**
+    * Candidate result, natural ordering puts the worst candidate first.
+    */
+   private static class Match implements Comparable<Match> {
+
+      private final String name;
+      private final long frequency;
+
+      private Match(String name, long frequency) {
+         this.name = name;
+         this.frequency = frequency;
+      }
+
+      @Override
+      public int compareTo(Match o) {
+         if (frequency != o.frequency) {
+            return frequency < o.frequency ? -1 : 1;
+         }
+         return NAME_ORDER.compare(o.name, name);
+      }
+   }
+}
@@ -0,0 +1,361 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.web.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes exported test executions as CSV or newline delimited JSON. Rows are written as they come, nothing is
+ * kept in memory except the output buffer.
+ *
+ * CSV has one line per value (or one line for a test execution without values) with columns id, test_uid, name,
+ * started, tags, parameters, metric, value and value_parameters. Tags are separated by spaces, parameters are JSON
+ * objects. NDJSON has one JSON object per test execution.
+ *
+ * @author agent (agent@local)
+ */
+public class TestExecutionExporter {
+
+   private static final String CSV_HEADER = "id,test_uid,name,started,tags,parameters,metric,value,value_parameters";
+
+   private final Format format;
+   private final Writer writer;
+   private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+   private boolean headerWritten = false;
+
+   public TestExecutionExporter(Format format, OutputStream output) {
+      this.format = format;
+      this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+   }
+
+   /**
+    * Writes one test execution.
+    *
+    * @param row
+    * @throws IOException
+    */
+   public void write(Row row) throws IOException {
+      if (format == Format.CSV) {
+         writeCsv(row);
+      } else {
+         writeJson(row);
+      }
+   }
+
+   /**
+    * Flushes written rows to the output. CSV header is written even when there was no row.
+    *
+    * @throws IOException
+    */
+   public void flush() throws IOException {
+      if (format == Format.CSV) {
+         writeCsvHeader();
+      }
+      writer.flush();
+   }
+
+   /**
+    * Helper method. Writes CSV lines of the test execution, one per value.
+    *
+    * @param row
+    * @throws IOException
+    */
+   private void writeCsv(Row row) throws IOException {
+      writeCsvHeader();
+      StringBuilder prefix = new StringBuilder();
+      prefix.append(row.getId()).append(',');
+      appendCsvField(prefix, row.getTestUid()).append(',');
+      appendCsvField(prefix, row.getName()).append(',');
+      appendCsvField(prefix, formatDate(row.getStarted())).append(',');
+      appendCsvField(prefix, String.join(" ", row.getTags())).append(',');
+      appendCsvField(prefix, appendJsonObject(new StringBuilder(), row.getParameters()).toString()).append(',');
+
+      if (row.getValues().isEmpty()) {
+         writer.append(prefix).append(",,\r\n");
+         return;
+      }
+      for (Value value : row.getValues()) {
+         StringBuilder line = new StringBuilder(prefix);
+         appendCsvField(line, value.getMetric()).append(',');
+         if (value.getValue() != null) {
+            line.append(value.getValue());
+         }
+         line.append(',');
+         if (!value.getParameters().isEmpty()) {
+            appendCsvField(line, appendJsonObject(new StringBuilder(), value.getParameters()).toString());
+         }
+         writer.append(line).append("\r\n");
+      }
+   }
+
+   /**
+    * Helper method. Writes the test execution as one line of JSON.
+    *
+    * @param row
+    * @throws IOException
+    */
+   private void writeJson(Row row) throws IOException {
+      StringBuilder json = new StringBuilder("{\"id\":").append(row.getId());
+      json.append(",\"testUid\":");
+      appendJsonString(json, row.getTestUid());
+      json.append(",\"name\":");
+      appendJsonString(json, row.getName());
+      json.append(",\"started\":");
+      appendJsonString(json, formatDate(row.getStarted()));
+      json.append(",\"tags\":[");
+      for (Iterator<String> it = row.getTags().iterator(); it.hasNext(); ) {
+         appendJsonString(json, it.next());
+         if (it.hasNext()) {
+            json.append(',');
+         }
+      }
+      json.append("],\"parameters\":");
+      appendJsonObject(json, row.getParameters());
+      json.append(",\"values\":[");
+      for (Iterator<Value> it = row.getValues().iterator(); it.hasNext(); ) {
+         Value value = it.next();
+         json.append("{\"metric\":");
+         appendJsonString(json, value.getMetric());
+         json.append(",\"value\":");
+         appendJsonNumber(json, value.getValue());
+         if (!value.getParameters().isEmpty()) {
+            json.append(",\"parameters\":");
+            appendJsonObject(json, value.getParameters());
+         }
+         json.append('}');
+         if (it.hasNext()) {
+            json.append(',');
+         }
+      }
+      json.append("]}\n");
+      writer.append(json);
+   }
+
+   /**
+    * Helper method. Writes CSV header, unless it was already written.
+    *
+    * @throws IOException
+    */
+   private void writeCsvHeader() throws IOException {
+      if (!headerWritten) {
+         writer.write(CSV_HEADER);
+         writer.write("\r\n");
+         headerWritten = true;
+      }
+   }
+
+   private String formatDate(Date date) {
+      return date == null ? null : dateFormat.format(date);
+   }
+
+   /**
+    * Helper method. Appends CSV field, quoted when it contains separator, quote or line break.
+    *
+    * @param builder
+    * @param field null is written as empty field
+    * @return the builder
+    */
+   private static StringBuilder appendCsvField(StringBuilder builder, String field) {
+      if (field == null) {
+         return builder;
+      }
+      if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+         return builder.append(field);
+      }
+      return builder.append('"').append(field.replace("\"", "\"\"")).append('"');
+   }
+
+   private static StringBuilder appendJsonObject(StringBuilder builder, Map<String, String> map) {
+      builder.append('{');
+      for (Iterator<Map.Entry<String, String>> it = map.entrySet().iterator(); it.hasNext(); ) {
+         Map.Entry<String, String> entry = it.next();
+         appendJsonString(builder, entry.getKey()).append(':');
+         appendJsonString(builder, entry.getValue());
+         if (it.hasNext()) {
+            builder.append(',');
+         }
+      }
+      return builder.append('}');
+   }
+
+   /**
+    * Helper method. Appends JSON number, JSON has no representation of NaN and infinities, so they're written
+    * as null.
+    *
+    * @param builder
+    * @param number
+    * @return the builder
+    */
+   private static StringBuilder appendJsonNumber(StringBuilder builder, Double number) {
+      if (number == null || number.isNaN() || number.isInfinite()) {
+         return builder.append("null");
+      }
+      return builder.append(number);
+   }
+
+   private static StringBuilder appendJsonString(StringBuilder builder, String string) {
+      if (string == null) {
+         return builder.append("null");
+      }
+      builder.append('"');
+      for (int i = 0; i < string.length(); i++) {
+         char c = string.charAt(i);
+         switch (c) {
+            case '"':
+               builder.append("\\\"");
+               break;
+            case '\\':
+               builder.append("\\\\");
+               break;
+            case '\n':
+               builder.append("\\n");
+               break;
+            case '\r':
+               builder.append("\\r");
+               break;
+            case '\t':
+               builder.append("\\t");
+               break;
+            default:
+               if (c < 0x20) {
+                  builder.append(String.format("\\u%04x", (int) c));
+               } else {
+                  builder.append(c);
+               }
+         }
+      }
+      return builder.append('"');
+   }
+
+   /**
+    * Export format.
+    */
+   public enum Format {
+      CSV("text/csv"), NDJSON("application/x-ndjson");
+
+      private final String mediaType;
+
+      Format(String mediaType) {
+         this.mediaType = mediaType;
+      }
+
+      public String getMediaType() {
+         return mediaType;
+      }
+
+      /**
+       * Finds format by its name, case-insensitive.
+       *
+       * @param name
+       * @return format or null when there is no such format
+       */
+      public static Format parse(String name) {
+         for (Format format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+               return format;
+            }
+         }
+         return null;
+      }
+   }
+
+   /**
+    * Exported test execution.
+    */
+   public static class Row {
+
+      private final Long id;
+      private final String testUid;
+      private final String name;
+      private final Date started;
+      private final List<String> tags = new ArrayList<>();
+      private final Map<String, String> parameters = new LinkedHashMap<>();
+      private final List<Value> values = new ArrayList<>();
+
+      public Row(Long id, String testUid, String name, Date started) {
+         this.id = id;
+         this.testUid = testUid;
+         this.name = name;
+         this.started = started;
+      }
+
+      public Long getId() {
+         return id;
+      }
+
+      public String getTestUid() {
+         return testUid;
+      }
+
+      public String getName() {
+         return name;
+      }
+
+      public Date getStarted() {
+         return started;
+      }
+
+      public List<String> getTags() {
+         return tags;
+      }
+
+      public Map<String, String> getParameters() {
+         return parameters;
+      }
+
+      public List<Value> getValues() {
+         return values;
+      }
+   }
+
+   /**
+    * Exported value of a test execution.
+    */
+   public static class Value {
+
+      private final String metric;
+      private final Double value;
+      private final Map<String, String> parameters = new LinkedHashMap<>();
+
+      public Value(String metric, Double value) {
+         this.metric = metric;
+         this.value = value;
+      }
+
+      public String getMetric() {
+         return metric;
+      }
+
+      public Double getValue() {
+         return value;
+      }
+
+      public Map<String, String> getParameters() {
+         return parameters;
+      }
+   }
+}
@@ -40,7 +40,17 @@ public class ViewUtils {
       if (param == null) {
          return "&nbsp;";
       }
-      String value = param.getValue();
+      return displayValue(param.getId(), param.getValue());
+   }
+
+   /**
+    * Same as {@link #displayValue(TestExecutionParameter)} for parameter given by its id and value.
+    *
+    * @param paramId
+    * @param value
+    * @return
+    */
+   public static String displayValue(Long paramId, String value) {
       if (value == null) {
          return "&nbsp;";
       }
@@ -52,7 +62,7 @@ public class ViewUtils {
             return "<a href=\"" + value + "\">" + value + "</a>";
          }
       } else if (value.length() > 100) {
-         return "<a href=\"" + FacesContext.getCurrentInstance().getExternalContext().getRequestContextPath() + "/param/" + param.getId() + "\">" + StringEscapeUtils.escapeHtml(value.substring(0, 96)) + " ...</a>";
+         return "<a href=\"" + FacesContext.getCurrentInstance().getExternalContext().getRequestContextPath() + "/param/" + paramId + "\">" + StringEscapeUtils.escapeHtml(value.substring(0, 96)) + " ...</a>";
       } else {
          return StringEscapeUtils.escapeHtml(value);
       }
@@ -0,0 +1,64 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.model.to.AlertReplayTO;
+import org.perfrepo.web.alerting.AlertReplayRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link org.perfrepo.web.alerting.AlertReplayRegistry}
+ *
+ * @author agent (agent@local)
+ */
+public class AlertReplayRegistryTest {
+
+   @Test
+   public void testReplayVisibleOnlyToOwner() {
+      AlertReplayRegistry registry = new AlertReplayRegistry();
+      AlertReplayTO replay = registry.start(1L, 10L, null);
+
+      assertNotNull(registry.get(1L, replay.getId()));
+      assertNull(registry.get(2L, replay.getId()));
+
+      registry.finish(replay.getId(), new AlertReplayTO());
+      assertEquals(AlertReplayTO.Status.FINISHED, registry.get(1L, replay.getId()).getStatus());
+      assertNull(registry.get(2L, replay.getId()));
+   }
+
+   @Test
+   public void testRunningReplaysLimited() {
+      AlertReplayRegistry registry = new AlertReplayRegistry();
+      AlertReplayTO replay = registry.start(1L, 10L, null);
+      assertNull(registry.start(1L, 11L, null));
+
+      List<AlertReplayTO> running = new ArrayList<>();
+      for (long user = 2; user <= AlertReplayRegistry.MAX_RUNNING_REPLAYS; user++) {
+         running.add(registry.start(user, 10L, null));
+      }
+      assertNull(registry.start(100L, 10L, null));
+
+      registry.fail(replay.getId(), "failed");
+      assertNotNull(registry.start(100L, 10L, null));
+      assertEquals(AlertReplayTO.Status.FAILED, registry.get(1L, replay.getId()).getStatus());
+   }
+
+   @Test
+   public void testRunningReplayNeverRemoved() {
+      AlertReplayRegistry registry = new AlertReplayRegistry();
+      AlertReplayTO running = registry.start(1L, 10L, null);
+      for (long i = 0; i < 2 * AlertReplayRegistry.MAX_REPLAYS; i++) {
+         AlertReplayTO replay = registry.start(2L, 10L, null);
+         registry.finish(replay.getId(), new AlertReplayTO());
+      }
+
+      assertEquals(AlertReplayTO.Status.RUNNING, registry.get(1L, running.getId()).getStatus());
+      registry.finish(running.getId(), new AlertReplayTO());
+      assertEquals(AlertReplayTO.Status.FINISHED, registry.get(1L, running.getId()).getStatus());
+   }
+}
@@ -0,0 +1,119 @@
+package org.perfrepo.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.model.Tag;
+import org.perfrepo.model.TestExecution;
+import org.perfrepo.model.TestExecutionParameter;
+import org.perfrepo.model.TestExecutionTag;
+import org.perfrepo.web.dao.TagDAO;
+import org.perfrepo.web.dao.TestDAO;
+import org.perfrepo.web.dao.TestExecutionParameterDAO;
+import org.perfrepo.web.service.AutocompleteServiceBean;
+
+import javax.transaction.Status;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link org.perfrepo.web.service.AutocompleteServiceBean}
+ *
+ * @author agent (agent@local)
+ */
+public class AutocompleteServiceBeanTest {
+
+   private static final List<String> GROUPS = Arrays.asList("perfrepouser");
+
+   private AutocompleteServiceBean autocompleteService;
+   private TestDAO mockedTestDAO;
+   private TestTransactionRegistry transaction;
+
+   @Before
+   public void init() {
+      mockedTestDAO = mock(TestDAO.class);
+      when(mockedTestDAO.getExecutionCounts()).thenReturn(Collections.singletonList(new Object[]{"test1", "perfrepouser", 1L}));
+      TagDAO mockedTagDAO = mock(TagDAO.class);
+      when(mockedTagDAO.getTagUsageByGroup()).thenReturn(new ArrayList<Object[]>());
+      TestExecutionParameterDAO mockedParameterDAO = mock(TestExecutionParameterDAO.class);
+      when(mockedParameterDAO.getParameterNameUsageByGroup()).thenReturn(new ArrayList<Object[]>());
+
+      transaction = new TestTransactionRegistry();
+      autocompleteService = new AutocompleteServiceBean();
+      autocompleteService.setTestDAO(mockedTestDAO);
+      autocompleteService.setTagDAO(mockedTagDAO);
+      autocompleteService.setTestExecutionParameterDAO(mockedParameterDAO);
+      autocompleteService.setTransactionSynchronizationRegistry(transaction);
+
+      assertEquals(Arrays.asList("test1"), autocompleteService.getTestUIDsByPrefix("test", GROUPS));
+   }
+
+   @Test
+   public void testChangesAppliedAfterCommit() {
+      transaction.begin();
+      autocompleteService.testExecutionCreated(createTestExecution("test2", "jdk8", "threads"));
+      assertTrue(autocompleteService.getTagsByPrefix("jdk", GROUPS).isEmpty());
+      transaction.end(Status.STATUS_COMMITTED);
+
+      assertEquals(Arrays.asList("test1", "test2"), autocompleteService.getTestUIDsByPrefix("test", GROUPS));
+      assertEquals(Arrays.asList("jdk8"), autocompleteService.getTagsByPrefix("jdk", GROUPS));
+      assertEquals(Arrays.asList("threads"), autocompleteService.getParameterNamesByPrefix("thr", GROUPS));
+   }
+
+   @Test
+   public void testChangesDroppedOnRollback() {
+      transaction.begin();
+      autocompleteService.testExecutionCreated(createTestExecution("test2", "jdk8", "threads"));
+      autocompleteService.tagsRemoved("perfrepouser", Arrays.asList("jdk8"));
+      transaction.end(Status.STATUS_ROLLEDBACK);
+
+      assertEquals(Arrays.asList("test1"), autocompleteService.getTestUIDsByPrefix("test", GROUPS));
+      assertTrue(autocompleteService.getTagsByPrefix("jdk", GROUPS).isEmpty());
+      assertTrue(autocompleteService.getParameterNamesByPrefix("thr", GROUPS).isEmpty());
+   }
+
+   @Test
+   public void testChangesWithoutTransactionAppliedImmediately() {
+      autocompleteService.tagsAdded("perfrepouser", Arrays.asList("jdk8"));
+      assertEquals(Arrays.asList("jdk8"), autocompleteService.getTagsByPrefix("jdk", GROUPS));
+   }
+
+   @Test
+   public void testInvalidateReloadsAfterCompletion() {
+      transaction.begin();
+      autocompleteService.invalidate();
+      autocompleteService.getTestUIDsByPrefix("test", GROUPS);
+      transaction.end(Status.STATUS_COMMITTED);
+      autocompleteService.getTestUIDsByPrefix("test", GROUPS);
+
+      // loaded by init, inside the transaction and after it
+      verify(mockedTestDAO, times(3)).getExecutionCounts();
+   }
+
+   private TestExecution createTestExecution(String testUid, String tag, String parameterName) {
+      org.perfrepo.model.Test test = new org.perfrepo.model.Test();
+      test.setUid(testUid);
+      test.setGroupId("perfrepouser");
+
+      TestExecution testExecution = new TestExecution();
+      testExecution.setTest(test);
+      Tag tagEntity = new Tag();
+      tagEntity.setName(tag);
+      TestExecutionTag testExecutionTag = new TestExecutionTag();
+      testExecutionTag.setTag(tagEntity);
+      testExecution.setTestExecutionTags(Arrays.asList(testExecutionTag));
+      TestExecutionParameter parameter = new TestExecutionParameter();
+      parameter.setName(parameterName);
+      testExecution.setParameters(Arrays.asList(parameter));
+
+      return testExecution;
+   }
+}
@@ -0,0 +1,100 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.model.MetricComparator;
+import org.perfrepo.web.alerting.ChangePointDetector;
+import org.perfrepo.web.alerting.ChangePointDetector.ChangePoint;
+import org.perfrepo.web.alerting.RollingWindow;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link org.perfrepo.web.alerting.ChangePointDetector}
+ *
+ * @author agent (agent@local)
+ */
+public class ChangePointDetectorTest {
+
+   @Test
+   public void testStepChange() {
+      Random random = new Random(42);
+      double[] values = new double[30];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = (i < 20 ? 100 : 80) + random.nextGaussian();
+      }
+      RollingWindow.Series series = createSeries(values);
+
+      ChangePoint changePoint = ChangePointDetector.detect(series, series.size(), MetricComparator.HB, ChangePointDetector.DEFAULT_THRESHOLD);
+      assertNotNull(changePoint);
+      assertEquals(1020, changePoint.getExecId());
+      assertTrue(changePoint.isRegression());
+      assertEquals(100, changePoint.getMeanBefore(), 1);
+      assertEquals(80, changePoint.getMeanAfter(), 1);
+
+      // lower is better, so the drop is an improvement
+      changePoint = ChangePointDetector.detect(series, series.size(), MetricComparator.LB, ChangePointDetector.DEFAULT_THRESHOLD);
+      assertNotNull(changePoint);
+      assertFalse(changePoint.isRegression());
+   }
+
+   @Test
+   public void testDrift() {
+      Random random = new Random(7);
+      double[] values = new double[30];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = (i < 15 ? 100 : 100 + 2 * (i - 14)) + random.nextGaussian();
+      }
+      RollingWindow.Series series = createSeries(values);
+
+      ChangePoint changePoint = ChangePointDetector.detect(series, series.size(), MetricComparator.LB, ChangePointDetector.DEFAULT_THRESHOLD);
+      assertNotNull(changePoint);
+      assertTrue(changePoint.isRegression());
+      assertTrue(changePoint.getExecId() >= 1015 && changePoint.getExecId() <= 1022);
+   }
+
+   @Test
+   public void testNoiseIsNotChange() {
+      Random random = new Random(13);
+      double[] values = new double[30];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = 100 + random.nextGaussian();
+      }
+
+      assertNull(ChangePointDetector.detect(createSeries(values), values.length, null, ChangePointDetector.DEFAULT_THRESHOLD));
+   }
+
+   @Test
+   public void testShortSeries() {
+      RollingWindow.Series series = createSeries(new double[] {1, 1, 1, 10, 10, 10});
+
+      assertNull(ChangePointDetector.detect(series, 5, null, ChangePointDetector.DEFAULT_THRESHOLD));
+      ChangePoint changePoint = ChangePointDetector.detect(series, 6, null, ChangePointDetector.DEFAULT_THRESHOLD);
+      assertEquals(1003, changePoint.getExecId());
+      assertEquals(Double.POSITIVE_INFINITY, changePoint.getScore(), 0d);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidWindow() {
+      ChangePointDetector.validateParameters(5, null);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidThreshold() {
+      ChangePointDetector.validateParameters(null, 0d);
+   }
+
+   private RollingWindow.Series createSeries(double[] values) {
+      long[] execIds = new long[values.length];
+      for (int i = 0; i < values.length; i++) {
+         execIds[i] = 1000 + i;
+      }
+
+      return new RollingWindow.Series(values, execIds);
+   }
+}
@@ -3,25 +3,53 @@ package org.perfrepo.test;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.perfrepo.model.Alert;
+import org.perfrepo.model.AlertType;
 import org.perfrepo.model.Metric;
-import org.perfrepo.model.TestExecution;
-import org.perfrepo.model.Value;
+import org.perfrepo.model.MetricComparator;
+import org.perfrepo.model.MetricRollup;
+import org.perfrepo.model.Tag;
+import org.perfrepo.model.to.AlertReplayTO;
+import org.perfrepo.model.to.MetricAggregateTO;
+import org.perfrepo.model.to.ResultWrapper;
 import org.perfrepo.model.to.TestExecutionSearchTO;
+import org.perfrepo.model.to.TestExecutionSearchTO.ParamCriteria;
+import org.perfrepo.model.util.QuantileSketch;
+import org.perfrepo.model.util.RunningStatistics;
+import org.perfrepo.web.alerting.ChangePointDetector;
+import org.perfrepo.web.alerting.CompiledCondition;
+import org.perfrepo.web.alerting.CompiledConditionCache;
 import org.perfrepo.web.alerting.ConditionCheckerImpl;
+import org.perfrepo.web.alerting.ConditionEvaluationExecutor;
+import org.perfrepo.web.alerting.ConditionResult;
+import org.perfrepo.web.alerting.RollingWindowCache;
+import org.perfrepo.web.dao.MetricRollupDAO;
 import org.perfrepo.web.dao.TestExecutionDAO;
 import org.perfrepo.web.service.UserService;
 
+import javax.transaction.Status;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -32,6 +60,8 @@ import static org.mockito.Mockito.when;
 public class ConditionCheckerTest {
 
    private ConditionCheckerImpl conditionChecker;
+   private TestExecutionDAO mockedTestExecutionDAO;
+   private RollingWindowCache rollingWindowCache;
 
    /**
     * Initial preparation for the test, mocking TestExecutionDAO.
@@ -40,13 +70,8 @@ public class ConditionCheckerTest {
    public void init() {
       conditionChecker = new ConditionCheckerImpl();
 
-      TestExecutionDAO mockedTestExecutionDAO = mock(TestExecutionDAO.class);
-      List<TestExecution> te1 = Arrays.asList(createTestExecution1());
-      List<TestExecution> te2 = Arrays.asList(createTestExecution2());
-
-      List<TestExecution> te1And2 = new ArrayList<>();
-      te1And2.addAll(te1);
-      te1And2.addAll(te2);
+      mockedTestExecutionDAO = mock(TestExecutionDAO.class);
+      when(mockedTestExecutionDAO.aggregateMetricValues(any(TestExecutionSearchTO.class), any(Metric.class), any(List.class))).thenReturn(createAggregate());
 
       TestExecutionSearchTO searchTe1 = createSearchCriteria(Arrays.asList(1L), null, null, null, null, null);
       TestExecutionSearchTO searchTe2 = createSearchCriteria(Arrays.asList(2L), null, null, null, null, null);
@@ -56,22 +81,29 @@ public class ConditionCheckerTest {
       TestExecutionSearchTO searchLast10 = createSearchCriteria(null, null, 11, 10, null, null);
       TestExecutionSearchTO search5FromLast10 = createSearchCriteria(null, null, 11, 5, null, null);
 
-      when(mockedTestExecutionDAO.searchTestExecutions(searchTe1, Arrays.asList("testuser"))).thenReturn(te1);
-      when(mockedTestExecutionDAO.searchTestExecutions(searchTe2, Arrays.asList("testuser"))).thenReturn(te2);
-      when(mockedTestExecutionDAO.searchTestExecutions(searchLast1, Arrays.asList("testuser"))).thenReturn(te2);
-      when(mockedTestExecutionDAO.searchTestExecutions(searchLast10, Arrays.asList("testuser"))).thenReturn(te1And2);
-      when(mockedTestExecutionDAO.searchTestExecutions(search5FromLast10, Arrays.asList("testuser"))).thenReturn(te1And2);
-      when(mockedTestExecutionDAO.searchTestExecutions(searchTe1And2, Arrays.asList("testuser"))).thenReturn(te1And2);
-
-      List<TestExecution> tesWithTags = Arrays.asList(createTestExecution3(), createTestExecution4());
+      mockAggregate(mockedTestExecutionDAO, searchTe1, 12d);
+      mockAggregate(mockedTestExecutionDAO, searchTe2, 100d);
+      mockAggregate(mockedTestExecutionDAO, searchLast1, 100d);
+      mockNewestValues(mockedTestExecutionDAO, searchLast10, 56d, 12d, 100d);
+      mockNewestValues(mockedTestExecutionDAO, search5FromLast10, 1000d, 1000d, 1000d, 1000d, 1000d, 1000d, 12d, 100d, 56d, 56d, 56d);
+      mockAggregate(mockedTestExecutionDAO, searchTe1And2, 12d, 100d);
+      mockSketch(mockedTestExecutionDAO, searchTe1And2, 12d, 100d);
+      mockStatistics(mockedTestExecutionDAO, searchTe1And2, 12d, 100d);
 
       TestExecutionSearchTO searchTesWithTags = createSearchCriteria(null, "firstTag secondTag", null, null, null, null);
       TestExecutionSearchTO searchTesWithTagsAndLast1 = createSearchCriteria(null, "firstTag secondTag", 2, 1, null, null);
       TestExecutionSearchTO searchTesWithTagsAnd2FromLast3 = createSearchCriteria(null, "firstTag secondTag", 4, 2, null, null);
 
-      when(mockedTestExecutionDAO.searchTestExecutions(searchTesWithTags, Arrays.asList("testuser"))).thenReturn(tesWithTags);
-      when(mockedTestExecutionDAO.searchTestExecutions(searchTesWithTagsAndLast1, Arrays.asList("testuser"))).thenReturn(te1);
-      when(mockedTestExecutionDAO.searchTestExecutions(searchTesWithTagsAnd2FromLast3, Arrays.asList("testuser"))).thenReturn(tesWithTags);
+      mockAggregate(mockedTestExecutionDAO, searchTesWithTags, 150d, 1001d);
+      mockAggregate(mockedTestExecutionDAO, searchTesWithTagsAndLast1, 12d);
+      mockNewestValues(mockedTestExecutionDAO, searchTesWithTagsAndLast1, 0d, 12d);
+      mockNewestValues(mockedTestExecutionDAO, searchTesWithTagsAnd2FromLast3, 0d, 0d, 150d, 1001d);
+
+      // LAST 5 reaches past the two stored values, rest of the window is in rollups
+      TestExecutionSearchTO searchRolledTagLast5 = createSearchCriteria(null, "rolledTag", 6, 5, null, null);
+      mockNewestValues(mockedTestExecutionDAO, searchRolledTagLast5, 0d, 100d);
+      mockSketch(mockedTestExecutionDAO, createSearchCriteria(null, "rolledTag", null, null, null, null));
+      mockStatistics(mockedTestExecutionDAO, createSearchCriteria(null, "rolledTag", null, null, null, null));
 
       Calendar calendar = Calendar.getInstance();
       calendar.set(2015, 0, 1, 0, 0, 0);
@@ -85,18 +117,26 @@ public class ConditionCheckerTest {
       TestExecutionSearchTO searchTesWithDates = createSearchCriteria(null, null, null, null, dateFrom, dateTo);
       TestExecutionSearchTO searchTesWithTagsAndDates = createSearchCriteria(null, "firstTag secondTag", null, null, dateFrom, dateTo);
 
-      List<TestExecution> tesWithTagsAndDates = Arrays.asList(createTestExecution1(), createTestExecution4());
+      when(mockedTestExecutionDAO.aggregateMetricValues(argThat(new SearchCriteriaMatcher(searchTesWithOnlyDateFrom)), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(createAggregate(150d, 1001d));
+      when(mockedTestExecutionDAO.aggregateMetricValues(argThat(new SearchCriteriaMatcher(searchTesWithOnlyDateTo)), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(createAggregate(150d, 1001d));
+      when(mockedTestExecutionDAO.aggregateMetricValues(argThat(new SearchCriteriaMatcher(searchTesWithDates)), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(createAggregate(12d, 1001d));
+      when(mockedTestExecutionDAO.aggregateMetricValues(argThat(new SearchCriteriaMatcher(searchTesWithTagsAndDates)), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(createAggregate(12d, 1001d));
 
-      when(mockedTestExecutionDAO.searchTestExecutions(argThat(new SearchCriteriaMatcher(searchTesWithOnlyDateFrom)), eq(Arrays.asList("testuser")))).thenReturn(tesWithTags);
-      when(mockedTestExecutionDAO.searchTestExecutions(argThat(new SearchCriteriaMatcher(searchTesWithOnlyDateTo)), eq(Arrays.asList("testuser")))).thenReturn(tesWithTags);
-      when(mockedTestExecutionDAO.searchTestExecutions(argThat(new SearchCriteriaMatcher(searchTesWithDates)), eq(Arrays.asList("testuser")))).thenReturn(tesWithTagsAndDates);
-      when(mockedTestExecutionDAO.searchTestExecutions(argThat(new SearchCriteriaMatcher(searchTesWithTagsAndDates)), eq(Arrays.asList("testuser")))).thenReturn(tesWithTagsAndDates);
+      when(mockedTestExecutionDAO.aggregateMetricValues(argThat(new ThreadsRangeMatcher()), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(createAggregate(12d, 100d));
+
+      MetricRollupDAO mockedMetricRollupDAO = mock(MetricRollupDAO.class);
+      when(mockedMetricRollupDAO.search(any(Long.class), eq(Arrays.asList("rolledtag")), eq(Collections.<String>emptyList()), any(Date.class), any(Date.class), any(Integer.class))).thenReturn(Arrays.asList(createRollup()));
 
       UserService mockedUserService = mock(UserService.class);
       when(mockedUserService.getLoggedUserGroupNames()).thenReturn(Arrays.asList("testuser"));
 
       conditionChecker.setTestExecutionDAO(mockedTestExecutionDAO);
+      conditionChecker.setMetricRollupDAO(mockedMetricRollupDAO);
       conditionChecker.setUserService(mockedUserService);
+
+      rollingWindowCache = new RollingWindowCache();
+      conditionChecker.setRollingWindowCache(rollingWindowCache);
+      conditionChecker.setConditionEvaluationExecutor(new ConditionEvaluationExecutor());
    }
 
    @Test
@@ -129,188 +169,542 @@ public class ConditionCheckerTest {
    @Test
    public void testSimpleSelect() {
       String condition = "CONDITION x > 10 DEFINE x = (SELECT WHERE id = 1)";
-      assertTrue(conditionChecker.checkCondition(condition, 0, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 0, createMetric()).isHolding());
 
       condition = "CONDITION x < 10 DEFINE x = (SELECT WHERE id = 1)";
-      assertFalse(conditionChecker.checkCondition(condition, 0, createMetric()));
+      assertFalse(conditionChecker.checkCondition(condition, 0, createMetric()).isHolding());
    }
 
    @Test
    public void testSimpleSelectSimpleLast() {
       String condition = "CONDITION x > 10 DEFINE x = (SELECT LAST 1)";
-      assertTrue(conditionChecker.checkCondition(condition, 0, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 0, createMetric()).isHolding());
 
       condition = "CONDITION x < 10 DEFINE x = (SELECT LAST 1)";
-      assertFalse(conditionChecker.checkCondition(condition, 0, createMetric()));
+      assertFalse(conditionChecker.checkCondition(condition, 0, createMetric()).isHolding());
    }
 
 
    @Test
    public void testSimpleSelectOptionalParentheses() {
       String condition = "CONDITION x > 10 DEFINE x = SELECT WHERE id = 1";
-      assertTrue(conditionChecker.checkCondition(condition, 0, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 0, createMetric()).isHolding());
 
       condition = "CONDITION x < 10 DEFINE x = SELECT WHERE id = 1";
-      assertFalse(conditionChecker.checkCondition(condition, 0, createMetric()));
+      assertFalse(conditionChecker.checkCondition(condition, 0, createMetric()).isHolding());
    }
 
    @Test
    public void testManySimpleSelects() {
       String condition = "CONDITION x > 10 && result > 0.95*y DEFINE x = (SELECT WHERE id = 1), y = (SELECT WHERE id = 2)";
-      assertTrue(conditionChecker.checkCondition(condition, 100, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 100, createMetric()).isHolding());
 
       condition = "CONDITION x > 10 && result > (0.95*y)+10 DEFINE x = (SELECT WHERE id = 1), y = (SELECT WHERE id = 2)";
-      assertFalse(conditionChecker.checkCondition(condition, 100, createMetric()));
+      assertFalse(conditionChecker.checkCondition(condition, 100, createMetric()).isHolding());
    }
 
    @Test
    public void testMultiSelectSimpleLast() {
       String condition = "CONDITION x == result DEFINE x = AVG(SELECT LAST 10)";
-      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
    }
 
    @Test
    public void testMultiSelectIntervalLast() {
       String condition = "CONDITION x == result DEFINE x = AVG(SELECT LAST 10, 5)";
-      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
    }
 
 
+   @Test
+   public void testRollingWindowUpdatedByNewValues() {
+      String condition = "CONDITION x == result DEFINE x = AVG(SELECT LAST 10)";
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
+
+      rollingWindowCache.valueAdded(1L, Collections.<String>emptyList(), new Date(10000), 10L, 200d);
+      rollingWindowCache.valueAdded(1L, Arrays.asList("someTag"), new Date(11000), 11L, 44d);
+      assertTrue(conditionChecker.checkCondition(condition, 92, createMetric()).isHolding());
+
+      // older value can't be added to the window, it's rebuilt from the database
+      rollingWindowCache.valueAdded(1L, Collections.<String>emptyList(), new Date(500), 12L, 0d);
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
+
+      TestExecutionSearchTO searchLast10 = createSearchCriteria(null, null, 11, 10, null, null);
+      verify(mockedTestExecutionDAO, times(2)).getNewestMetricValues(eq(searchLast10), any(Metric.class), eq(11), eq(Arrays.asList("testuser")));
+   }
+
+   @Test
+   public void testRollingWindowWithValuesOfTransaction() {
+      TestTransactionRegistry transaction = new TestTransactionRegistry();
+      rollingWindowCache.setTransactionSynchronizationRegistry(transaction);
+      String condition = "CONDITION x == result DEFINE x = AVG(SELECT LAST 10)";
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
+
+      // only the transaction storing the values sees them until commit
+      transaction.begin();
+      rollingWindowCache.valueStored(1L, Collections.<String>emptyList(), new Date(10000), 10L, 200d);
+      rollingWindowCache.valueStored(1L, Arrays.asList("someTag"), new Date(11000), 11L, 44d);
+      assertTrue(conditionChecker.checkCondition(condition, 92, createMetric()).isHolding());
+      transaction.end(Status.STATUS_ROLLEDBACK);
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
+
+      transaction.begin();
+      rollingWindowCache.valueStored(1L, Collections.<String>emptyList(), new Date(10000), 10L, 200d);
+      rollingWindowCache.valueStored(1L, Arrays.asList("someTag"), new Date(11000), 11L, 44d);
+      transaction.end(Status.STATUS_COMMITTED);
+      assertTrue(conditionChecker.checkCondition(condition, 92, createMetric()).isHolding());
+
+      TestExecutionSearchTO searchLast10 = createSearchCriteria(null, null, 11, 10, null, null);
+      verify(mockedTestExecutionDAO, times(1)).getNewestMetricValues(eq(searchLast10), any(Metric.class), eq(11), eq(Arrays.asList("testuser")));
+   }
+
    @Test
    public void testMultiSelectInWhere() {
       String condition = "CONDITION x == result DEFINE x = AVG(SELECT WHERE id IN (1,2))";
-      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
    }
 
    @Test
    public void testGroupFunctionMin() {
       String condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE id IN (1,2))";
-      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()).isHolding());
    }
 
    @Test
    public void testGroupFunctionMax() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE id IN (1,2))";
-      assertTrue(conditionChecker.checkCondition(condition, 100, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 100, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testGroupFunctionMedian() {
+      String condition = "CONDITION abs(x - result) <= result * 0.01 DEFINE x = MEDIAN(SELECT LAST 10, 5)";
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
+      assertFalse(conditionChecker.checkCondition(condition, 100, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testGroupFunctionPercentile() {
+      String condition = "CONDITION abs(x - result) <= result * 0.01 DEFINE x = PERCENTILE(100, SELECT LAST 10, 5)";
+      assertTrue(conditionChecker.checkCondition(condition, 100, createMetric()).isHolding());
+
+      condition = "CONDITION abs(x - result) <= result * 0.01 DEFINE x = PERCENTILE(0, SELECT WHERE id IN (1,2))";
+      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testGroupFunctionTrimmedMean() {
+      String condition = "CONDITION abs(x - result) <= result * 0.01 DEFINE x = TRIMMEDMEAN(0, SELECT WHERE id IN (1,2))";
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
+
+      // default 10 % trimmed from each side of the window 12, 100, 56, 56, 56
+      condition = "CONDITION abs(x - result) <= result * 0.01 DEFINE x = TRIMMEDMEAN(SELECT LAST 10, 5)";
+      assertTrue(conditionChecker.checkCondition(condition, 56, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testQuantileFromRollups() {
+      String condition = "CONDITION abs(x - result) <= result * 0.01 DEFINE x = MEDIAN(SELECT WHERE tags = \"rolledTag\")";
+      assertTrue(conditionChecker.checkCondition(condition, 50, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testGroupFunctionDispersion() {
+      // window 12, 100, 56, 56, 56 has mean 56 and sample variance 968
+      String condition = "CONDITION abs(x - result) < 0.000001 DEFINE x = VARIANCE(SELECT LAST 10, 5)";
+      assertTrue(conditionChecker.checkCondition(condition, 968, createMetric()).isHolding());
+
+      condition = "CONDITION abs(x - result) < 0.000001 DEFINE x = STDDEV(SELECT LAST 10, 5)";
+      assertTrue(conditionChecker.checkCondition(condition, Math.sqrt(968), createMetric()).isHolding());
+
+      condition = "CONDITION abs(x - result) < 0.000001 DEFINE x = CV(SELECT LAST 10, 5)";
+      assertTrue(conditionChecker.checkCondition(condition, Math.sqrt(968) / 56, createMetric()).isHolding());
+
+      condition = "CONDITION abs(x - result) < 0.000001 DEFINE x = VARIANCE(SELECT WHERE id IN (1,2))";
+      assertTrue(conditionChecker.checkCondition(condition, 3872, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testGroupFunctionZScore() {
+      String condition = "CONDITION z <= 3 DEFINE z = ZSCORE(result, SELECT LAST 10, 5)";
+      assertTrue(conditionChecker.checkCondition(condition, 100, createMetric()).isHolding());
+      assertFalse(conditionChecker.checkCondition(condition, 200, createMetric()).isHolding());
+
+      ConditionResult result = conditionChecker.checkCondition(condition, 56 + 2 * Math.sqrt(968), createMetric());
+      assertEquals(2, (Double) result.getVariables().get("z"), 0.000001);
+
+      condition = "CONDITION abs(z + 1) < 0.000001 DEFINE z = ZSCORE(56 - 2, SELECT LAST 10, 5)";
+      try {
+         conditionChecker.checkCondition(condition, 0, createMetric());
+         fail("Expression as ZSCORE argument should fail.");
+      } catch (IllegalArgumentException ex) {} //expected
+
+      // 12 is one population standard deviation below the mean of 12 and 100
+      condition = "CONDITION abs(z + sqrt(0.5)) < 0.000001 DEFINE z = ZSCORE(12, SELECT WHERE id IN (1,2))";
+      assertTrue(conditionChecker.checkCondition(condition, 0, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testDispersionFromRollups() {
+      // rollup of 3 values with mean 50 and population variance 400
+      String condition = "CONDITION abs(x - result) < 0.000001 DEFINE x = VARIANCE(SELECT WHERE tags = \"rolledTag\")";
+      assertTrue(conditionChecker.checkCondition(condition, 600, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testWrongGroupFunctionArgument() {
+      String[] conditions = {"CONDITION x == result DEFINE x = PERCENTILE(101, SELECT LAST 10)",
+                             "CONDITION x == result DEFINE x = PERCENTILE(high, SELECT LAST 10)",
+                             "CONDITION x == result DEFINE x = PERCENTILE(SELECT LAST 10)",
+                             "CONDITION x == result DEFINE x = TRIMMEDMEAN(50, SELECT LAST 10)",
+                             "CONDITION x == result DEFINE x = PERCENTILE(result, SELECT LAST 10)",
+                             "CONDITION x == result DEFINE x = STDDEV(2, SELECT LAST 10)",
+                             "CONDITION x == result DEFINE x = ZSCORE(SELECT LAST 10)"};
+      for (String condition : conditions) {
+         try {
+            conditionChecker.checkCondition(condition, 0, createMetric());
+            fail("Wrong argument should fail: " + condition);
+         } catch (IllegalArgumentException ex) {} //expected
+      }
    }
 
    @Test
    public void testSelectWithTags() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE tags = \"firstTag secondTag\")";
-      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()).isHolding());
    }
 
    @Test
    public void testSelectWithTagsAndSimpleLast() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE tags = \"firstTag secondTag\" LAST 1)";
-      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()).isHolding());
    }
 
    @Test
    public void testSimpleSelectWithTagsAndSimpleLast() {
       String condition = "CONDITION x == result DEFINE x = (SELECT WHERE tags = \"firstTag secondTag\" LAST 1)";
-      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()).isHolding());
    }
 
    @Test
    public void testSelectWithTagsAndMultiLast() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE tags = \"firstTag secondTag\" LAST 3, 2)";
-      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()).isHolding());
 
       condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE tags = \"firstTag secondTag\" LAST 3, 2)";
-      assertTrue(conditionChecker.checkCondition(condition, 150, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 150, createMetric()).isHolding());
    }
 
    @Test
    public void testSelectWithOnlyDateFrom() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE date >= \"2015-01-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()).isHolding());
 
       condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE date >= \"2015-01-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 150, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 150, createMetric()).isHolding());
    }
 
    @Test
    public void testSelectWithOnlyDateTo() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE date <= \"2015-02-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()).isHolding());
 
       condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE date <= \"2015-02-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 150, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 150, createMetric()).isHolding());
    }
 
    @Test
    public void testSelectWithDates() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE date >= \"2015-01-01 00:00\" AND date <= \"2015-02-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()).isHolding());
 
       condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE date >= \"2015-01-01 00:00\" AND date <= \"2015-02-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()).isHolding());
    }
 
    @Test
    public void testSelectWithTagsAndDates() {
       String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE tags = \"firstTag secondTag\" AND date >= \"2015-01-01 00:00\" AND date <= \"2015-02-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 1001, createMetric()).isHolding());
 
       condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE tags = \"firstTag secondTag\" AND date >= \"2015-01-01 00:00\" AND date <= \"2015-02-01 00:00\")";
-      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()));
+      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testSelectWithTagsFromRollups() {
+      String condition = "CONDITION x == result DEFINE x = AVG(SELECT WHERE tags = \"rolledTag\")";
+      assertTrue(conditionChecker.checkCondition(condition, 50, createMetric()).isHolding());
+
+      condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE tags = \"rolledTag\")";
+      assertTrue(conditionChecker.checkCondition(condition, 90, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testSelectWithTagsAndLastFromRollups() {
+      String condition = "CONDITION x == result DEFINE x = AVG(SELECT WHERE tags = \"rolledTag\" LAST 5)";
+      assertTrue(conditionChecker.checkCondition(condition, 62.5, createMetric()).isHolding());
+
+      condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE tags = \"rolledTag\" LAST 5)";
+      assertTrue(conditionChecker.checkCondition(condition, 10, createMetric()).isHolding());
+   }
+
+   @Test
+   public void testSelectWithParameterRange() {
+      String condition = "CONDITION x == result DEFINE x = MAX(SELECT WHERE param.threads >= 8 AND param.threads <= 64)";
+      assertTrue(conditionChecker.checkCondition(condition, 100, createMetric()).isHolding());
+
+      condition = "CONDITION x == result DEFINE x = MIN(SELECT WHERE param.threads >= 8 AND param.threads <= 64)";
+      assertTrue(conditionChecker.checkCondition(condition, 12, createMetric()).isHolding());
    }
 
-   private TestExecution createTestExecution1() {
-      Value value = new Value();
-      value.setResultValue(12d);
-      value.setMetric(createMetric());
+   @Test
+   public void testCompiledConditionIsCached() {
+      CompiledConditionCache cache = new CompiledConditionCache();
+      conditionChecker.setCompiledConditionCache(cache);
+
+      Alert alert = new Alert();
+      alert.setId(1L);
+      alert.setCondition("CONDITION result > x DEFINE x = (SELECT WHERE id = 1)");
+
+      assertTrue(conditionChecker.checkCondition(alert, 13, createMetric()).isHolding());
+      CompiledCondition compiled = cache.get(1L, alert.getCondition());
+      assertNotNull(compiled);
 
-      Collection<Value> values = new ArrayList<>();
-      values.add(value);
+      assertFalse(conditionChecker.checkCondition(alert, 11, createMetric()).isHolding());
+      assertSame(compiled, cache.get(1L, alert.getCondition()));
 
-      TestExecution te = new TestExecution();
-      te.setValues(values);
+      alert.setCondition("CONDITION result < x DEFINE x = (SELECT WHERE id = 1)");
+      assertNull(cache.get(1L, alert.getCondition()));
+      assertTrue(conditionChecker.checkCondition(alert, 11, createMetric()).isHolding());
 
-      return te;
+      cache.invalidate(1L);
+      assertNull(cache.get(1L, alert.getCondition()));
    }
 
-   private TestExecution createTestExecution2() {
-      Value value = new Value();
-      value.setResultValue(100d);
-      value.setMetric(createMetric());
+   @Test
+   public void testCheckConditionsSharesSelects() {
+      conditionChecker.setCompiledConditionCache(new CompiledConditionCache());
+      Metric otherMetric = new Metric();
+      otherMetric.setId(2L);
+
+      Alert avgAlert = createAlert(1L, "CONDITION result > x DEFINE x = AVG(SELECT WHERE id IN (1,2))", createMetric());
+      Alert maxAlert = createAlert(2L, "CONDITION result > x DEFINE x = MAX(SELECT WHERE id IN (1,2))", createMetric());
+      Alert otherAlert = createAlert(3L, "CONDITION result > x DEFINE x = MAX(SELECT WHERE id IN (1,2))", otherMetric);
 
-      Collection<Value> values = new ArrayList<>();
-      values.add(value);
+      Map<Long, Double> results = new HashMap<>();
+      results.put(1L, 60d);
+      Map<Alert, ConditionResult> checked = conditionChecker.checkConditions(Arrays.asList(avgAlert, maxAlert, otherAlert), results);
 
-      TestExecution te = new TestExecution();
-      te.setValues(values);
+      assertEquals(Arrays.asList(avgAlert, maxAlert), new ArrayList<>(checked.keySet()));
+      assertTrue(checked.get(avgAlert).isHolding());
+      assertFalse(checked.get(maxAlert).isHolding());
+      assertEquals(100d, checked.get(maxAlert).getVariables().get("x"));
 
-      return te;
+      TestExecutionSearchTO searchTe1And2 = createSearchCriteria(Arrays.asList(1L, 2L), null, null, null, null, null);
+      verify(mockedTestExecutionDAO, times(1)).aggregateMetricValues(eq(searchTe1And2), any(Metric.class), eq(Arrays.asList("testuser")));
    }
 
-   private TestExecution createTestExecution3() {
-      Value value = new Value();
-      value.setResultValue(150d);
-      value.setMetric(createMetric());
+   @Test
+   public void testCheckConditionsConcurrently() {
+      conditionChecker.setCompiledConditionCache(new CompiledConditionCache());
 
-      Collection<Value> values = new ArrayList<>();
-      values.add(value);
+      List<Alert> alerts = new ArrayList<>();
+      for (long i = 0; i < 50; i++) {
+         String threshold = String.valueOf(40 + i);
+         alerts.add(createAlert(i, "CONDITION result > x - 16 + " + threshold + " DEFINE x = AVG(SELECT WHERE id IN (1,2))", createMetric()));
+      }
 
-      TestExecution te = new TestExecution();
-      te.setValues(values);
+      Map<Long, Double> results = new HashMap<>();
+      results.put(1L, 120d);
+      Map<Alert, ConditionResult> checked = conditionChecker.checkConditions(alerts, results);
 
-      return te;
+      assertEquals(alerts, new ArrayList<>(checked.keySet()));
+      for (Alert alert : alerts) {
+         // x - 16 + 40 + id = 80 + id
+         assertEquals(alert.getId() < 40, checked.get(alert).isHolding());
+         assertEquals(56d, checked.get(alert).getVariables().get("x"));
+         assertEquals(120d, checked.get(alert).getVariables().get("result"));
+      }
    }
 
-   private TestExecution createTestExecution4() {
-      Value value = new Value();
-      value.setResultValue(1001d);
-      value.setMetric(createMetric());
+   @Test
+   public void testChangePointAlert() {
+      conditionChecker.setCompiledConditionCache(new CompiledConditionCache());
+      Tag tag = new Tag();
+      tag.setName("cpTag");
+      Metric metric = createMetric();
+      metric.setComparator(MetricComparator.LB);
+      Alert alert = createAlert(1L, "", metric);
+      alert.setType(AlertType.CHANGE_POINT);
+      alert.setChangeWindow(10);
+      alert.setTags(Arrays.asList(tag));
+      mockNewestValues(mockedTestExecutionDAO, createSearchCriteria(null, "cpTag", 10, 10, null, null),
+                       20d, 20d, 20d, 10d, 10d, 10d, 10d, 10d, 10d, 10d);
+
+      Map<Long, Double> results = new HashMap<>();
+      results.put(1L, 20d);
+      ConditionResult result = conditionChecker.checkConditions(Arrays.asList(alert), results).get(alert);
+      assertFalse(result.isHolding());
+      assertEquals(8L, result.getVariables().get(ChangePointDetector.FIRST_BAD_EXECUTION_VARIABLE));
+      assertEquals(10d, result.getVariables().get(ChangePointDetector.MEAN_BEFORE_VARIABLE));
+      assertEquals(20d, result.getVariables().get(ChangePointDetector.MEAN_AFTER_VARIABLE));
+
+      // the change was already reported
+      rollingWindowCache.valueAdded(1L, Arrays.asList("cpTag"), new Date(11000), 11L, 20d);
+      result = conditionChecker.checkConditions(Arrays.asList(alert), results).get(alert);
+      assertTrue(result.isHolding());
+      assertEquals(8L, result.getVariables().get(ChangePointDetector.FIRST_BAD_EXECUTION_VARIABLE));
+
+      // improvement isn't reported
+      metric.setComparator(MetricComparator.HB);
+      assertTrue(conditionChecker.checkCondition(alert, 20, metric).isHolding());
+   }
 
-      Collection<Value> values = new ArrayList<>();
-      values.add(value);
+   @Test
+   public void testReplay() {
+      Alert alert = createAlert(null, "CONDITION result < 2 * x DEFINE x = AVG(SELECT LAST 3)", createMetric());
+      alert.setTest(createTest());
+      alert.setTags(Collections.<Tag>emptyList());
+      mockHistory(Arrays.asList(1L, 2L, 4L, 5L, 7L), 10d, 10d, 10d, 10d, 30d, 10d, 10d);
+
+      // test execution 3 isn't checked, but it's in the window of the later ones
+      AlertReplayTO replay = conditionChecker.replay(alert, new Date(4000), Arrays.asList("testuser"));
+      assertEquals(3, replay.getEvaluated());
+      assertEquals(1, replay.getFirings().size());
+      assertEquals(Long.valueOf(5L), replay.getFirings().get(0).getExecId());
+      assertEquals(30d, replay.getFirings().get(0).getResult(), 0d);
+
+      // the window is empty for the first test execution, so x is 0
+      replay = conditionChecker.replay(alert, null, Arrays.asList("testuser"));
+      assertEquals(5, replay.getEvaluated());
+      assertEquals(2, replay.getFirings().size());
+      assertEquals(Long.valueOf(1L), replay.getFirings().get(0).getExecId());
+   }
 
-      TestExecution te = new TestExecution();
-      te.setValues(values);
+   @Test
+   public void testReplayChangePoint() {
+      Metric metric = createMetric();
+      metric.setComparator(MetricComparator.LB);
+      Alert alert = createAlert(null, "", metric);
+      alert.setType(AlertType.CHANGE_POINT);
+      alert.setChangeWindow(10);
+      alert.setTest(createTest());
+      mockHistory(null, 10d, 10d, 10d, 10d, 10d, 10d, 10d, 20d, 20d, 20d, 20d, 20d);
+
+      AlertReplayTO replay = conditionChecker.replay(alert, null, Arrays.asList("testuser"));
+      assertEquals(12, replay.getEvaluated());
+      // the change is reported once, when it's significant for the first time
+      assertEquals(1, replay.getFirings().size());
+      assertEquals(Long.valueOf(10L), replay.getFirings().get(0).getExecId());
+   }
 
-      return te;
+   @Test(expected = UnsupportedOperationException.class)
+   public void testConditionResultIsImmutable() {
+      ConditionResult result = conditionChecker.checkCondition("CONDITION x > 10 DEFINE x = (SELECT WHERE id = 1)", 0, createMetric());
+      result.getVariables().put("x", 1d);
+   }
+
+   private Alert createAlert(Long id, String condition, Metric metric) {
+      Alert alert = new Alert();
+      alert.setId(id);
+      alert.setCondition(condition);
+      alert.setMetric(metric);
+
+      return alert;
+   }
+
+   private void mockAggregate(TestExecutionDAO mockedTestExecutionDAO, TestExecutionSearchTO searchCriteria, Double... values) {
+      when(mockedTestExecutionDAO.aggregateMetricValues(eq(searchCriteria), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(createAggregate(values));
+   }
+
+   private void mockSketch(TestExecutionDAO mockedTestExecutionDAO, TestExecutionSearchTO searchCriteria, Double... values) {
+      QuantileSketch sketch = new QuantileSketch();
+      for (Double value : values) {
+         sketch.add(value);
+      }
+      when(mockedTestExecutionDAO.sketchMetricValues(eq(searchCriteria), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(sketch);
+   }
+
+   private void mockStatistics(TestExecutionDAO mockedTestExecutionDAO, TestExecutionSearchTO searchCriteria, Double... values) {
+      RunningStatistics statistics = new RunningStatistics();
+      for (Double value : values) {
+         statistics.add(value);
+      }
+      when(mockedTestExecutionDAO.summarizeMetricValues(eq(searchCriteria), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(statistics);
+   }
+
+   /**
+    * Helper method. Mocks the newest values of LAST window, the values are retrieved up to end of the window.
+    *
+    * @param mockedTestExecutionDAO
+    * @param searchCriteria
+    * @param values values, the newest first
+    */
+   private void mockNewestValues(TestExecutionDAO mockedTestExecutionDAO, TestExecutionSearchTO searchCriteria, Double... values) {
+      List<ResultWrapper> newestValues = new ArrayList<>();
+      for (int i = 0; i < values.length; i++) {
+         long execId = values.length - i;
+         newestValues.add(new ResultWrapper(values[i], execId, new Date(execId * 1000)));
+      }
+      when(mockedTestExecutionDAO.getNewestMetricValues(eq(searchCriteria), any(Metric.class), eq(searchCriteria.getLimitFrom()), eq(Arrays.asList("testuser")))).thenReturn(newestValues);
+   }
+
+   /**
+    * Helper method. Mocks the history of the metric replayed by alert.
+    *
+    * @param alertExecIds ids of the test executions matching the alert, null for all
+    * @param values values, the oldest first, execution ids and start times (in seconds) are numbered from 1
+    */
+   @SuppressWarnings("unchecked")
+   private void mockHistory(List<Long> alertExecIds, final Double... values) {
+      Set<Long> execIds = new HashSet<>();
+      for (long i = 1; i <= values.length; i++) {
+         if (alertExecIds == null || alertExecIds.contains(i)) {
+            execIds.add(i);
+         }
+      }
+      when(mockedTestExecutionDAO.getMetricValueExecIds(any(TestExecutionSearchTO.class), any(Metric.class), eq(Arrays.asList("testuser")))).thenReturn(execIds);
+
+      doAnswer(new Answer<Void>() {
+         @Override
+         public Void answer(InvocationOnMock invocation) {
+            Consumer<ResultWrapper> consumer = (Consumer<ResultWrapper>) invocation.getArguments()[3];
+            for (int i = 0; i < values.length; i++) {
+               long execId = i + 1;
+               consumer.accept(new ResultWrapper(values[i], execId, new Date(execId * 1000)));
+            }
+            return null;
+         }
+      }).when(mockedTestExecutionDAO).scrollMetricValues(any(TestExecutionSearchTO.class), any(Metric.class), eq(Arrays.asList("testuser")), any(Consumer.class));
+   }
+
+   private MetricAggregateTO createAggregate(Double... values) {
+      return createAggregate(values.length, values);
+   }
+
+   private MetricAggregateTO createAggregate(long storedCount, Double... values) {
+      if (values.length == 0) {
+         return new MetricAggregateTO(0, null, null, null, storedCount);
+      }
+
+      double sum = 0;
+      for (Double value : values) {
+         sum += value;
+      }
+      return new MetricAggregateTO(values.length, sum, Collections.min(Arrays.asList(values)), Collections.max(Arrays.asList(values)), storedCount);
+   }
+
+   private MetricRollup createRollup() {
+      MetricRollup rollup = new MetricRollup();
+      rollup.setTags(" rolledTag ");
+      rollup.setCount(3);
+      rollup.setMin(10);
+      rollup.setMax(90);
+      rollup.setMean(50);
+      rollup.setVariance(400);
+
+      return rollup;
    }
 
    private org.perfrepo.model.Test createTest() {
@@ -323,6 +717,7 @@ public class ConditionCheckerTest {
 
    private Metric createMetric() {
       Metric metric = new Metric();
+      metric.setId(1L);
       metric.setName("metric1");
 
       return metric;
@@ -340,6 +735,28 @@ public class ConditionCheckerTest {
       return searchCriteria;
    }
 
+   /**
+    * Helper class. Matches search criteria restricting parameter 'threads' to range from 8 to 64.
+    */
+   private class ThreadsRangeMatcher extends ArgumentMatcher<TestExecutionSearchTO> {
+
+      @Override
+      public boolean matches(Object o) {
+         if (!(o instanceof TestExecutionSearchTO)) {
+            return false;
+         }
+
+         List<ParamCriteria> parameters = ((TestExecutionSearchTO) o).getParameters();
+         return parameters.size() == 2
+             && matches(parameters.get(0), ParamCriteria.Operator.GE, "8")
+             && matches(parameters.get(1), ParamCriteria.Operator.LE, "64");
+      }
+
+      private boolean matches(ParamCriteria paramCriteria, ParamCriteria.Operator operator, String value) {
+         return "threads".equals(paramCriteria.getName()) && operator == paramCriteria.getOperator() && value.equals(paramCriteria.getValue());
+      }
+   }
+
    /**
     * Helper class. When mocking objects with Mockito, Mockito by default uses Object.equals method to distinguish which
     * method to call. There is a problem with Date objects. Even is two Date objects are created with the same Date
@@ -0,0 +1,91 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.web.alerting.Expression;
+import org.perfrepo.web.alerting.ExpressionException;
+import org.perfrepo.web.alerting.ExpressionException.ErrorType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link org.perfrepo.web.alerting.Expression}
+ *
+ * @author agent (agent@local)
+ */
+public class ExpressionTest {
+
+   private static final List<String> VARIABLES = Arrays.asList("result", "x", "y");
+
+   @Test
+   public void testArithmetic() {
+      Map<String, Object> variables = variables(10d, 4d, null);
+
+      assertEquals(1d, Expression.compile("1 + 2 * 3 - 6", VARIABLES).evaluate(variables));
+      assertEquals(2.5, Expression.compile("result / x", VARIABLES).evaluate(variables));
+      assertEquals(2d, Expression.compile("result % x", VARIABLES).evaluate(variables));
+      assertEquals(-14d, Expression.compile("-(result + x)", VARIABLES).evaluate(variables));
+      assertEquals(0d, Expression.compile("y", VARIABLES).evaluate(variables));
+      assertEquals(Double.POSITIVE_INFINITY, Expression.compile("result / 0", VARIABLES).evaluate(variables));
+      assertEquals(4d, Expression.compile("Math.min(result, x, 5)", VARIABLES).evaluate(variables));
+      assertEquals(1000d, Expression.compile("pow(result, 3)", VARIABLES).evaluate(variables));
+      assertEquals(15d, Expression.compile(".5e1 * 3", VARIABLES).evaluate(variables));
+   }
+
+   @Test
+   public void testConditions() {
+      Map<String, Object> variables = variables(10d, 11d, 9d);
+
+      assertTrue(Expression.compileCondition("result < x * 0.95", VARIABLES).evaluateCondition(variables));
+      assertFalse(Expression.compileCondition("result >= x", VARIABLES).evaluateCondition(variables));
+      assertTrue(Expression.compileCondition("result > y && result < x", VARIABLES).evaluateCondition(variables));
+      assertTrue(Expression.compileCondition("result == 10 || x / 0 > 1", VARIABLES).evaluateCondition(variables));
+      assertTrue(Expression.compileCondition("!(result != 10) == true", VARIABLES).evaluateCondition(variables));
+      assertTrue(Expression.compileCondition("(result > x ? x : y) == 9", VARIABLES).evaluateCondition(variables));
+      assertTrue(Expression.compileCondition("abs(result - x) <= 1", VARIABLES).evaluateCondition(variables));
+   }
+
+   @Test
+   public void testErrors() {
+      assertError("result < ", ErrorType.SYNTAX);
+      assertError("(result < x", ErrorType.SYNTAX);
+      assertError("result # x", ErrorType.SYNTAX);
+      assertError("result < z", ErrorType.UNDEFINED_VARIABLE);
+      assertError("result + x", ErrorType.TYPE);
+      assertError("(result < x) + 1", ErrorType.TYPE);
+      assertError("result && x", ErrorType.TYPE);
+      assertError("median(result) > 1", ErrorType.UNKNOWN_FUNCTION);
+      assertError("pow(result) > 1", ErrorType.UNKNOWN_FUNCTION);
+   }
+
+   @Test
+   public void testFormat() {
+      assertEquals("12", Expression.format(12d));
+      assertEquals("-0.25", Expression.format(-0.25));
+      assertEquals("true", Expression.format(true));
+   }
+
+   private void assertError(String condition, ErrorType errorType) {
+      try {
+         Expression.compileCondition(condition, VARIABLES);
+         fail("Condition " + condition + " should fail.");
+      } catch (ExpressionException ex) {
+         assertEquals(errorType, ex.getErrorType());
+      }
+   }
+
+   private Map<String, Object> variables(Double result, Double x, Double y) {
+      Map<String, Object> variables = new HashMap<>();
+      variables.put("result", result);
+      variables.put("x", x);
+      variables.put("y", y);
+      return variables;
+   }
+}
@@ -0,0 +1,78 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.model.util.ParameterValues;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link org.perfrepo.model.util.ParameterValues}, the cases follow the regular expressions
+ * parsing the existing values in migration_1_4_to1_5.sql.
+ *
+ * @author agent (agent@local)
+ */
+public class ParameterValuesTest {
+
+   private static final double KB = 1024d;
+
+   @Test
+   public void testNumbers() {
+      assertEquals(64d, ParameterValues.parseNumber("64"), 0d);
+      assertEquals(64d, ParameterValues.parseNumber(" 64\t"), 0d);
+      assertEquals(0.75d, ParameterValues.parseNumber("0.75"), 0d);
+      assertEquals(0.5d, ParameterValues.parseNumber(".5"), 0d);
+      assertEquals(5d, ParameterValues.parseNumber("5."), 0d);
+      assertEquals(-3d, ParameterValues.parseNumber("-3"), 0d);
+      assertEquals(2d, ParameterValues.parseNumber("+2"), 0d);
+      assertEquals(1e6d, ParameterValues.parseNumber("1e6"), 0d);
+      assertEquals(1.5e-3d, ParameterValues.parseNumber("1.5E-03"), 0d);
+      assertEquals(9e99d, ParameterValues.parseNumber("9e+99"), 0d);
+   }
+
+   @Test
+   public void testSizes() {
+      assertEquals(512 * KB, ParameterValues.parseNumber("512k"), 0d);
+      assertEquals(1.5 * KB, ParameterValues.parseNumber("1.5K"), 0d);
+      assertEquals(10 * KB * KB, ParameterValues.parseNumber("10m"), 0d);
+      assertEquals(4 * KB * KB * KB, ParameterValues.parseNumber("4g"), 0d);
+      assertEquals(4 * KB * KB * KB, ParameterValues.parseNumber("4GB"), 0d);
+      assertEquals(2 * KB * KB * KB * KB, ParameterValues.parseNumber(" 2 tb "), 0d);
+      assertEquals(-KB, ParameterValues.parseNumber("-1k"), 0d);
+   }
+
+   @Test
+   public void testNonNumericValues() {
+      assertNull(ParameterValues.parseNumber(null));
+      assertNull(ParameterValues.parseNumber(""));
+      assertNull(ParameterValues.parseNumber(" "));
+      assertNull(ParameterValues.parseNumber("abc"));
+      assertNull(ParameterValues.parseNumber("."));
+      assertNull(ParameterValues.parseNumber("-"));
+      assertNull(ParameterValues.parseNumber("1.2.3"));
+      assertNull(ParameterValues.parseNumber("1 2"));
+      assertNull(ParameterValues.parseNumber("k"));
+      assertNull(ParameterValues.parseNumber("1x"));
+      assertNull(ParameterValues.parseNumber("1kbb"));
+      assertNull(ParameterValues.parseNumber("1kib"));
+      assertNull(ParameterValues.parseNumber("1e6k"));
+      assertNull(ParameterValues.parseNumber("1e"));
+      assertNull(ParameterValues.parseNumber("0x10"));
+      assertNull(ParameterValues.parseNumber("NaN"));
+      assertNull(ParameterValues.parseNumber("Infinity"));
+   }
+
+   @Test
+   public void testOutOfRangeValues() {
+      // exponents with more than 2 digits and values longer than 64 characters are left non-numeric
+      assertNull(ParameterValues.parseNumber("1e100"));
+      assertNull(ParameterValues.parseNumber("1e400"));
+
+      StringBuilder value = new StringBuilder();
+      while (value.length() < ParameterValues.MAX_LENGTH) {
+         value.append('1');
+      }
+      assertEquals(Double.valueOf(value.toString()), ParameterValues.parseNumber(value.toString()));
+      assertNull(ParameterValues.parseNumber(value.append('1').toString()));
+   }
+}
@@ -0,0 +1,72 @@
+package org.perfrepo.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.web.util.PrefixIndex;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link org.perfrepo.web.util.PrefixIndex}
+ *
+ * @author agent (agent@local)
+ */
+public class PrefixIndexTest {
+
+   private PrefixIndex index;
+
+   @Before
+   public void init() {
+      index = new PrefixIndex();
+      index.add("jdk7", "perfrepouser", 3);
+      index.add("jdk8", "perfrepouser", 5);
+      index.add("JDK9", "perfrepouser", 1);
+      index.add("jdk8", "othergroup", 10);
+      index.add("jboss", "othergroup", 2);
+      index.add("stable", "perfrepouser");
+   }
+
+   @Test
+   public void testFindOrderedByFrequency() {
+      assertEquals(Arrays.asList("jdk8", "jdk7", "JDK9"), index.find("jdk", Arrays.asList("perfrepouser"), 10));
+      assertEquals(Arrays.asList("jdk8", "jdk7", "jboss", "JDK9"), index.find("j", null, 10));
+   }
+
+   @Test
+   public void testFindCaseInsensitive() {
+      assertEquals(Arrays.asList("jdk8", "jdk7", "JDK9"), index.find("JDK", Arrays.asList("perfrepouser"), 10));
+      assertEquals(Arrays.asList("JDK9"), index.find("jdk9", null, 10));
+   }
+
+   @Test
+   public void testFindLimit() {
+      assertEquals(Arrays.asList("jdk8", "jdk7"), index.find("jdk", Arrays.asList("perfrepouser"), 2));
+      assertTrue(index.find("jdk", null, 0).isEmpty());
+   }
+
+   @Test
+   public void testGroupVisibility() {
+      assertEquals(Arrays.asList("jboss"), index.find("jb", Arrays.asList("othergroup"), 10));
+      assertTrue(index.find("jb", Arrays.asList("perfrepouser"), 10).isEmpty());
+      assertTrue(index.find("jdk", Collections.<String>emptyList(), 10).isEmpty());
+   }
+
+   @Test
+   public void testRemove() {
+      index.remove("stable", "perfrepouser");
+      assertTrue(index.find("st", null, 10).isEmpty());
+
+      index.remove("jdk8", "perfrepouser");
+      index.remove("jdk8", "perfrepouser");
+      index.remove("jdk8", "perfrepouser");
+      assertEquals(Arrays.asList("jdk7", "jdk8", "JDK9"), index.find("jdk", Arrays.asList("perfrepouser"), 10));
+
+      index.removeAll("jdk8");
+      assertEquals(Arrays.asList("jdk7", "JDK9"), index.find("jdk", null, 10));
+      assertEquals(3, index.size());
+   }
+}
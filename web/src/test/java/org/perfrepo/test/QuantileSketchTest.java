@@ -0,0 +1,115 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.model.util.QuantileSketch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link org.perfrepo.model.util.QuantileSketch}
+ *
+ * @author agent (agent@local)
+ */
+public class QuantileSketchTest {
+
+   private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.9, 0.95, 0.99, 1};
+
+   @Test
+   public void testQuantilesWithinRelativeAccuracy() {
+      Random random = new Random(42);
+      QuantileSketch sketch = new QuantileSketch();
+      List<Double> values = new ArrayList<>();
+      for (int i = 0; i < 10000; i++) {
+         double value = Math.exp(random.nextGaussian() * 3) - 1;
+         values.add(value);
+         sketch.add(value);
+      }
+
+      assertQuantiles(values, sketch);
+   }
+
+   @Test
+   public void testMergeAndRemove() {
+      Random random = new Random(7);
+      QuantileSketch first = new QuantileSketch();
+      QuantileSketch second = new QuantileSketch();
+      List<Double> values = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+         double value = random.nextInt(2000) - 500;
+         values.add(value);
+         (i % 2 == 0 ? first : second).add(value);
+      }
+
+      QuantileSketch merged = first.copy();
+      merged.merge(second);
+      assertEquals(values.size(), merged.getCount(), 0d);
+      assertQuantiles(values, merged);
+
+      for (int i = 0; i < 500; i++) {
+         merged.remove(values.remove(values.size() - 1));
+      }
+      assertEquals(values.size(), merged.getCount(), 0d);
+      assertQuantiles(values, merged);
+   }
+
+   @Test
+   public void testSerialization() {
+      QuantileSketch sketch = new QuantileSketch();
+      for (int i = -100; i <= 1000; i++) {
+         sketch.add(i * 1.5);
+      }
+
+      QuantileSketch deserialized = QuantileSketch.fromBytes(sketch.toBytes());
+      assertEquals(sketch.getCount(), deserialized.getCount(), 0d);
+      for (double quantile : QUANTILES) {
+         assertEquals(sketch.getQuantile(quantile), deserialized.getQuantile(quantile), 0d);
+      }
+   }
+
+   @Test
+   public void testTrimmedMean() {
+      QuantileSketch sketch = new QuantileSketch();
+      for (int i = 0; i < 98; i++) {
+         sketch.add(10);
+      }
+      sketch.add(-100000);
+      sketch.add(100000);
+
+      assertEquals(10, sketch.getTrimmedMean(0.1), 10 * QuantileSketch.RELATIVE_ACCURACY);
+      // the outliers are counted in mirrored buckets, so they cancel out
+      assertEquals(9.8, sketch.getTrimmedMean(0), 9.8 * QuantileSketch.RELATIVE_ACCURACY);
+   }
+
+   @Test
+   public void testEmptySketch() {
+      QuantileSketch sketch = new QuantileSketch();
+      assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+      assertTrue(Double.isNaN(sketch.getTrimmedMean(0.1)));
+
+      sketch.add(5);
+      sketch.remove(5);
+      assertEquals(0, sketch.getCount(), 0d);
+      assertTrue(Double.isNaN(sketch.getQuantile(0.5)));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNonFiniteValue() {
+      new QuantileSketch().add(Double.NaN);
+   }
+
+   private void assertQuantiles(List<Double> values, QuantileSketch sketch) {
+      List<Double> sorted = new ArrayList<>(values);
+      Collections.sort(sorted);
+      for (double quantile : QUANTILES) {
+         double expected = sorted.get((int) Math.floor(quantile * (sorted.size() - 1)));
+         double tolerance = Math.max(Math.abs(expected) * QuantileSketch.RELATIVE_ACCURACY, QuantileSketch.MIN_MAGNITUDE);
+         assertEquals("Quantile " + quantile, expected, sketch.getQuantile(quantile), tolerance);
+      }
+   }
+}
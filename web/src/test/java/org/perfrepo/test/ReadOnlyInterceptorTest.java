@@ -0,0 +1,80 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.web.dao.ReadOnlyInterceptor;
+
+import javax.interceptor.InvocationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link org.perfrepo.web.dao.ReadOnlyInterceptor}
+ *
+ * @author agent (agent@local)
+ */
+public class ReadOnlyInterceptorTest {
+
+   private final ReadOnlyInterceptor interceptor = new ReadOnlyInterceptor();
+
+   @Test
+   public void testActiveOnlyInsideInvocation() throws Exception {
+      assertFalse(ReadOnlyInterceptor.isActive());
+
+      InvocationContext ctx = mock(InvocationContext.class);
+      when(ctx.proceed()).thenAnswer(invocation -> ReadOnlyInterceptor.isActive());
+
+      assertEquals(Boolean.TRUE, interceptor.invoke(ctx));
+      assertFalse(ReadOnlyInterceptor.isActive());
+   }
+
+   @Test
+   public void testActiveAfterNestedInvocation() throws Exception {
+      InvocationContext innerCtx = mock(InvocationContext.class);
+      when(innerCtx.proceed()).thenAnswer(invocation -> ReadOnlyInterceptor.isActive());
+      InvocationContext outerCtx = mock(InvocationContext.class);
+      when(outerCtx.proceed()).thenAnswer(invocation -> {
+         assertEquals(Boolean.TRUE, interceptor.invoke(innerCtx));
+         // the outermost invocation isn't finished yet
+         return ReadOnlyInterceptor.isActive();
+      });
+
+      assertEquals(Boolean.TRUE, interceptor.invoke(outerCtx));
+      assertFalse(ReadOnlyInterceptor.isActive());
+   }
+
+   @Test
+   public void testInactiveAfterException() throws Exception {
+      InvocationContext ctx = mock(InvocationContext.class);
+      when(ctx.proceed()).thenThrow(new IllegalStateException("failed"));
+
+      try {
+         interceptor.invoke(ctx);
+         fail("Exception of the invocation expected");
+      } catch (IllegalStateException e) {
+         assertFalse(ReadOnlyInterceptor.isActive());
+      }
+   }
+
+   @Test
+   public void testActiveAfterNestedException() throws Exception {
+      InvocationContext innerCtx = mock(InvocationContext.class);
+      when(innerCtx.proceed()).thenThrow(new IllegalStateException("failed"));
+      InvocationContext outerCtx = mock(InvocationContext.class);
+      when(outerCtx.proceed()).thenAnswer(invocation -> {
+         try {
+            interceptor.invoke(innerCtx);
+         } catch (IllegalStateException e) {
+            // handled by the outer invocation
+         }
+         return ReadOnlyInterceptor.isActive();
+      });
+
+      assertTrue((Boolean) interceptor.invoke(outerCtx));
+      assertFalse(ReadOnlyInterceptor.isActive());
+   }
+}
@@ -0,0 +1,137 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.model.to.MetricAggregateTO;
+import org.perfrepo.model.util.QuantileSketch;
+import org.perfrepo.model.util.RunningStatistics;
+import org.perfrepo.web.alerting.RollingWindow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link org.perfrepo.web.alerting.RollingWindow}
+ *
+ * @author agent (agent@local)
+ */
+public class RollingWindowTest {
+
+   @Test
+   public void testWindowMatchesRecomputedAggregate() {
+      Random random = new Random(42);
+      int[][] windows = {{1, 1}, {2, 1}, {11, 10}, {11, 5}, {4, 2}, {7, 20}};
+      for (int[] bounds : windows) {
+         RollingWindow window = new RollingWindow(bounds[0], bounds[1]);
+         List<Double> values = new ArrayList<>();
+         for (int i = 0; i < 200; i++) {
+            double value = random.nextInt(50);
+            values.add(value);
+            assertTrue(window.add(value, new Date(i * 1000L), i));
+            assertAggregate(values, bounds[0], bounds[1], window.getAggregate());
+         }
+      }
+   }
+
+   @Test
+   public void testWindowSketchAndStatisticsFollowWindow() {
+      Random random = new Random(7);
+      RollingWindow window = new RollingWindow(11, 5);
+      List<Double> values = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+         double value = 1 + random.nextInt(1000);
+         values.add(value);
+         window.add(value, new Date(i * 1000L), i);
+
+         List<Double> inWindow = new ArrayList<>();
+         for (int position = 6; position < Math.min(11, values.size()); position++) {
+            inWindow.add(values.get(values.size() - 1 - position));
+         }
+         Collections.sort(inWindow);
+
+         RunningStatistics statistics = window.getStatistics();
+         assertEquals(inWindow.size(), statistics.getCount(), 0d);
+         if (inWindow.size() > 1) {
+            double sum = 0;
+            for (Double windowValue : inWindow) {
+               sum += windowValue;
+            }
+            double squares = 0;
+            for (Double windowValue : inWindow) {
+               squares += (windowValue - sum / inWindow.size()) * (windowValue - sum / inWindow.size());
+            }
+            assertEquals(squares / (inWindow.size() - 1), statistics.getVariance(), 1e-6);
+         }
+
+         QuantileSketch sketch = window.getSketch();
+         assertEquals(inWindow.size(), sketch.getCount(), 0d);
+         if (!inWindow.isEmpty()) {
+            double median = inWindow.get((inWindow.size() - 1) / 2);
+            assertEquals(median, sketch.getQuantile(0.5), median * QuantileSketch.RELATIVE_ACCURACY);
+         }
+      }
+   }
+
+   @Test
+   public void testEmptyWindow() {
+      RollingWindow window = new RollingWindow(4, 2);
+      window.add(1d, new Date(1000), 1L);
+      window.add(2d, new Date(2000), 2L);
+
+      MetricAggregateTO aggregate = window.getAggregate();
+      assertEquals(0, aggregate.getCount());
+      assertNull(aggregate.getMean());
+      assertEquals(2, aggregate.getStoredCount());
+   }
+
+   @Test
+   public void testOrderOfValues() {
+      RollingWindow window = new RollingWindow(2, 1);
+      assertTrue(window.add(1d, new Date(1000), 5L));
+      assertTrue(window.add(2d, new Date(2000), 3L));
+      assertTrue(window.add(3d, new Date(2000), 4L));
+
+      // the newest value again doesn't change the window
+      assertTrue(window.add(3d, new Date(2000), 4L));
+      assertEquals(2d, window.getAggregate().getMean(), 0d);
+      assertEquals(3, window.getAggregate().getStoredCount());
+
+      assertFalse(window.add(4d, new Date(2000), 2L));
+      assertFalse(window.add(4d, new Date(1500), 6L));
+      assertEquals(2d, window.getAggregate().getMean(), 0d);
+   }
+
+   private void assertAggregate(List<Double> values, int windowEnd, int windowSize, MetricAggregateTO aggregate) {
+      // positions counted from the newest value
+      int from = Math.max(windowEnd - windowSize, 0);
+      int to = Math.min(windowEnd, values.size());
+      long count = 0;
+      double sum = 0;
+      Double min = null;
+      Double max = null;
+      for (int position = from; position < to; position++) {
+         double value = values.get(values.size() - 1 - position);
+         count++;
+         sum += value;
+         min = min == null ? value : Math.min(min, value);
+         max = max == null ? value : Math.max(max, value);
+      }
+
+      assertEquals(count, aggregate.getCount());
+      assertEquals(values.size(), aggregate.getStoredCount());
+      if (count == 0) {
+         assertNull(aggregate.getSum());
+      } else {
+         assertEquals(sum, aggregate.getSum(), 1e-9);
+         assertEquals(min, aggregate.getMin());
+         assertEquals(max, aggregate.getMax());
+      }
+   }
+}
@@ -0,0 +1,89 @@
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.model.util.RunningStatistics;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link org.perfrepo.model.util.RunningStatistics}
+ *
+ * @author agent (agent@local)
+ */
+public class RunningStatisticsTest {
+
+   @Test
+   public void testStatistics() {
+      RunningStatistics statistics = new RunningStatistics();
+      statistics.add(new double[] {2, 4, 4, 4, 5, 5, 7, 9}, 0, 8);
+
+      assertEquals(8, statistics.getCount(), 0d);
+      assertEquals(5, statistics.getMean(), 1e-12);
+      assertEquals(4, statistics.getPopulationVariance(), 1e-12);
+      assertEquals(32d / 7, statistics.getVariance(), 1e-12);
+      assertEquals(Math.sqrt(32d / 7) / 5, statistics.getCoefficientOfVariation(), 1e-12);
+      assertEquals(2 / Math.sqrt(32d / 7), statistics.getZScore(7), 1e-12);
+   }
+
+   @Test
+   public void testLargeOffsetIsStable() {
+      // the naive sum of squares loses all digits of the variance here
+      RunningStatistics statistics = new RunningStatistics();
+      for (int i = 0; i < 1000; i++) {
+         statistics.add(1e9 + (i % 2 == 0 ? 1 : -1));
+      }
+
+      assertEquals(1, statistics.getPopulationVariance(), 1e-6);
+   }
+
+   @Test
+   public void testMergeAndRemove() {
+      Random random = new Random(42);
+      double[] values = new double[1000];
+      for (int i = 0; i < values.length; i++) {
+         values[i] = 100 + random.nextGaussian() * 10;
+      }
+
+      RunningStatistics first = new RunningStatistics();
+      first.add(values, 0, 300);
+      RunningStatistics second = new RunningStatistics();
+      second.add(values, 300, values.length);
+      first.merge(second);
+
+      RunningStatistics all = new RunningStatistics();
+      all.add(values, 0, values.length);
+      assertEquals(all.getCount(), first.getCount(), 0d);
+      assertEquals(all.getMean(), first.getMean(), 1e-9);
+      assertEquals(all.getVariance(), first.getVariance(), 1e-9);
+
+      for (int i = 0; i < 300; i++) {
+         first.remove(values[i]);
+      }
+      assertEquals(second.getMean(), first.getMean(), 1e-9);
+      assertEquals(second.getVariance(), first.getVariance(), 1e-9);
+
+      RunningStatistics restored = new RunningStatistics(second.getCount(), second.getMean(), second.getPopulationVariance());
+      assertEquals(second.getVariance(), restored.getVariance(), 1e-9);
+   }
+
+   @Test
+   public void testUndefinedStatistics() {
+      RunningStatistics statistics = new RunningStatistics();
+      assertTrue(Double.isNaN(statistics.getMean()));
+
+      statistics.add(5);
+      assertEquals(5, statistics.getMean(), 0d);
+      assertTrue(Double.isNaN(statistics.getVariance()));
+
+      statistics.add(5);
+      assertEquals(0, statistics.getVariance(), 0d);
+      assertTrue(Double.isNaN(statistics.getZScore(6)));
+
+      statistics.remove(5);
+      statistics.remove(5);
+      assertEquals(0, statistics.getCount(), 0d);
+   }
+}
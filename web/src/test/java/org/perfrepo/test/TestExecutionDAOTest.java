@@ -13,9 +13,11 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.perfrepo.model.*;
+import org.perfrepo.model.to.MetricAggregateTO;
 import org.perfrepo.model.to.MultiValueResultWrapper;
 import org.perfrepo.model.to.OrderBy;
 import org.perfrepo.model.to.ResultWrapper;
+import org.perfrepo.model.to.TestExecutionRowTO;
 import org.perfrepo.model.to.TestExecutionSearchTO;
 import org.perfrepo.web.dao.DAO;
 import org.perfrepo.web.dao.MetricDAO;
@@ -37,6 +39,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
@@ -444,6 +447,143 @@ public class TestExecutionDAOTest {
           .forEach(index -> assertEquals(expectedResultIds.get(index), result.get(index).getId()));
    }
 
+   @org.junit.Test
+   public void testSearchByMetricValue() {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      TestExecutionSearchTO.MetricCriteria metricCriteria = new TestExecutionSearchTO.MetricCriteria();
+      metricCriteria.setName(metrics[0].getName());
+      metricCriteria.setOperator(TestExecutionSearchTO.ParamCriteria.Operator.LT);
+      metricCriteria.setValue(25d);
+      searchCriteria.getMetrics().add(metricCriteria);
+      searchCriteria.setOrderBy(OrderBy.DATE_ASC);
+
+      List<TestExecution> result = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(2, result.size());
+      assertEquals(testExecutions[0].getId(), result.get(0).getId());
+      assertEquals(testExecutions[1].getId(), result.get(1).getId());
+   }
+
+   @org.junit.Test
+   public void testSearchByNumericParameter() {
+      assertEquals(Arrays.asList(testExecutions[1].getId(), testExecutions[3].getId()),
+                   searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.LT, "3", null));
+      assertEquals(Arrays.asList(testExecutions[0].getId(), testExecutions[1].getId(), testExecutions[3].getId()),
+                   searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.LE, "3", null));
+      assertEquals(Arrays.asList(testExecutions[2].getId()),
+                   searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.GT, "3", null));
+      assertEquals(Arrays.asList(testExecutions[0].getId(), testExecutions[2].getId()),
+                   searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.GE, "3.0", null));
+      assertEquals(Arrays.asList(testExecutions[0].getId(), testExecutions[3].getId()),
+                   searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.BETWEEN, "2", "3"));
+   }
+
+   @org.junit.Test
+   public void testSearchByInvalidNumericParameter() {
+      assertTrue(searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.BETWEEN, "2", null).isEmpty());
+      assertTrue(searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.BETWEEN, "2", "three").isEmpty());
+      assertTrue(searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator.GT, "three", null).isEmpty());
+   }
+
+   @org.junit.Test
+   public void testSearchByFullText() {
+      setComment(testExecutions[0], "memory leak in the cache");
+      setComment(testExecutions[1], "leak found, leak fixed and leak again");
+
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setFullText("leaks");
+      searchCriteria.setOrderBy(OrderBy.DATE_ASC);
+
+      List<TestExecution> result = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(2, result.size());
+      assertEquals(testExecutions[0].getId(), result.get(0).getId());
+      assertEquals(testExecutions[1].getId(), result.get(1).getId());
+
+      // name is searched too
+      searchCriteria.setFullText("execution 3");
+      result = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(1, result.size());
+      assertEquals(testExecutions[2].getId(), result.get(0).getId());
+
+      searchCriteria.setFullText("deadlock");
+      assertTrue(testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId())).isEmpty());
+   }
+
+   @org.junit.Test
+   public void testSearchRowsByFullTextRelevance() {
+      setComment(testExecutions[0], "memory leak in the cache");
+      setComment(testExecutions[1], "leak found, leak fixed and leak again");
+
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setFullText("leak");
+      searchCriteria.setOrderBy(OrderBy.RELEVANCE);
+
+      List<TestExecutionRowTO> result = testExecutionDAO.searchTestExecutionRows(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(2, result.size());
+      assertEquals(testExecutions[1].getId(), result.get(0).getId());
+      assertEquals(testExecutions[0].getId(), result.get(1).getId());
+      assertEquals(2, testExecutionDAO.getLastQueryResultsCount());
+   }
+
+   @org.junit.Test
+   public void testSearchTopByMetric() {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setOrderBy(OrderBy.METRIC_BEST);
+      searchCriteria.setOrderByMetric(metrics[0].getName());
+      searchCriteria.setLimitHowMany(3);
+
+      List<TestExecution> result = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      List<Long> expectedResultIds = Arrays.asList(testExecutions[4].getId(),
+                                                   testExecutions[3].getId(),
+                                                   testExecutions[2].getId());
+      assertEquals(expectedResultIds.size(), result.size());
+      IntStream.range(0, expectedResultIds.size())
+          .forEach(index -> assertEquals(expectedResultIds.get(index), result.get(index).getId()));
+      // test execution without value of the metric isn't counted
+      assertEquals(5, testExecutionDAO.getLastQueryResultsCount());
+
+      searchCriteria.setOrderBy(OrderBy.METRIC_WORST);
+      List<Long> expectedWorstIds = Arrays.asList(testExecutions[0].getId(),
+                                                  testExecutions[1].getId(),
+                                                  testExecutions[2].getId());
+      List<TestExecution> worstResult = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      IntStream.range(0, expectedWorstIds.size())
+          .forEach(index -> assertEquals(expectedWorstIds.get(index), worstResult.get(index).getId()));
+   }
+
+   @org.junit.Test
+   public void testAggregateMetricValues() {
+      Metric metric = metricDAO.get(metrics[0].getId());
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setTags("tag1");
+
+      MetricAggregateTO aggregate = testExecutionDAO.aggregateMetricValues(searchCriteria, metric, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(3, aggregate.getCount());
+      assertEquals(60d, aggregate.getSum(), 0d);
+      assertEquals(10d, aggregate.getMin(), 0d);
+      assertEquals(30d, aggregate.getMax(), 0d);
+
+      // 2 values shifted by the newest one
+      searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setLimitFrom(3);
+      searchCriteria.setLimitHowMany(2);
+
+      aggregate = testExecutionDAO.aggregateMetricValues(searchCriteria, metric, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(2, aggregate.getCount());
+      assertEquals(70d, aggregate.getSum(), 0d);
+      assertEquals(3, aggregate.getStoredCount());
+
+      // window reaches past the oldest value
+      searchCriteria.setTags("tag1");
+      searchCriteria.setLimitFrom(11);
+      searchCriteria.setLimitHowMany(10);
+
+      aggregate = testExecutionDAO.aggregateMetricValues(searchCriteria, metric, Arrays.asList(tests[0].getGroupId()));
+      assertEquals(2, aggregate.getCount());
+      assertEquals(10d, aggregate.getMin(), 0d);
+      assertEquals(20d, aggregate.getMax(), 0d);
+      assertEquals(3, aggregate.getStoredCount());
+   }
+
    @org.junit.Test
    public void testSearchValuesWithEmptyCriteria() {
       TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
@@ -476,6 +616,26 @@ public class TestExecutionDAOTest {
           .forEach(index -> assertEquals(expectedResult.get(index), result.get(index).getValue()));
    }
 
+   @org.junit.Test
+   public void testSearchValuesWithParameterOrdering() {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      searchCriteria.setOrderBy(OrderBy.PARAMETER_DESC);
+      searchCriteria.setOrderByParameter("param");
+
+      Metric metric = metricDAO.get(metrics[0].getId());
+
+      // test execution without the parameter is kept and ordered last
+      List<ResultWrapper> result = testExecutionDAO.searchValues(searchCriteria, metric, Arrays.asList(tests[0].getGroupId()));
+      List<Double> expectedResult = Arrays.asList(values[2].getResultValue(),
+                                                  values[0].getResultValue(),
+                                                  values[3].getResultValue(),
+                                                  values[1].getResultValue(),
+                                                  values[4].getResultValue());
+      assertEquals(expectedResult.size(), result.size());
+      IntStream.range(0, expectedResult.size())
+          .forEach(index -> assertEquals(expectedResult.get(index), result.get(index).getValue()));
+   }
+
    @org.junit.Test
    public void testSearchMultiValues() {
       TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
@@ -494,6 +654,27 @@ public class TestExecutionDAOTest {
     * ------------ Helper methods for creation of test environment ------------
     */
 
+   private void setComment(TestExecution testExecution, String comment) {
+      TestExecution storedTestExecution = testExecutionDAO.get(testExecution.getId());
+      storedTestExecution.setComment(comment);
+      testExecutionDAO.update(storedTestExecution);
+   }
+
+   private List<Long> searchIdsByParameter(TestExecutionSearchTO.ParamCriteria.Operator operator, String value, String valueTo) {
+      TestExecutionSearchTO searchCriteria = new TestExecutionSearchTO();
+      TestExecutionSearchTO.ParamCriteria paramCriteria = new TestExecutionSearchTO.ParamCriteria();
+      paramCriteria.setName("param");
+      paramCriteria.setOperator(operator);
+      paramCriteria.setValue(value);
+      paramCriteria.setValueTo(valueTo);
+      searchCriteria.getParameters().add(paramCriteria);
+      searchCriteria.setOrderBy(OrderBy.DATE_ASC);
+
+      List<TestExecution> result = testExecutionDAO.searchTestExecutions(searchCriteria, Arrays.asList(tests[0].getGroupId()));
+      return result.stream().map(TestExecution::getId).collect(Collectors.toList());
+   }
+
+
    private Test createTest(String groupId, String uid) {
       return Test.builder()
           .name("test1")
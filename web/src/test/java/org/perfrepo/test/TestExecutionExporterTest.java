@@ -0,0 +1,86 @@
+/**
+ * PerfRepo
+ * <p>
+ * Copyright (C) 2015 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.perfrepo.test;
+
+import org.junit.Test;
+import org.perfrepo.web.util.TestExecutionExporter;
+import org.perfrepo.web.util.TestExecutionExporter.Format;
+import org.perfrepo.web.util.TestExecutionExporter.Row;
+import org.perfrepo.web.util.TestExecutionExporter.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link org.perfrepo.web.util.TestExecutionExporter}
+ *
+ * @author agent (agent@local)
+ */
+public class TestExecutionExporterTest {
+
+   @Test
+   public void testCsv() throws Exception {
+      String[] lines = export(Format.CSV, createRow()).split("\r\n");
+      assertEquals(3, lines.length);
+      assertEquals("id,test_uid,name,started,tags,parameters,metric,value,value_parameters", lines[0]);
+      assertEquals("1,uid,\"run \"\"A\"\", 1\",,jdk8 stable,\"{\"\"host\"\":\"\"x,y\"\"}\",throughput,10.5,", lines[1]);
+      assertEquals("1,uid,\"run \"\"A\"\", 1\",,jdk8 stable,\"{\"\"host\"\":\"\"x,y\"\"}\",latency,NaN,\"{\"\"iteration\"\":\"\"1\"\"}\"", lines[2]);
+   }
+
+   @Test
+   public void testCsvWithoutRows() throws Exception {
+      assertEquals("id,test_uid,name,started,tags,parameters,metric,value,value_parameters\r\n", export(Format.CSV));
+   }
+
+   @Test
+   public void testNdjson() throws Exception {
+      assertEquals("{\"id\":1,\"testUid\":\"uid\",\"name\":\"run \\\"A\\\", 1\",\"started\":null,\"tags\":[\"jdk8\",\"stable\"],"
+                       + "\"parameters\":{\"host\":\"x,y\"},\"values\":[{\"metric\":\"throughput\",\"value\":10.5},"
+                       + "{\"metric\":\"latency\",\"value\":null,\"parameters\":{\"iteration\":\"1\"}}]}\n",
+                   export(Format.NDJSON, createRow()));
+   }
+
+   @Test
+   public void testParseFormat() {
+      assertEquals(Format.NDJSON, Format.parse("NDJSON"));
+      assertEquals(Format.CSV, Format.parse("csv"));
+      assertNull(Format.parse("xls"));
+   }
+
+   private Row createRow() {
+      Row row = new Row(1L, "uid", "run \"A\", 1", null);
+      row.getTags().add("jdk8");
+      row.getTags().add("stable");
+      row.getParameters().put("host", "x,y");
+      row.getValues().add(new Value("throughput", 10.5));
+      Value latency = new Value("latency", Double.NaN);
+      latency.getParameters().put("iteration", "1");
+      row.getValues().add(latency);
+      return row;
+   }
+
+   private String export(Format format, Row... rows) throws Exception {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      TestExecutionExporter exporter = new TestExecutionExporter(format, output);
+      for (Row row : rows) {
+         exporter.write(row);
+      }
+      exporter.flush();
+      return new String(output.toByteArray(), StandardCharsets.UTF_8);
+   }
+}
@@ -0,0 +1,73 @@
+package org.perfrepo.test;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transaction synchronization registry of a single transaction, which is begun and completed by the test.
+ *
+ * @author agent (agent@local)
+ */
+public class TestTransactionRegistry implements TransactionSynchronizationRegistry {
+
+   private Object transactionKey;
+   private final Map<Object, Object> resources = new HashMap<>();
+   private final List<Synchronization> synchronizations = new ArrayList<>();
+
+   public void begin() {
+      transactionKey = new Object();
+   }
+
+   /**
+    * Completes the transaction and notifies the registered synchronizations.
+    *
+    * @param status status of the completed transaction, e.g. {@link Status#STATUS_COMMITTED}
+    */
+   public void end(int status) {
+      transactionKey = null;
+      resources.clear();
+      for (Synchronization synchronization : synchronizations) {
+         synchronization.afterCompletion(status);
+      }
+      synchronizations.clear();
+   }
+
+   @Override
+   public Object getTransactionKey() {
+      return transactionKey;
+   }
+
+   @Override
+   public void putResource(Object key, Object value) {
+      resources.put(key, value);
+   }
+
+   @Override
+   public Object getResource(Object key) {
+      return resources.get(key);
+   }
+
+   @Override
+   public void registerInterposedSynchronization(Synchronization synchronization) {
+      synchronizations.add(synchronization);
+   }
+
+   @Override
+   public int getTransactionStatus() {
+      return transactionKey == null ? Status.STATUS_NO_TRANSACTION : Status.STATUS_ACTIVE;
+   }
+
+   @Override
+   public void setRollbackOnly() {
+   }
+
+   @Override
+   public boolean getRollbackOnly() {
+      return false;
+   }
+}
@@ -0,0 +1,92 @@
+package org.perfrepo.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.perfrepo.model.FavoriteParameter;
+import org.perfrepo.web.service.UserContext;
+import org.perfrepo.web.service.UserContextCache;
+
+import javax.transaction.Status;
+import java.util.Collections;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link org.perfrepo.web.service.UserContextCache}
+ *
+ * @author agent (agent@local)
+ */
+public class UserContextCacheTest {
+
+   private UserContextCache cache;
+   private TestTransactionRegistry transaction;
+
+   @Before
+   public void init() {
+      transaction = new TestTransactionRegistry();
+      cache = new UserContextCache();
+      cache.setTransactionSynchronizationRegistry(transaction);
+   }
+
+   @Test
+   public void testContextCached() {
+      UserContext context = createContext("user1");
+      cache.put(context);
+
+      assertSame(context, cache.get("user1"));
+      assertNull(cache.get("user2"));
+   }
+
+   @Test
+   public void testExpiredContextRemoved() {
+      cache.put(createContext("user1"));
+      cache.setMaxAge(-1);
+      assertNull(cache.get("user1"));
+
+      cache.setMaxAge(60 * 1000);
+      assertNull(cache.get("user1"));
+   }
+
+   @Test
+   public void testInvalidateWithoutTransaction() {
+      cache.put(createContext("user1"));
+      UserContext other = createContext("user2");
+      cache.put(other);
+      cache.invalidate("user1");
+
+      assertNull(cache.get("user1"));
+      assertSame(other, cache.get("user2"));
+   }
+
+   @Test
+   public void testInvalidateRepeatedAfterCommit() {
+      cache.put(createContext("user1"));
+      transaction.begin();
+      cache.invalidate("user1");
+      assertNull(cache.get("user1"));
+
+      // context cached again with the data of the transaction
+      UserContext uncommitted = createContext("user1");
+      cache.put(uncommitted);
+      assertSame(uncommitted, cache.get("user1"));
+      transaction.end(Status.STATUS_COMMITTED);
+
+      assertNull(cache.get("user1"));
+   }
+
+   @Test
+   public void testInvalidateRepeatedAfterRollback() {
+      transaction.begin();
+      cache.invalidate("user1");
+      cache.put(createContext("user1"));
+      transaction.end(Status.STATUS_ROLLEDBACK);
+
+      assertNull(cache.get("user1"));
+   }
+
+   private UserContext createContext(String username) {
+      return new UserContext(1L, username, Collections.singletonList("group1"), Collections.<String, String>emptyMap(),
+                             Collections.<FavoriteParameter>emptyList());
+   }
+}